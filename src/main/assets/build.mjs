@@ -0,0 +1,92 @@
+// Build of the static assets, run by Maven once the resources are copied (process-resources):
+//   node build.mjs <static directory of the build, e.g. target/classes/static>
+// - compiles and minifies css/parcinfo.less into css/parcinfo.min.css;
+// - copies the Roboto Light font (latin subset), its name suffixed with a hash of its content,
+//   since the URLs inside the precompressed CSS are not rewritten by Spring;
+// - writes a .gz and a .br next to each text asset, served instead of it to the browsers accepting them.
+// The other URLs are fingerprinted by Spring when the pages are rendered (VersionResourceResolver).
+import { createHash } from 'node:crypto';
+import { mkdir, readdir, readFile, writeFile } from 'node:fs/promises';
+import { dirname, extname, join, relative } from 'node:path';
+import { fileURLToPath } from 'node:url';
+import { brotliCompressSync, constants, gzipSync } from 'node:zlib';
+import CleanCSS from 'clean-css';
+import less from 'less';
+
+const here = dirname(fileURLToPath(import.meta.url));
+const output = process.argv[2];
+if (!output) {
+  console.error('Usage: node build.mjs <static directory>');
+  process.exit(1);
+}
+
+// Extensions of the assets worth compressing; fonts and images are compressed already
+const COMPRESSED = new Set(['.css', '.js', '.svg', '.json', '.txt']);
+
+async function fingerprinted(source, directory, name) {
+  const content = await readFile(source);
+  const hash = createHash('sha256').update(content).digest('hex').slice(0, 12);
+  const file = `${name}-${hash}${extname(source)}`;
+  await mkdir(join(output, directory), { recursive: true });
+  await writeFile(join(output, directory, file), content);
+  return `${directory}/${file}`;
+}
+
+async function buildCss(fonts) {
+  const entry = join(here, 'css', 'parcinfo.less');
+  const { css } = await less.render(await readFile(entry, 'utf8'), {
+    filename: entry,
+    modifyVars: { 'roboto-light': `"../${fonts.robotoLight}"` },
+  });
+  const minified = new CleanCSS({ level: 2 }).minify(css);
+  if (minified.errors.length) {
+    throw new Error(minified.errors.join('\n'));
+  }
+  await mkdir(join(output, 'css'), { recursive: true });
+  await writeFile(join(output, 'css', 'parcinfo.min.css'), minified.styles);
+}
+
+async function* files(directory) {
+  for (const entry of await readdir(directory, { withFileTypes: true })) {
+    const path = join(directory, entry.name);
+    if (entry.isDirectory()) {
+      yield* files(path);
+    } else {
+      yield path;
+    }
+  }
+}
+
+async function compress() {
+  let count = 0;
+  for await (const file of files(output)) {
+    if (!COMPRESSED.has(extname(file))) {
+      continue;
+    }
+    const content = await readFile(file);
+    const gzip = gzipSync(content, { level: 9 });
+    const brotli = brotliCompressSync(content, {
+      params: {
+        [constants.BROTLI_PARAM_QUALITY]: constants.BROTLI_MAX_QUALITY,
+        [constants.BROTLI_PARAM_SIZE_HINT]: content.length,
+      },
+    });
+    // Only the variants smaller than the original are kept
+    if (gzip.length < content.length) {
+      await writeFile(`${file}.gz`, gzip);
+    }
+    if (brotli.length < content.length) {
+      await writeFile(`${file}.br`, brotli);
+    }
+    console.log(`${relative(output, file)}: ${content.length} B, gzip ${gzip.length} B, br ${brotli.length} B`);
+    count++;
+  }
+  return count;
+}
+
+const fonts = {
+  robotoLight: await fingerprinted(
+    join(here, 'node_modules', '@fontsource', 'roboto', 'files', 'roboto-latin-300-normal.woff2'), 'fonts', 'roboto-light'),
+};
+await buildCss(fonts);
+console.log(`${await compress()} assets compressed in ${output}`);
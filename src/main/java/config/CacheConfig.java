@@ -0,0 +1,43 @@
+package config;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+import fr.afpa.pompey.cda17.ParcInfo.cache.InventoryCache;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.caffeine.CaffeineCacheManager;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Declares the caches of the data read from the API.
+ * Each cache expires its entries after the configured TTL and is bounded in size
+ * (least recently used entries are evicted first). Statistics are recorded so that
+ * the hit and miss counters are published by the actuator (cache.gets metric).
+ */
+@Configuration
+public class CacheConfig {
+
+    /**
+     * @param props the application properties.
+     * @return the cache manager holding the entity and collection caches.
+     */
+    @Bean
+    public CacheManager cacheManager(CustomProperties props) {
+        CustomProperties.Cache cache = props.getCache();
+
+        CaffeineCacheManager cacheManager = new CaffeineCacheManager();
+        cacheManager.registerCustomCache(InventoryCache.PERSONNES, build(cache, cache.getMaxCollections()));
+        cacheManager.registerCustomCache(InventoryCache.PERSONNE, build(cache, cache.getMaxEntities()));
+        cacheManager.registerCustomCache(InventoryCache.PERIPHERIQUES, build(cache, cache.getMaxCollections()));
+        cacheManager.registerCustomCache(InventoryCache.PERIPHERIQUE, build(cache, cache.getMaxEntities()));
+        return cacheManager;
+    }
+
+    private static com.github.benmanes.caffeine.cache.Cache<Object, Object> build(CustomProperties.Cache cache,
+                                                                                    long maximumSize) {
+        return Caffeine.newBuilder()
+                .expireAfterWrite(cache.getTtl())
+                .maximumSize(maximumSize)
+                .recordStats()
+                .build();
+    }
+}
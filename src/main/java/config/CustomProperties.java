@@ -1,10 +1,298 @@
 package config;
 
+import lombok.AllArgsConstructor;
 import lombok.Data;
+import lombok.NoArgsConstructor;
 import org.springframework.boot.context.properties.ConfigurationProperties;
 
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
 @Data
 @ConfigurationProperties(prefix = "fr.afpa.pompey.cda17") // Corrected prefix
 public class CustomProperties {
     private String apiUrl;
-}
\ No newline at end of file
+
+    // Settings of the pooled HTTP client shared by the repositories
+    private Http http = new Http();
+
+    // Settings of the read-through cache placed in front of the repositories
+    private Cache cache = new Cache();
+
+    // Settings of the pagination of the list pages
+    private Pagination pagination = new Pagination();
+
+    // Settings of the lists rendered while they are read from the API
+    private Streaming streaming = new Streaming();
+
+    // Settings of the bulk assignment of peripherals
+    private Bulk bulk = new Bulk();
+
+    // Settings of the typeahead search of the Personne
+    private Search search = new Search();
+
+    // Settings of the metrics published at /actuator/prometheus
+    private Metrics metrics = new Metrics();
+
+    // Timeouts, bulkheads and circuit breakers of the operations of the repositories
+    private Resilience resilience = new Resilience();
+
+    // Second attempts of the slow idempotent reads
+    private Hedging hedging = new Hedging();
+
+    // Local copy of the inventory, read while the API is unreachable
+    private Snapshot snapshot = new Snapshot();
+
+    // Warm-up of the application at startup, before it reports itself ready
+    private WarmUp warmUp = new WarmUp();
+
+    // Static assets (css, js, img, fonts) served with fingerprinted URLs
+    private Assets assets = new Assets();
+
+    // Local replica of the inventory, kept up to date from the change feed of the API
+    private Sync sync = new Sync();
+
+    @Data
+    public static class Http {
+        // Client of the repositories: "rest-template" (blocking, the default) or "web-client" (non-blocking)
+        private String client = "rest-template";
+
+        // Maximum time to establish a TCP connection to the API
+        private Duration connectTimeout = Duration.ofSeconds(2);
+
+        // Maximum time to wait for data once the request has been sent
+        private Duration readTimeout = Duration.ofSeconds(5);
+
+        // Maximum time to wait for a free connection in the pool
+        private Duration connectionRequestTimeout = Duration.ofSeconds(2);
+
+        // Total number of connections kept by the pool
+        private int maxConnections = 50;
+
+        // Number of connections allowed per route (the API is a single route)
+        private int maxConnectionsPerRoute = 20;
+
+        // How long an idle connection is kept alive when the API sends no Keep-Alive header
+        private Duration keepAlive = Duration.ofSeconds(30);
+
+        // Interval at which the pool statistics are logged (debug level)
+        private Duration statsLogInterval = Duration.ofMinutes(1);
+
+        // Revalidate the GETs with If-None-Match / If-Modified-Since instead of downloading again
+        private boolean conditionalGet = true;
+
+        // Maximum number of responses (with their validators) kept for the conditional GETs
+        private long maxValidatedResponses = 10_000;
+
+        // Maximum number of calls in flight towards the API, whatever the number of request threads
+        private int maxConcurrentCalls = 20;
+
+        // Maximum time a call waits for its turn before failing
+        private Duration concurrencyAcquireTimeout = Duration.ofSeconds(2);
+
+        // Maximum time AsyncApiCalls.joinAll waits for calls started together (the warm-up connections)
+        private Duration joinTimeout = Duration.ofSeconds(8);
+    }
+
+    @Data
+    public static class Cache {
+        // How long an entry read from the API is served without asking the API again
+        private Duration ttl = Duration.ofSeconds(30);
+
+        // Maximum number of single entities (one Personne, one Peripherique) kept per cache
+        private long maxEntities = 10_000;
+
+        // Maximum number of whole collections (list of Personne, of Peripherique) kept per cache
+        private long maxCollections = 16;
+
+        // Maximum number of list pages whose rendered HTML is kept, by data version and URL
+        private long maxRenderedPages = 200;
+    }
+
+    @Data
+    public static class Pagination {
+        // True if the API pages itself (/personnes?page=&size=&sort=&q=), false to page over the cached lists
+        private boolean serverSide = false;
+
+        // Largest page size a request may ask for
+        private int maxSize = 200;
+    }
+
+    @Data
+    public static class Streaming {
+        // Number of rows written before the response is flushed to the browser
+        private int chunkSize = 100;
+    }
+
+    @Data
+    public static class Bulk {
+        // Number of assignments sent one after the other by the same task
+        private int chunkSize = 10;
+
+        // Maximum number of chunks sent at the same time
+        private int parallelism = 4;
+    }
+
+    @Data
+    public static class Search {
+        // How often the index is rebuilt from the API, to see the changes made by other clients
+        private Duration refreshInterval = Duration.ofMinutes(5);
+
+        // Maximum number of suggestions returned for one query
+        private int maxSuggestions = 20;
+    }
+
+    @Data
+    public static class Metrics {
+        // Routes timed with a histogram, and the percentiles computed for each (metrics.histograms[/route]=0.5,0.95)
+        private Map<String, double[]> histograms = new LinkedHashMap<>();
+    }
+
+    @Data
+    public static class Resilience {
+        // Guard the operations of the repositories (a switch for the benchmarks of the raw calls)
+        private boolean enabled = true;
+
+        // Policy of the operations that have none of their own
+        private Policy defaults = new Policy(Duration.ofSeconds(5), 10, Duration.ofSeconds(1),
+                20, 10, 50, Duration.ofSeconds(30), 3);
+
+        // Policies of given operations (operations[PersonneRepository.getPersonnes].timeout=3s), unset settings taken from the defaults
+        private Map<String, Policy> operations = new LinkedHashMap<>();
+
+        // Maximum number of last known good results kept per read operation, one per list of arguments
+        private long maxFallbackEntries = 10_000;
+
+        /**
+         * @param operation the operation, as "Interface.method".
+         * @return its policy, completed with the defaults.
+         */
+        public Policy policy(String operation) {
+            Policy own = operations.get(operation);
+            return own == null ? defaults : own.orElse(defaults);
+        }
+    }
+
+    @Data
+    public static class Hedging {
+        // Send a second attempt when the first one is slow (each attempt taking a thread of the apiExecutor)
+        private boolean enabled = false;
+
+        // Operations hedged, as "Interface.method": only reads that may safely be sent twice
+        private List<String> operations = List.of(
+                "PersonneRepository.getPersonnes",
+                "PersonneRepository.getPersonne",
+                "PeripheriqueRepository.getPeripheriques",
+                "PeripheriqueRepository.getPeripherique",
+                "AppareilRepository.getAppareils");
+
+        // The second attempt is sent once the first one is slower than this percentile of the latest window calls
+        private double percentile = 95;
+        private int window = 1000;
+
+        // Calls timed before hedging, and the shortest delay before a second attempt
+        private int minSamples = 100;
+        private Duration minDelay = Duration.ofMillis(10);
+
+        // At most budget-percent second attempts per 100 calls of the hedged operations
+        private int budgetPercent = 10;
+    }
+
+    @Data
+    public static class Snapshot {
+        // Keep a copy of the inventory on disk, and read it when the API is unreachable
+        private boolean enabled = true;
+
+        // Directory of the snapshot file and of its journal
+        private Path directory = Path.of("snapshot");
+
+        // How often the lists are read from the API, and written again when they changed
+        private Duration interval = Duration.ofMinutes(5);
+    }
+
+    @Data
+    public static class WarmUp {
+        // Warm the application up before it reports itself ready (only with an embedded web server)
+        private boolean enabled = true;
+
+        // Connections opened to the API at once, kept in the pool
+        private int connections = 4;
+
+        // Pages requested from the application itself, {personne} and {peripherique} replaced by an ID of each
+        private List<String> pages = List.of(
+                "/",
+                "/personnes",
+                "/peripheriques",
+                "/personnes/create",
+                "/peripheriques/create",
+                "/peripheriques/affect",
+                "/personnes/{personne}/update",
+                "/personnes/{personne}/equipements",
+                "/peripheriques/{peripherique}/update",
+                "/peripheriques/{peripherique}/affect",
+                "/personnes/search?q=a");
+
+        // Times each page is requested, for the JIT compiler to compile the rendering
+        private int iterations = 20;
+
+        // Maximum duration of the warm-up: the application is ready after it, warm or not
+        private Duration timeout = Duration.ofSeconds(60);
+    }
+
+    @Data
+    public static class Assets {
+        // Lifetime of the assets requested by their fingerprinted URL in the browsers; it changes with their content
+        private Duration maxAge = Duration.ofDays(365);
+    }
+
+    @Data
+    public static class Sync {
+        // Read the pages from the replica; the API must expose /changes/cursor and /changes
+        private boolean enabled = false;
+
+        // How often the changes are read from the API
+        private Duration interval = Duration.ofSeconds(10);
+
+        // Maximum number of entities read at once
+        private int batchSize = 500;
+
+        // Age of the replica after which the pages tell it is not up to date
+        private Duration maxLag = Duration.ofMinutes(1);
+    }
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Policy {
+        // Maximum time of the whole operation: waiting for a permit and a connection, the answer and its body
+        private Duration timeout;
+
+        // Calls of the operation in flight at the same time, and how long a call waits for its turn
+        private Integer maxConcurrentCalls;
+        private Duration maxWait;
+
+        // The circuit opens when failure-rate-threshold % of the last sliding-window calls failed, after minimum-calls calls
+        private Integer slidingWindow;
+        private Integer minimumCalls;
+        private Integer failureRateThreshold;
+
+        // How long the circuit stays open, then how many successful trial calls close it
+        private Duration openDuration;
+        private Integer halfOpenCalls;
+
+        Policy orElse(Policy defaults) {
+            return new Policy(
+                    timeout != null ? timeout : defaults.timeout,
+                    maxConcurrentCalls != null ? maxConcurrentCalls : defaults.maxConcurrentCalls,
+                    maxWait != null ? maxWait : defaults.maxWait,
+                    slidingWindow != null ? slidingWindow : defaults.slidingWindow,
+                    minimumCalls != null ? minimumCalls : defaults.minimumCalls,
+                    failureRateThreshold != null ? failureRateThreshold : defaults.failureRateThreshold,
+                    openDuration != null ? openDuration : defaults.openDuration,
+                    halfOpenCalls != null ? halfOpenCalls : defaults.halfOpenCalls);
+        }
+    }
+}
@@ -0,0 +1,44 @@
+package config;
+
+import org.springframework.boot.autoconfigure.thread.Threading;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+/**
+ * Declares the executor of the work done off the request thread towards the API.
+ * It follows spring.threads.virtual.enabled, the switch that also moves the Tomcat
+ * request handling onto virtual threads: one virtual thread per task when it is on,
+ * a pool of platform threads when it is off. In both modes the number of calls
+ * really sent to the API is bounded by the ApiConcurrencyLimiter, not by the threads.
+ */
+@Configuration
+public class ExecutionConfig {
+
+    /**
+     * Executor of the asynchronous calls to the API.
+     * @param environment the environment, to read the virtual threads switch.
+     * @param props the application properties.
+     * @return the executor.
+     */
+    @Bean
+    public AsyncTaskExecutor apiExecutor(Environment environment, CustomProperties props) {
+        if (Threading.VIRTUAL.isActive(environment)) {
+            SimpleAsyncTaskExecutor executor = new SimpleAsyncTaskExecutor("api-");
+            executor.setVirtualThreads(true);
+            return executor;
+        }
+
+        // More platform threads than calls allowed in flight would only wait on the limiter
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setThreadNamePrefix("api-");
+        executor.setCorePoolSize(props.getHttp().getMaxConcurrentCalls());
+        executor.setMaxPoolSize(props.getHttp().getMaxConcurrentCalls());
+        executor.setWaitForTasksToCompleteOnShutdown(true);
+        executor.initialize();
+        return executor;
+    }
+}
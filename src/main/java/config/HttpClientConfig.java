@@ -0,0 +1,158 @@
+package config;
+
+import fr.afpa.pompey.cda17.ParcInfo.http.ApiConcurrencyLimiter;
+import fr.afpa.pompey.cda17.ParcInfo.http.OperationTimeouts;
+import org.apache.hc.client5.http.config.ConnectionConfig;
+import org.apache.hc.client5.http.config.RequestConfig;
+import org.apache.hc.client5.http.impl.classic.CloseableHttpClient;
+import org.apache.hc.client5.http.impl.classic.HttpClients;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManager;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManagerBuilder;
+import org.apache.hc.client5.http.protocol.HttpClientContext;
+import org.apache.hc.core5.concurrent.Cancellable;
+import org.apache.hc.core5.http.ClassicHttpRequest;
+import org.apache.hc.core5.util.TimeValue;
+import org.apache.hc.core5.util.Timeout;
+import org.springframework.boot.web.client.RestTemplateBuilder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
+import org.springframework.web.client.RestTemplate;
+
+import java.net.URI;
+import java.time.Duration;
+
+/**
+ * Declares the HTTP client shared by every repository.
+ * A single pooled, keep-alive Apache HttpClient sits behind one RestTemplate,
+ * so the connections to the API are reused instead of being opened on each call.
+ */
+@Configuration
+public class HttpClientConfig {
+
+    /**
+     * Connection pool towards the API, sized and timed from the "http" properties.
+     * @param props the application properties.
+     * @return the pooling connection manager.
+     */
+    @Bean
+    public PoolingHttpClientConnectionManager apiConnectionManager(CustomProperties props) {
+        CustomProperties.Http http = props.getHttp();
+
+        return PoolingHttpClientConnectionManagerBuilder.create()
+                .setMaxConnTotal(http.getMaxConnections())
+                .setMaxConnPerRoute(http.getMaxConnectionsPerRoute())
+                .setDefaultConnectionConfig(ConnectionConfig.custom()
+                        .setConnectTimeout(Timeout.of(http.getConnectTimeout()))
+                        .setSocketTimeout(Timeout.of(http.getReadTimeout()))
+                        // Check a connection that has been idle for a while before reusing it
+                        .setValidateAfterInactivity(TimeValue.ofSeconds(2))
+                        .build())
+                .build();
+    }
+
+    /**
+     * Settings of each request sent to the API.
+     * @param props the application properties.
+     * @return the default request configuration.
+     */
+    @Bean
+    public RequestConfig apiRequestConfig(CustomProperties props) {
+        CustomProperties.Http http = props.getHttp();
+
+        return RequestConfig.custom()
+                .setConnectionRequestTimeout(Timeout.of(http.getConnectionRequestTimeout()))
+                .setResponseTimeout(Timeout.of(http.getReadTimeout()))
+                // Used when the API does not send a Keep-Alive header
+                .setConnectionKeepAlive(TimeValue.of(http.getKeepAlive()))
+                .build();
+    }
+
+    /**
+     * Apache HttpClient using the pool, with keep-alive and idle connection eviction.
+     * @param apiConnectionManager the connection pool.
+     * @param apiRequestConfig the default request configuration.
+     * @param props the application properties.
+     * @return the HTTP client.
+     */
+    @Bean
+    public CloseableHttpClient apiHttpClient(PoolingHttpClientConnectionManager apiConnectionManager,
+                                             RequestConfig apiRequestConfig,
+                                             CustomProperties props) {
+        CustomProperties.Http http = props.getHttp();
+
+        return HttpClients.custom()
+                .setConnectionManager(apiConnectionManager)
+                .setDefaultRequestConfig(apiRequestConfig)
+                .evictExpiredConnections()
+                .evictIdleConnections(TimeValue.of(http.getKeepAlive()))
+                .build();
+    }
+
+    /**
+     * Bound on the calls in flight towards the API, which request threads no longer give
+     * once they are virtual.
+     * @param props the application properties.
+     * @return the limiter, applied to every call of the RestTemplate.
+     */
+    @Bean
+    public ApiConcurrencyLimiter apiConcurrencyLimiter(CustomProperties props) {
+        return new ApiConcurrencyLimiter(props.getHttp().getMaxConcurrentCalls(),
+                props.getHttp().getConcurrencyAcquireTimeout());
+    }
+
+    /**
+     * RestTemplate used by all the repositories.
+     * Its root URI is the API URL, so the repositories only give the endpoint path.
+     * A request sent by a repository operation is aborted at the deadline of the operation, and its response
+     * timeout is the time left before it (see {@link OperationTimeouts}); outside of an operation,
+     * the response timeout is http.read-timeout.
+     * @param builder the RestTemplateBuilder configured by Spring Boot (message converters, metrics).
+     * @param apiHttpClient the pooled HTTP client.
+     * @param apiRequestConfig the default request configuration.
+     * @param apiConcurrencyLimiter the bound on concurrent calls.
+     * @param props the application properties.
+     * @return the shared RestTemplate.
+     */
+    @Bean
+    public RestTemplate apiRestTemplate(RestTemplateBuilder builder,
+                                        CloseableHttpClient apiHttpClient,
+                                        RequestConfig apiRequestConfig,
+                                        ApiConcurrencyLimiter apiConcurrencyLimiter,
+                                        CustomProperties props) {
+        return builder
+                .rootUri(props.getApiUrl())
+                .requestFactory(() -> {
+                    HttpComponentsClientHttpRequestFactory factory = new HttpComponentsClientHttpRequestFactory(apiHttpClient) {
+                        @Override
+                        protected ClassicHttpRequest createHttpUriRequest(HttpMethod method, URI uri) {
+                            ClassicHttpRequest request = super.createHttpUriRequest(method, uri);
+                            OperationTimeouts.Deadline deadline = OperationTimeouts.current();
+                            if (deadline != null && request instanceof Cancellable cancellable) {
+                                // Also stops the wait for a pooled connection
+                                deadline.onExpiry(cancellable::cancel);
+                            }
+                            return request;
+                        }
+                    };
+                    factory.setHttpContextFactory((method, uri) -> {
+                        OperationTimeouts.Deadline deadline = OperationTimeouts.current();
+                        if (deadline == null) {
+                            // The factory then uses the default configuration of the client
+                            return null;
+                        }
+                        HttpClientContext context = HttpClientContext.create();
+                        // Not zero, which would be no timeout at all
+                        Duration left = deadline.remaining().plusMillis(1);
+                        context.setRequestConfig(RequestConfig.copy(apiRequestConfig)
+                                .setResponseTimeout(Timeout.of(left))
+                                .build());
+                        return context;
+                    });
+                    return factory;
+                })
+                .additionalInterceptors(apiConcurrencyLimiter)
+                .build();
+    }
+}
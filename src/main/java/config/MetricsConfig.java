@@ -0,0 +1,69 @@
+package config;
+
+import fr.afpa.pompey.cda17.ParcInfo.metrics.RouteHistograms;
+import fr.afpa.pompey.cda17.ParcInfo.metrics.ViewRenderTimer;
+import fr.afpa.pompey.cda17.ParcInfo.search.RefreshedIndex;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.httpcomponents.hc5.PoolingHttpClientConnectionManagerMetricsBinder;
+import io.micrometer.core.instrument.config.MeterFilter;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManager;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import java.util.List;
+
+/**
+ * Declares the metrics of the application, scraped at /actuator/prometheus.
+ * Spring Boot already times the requests (http.server.requests), the calls to the API
+ * (http.client.requests) and publishes the caches (cache.gets, cache.size);
+ * this adds the rendering time of the views, the gauges of the connection pool and of the
+ * in-memory indexes, and the histograms of the routes listed in the "metrics" properties.
+ * The repositories are timed by {@link fr.afpa.pompey.cda17.ParcInfo.metrics.RepositoryMetrics}.
+ */
+@Configuration
+public class MetricsConfig implements WebMvcConfigurer {
+
+    @Autowired
+    private ViewRenderTimer viewRenderTimer;
+
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        registry.addInterceptor(viewRenderTimer);
+    }
+
+    /**
+     * @param props the application properties.
+     * @return the filter giving their histograms and percentiles to the configured routes.
+     */
+    @Bean
+    public MeterFilter routeHistograms(CustomProperties props) {
+        return new RouteHistograms(props.getMetrics().getHistograms());
+    }
+
+    /**
+     * Leased, available, pending and max connections of the pool towards the API
+     * (httpcomponents.httpclient.pool.* tagged httpclient=api).
+     * @param apiConnectionManager the connection pool.
+     * @return the binder of the pool gauges.
+     */
+    @Bean
+    public MeterBinder apiConnectionPoolMetrics(PoolingHttpClientConnectionManager apiConnectionManager) {
+        return new PoolingHttpClientConnectionManagerMetricsBinder(apiConnectionManager, "api");
+    }
+
+    /**
+     * Number of entries of the in-memory indexes (parcinfo.index.size tagged index).
+     * @param indexes the indexes rebuilt from the API.
+     * @return the binder of the index gauges.
+     */
+    @Bean
+    public MeterBinder indexMetrics(List<RefreshedIndex<?>> indexes) {
+        return registry -> indexes.forEach(index -> Gauge.builder("parcinfo.index.size", index, RefreshedIndex::size)
+                .tag("index", index.getClass().getSimpleName())
+                .register(registry));
+    }
+}
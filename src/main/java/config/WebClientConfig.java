@@ -0,0 +1,84 @@
+package config;
+
+import fr.afpa.pompey.cda17.ParcInfo.http.OperationTimeouts;
+import io.netty.channel.ChannelOption;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
+import org.springframework.web.reactive.function.client.ExchangeFilterFunction;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Mono;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionProvider;
+
+/**
+ * Declares the non-blocking HTTP client used by the WebClient repositories,
+ * when fr.afpa.pompey.cda17.http.client=web-client.
+ * Its connections run on a few Netty event loop threads, whatever the number of calls in flight;
+ * the pool size and its acquire timeout play the part of the ApiConcurrencyLimiter.
+ */
+@Configuration
+@ConditionalOnProperty(name = "fr.afpa.pompey.cda17.http.client", havingValue = "web-client")
+public class WebClientConfig {
+
+    /**
+     * Connection pool towards the API, sized and timed from the "http" properties.
+     * @param props the application properties.
+     * @return the connection provider.
+     */
+    @Bean(destroyMethod = "dispose")
+    public ConnectionProvider apiConnectionProvider(CustomProperties props) {
+        CustomProperties.Http http = props.getHttp();
+
+        return ConnectionProvider.builder("api")
+                .maxConnections(http.getMaxConcurrentCalls())
+                .pendingAcquireTimeout(http.getConcurrencyAcquireTimeout())
+                .maxIdleTime(http.getKeepAlive())
+                // Gauges of the pool (reactor.netty.connection.provider.*)
+                .metrics(true)
+                .build();
+    }
+
+    /**
+     * WebClient used by the WebClient repositories.
+     * Its base URL is the API URL, so the repositories only give the endpoint path.
+     * An exchange subscribed by the blocking method of a repository operation, on its thread, fails at the
+     * deadline of the operation (see {@link OperationTimeouts}), the reading of the body included.
+     * @param builder the WebClient.Builder configured by Spring Boot (codecs, metrics).
+     * @param apiConnectionProvider the connection pool.
+     * @param props the application properties.
+     * @return the shared WebClient.
+     */
+    @Bean
+    public WebClient apiWebClient(WebClient.Builder builder,
+                                  ConnectionProvider apiConnectionProvider,
+                                  CustomProperties props) {
+        CustomProperties.Http http = props.getHttp();
+        HttpClient httpClient = HttpClient.create(apiConnectionProvider)
+                .option(ChannelOption.CONNECT_TIMEOUT_MILLIS, (int) http.getConnectTimeout().toMillis())
+                .responseTimeout(http.getReadTimeout());
+
+        return builder
+                .baseUrl(props.getApiUrl())
+                .clientConnector(new ReactorClientHttpConnector(httpClient))
+                .filter(operationDeadline())
+                .build();
+    }
+
+    private static ExchangeFilterFunction operationDeadline() {
+        return (request, next) -> {
+            OperationTimeouts.Deadline deadline = OperationTimeouts.current();
+            if (deadline == null) {
+                return next.exchange(request);
+            }
+            // Fires at the deadline, whenever it is subscribed
+            Mono<Long> expiry = Mono.defer(() -> Mono.delay(deadline.remaining()));
+            return next.exchange(request)
+                    .timeout(expiry)
+                    .map(response -> response.mutate()
+                            .body(body -> body.timeout(expiry, buffer -> expiry))
+                            .build());
+        };
+    }
+}
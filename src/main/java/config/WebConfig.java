@@ -0,0 +1,70 @@
+package config;
+
+import fr.afpa.pompey.cda17.ParcInfo.views.FingerprintedAssetResolver;
+import fr.afpa.pompey.cda17.ParcInfo.views.ListPageCache;
+import fr.afpa.pompey.cda17.ParcInfo.views.StaleDataBanner;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.CacheControl;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.ResourceHandlerRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+import org.springframework.web.servlet.resource.EncodedResourceResolver;
+
+/**
+ * Interceptors of the pages, and serving of the static assets.
+ */
+@Configuration
+public class WebConfig implements WebMvcConfigurer {
+
+    // List pages answered with an ETag, and whose rendered HTML is reused
+    private static final String[] LIST_PAGES = {"/personnes", "/peripheriques"};
+
+    // Directories of the static assets, built by src/main/assets
+    private static final String[] ASSETS = {"css", "js", "img", "fonts"};
+
+    @Autowired
+    private StaleDataBanner staleDataBanner;
+
+    @Autowired
+    private ListPageCache listPageCache;
+
+    @Autowired
+    private CustomProperties props;
+
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        registry.addInterceptor(listPageCache).addPathPatterns(LIST_PAGES);
+        registry.addInterceptor(staleDataBanner);
+    }
+
+    /**
+     * The links to the assets written by the templates (@{/css/parcinfo.min.css}) get a hash of the content
+     * of the asset in their name (/css/parcinfo.min-3f2a….css): a new version of an asset has a new URL,
+     * so the browsers can keep them without revalidating. The plain URLs are still served, but revalidated:
+     * their content changes with each deploy. The .br or .gz variant of an asset, written by the build,
+     * is sent to the browsers accepting it.
+     */
+    @Override
+    public void addResourceHandlers(ResourceHandlerRegistry registry) {
+        CacheControl immutable = CacheControl.maxAge(props.getAssets().getMaxAge()).cachePublic().immutable();
+        for (String directory : ASSETS) {
+            registry.addResourceHandler("/" + directory + "/**")
+                    .addResourceLocations("classpath:/static/" + directory + "/")
+                    .setCacheControl(CacheControl.noCache())
+                    .resourceChain(true)
+                    .addResolver(new EncodedResourceResolver())
+                    .addResolver(new FingerprintedAssetResolver(immutable));
+        }
+    }
+
+    @Bean
+    public FilterRegistrationBean<OncePerRequestFilter> listPageCapture() {
+        FilterRegistrationBean<OncePerRequestFilter> registration = new FilterRegistrationBean<>(listPageCache.capture());
+        registration.addUrlPatterns(LIST_PAGES);
+        return registration;
+    }
+}
@@ -1,15 +1,28 @@
 package fr.afpa.pompey.cda17.ParcInfo;
 
+import config.CacheConfig;
 import config.CustomProperties;
+import config.ExecutionConfig;
+import config.HttpClientConfig;
+import config.MetricsConfig;
+import config.WebClientConfig;
+import config.WebConfig;
 import lombok.Data;
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.CommandLineRunner;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
 import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Import;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
+@Slf4j
 @Data
 @EnableConfigurationProperties(CustomProperties.class)
+@Import({HttpClientConfig.class, CacheConfig.class, ExecutionConfig.class, WebClientConfig.class, MetricsConfig.class,
+		WebConfig.class})
+@EnableScheduling
 @SpringBootApplication
 public class ParcInfoApplication implements CommandLineRunner {
 
@@ -22,6 +35,6 @@ public class ParcInfoApplication implements CommandLineRunner {
 
 	@Override
 	public void run(String... args) throws Exception {
-		System.out.println(props.getApiUrl());
+		log.info("API URL: {}", props.getApiUrl());
 	}
 }
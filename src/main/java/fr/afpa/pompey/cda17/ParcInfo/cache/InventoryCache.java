@@ -0,0 +1,196 @@
+package fr.afpa.pompey.cda17.ParcInfo.cache;
+
+import fr.afpa.pompey.cda17.ParcInfo.models.Appareil;
+import fr.afpa.pompey.cda17.ParcInfo.models.IdSet;
+import fr.afpa.pompey.cda17.ParcInfo.models.Peripherique;
+import fr.afpa.pompey.cda17.ParcInfo.models.Personne;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.caffeine.CaffeineCache;
+import org.springframework.stereotype.Component;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.function.Predicate;
+
+/**
+ * Read-through cache placed between the services and the repositories.
+ * It keeps single entities (by ID) and whole collections, and is invalidated
+ * precisely by the services after each write.
+ * <p>
+ * Cached objects are shared: a caller that modifies one (the update forms do)
+ * must call the matching evict method once its write is done, whatever its outcome.
+ * <p>
+ * The evictions and the lists read from the API are recorded in the {@link InventoryVersion}.
+ */
+@Slf4j
+@Component
+public class InventoryCache {
+
+    public static final String PERSONNES = "personnes";
+    public static final String PERSONNE = "personne";
+    public static final String PERIPHERIQUES = "peripheriques";
+    public static final String PERIPHERIQUE = "peripherique";
+
+    // Key of the whole collection in the collection caches
+    private static final String ALL = "all";
+
+    @Autowired
+    private CacheManager cacheManager;
+
+    @Autowired
+    private InventoryVersion version;
+
+    /**
+     * Returns the list of all Personne, loading it on a miss.
+     * @param loader the call to the API.
+     * @return the list of Personne.
+     */
+    public List<Personne> personnes(Callable<List<Personne>> loader) {
+        return get(PERSONNES, ALL, loader);
+    }
+
+    /**
+     * Returns a Personne, loading it on a miss.
+     * @param id the ID of the Personne.
+     * @param loader the call to the API.
+     * @return the Personne.
+     */
+    public Personne personne(long id, Callable<Personne> loader) {
+        return get(PERSONNE, id, loader);
+    }
+
+    /**
+     * Returns the list of all Peripherique, loading it on a miss.
+     * @param loader the call to the API.
+     * @return the list of Peripherique.
+     */
+    public List<Peripherique> peripheriques(Callable<List<Peripherique>> loader) {
+        return get(PERIPHERIQUES, ALL, loader);
+    }
+
+    /**
+     * Returns a Peripherique, loading it on a miss.
+     * @param id the ID of the Peripherique.
+     * @param loader the call to the API.
+     * @return the Peripherique.
+     */
+    public Peripherique peripherique(long id, Callable<Peripherique> loader) {
+        return get(PERIPHERIQUE, id, loader);
+    }
+
+    /**
+     * Invalidates what depends on a Personne after it has been created, updated or deleted:
+     * the Personne itself, the list of Personne, and the peripherals it owns
+     * (their owner names are displayed).
+     * @param id the ID of the Personne, 0 for a creation.
+     */
+    public void evictPersonne(long id) {
+        version.changed();
+        cache(PERSONNES).evict(ALL);
+        if (id == 0) {
+            // A new Personne owns nothing yet
+            return;
+        }
+        cache(PERSONNE).evict(id);
+        evictIf(PERIPHERIQUE, value -> possede((Peripherique) value, id));
+        evictIf(PERIPHERIQUES, value -> ((List<?>) value).stream()
+                .anyMatch(peripherique -> possede((Peripherique) peripherique, id)));
+    }
+
+    /**
+     * Invalidates what depends on a Peripherique after it has been created, updated or deleted:
+     * the Peripherique itself, the list of Peripherique, and the Personne holding it.
+     * @param id the ID of the Peripherique, 0 for a creation.
+     */
+    public void evictPeripherique(long id) {
+        version.changed();
+        cache(PERIPHERIQUES).evict(ALL);
+        if (id == 0) {
+            // A new Peripherique is not assigned yet
+            return;
+        }
+        cache(PERIPHERIQUE).evict(id);
+        evictIf(PERSONNE, value -> detient((Personne) value, id));
+        evictIf(PERSONNES, value -> ((List<?>) value).stream()
+                .anyMatch(personne -> detient((Personne) personne, id)));
+    }
+
+    /**
+     * Invalidates what depends on the assignment of a Peripherique:
+     * the Peripherique and its former holders (see {@link #evictPeripherique(long)}),
+     * and its new holders.
+     * @param id the ID of the Peripherique.
+     * @param personnes the IDs of the new holders.
+     */
+    public void evictAffectation(long id, String[] personnes) {
+        evictPeripherique(id);
+        cache(PERSONNES).evict(ALL);
+        for (String personne : personnes) {
+            cache(PERSONNE).evict(Long.parseLong(personne));
+        }
+    }
+
+    /**
+     * Invalidates what depends on the assignment of many Peripherique at once,
+     * in one pass over the caches instead of one per assignment.
+     * @param affectations the IDs of the new holders, by ID of Peripherique.
+     */
+    public void evictAffectations(Map<Long, String[]> affectations) {
+        IdSet ids = IdSet.of(affectations.keySet(), Long::longValue);
+        version.changed();
+        cache(PERIPHERIQUES).evict(ALL);
+        cache(PERSONNES).evict(ALL);
+        affectations.keySet().forEach(cache(PERIPHERIQUE)::evict);
+        // The former holders, then the new ones
+        evictIf(PERSONNE, value -> ((Personne) value).getAppareils() != null && ((Personne) value).getAppareils()
+                .stream().anyMatch(appareil -> ids.contains(appareil.getId())));
+        affectations.values().stream()
+                .flatMap(Arrays::stream)
+                .distinct()
+                .forEach(personne -> cache(PERSONNE).evict(Long.parseLong(personne)));
+    }
+
+    private <T> T get(String name, Object key, Callable<T> loader) {
+        try {
+            return cache(name).get(key, ALL.equals(key) ? () -> version.read(name, loader.call()) : loader);
+        } catch (Cache.ValueRetrievalException e) {
+            // Give the caller the exception of the API call, not the cache wrapper
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
+    private void evictIf(String name, Predicate<Object> predicate) {
+        if (cache(name) instanceof CaffeineCache caffeineCache) {
+            Map<Object, Object> entries = caffeineCache.getNativeCache().asMap();
+            entries.values().removeIf(value -> value != null && predicate.test(value));
+        } else {
+            cache(name).clear();
+        }
+    }
+
+    private Cache cache(String name) {
+        Cache cache = cacheManager.getCache(name);
+        if (cache == null) {
+            throw new IllegalStateException("Cache " + name + " is not declared");
+        }
+        return cache;
+    }
+
+    private static boolean possede(Peripherique peripherique, long personneId) {
+        Appareil appareil = peripherique.getAppareil();
+        return appareil != null && appareil.estDetenuPar(personneId);
+    }
+
+    private static boolean detient(Personne personne, long appareilId) {
+        return personne.getAppareils() != null && personne.getAppareils().stream()
+                .anyMatch(appareil -> appareil.getId() == appareilId);
+    }
+}
@@ -0,0 +1,62 @@
+package fr.afpa.pompey.cda17.ParcInfo.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Version of the inventory data the pages are built from, for their ETags.
+ * It changes on each write of this application (the evictions of the {@link InventoryCache}),
+ * and whenever a read gives other objects than the previous read of the same data: the conditional GETs
+ * give back the same objects while the API answers that nothing changed, so a different object
+ * is a change made by another client. A page built at the same version shows the same data.
+ * <p>
+ * The version is prefixed by an ID of the run: an ETag given before a restart never matches.
+ */
+@Component
+public class InventoryVersion {
+
+    // Reads tracked at once (whole lists and pages of the API); one forgotten counts as a change when read again
+    private static final long MAX_TRACKED = 1_000;
+
+    private final String run = Long.toHexString(ThreadLocalRandom.current().nextLong());
+
+    private final AtomicLong version = new AtomicLong();
+
+    // Last object given by each read; held weakly, the caches hold the ones still in use
+    private final Cache<Object, Object> lastRead = Caffeine.newBuilder()
+            .maximumSize(MAX_TRACKED)
+            .weakValues()
+            .build();
+
+    /**
+     * @return the current version, different from any version of another run.
+     */
+    public String current() {
+        return run + '-' + Long.toHexString(version.get());
+    }
+
+    /**
+     * Records a change of the data.
+     */
+    public void changed() {
+        version.incrementAndGet();
+    }
+
+    /**
+     * Records the result of a read; a change if it is not the object given by the previous read.
+     * @param key what was read, e.g. the name of a cached list, or the query of a page.
+     * @param value the result of the read.
+     * @param <T> the type of the result.
+     * @return the result.
+     */
+    public <T> T read(Object key, T value) {
+        if (value != null && lastRead.asMap().put(key, value) != value) {
+            changed();
+        }
+        return value;
+    }
+}
@@ -0,0 +1,98 @@
+package fr.afpa.pompey.cda17.ParcInfo.cache;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Coalesces identical reads running at the same time: while a read of a resource is in flight,
+ * the other callers asking for the same resource wait for it and get its deserialized result,
+ * instead of sending the same request to the API. Nothing is kept once the read is over
+ * (keeping results is the job of {@link InventoryCache}).
+ * <p>
+ * The reads saved are counted by the parcinfo.api.coalesced counter, tagged with the resource,
+ * and the reads in flight are given by the parcinfo.api.in_flight gauge.
+ */
+@Component
+public class SingleFlight {
+
+    private final Map<String, CompletableFuture<?>> inFlight = new ConcurrentHashMap<>();
+
+    private final Map<String, Counter> coalesced = new ConcurrentHashMap<>();
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @PostConstruct
+    public void init() {
+        meterRegistry.gauge("parcinfo.api.in_flight", inFlight, Map::size);
+    }
+
+    /**
+     * Reads a resource, or waits for the identical read already in flight.
+     * @param resource the kind of resource ("personnes", "peripherique"...), used as metric tag.
+     * @param id what identifies the resource among its kind (ID, query...), empty for a collection.
+     * @param read the call to the API.
+     * @param <T> the type of the result.
+     * @return the result, shared with the concurrent callers.
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T read(String resource, Object id, Callable<T> read) {
+        String key = resource + '/' + id;
+        CompletableFuture<T> mine = new CompletableFuture<>();
+        CompletableFuture<T> running = (CompletableFuture<T>) inFlight.putIfAbsent(key, mine);
+        if (running != null) {
+            coalesced(resource).increment();
+            return join(running);
+        }
+
+        try {
+            T result = read.call();
+            mine.complete(result);
+            return result;
+        } catch (Throwable e) {
+            // Errors included: the callers waiting for this read would wait forever
+            mine.completeExceptionally(e);
+            if (e instanceof Error error) {
+                throw error;
+            }
+            throw e instanceof RuntimeException runtimeException ? runtimeException : new CompletionException(e);
+        } finally {
+            inFlight.remove(key, mine);
+        }
+    }
+
+    /**
+     * @return the number of reads currently in flight.
+     */
+    public int getInFlightCount() {
+        return inFlight.size();
+    }
+
+    private Counter coalesced(String resource) {
+        return coalesced.computeIfAbsent(resource, r -> meterRegistry.counter("parcinfo.api.coalesced", "resource", r));
+    }
+
+    private static <T> T join(CompletableFuture<T> running) {
+        try {
+            return running.join();
+        } catch (CompletionException e) {
+            // Give the caller the exception of the API call, as if it had made it
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            if (e.getCause() instanceof Error cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+}
@@ -0,0 +1,78 @@
+package fr.afpa.pompey.cda17.ParcInfo.controllers;
+
+import config.CustomProperties;
+import fr.afpa.pompey.cda17.ParcInfo.exports.ExportColumn;
+import fr.afpa.pompey.cda17.ParcInfo.exports.ExportFormat;
+import fr.afpa.pompey.cda17.ParcInfo.exports.InventoryColumns;
+import fr.afpa.pompey.cda17.ParcInfo.services.PeripheriqueService;
+import fr.afpa.pompey.cda17.ParcInfo.services.PersonneService;
+import lombok.Data;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Controller;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * Exports the whole inventory for the audits, as CSV or Excel.
+ * The rows are written to the response while they are read from the API,
+ * so an export of any size is done in constant memory.
+ */
+@Data
+@Controller
+public class ExportController {
+
+    @Autowired
+    private PeripheriqueService peripheriqueService;
+
+    @Autowired
+    private PersonneService personneService;
+
+    @Autowired
+    private CustomProperties props;
+
+    /**
+     * Exports all the peripherals, with their type, label and holders.
+     * @param format The extension of the export: csv or xlsx.
+     * @return The export, written after the controller has returned.
+     */
+    @GetMapping("/peripheriques/export.{format}")
+    public ResponseEntity<StreamingResponseBody> peripheriques(@PathVariable("format") String format) {
+        return export("peripheriques", ExportFormat.of(format),
+                peripheriqueService.streamPeripheriques(), InventoryColumns.PERIPHERIQUES);
+    }
+
+    /**
+     * Exports all the persons.
+     * @param format The extension of the export: csv or xlsx.
+     * @return The export, written after the controller has returned.
+     */
+    @GetMapping("/personnes/export.{format}")
+    public ResponseEntity<StreamingResponseBody> personnes(@PathVariable("format") String format) {
+        return export("personnes", ExportFormat.of(format),
+                personneService.streamPersonnes(), InventoryColumns.PERSONNES);
+    }
+
+    private <T> ResponseEntity<StreamingResponseBody> export(String name, ExportFormat format,
+                                                             Stream<T> rows, List<ExportColumn<T>> columns) {
+        // The API response is opened here, so that an API failure is still answered with an error page;
+        // it is read and closed by the body, on an async thread
+        StreamingResponseBody body = out -> {
+            try (rows) {
+                format.write(rows, columns, out, props.getStreaming().getChunkSize());
+            }
+        };
+        String filename = name + '-' + LocalDate.now() + '.' + format.getExtension();
+        return ResponseEntity.ok()
+                .contentType(format.getMediaType())
+                .header(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment().filename(filename).build().toString())
+                .body(body);
+    }
+}
@@ -1,21 +1,31 @@
 package fr.afpa.pompey.cda17.ParcInfo.controllers;
 
+import config.CustomProperties;
+import fr.afpa.pompey.cda17.ParcInfo.models.AffectationResult;
+import fr.afpa.pompey.cda17.ParcInfo.models.PageQuery;
 import fr.afpa.pompey.cda17.ParcInfo.models.Peripherique;
-import fr.afpa.pompey.cda17.ParcInfo.models.Personne;
 import fr.afpa.pompey.cda17.ParcInfo.models.TypePeripherique;
 import fr.afpa.pompey.cda17.ParcInfo.services.PeripheriqueService;
-import fr.afpa.pompey.cda17.ParcInfo.services.PersonneService;
+import fr.afpa.pompey.cda17.ParcInfo.views.ChunkedRows;
+import jakarta.servlet.http.HttpServletResponse;
 import lombok.Data;
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
 import org.springframework.web.servlet.mvc.support.RedirectAttributes;
 import org.springframework.web.servlet.view.RedirectView;
 
 import java.util.Arrays;
-import java.util.logging.Logger;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
 
+@Slf4j
 @Data
 @Controller
 public class PeripheriqueController {
@@ -24,23 +34,43 @@ public class PeripheriqueController {
     private PeripheriqueService peripheriqueService;
 
     @Autowired
-    private PersonneService personneService;
+    private CustomProperties props;
 
     /**
-     * Displays the list of all peripherals.
+     * Displays one page of the list of peripherals.
      * @param model The model to pass data to the view.
+     * @param query The requested page, sort and filter (?page=&size=&sort=&q=).
      * @return The view name for the peripherals list.
      */
     @GetMapping("/peripheriques")
-    public String index(Model model) {
-        // Fetch all peripherals from the service
-        Iterable<Peripherique> peripheriques = peripheriqueService.getPeripheriques();
-        // Add the list of peripherals to the model for rendering in the view
-        model.addAttribute("peripheriques", peripheriques);
+    public String index(Model model, @ModelAttribute("pageQuery") PageQuery query) {
+        // Fetch the requested page of peripherals from the service
+        // and add it to the model for rendering in the view
+        model.addAttribute("page", peripheriqueService.getPeripheriques(query));
         // Return the view name for the peripherals list
         return "peripheriques/index";
     }
 
+    /**
+     * Displays the whole list of peripherals while it is read from the API.
+     * The rows are parsed one at a time and the response is flushed every few rows,
+     * so memory does not grow with the inventory and the first rows show up at once.
+     * @param model The model to pass data to the view.
+     * @param response The response flushed between the chunks of rows.
+     * @return The view name for the streamed peripherals list.
+     */
+    @GetMapping("/peripheriques/stream")
+    public String stream(Model model, HttpServletResponse response) {
+        // Open the API response; it is read by the view, not here
+        Stream<Peripherique> peripheriques = peripheriqueService.streamPeripheriques();
+        // Close it once the view has been rendered, even if the rendering failed
+        RequestContextHolder.currentRequestAttributes().registerDestructionCallback(
+                "peripheriquesStream", peripheriques::close, RequestAttributes.SCOPE_REQUEST);
+        model.addAttribute("peripheriques",
+                new ChunkedRows<>(peripheriques, response, props.getStreaming().getChunkSize()));
+        return "peripheriques/stream";
+    }
+
     /**
      * Displays the form to create a new peripheral.
      * @param model The model to pass data to the view.
@@ -118,7 +148,7 @@ public class PeripheriqueController {
 
         try {
             // Update the type of the peripheral
-            System.out.println(peripherique);
+            log.debug("Update of peripheral {}: {}", id, peripherique);
             current.setType(peripherique.getType());
             // Update the label of the associated device
             current.getAppareil().setLibelle(peripherique.getAppareil().getLibelle());
@@ -131,8 +161,7 @@ public class PeripheriqueController {
             return new RedirectView("/peripheriques");
         } catch (Exception e) {
             // Log the exception message
-            Logger logger = Logger.getLogger(PeripheriqueController.class.getName());
-            logger.info(e.getMessage());
+            log.warn("Update of peripheral {} failed: {}", id, e.getMessage());
             // Add an error message to the redirect attributes
             redirectAttributes.addFlashAttribute("type", "danger");
             redirectAttributes.addFlashAttribute("alert", "Un problème a été rencontré!");
@@ -165,6 +194,44 @@ public class PeripheriqueController {
         return new RedirectView("/peripheriques");
     }
 
+    /**
+     * Displays the form to assign many peripherals to the same persons at once.
+     * @param model The model to pass data to the view.
+     * @return The view name for the bulk assign form.
+     */
+    @GetMapping("/peripheriques/affect")
+    public String bulkAffect(Model model) {
+        // Add all the peripherals to the model for the dropdown;
+        // the persons are searched by the typeahead of the form
+        model.addAttribute("peripheriques", peripheriqueService.getPeripheriques());
+        // Return the view name for the bulk assign form
+        return "peripheriques/bulk-affect";
+    }
+
+    /**
+     * Handles the assignment of many peripherals to the same persons.
+     * The assignments are sent in parallel chunks, and the outcome of each one is displayed.
+     * @param peripheriques The IDs of the peripherals to assign.
+     * @param personnes The list of person IDs to assign each peripheral to.
+     * @param model The model to pass data to the view.
+     * @return The view name for the outcome of the assignments.
+     */
+    @PostMapping("/peripheriques/affect")
+    public String bulkAffect(@RequestParam("peripheriques") long[] peripheriques,
+                             @RequestParam(name = "personnes", defaultValue = "") String[] personnes,
+                             Model model) {
+        // Every selected peripheral gets the selected persons
+        Map<Long, String[]> affectations = new LinkedHashMap<>();
+        for (long peripherique : peripheriques) {
+            affectations.put(peripherique, personnes);
+        }
+        // Send the assignments and display the outcome of each one
+        List<AffectationResult> results = peripheriqueService.affect(affectations);
+        model.addAttribute("results", results);
+        model.addAttribute("failures", results.stream().filter(result -> !result.isSuccess()).count());
+        return "peripheriques/bulk-affect-results";
+    }
+
     /**
      * Displays the form to assign a peripheral to one or more persons.
      * @param model The model to pass data to the view.
@@ -173,14 +240,9 @@ public class PeripheriqueController {
      */
     @GetMapping("/peripheriques/{id}/affect")
     public String affect(Model model, @PathVariable("id") int id) {
-        // Fetch the peripheral to assign by its ID
-        Peripherique peripherique = peripheriqueService.getPeripherique(id);
-        // Add the peripheral to the model for rendering in the view
-        model.addAttribute("peripherique", peripherique);
-        // Fetch all persons to whom the peripheral can be assigned
-        Iterable<Personne> personnes = personneService.getPersonnes();
-        // Add the list of persons to the model for the dropdown
-        model.addAttribute("personnes", personnes);
+        // Add the peripheral to the model for rendering in the view, with its current holders;
+        // the other persons are searched by the typeahead of the form
+        model.addAttribute("peripherique", peripheriqueService.getPeripherique(id));
         // Return the view name for the assign form
         return "peripheriques/affect";
     }
@@ -201,8 +263,7 @@ public class PeripheriqueController {
 
         try {
             // Log the list of person IDs to whom the peripheral is being assigned
-            Logger logger = Logger.getLogger(PeripheriqueController.class.getName());
-            logger.info(Arrays.toString(personnes));
+            log.info("Assignment of peripheral {} to {}", id, Arrays.toString(personnes));
             // Assign the peripheral to the selected persons using the service
             peripheriqueService.affect(current, personnes);
             // Add a success message to the redirect attributes
@@ -212,8 +273,7 @@ public class PeripheriqueController {
             return new RedirectView("/peripheriques");
         } catch (Exception e) {
             // Log the exception message
-            Logger logger = Logger.getLogger(PeripheriqueController.class.getName());
-            logger.info(e.getMessage());
+            log.warn("Assignment of peripheral {} failed: {}", id, e.getMessage());
             // Add an error message to the redirect attributes
             redirectAttributes.addFlashAttribute("type", "danger");
             redirectAttributes.addFlashAttribute("alert", "Un problème a été rencontré!");
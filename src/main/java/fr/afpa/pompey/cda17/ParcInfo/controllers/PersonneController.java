@@ -2,20 +2,28 @@ package fr.afpa.pompey.cda17.ParcInfo.controllers;
 
 // Import necessary classes and services
 
+import fr.afpa.pompey.cda17.ParcInfo.models.Page;
+import fr.afpa.pompey.cda17.ParcInfo.models.PageQuery;
 import fr.afpa.pompey.cda17.ParcInfo.models.Personne;
+import fr.afpa.pompey.cda17.ParcInfo.search.PersonneSuggestion;
 import fr.afpa.pompey.cda17.ParcInfo.services.AppareilService;
 import fr.afpa.pompey.cda17.ParcInfo.services.PersonneService;
 import lombok.Data;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
 import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.ModelAttribute;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.ResponseBody;
 import org.springframework.web.servlet.mvc.support.RedirectAttributes;
 import org.springframework.web.servlet.view.RedirectView;
 
+import java.util.List;
+
 @Data
 @Controller
 public class PersonneController {
@@ -29,16 +37,19 @@ public class PersonneController {
     private AppareilService appareilService;
 
     /**
-     * Display the list of all Personne entities.
+     * Display one page of the list of Personne entities.
      * 
      * @param model The model to pass data to the view.
+     * @param query The requested page, sort and filter (?page=&size=&sort=&q=).
      * @return The view name for listing Personne entities.
      */
     @GetMapping("/personnes")
-    public String index(Model model) {
-        // Fetch all Personne entities and add them to the model
-        Iterable<Personne> listPersonnes = service.getPersonnes();
-        model.addAttribute("personnes", listPersonnes);
+    public String index(Model model, @ModelAttribute("pageQuery") PageQuery query) {
+        // Fetch the requested page of Personne entities and add it to the model
+        Page<Personne> page = service.getPersonnes(query);
+        model.addAttribute("page", page);
+        // Number of peripherals held by each Personne of the page
+        model.addAttribute("equipements", service.countEquipements(page.getContent()));
         return "personnes/index";
     }
 
@@ -46,22 +57,54 @@ public class PersonneController {
      * Handle POST requests to display the list of Personne entities with additional attributes.
      * 
      * @param model The model to pass data to the view.
+     * @param query The requested page, sort and filter.
      * @param alert The alert message to display.
      * @param type  The type of alert (e.g., success, danger).
      * @return The view name for listing Personne entities.
      */
     @PostMapping("/personnes")
     public String index(Model model,
+                        @ModelAttribute("pageQuery") PageQuery query,
                         @ModelAttribute("alert") String alert,
                         @ModelAttribute("type") String type) {
-        // Fetch all Personne entities and add them to the model
-        Iterable<Personne> listPersonnes = service.getPersonnes();
-        model.addAttribute("personnes", listPersonnes);
+        // Fetch the requested page of Personne entities and add it to the model
+        Page<Personne> page = service.getPersonnes(query);
+        model.addAttribute("page", page);
+        model.addAttribute("equipements", service.countEquipements(page.getContent()));
         model.addAttribute("alert", alert); // Add alert message to the model
         model.addAttribute("type", type);   // Add alert type to the model
         return "personnes/index"; // Return the view for listing Personne entities
     }
 
+    /**
+     * Suggest the Personne matching what is typed in the typeahead of the assignment forms.
+     * The lookup is served from an in-memory index, without calling the API.
+     *
+     * @param q What has been typed: the start of a name, a first name or a phone number.
+     * @param exclude The IDs of the Personne already chosen in the form.
+     * @return The matching Personne, as JSON.
+     */
+    @GetMapping(value = "/personnes/search", produces = MediaType.APPLICATION_JSON_VALUE)
+    @ResponseBody
+    public List<PersonneSuggestion> search(@RequestParam(name = "q", defaultValue = "") String q,
+                                           @RequestParam(name = "exclude", required = false) long[] exclude) {
+        return service.searchPersonnes(q, exclude);
+    }
+
+    /**
+     * Display the peripherals held by a Personne, from the reverse index of the inventory.
+     *
+     * @param model The model to pass data to the view.
+     * @param id    The ID of the Personne.
+     * @return The view name for the equipment of a Personne.
+     */
+    @GetMapping("/personnes/{id}/equipements")
+    public String equipements(Model model, @PathVariable("id") int id) {
+        model.addAttribute("personne", service.getPersonne(id));
+        model.addAttribute("equipements", service.getEquipements(id));
+        return "personnes/equipements";
+    }
+
     /**
      * Display the form to create a new Personne.
      * 
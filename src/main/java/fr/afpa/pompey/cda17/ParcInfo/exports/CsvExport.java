@@ -0,0 +1,72 @@
+package fr.afpa.pompey.cda17.ParcInfo.exports;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * Writes an export as CSV (RFC 4180), the way the French Excel opens it:
+ * UTF-8 with a byte order mark, ';' as separator, CRLF line ends.
+ * A text starting with a character that makes Excel read a formula (=, +, -, @, tab, CR) is prefixed
+ * with a quote, so that a value typed by a user (=HYPERLINK(...)) is shown as text, not run.
+ */
+final class CsvExport {
+
+    private static final char SEPARATOR = ';';
+
+    // First characters of a formula, for Excel
+    private static final String FORMULA_STARTS = "=+-@\t\r";
+
+    private CsvExport() {
+    }
+
+    static <T> void write(Stream<T> rows, List<ExportColumn<T>> columns, OutputStream out, int chunkSize)
+            throws IOException {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+        writer.write('\uFEFF');
+        for (int i = 0; i < columns.size(); i++) {
+            cell(writer, i, columns.get(i).header());
+        }
+        writer.write("\r\n");
+
+        long count = 0;
+        for (Iterator<T> iterator = rows.iterator(); iterator.hasNext(); ) {
+            T row = iterator.next();
+            for (int i = 0; i < columns.size(); i++) {
+                cell(writer, i, columns.get(i).value().apply(row));
+            }
+            writer.write("\r\n");
+            // Send the rows to the client as they come, instead of when the buffer is full
+            if (++count % Math.max(chunkSize, 1) == 0) {
+                writer.flush();
+            }
+        }
+        writer.flush();
+    }
+
+    private static void cell(Writer writer, int index, Object value) throws IOException {
+        if (index > 0) {
+            writer.write(SEPARATOR);
+        }
+        if (value == null) {
+            return;
+        }
+        String text = value.toString();
+        if (value instanceof CharSequence && !text.isEmpty() && FORMULA_STARTS.indexOf(text.charAt(0)) >= 0) {
+            text = '\'' + text;
+        }
+        if (text.indexOf(SEPARATOR) < 0 && text.indexOf('"') < 0 && text.indexOf('\n') < 0 && text.indexOf('\r') < 0) {
+            writer.write(text);
+            return;
+        }
+        writer.write('"');
+        writer.write(text.replace("\"", "\"\""));
+        writer.write('"');
+    }
+}
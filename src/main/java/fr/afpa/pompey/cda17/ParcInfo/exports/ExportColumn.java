@@ -0,0 +1,12 @@
+package fr.afpa.pompey.cda17.ParcInfo.exports;
+
+import java.util.function.Function;
+
+/**
+ * A column of an export: its header and how to read its cell from a row.
+ * @param header the header of the column, written on the first line.
+ * @param value reads the cell of a row; null for an empty cell.
+ * @param <T> the type of the rows.
+ */
+public record ExportColumn<T>(String header, Function<T, Object> value) {
+}
@@ -0,0 +1,76 @@
+package fr.afpa.pompey.cda17.ParcInfo.exports;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * The formats of the exports. Both write the rows while they are read,
+ * so the memory used does not grow with the number of rows.
+ */
+public enum ExportFormat {
+
+    CSV("csv", MediaType.parseMediaType("text/csv;charset=UTF-8")) {
+        @Override
+        public <T> void write(Stream<T> rows, List<ExportColumn<T>> columns, OutputStream out, int chunkSize)
+                throws IOException {
+            CsvExport.write(rows, columns, out, chunkSize);
+        }
+    },
+
+    XLSX("xlsx", MediaType.parseMediaType("application/vnd.openxmlformats-officedocument.spreadsheetml.sheet")) {
+        @Override
+        public <T> void write(Stream<T> rows, List<ExportColumn<T>> columns, OutputStream out, int chunkSize)
+                throws IOException {
+            XlsxExport.write(rows, columns, out, chunkSize);
+        }
+    };
+
+    private final String extension;
+
+    private final MediaType mediaType;
+
+    ExportFormat(String extension, MediaType mediaType) {
+        this.extension = extension;
+        this.mediaType = mediaType;
+    }
+
+    public String getExtension() {
+        return extension;
+    }
+
+    public MediaType getMediaType() {
+        return mediaType;
+    }
+
+    /**
+     * Writes a header line, then one line per row.
+     * @param rows the rows, consumed once.
+     * @param columns the columns of each line.
+     * @param out where the export is written; it is not closed.
+     * @param chunkSize the number of rows written between two flushes.
+     * @param <T> the type of the rows.
+     * @throws IOException if the export cannot be written (the client went away...).
+     */
+    public abstract <T> void write(Stream<T> rows, List<ExportColumn<T>> columns, OutputStream out, int chunkSize)
+            throws IOException;
+
+    /**
+     * @param extension the extension requested in the URL ("csv", "xlsx").
+     * @return the matching format.
+     * @throws ResponseStatusException 404 if no format has this extension.
+     */
+    public static ExportFormat of(String extension) {
+        for (ExportFormat format : values()) {
+            if (format.extension.equalsIgnoreCase(extension)) {
+                return format;
+            }
+        }
+        throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Unknown export format: " + extension);
+    }
+}
@@ -0,0 +1,34 @@
+package fr.afpa.pompey.cda17.ParcInfo.exports;
+
+import fr.afpa.pompey.cda17.ParcInfo.models.Peripherique;
+import fr.afpa.pompey.cda17.ParcInfo.models.Personne;
+
+import java.util.List;
+
+/**
+ * The columns of the inventory exports, with the same labels as the list pages.
+ */
+public final class InventoryColumns {
+
+    public static final List<ExportColumn<Peripherique>> PERIPHERIQUES = List.of(
+            new ExportColumn<>("ID", Peripherique::getIdAppareil),
+            new ExportColumn<>("Libellé", peripherique -> peripherique.getAppareil() == null
+                    ? null : peripherique.getAppareil().getLibelle()),
+            new ExportColumn<>("Type", peripherique -> peripherique.getType() == null
+                    ? null : peripherique.getType().toString()),
+            new ExportColumn<>("Locataires", peripherique -> peripherique.getAppareil() == null
+                    ? null : peripherique.getAppareil().getProprietairesIdentites())
+    );
+
+    public static final List<ExportColumn<Personne>> PERSONNES = List.of(
+            new ExportColumn<>("ID", Personne::getId),
+            new ExportColumn<>("Nom", Personne::getNom),
+            new ExportColumn<>("Prénom", Personne::getPrenom),
+            new ExportColumn<>("Adresse", Personne::getAdresse),
+            new ExportColumn<>("Téléphone", Personne::getTelephone),
+            new ExportColumn<>("Date de naissance", Personne::getDateNaissance)
+    );
+
+    private InventoryColumns() {
+    }
+}
@@ -0,0 +1,81 @@
+package fr.afpa.pompey.cda17.ParcInfo.exports;
+
+import org.apache.poi.ss.SpreadsheetVersion;
+import org.apache.poi.ss.usermodel.Cell;
+import org.apache.poi.ss.usermodel.CellStyle;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.xssf.streaming.SXSSFWorkbook;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.time.LocalDate;
+import java.util.Iterator;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * Writes an export as an Excel workbook with the streaming API of POI (SXSSF):
+ * only the last chunkSize rows are kept in memory, the previous ones are written
+ * to a compressed temporary file, which is copied to the output at the end.
+ * A sheet full (1 048 576 lines) is continued on a new sheet.
+ */
+final class XlsxExport {
+
+    private XlsxExport() {
+    }
+
+    static <T> void write(Stream<T> rows, List<ExportColumn<T>> columns, OutputStream out, int chunkSize)
+            throws IOException {
+        SXSSFWorkbook workbook = new SXSSFWorkbook(Math.max(chunkSize, 1));
+        try {
+            workbook.setCompressTempFiles(true);
+            CellStyle dateStyle = workbook.createCellStyle();
+            dateStyle.setDataFormat(workbook.getCreationHelper().createDataFormat().getFormat("yyyy-mm-dd"));
+            int maxRows = SpreadsheetVersion.EXCEL2007.getMaxRows();
+
+            Sheet sheet = null;
+            int rowIndex = maxRows;
+            for (Iterator<T> iterator = rows.iterator(); iterator.hasNext(); ) {
+                T value = iterator.next();
+                if (rowIndex == maxRows) {
+                    sheet = header(workbook, columns);
+                    rowIndex = 1;
+                }
+                Row row = sheet.createRow(rowIndex++);
+                for (int i = 0; i < columns.size(); i++) {
+                    cell(row.createCell(i), columns.get(i).value().apply(value), dateStyle);
+                }
+            }
+            if (sheet == null) {
+                header(workbook, columns);
+            }
+            workbook.write(out);
+        } finally {
+            workbook.close();
+        }
+    }
+
+    private static <T> Sheet header(SXSSFWorkbook workbook, List<ExportColumn<T>> columns) {
+        Sheet sheet = workbook.createSheet();
+        Row header = sheet.createRow(0);
+        for (int i = 0; i < columns.size(); i++) {
+            header.createCell(i).setCellValue(columns.get(i).header());
+        }
+        return sheet;
+    }
+
+    private static void cell(Cell cell, Object value, CellStyle dateStyle) {
+        if (value == null) {
+            return;
+        }
+        if (value instanceof Number number) {
+            cell.setCellValue(number.doubleValue());
+        } else if (value instanceof LocalDate date) {
+            cell.setCellValue(date);
+            cell.setCellStyle(dateStyle);
+        } else {
+            cell.setCellValue(value.toString());
+        }
+    }
+}
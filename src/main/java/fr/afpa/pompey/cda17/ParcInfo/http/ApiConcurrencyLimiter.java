@@ -0,0 +1,132 @@
+package fr.afpa.pompey.cda17.ParcInfo.http;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpRequest;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.http.client.ClientHttpRequestExecution;
+import org.springframework.http.client.ClientHttpRequestInterceptor;
+import org.springframework.http.client.ClientHttpResponse;
+import org.springframework.web.client.ResourceAccessException;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.Duration;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Limits the number of calls in flight towards the API.
+ * With virtual threads the number of request threads is no longer a bound,
+ * so a fair semaphore keeps the API (and the connection pool) from being flooded.
+ * A permit is held from the request until the response is closed, body included,
+ * and a call that cannot get one within the acquire timeout, or before the deadline of its repository
+ * operation, fails like an unreachable API.
+ * The semaphore parks virtual threads without pinning them to their carrier.
+ */
+public class ApiConcurrencyLimiter implements ClientHttpRequestInterceptor {
+
+    private final Semaphore permits;
+
+    private final int maxConcurrentCalls;
+
+    private final Duration acquireTimeout;
+
+    public ApiConcurrencyLimiter(int maxConcurrentCalls, Duration acquireTimeout) {
+        this.permits = new Semaphore(maxConcurrentCalls, true);
+        this.maxConcurrentCalls = maxConcurrentCalls;
+        this.acquireTimeout = acquireTimeout;
+    }
+
+    @Override
+    public ClientHttpResponse intercept(HttpRequest request, byte[] body, ClientHttpRequestExecution execution)
+            throws IOException {
+        acquire(request);
+        try {
+            return new PermitReleasingResponse(execution.execute(request, body));
+        } catch (IOException | RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+    }
+
+    /**
+     * @return the number of calls currently in flight.
+     */
+    public int getActiveCalls() {
+        return maxConcurrentCalls - permits.availablePermits();
+    }
+
+    /**
+     * @return the (estimated) number of calls waiting for a permit.
+     */
+    public int getWaitingCalls() {
+        return permits.getQueueLength();
+    }
+
+    public int getMaxConcurrentCalls() {
+        return maxConcurrentCalls;
+    }
+
+    private void acquire(HttpRequest request) {
+        Duration wait = acquireTimeout;
+        OperationTimeouts.Deadline deadline = OperationTimeouts.current();
+        if (deadline != null && deadline.remaining().compareTo(wait) < 0) {
+            wait = deadline.remaining();
+        }
+        try {
+            if (!permits.tryAcquire(wait.toNanos(), TimeUnit.NANOSECONDS)) {
+                throw new ResourceAccessException("Too many concurrent calls to the API, "
+                        + request.getMethod() + " " + request.getURI() + " waited " + wait);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ResourceAccessException("Interrupted while waiting to call " + request.getURI());
+        }
+    }
+
+    /**
+     * Gives the permit back when the response is closed, once.
+     */
+    private class PermitReleasingResponse implements ClientHttpResponse {
+
+        private final ClientHttpResponse response;
+
+        private final AtomicBoolean released = new AtomicBoolean();
+
+        PermitReleasingResponse(ClientHttpResponse response) {
+            this.response = response;
+        }
+
+        @Override
+        public HttpStatusCode getStatusCode() throws IOException {
+            return response.getStatusCode();
+        }
+
+        @Override
+        public String getStatusText() throws IOException {
+            return response.getStatusText();
+        }
+
+        @Override
+        public HttpHeaders getHeaders() {
+            return response.getHeaders();
+        }
+
+        @Override
+        public InputStream getBody() throws IOException {
+            return response.getBody();
+        }
+
+        @Override
+        public void close() {
+            try {
+                response.close();
+            } finally {
+                if (released.compareAndSet(false, true)) {
+                    permits.release();
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,247 @@
+package fr.afpa.pompey.cda17.ParcInfo.http;
+
+import config.CustomProperties;
+import fr.afpa.pompey.cda17.ParcInfo.repositories.PeripheriqueRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.aopalliance.intercept.MethodInterceptor;
+import org.aopalliance.intercept.MethodInvocation;
+import org.springframework.aop.ProxyMethodInvocation;
+import org.springframework.aop.framework.Advised;
+import org.springframework.aop.framework.ProxyFactory;
+import org.springframework.aop.support.AopUtils;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.core.Ordered;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.ResourceAccessException;
+
+import java.lang.reflect.Method;
+import java.lang.reflect.UndeclaredThrowableException;
+import java.time.Duration;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Hedges the idempotent reads of the repositories listed in fr.afpa.pompey.cda17.hedging.operations:
+ * when the first attempt has not answered within the usual latency of the operation (a percentile
+ * of its latest calls), a second attempt is sent, and the first answer to arrive is returned;
+ * the other attempt is cancelled. A failed attempt (5xx, timeout, unreachable API) only answers
+ * when the other one failed too.
+ * <p>
+ * Both attempts run on the apiExecutor, so that the caller may return as soon as one answers.
+ * Until minSamples calls were timed, the operation is called on the caller thread, unhedged.
+ * Second attempts are paid from a budget: each call earns budget-percent hundredths of one,
+ * at most {@value #BURST} being saved, so that hedging adds at most budget-percent % to the calls.
+ * <p>
+ * Sits between the {@link ApiResilience} guard, which sees one call, and the metrics of the repositories,
+ * which time each attempt. Published, tagged operation: parcinfo.api.hedging.calls (calls of the hedged
+ * operations), parcinfo.api.hedges (second attempts sent), parcinfo.api.hedge.wins (second attempts that
+ * answered first), parcinfo.api.hedge.denied (second attempts the budget refused), parcinfo.api.hedge.delay.
+ */
+@Component
+public class ApiHedging implements BeanPostProcessor, Ordered {
+
+    private static final String PACKAGE = PeripheriqueRepository.class.getPackageName();
+
+    // Second attempts that may be saved up, then sent in a burst of slow calls
+    private static final int BURST = 10;
+
+    // Budget in thousandths of a second attempt
+    private static final long CREDIT = 1_000;
+
+    @Autowired
+    private ObjectProvider<CustomProperties> props;
+
+    @Autowired
+    private ObjectProvider<AsyncApiCalls> asyncApiCalls;
+
+    @Autowired
+    private ObjectProvider<MeterRegistry> meterRegistry;
+
+    private final Map<Method, Optional<HedgedOperation>> operations = new ConcurrentHashMap<>();
+
+    private final AtomicLong credits = new AtomicLong(BURST * CREDIT);
+
+    /**
+     * Applied before the guard and the metrics of the repositories, which then wrap the hedging
+     * from the outside and from the inside.
+     */
+    @Override
+    public int getOrder() {
+        return Ordered.LOWEST_PRECEDENCE;
+    }
+
+    @Override
+    public Object postProcessAfterInitialization(Object bean, String beanName) {
+        Class<?> repository = AopUtils.getTargetClass(bean);
+        if (!repository.getPackageName().equals(PACKAGE) || !props.getObject().getHedging().isEnabled()) {
+            return bean;
+        }
+        MethodInterceptor hedge = invocation -> hedged(repository, invocation);
+        if (bean instanceof Advised advised) {
+            advised.addAdvice(0, hedge);
+            return bean;
+        }
+        ProxyFactory proxy = new ProxyFactory(bean);
+        proxy.setProxyTargetClass(true);
+        proxy.addAdvice(hedge);
+        return proxy.getProxy(repository.getClassLoader());
+    }
+
+    private Object hedged(Class<?> repository, MethodInvocation invocation) throws Throwable {
+        Optional<HedgedOperation> operation = operations.computeIfAbsent(invocation.getMethod(), method -> {
+            String name = ApiResilience.name(repository, method);
+            return props.getObject().getHedging().getOperations().contains(name)
+                    ? Optional.of(new HedgedOperation(name))
+                    : Optional.empty();
+        });
+        if (operation.isEmpty() || !(invocation instanceof ProxyMethodInvocation proxyInvocation)) {
+            return invocation.proceed();
+        }
+        return operation.get().call(proxyInvocation);
+    }
+
+    private void earn() {
+        long earned = props.getObject().getHedging().getBudgetPercent() * CREDIT / 100;
+        credits.accumulateAndGet(earned, (saved, more) -> Math.min(saved + more, BURST * CREDIT));
+    }
+
+    private boolean spend() {
+        long saved;
+        do {
+            saved = credits.get();
+            if (saved < CREDIT) {
+                return false;
+            }
+        } while (!credits.compareAndSet(saved, saved - CREDIT));
+        return true;
+    }
+
+    /**
+     * The first attempt to answer; a failure only when both attempts failed.
+     */
+    private static CompletableFuture<CompletableFuture<Object>> first(CompletableFuture<Object> primary,
+                                                                      CompletableFuture<Object> hedge) {
+        CompletableFuture<CompletableFuture<Object>> first = new CompletableFuture<>();
+        primary.whenComplete((value, error) -> answered(first, primary, hedge, error));
+        hedge.whenComplete((value, error) -> answered(first, hedge, primary, error));
+        return first;
+    }
+
+    private static void answered(CompletableFuture<CompletableFuture<Object>> first, CompletableFuture<Object> attempt,
+                                 CompletableFuture<Object> other, Throwable error) {
+        if (error == null || !ApiResilience.isFailure(error) || other.isDone()) {
+            first.complete(attempt);
+        }
+    }
+
+    /**
+     * Latency and counters of one hedged operation.
+     */
+    private class HedgedOperation {
+
+        private final LatencyPercentile latency;
+
+        private final Duration minDelay;
+
+        private final Counter calls;
+
+        private final Counter hedges;
+
+        private final Counter wins;
+
+        private final Counter denied;
+
+        HedgedOperation(String name) {
+            CustomProperties.Hedging hedging = props.getObject().getHedging();
+            latency = new LatencyPercentile(hedging.getPercentile(), hedging.getWindow(), hedging.getMinSamples());
+            minDelay = hedging.getMinDelay();
+            MeterRegistry registry = meterRegistry.getObject();
+            calls = registry.counter("parcinfo.api.hedging.calls", "operation", name);
+            hedges = registry.counter("parcinfo.api.hedges", "operation", name);
+            wins = registry.counter("parcinfo.api.hedge.wins", "operation", name);
+            denied = registry.counter("parcinfo.api.hedge.denied", "operation", name);
+            Gauge.builder("parcinfo.api.hedge.delay", latency, percentile -> Math.max(percentile.nanos(), 0) / 1e9)
+                    .tag("operation", name)
+                    .baseUnit("seconds")
+                    .register(registry);
+        }
+
+        Object call(ProxyMethodInvocation invocation) throws Throwable {
+            calls.increment();
+            earn();
+            long usual = latency.nanos();
+            long start = System.nanoTime();
+            if (usual < 0) {
+                // Too few calls timed to know what slow is
+                try {
+                    return invocation.proceed();
+                } finally {
+                    latency.record(System.nanoTime() - start);
+                }
+            }
+
+            OperationTimeouts.Deadline deadline = OperationTimeouts.current();
+            CompletableFuture<Object> primary = attempt(invocation, deadline);
+            // A first attempt cancelled by the second one is recorded at least as slow as the delay
+            primary.whenComplete((value, error) -> latency.record(System.nanoTime() - start));
+            CompletableFuture<Object> hedge = null;
+            try {
+                try {
+                    return primary.get(Math.max(usual, minDelay.toNanos()), TimeUnit.NANOSECONDS);
+                } catch (TimeoutException e) {
+                    // Slower than usual: hedged below
+                }
+                if (!spend()) {
+                    denied.increment();
+                    return primary.get();
+                }
+                hedges.increment();
+                hedge = attempt(invocation, deadline);
+                CompletableFuture<Object> answer = first(primary, hedge).get();
+                if (answer == hedge) {
+                    wins.increment();
+                }
+                return answer.get();
+            } catch (ExecutionException e) {
+                throw e.getCause() != null ? e.getCause() : e;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new ResourceAccessException("Interrupted while waiting for the API");
+            } finally {
+                primary.cancel(true);
+                if (hedge != null) {
+                    hedge.cancel(true);
+                }
+            }
+        }
+
+        /**
+         * Starts one attempt on the apiExecutor, through the advices after this one.
+         */
+        private CompletableFuture<Object> attempt(ProxyMethodInvocation invocation, OperationTimeouts.Deadline deadline) {
+            MethodInvocation copy = invocation.invocableClone();
+            return asyncApiCalls.getObject().supply(() -> {
+                OperationTimeouts.Deadline previous = OperationTimeouts.set(deadline);
+                try {
+                    return copy.proceed();
+                } catch (Exception | Error e) {
+                    throw e;
+                } catch (Throwable e) {
+                    throw new UndeclaredThrowableException(e);
+                } finally {
+                    OperationTimeouts.restore(previous);
+                }
+            });
+        }
+    }
+}
@@ -0,0 +1,341 @@
+package fr.afpa.pompey.cda17.ParcInfo.http;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import config.CustomProperties;
+import fr.afpa.pompey.cda17.ParcInfo.repositories.PeripheriqueRepository;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.aopalliance.intercept.MethodInterceptor;
+import org.aopalliance.intercept.MethodInvocation;
+import org.springframework.aop.framework.Advised;
+import org.springframework.aop.framework.ProxyFactory;
+import org.springframework.aop.support.AopUtils;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.stereotype.Component;
+import org.springframework.util.ClassUtils;
+import org.springframework.web.client.ResourceAccessException;
+import org.springframework.web.client.RestClientException;
+import org.springframework.web.client.RestClientResponseException;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.reactive.function.client.WebClientException;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.reflect.Method;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.stream.Stream;
+
+/**
+ * Guards each operation of the repositories (each method, named "Interface.method") with its own policy
+ * (fr.afpa.pompey.cda17.resilience), so that a slow or failing API neither holds the request threads
+ * nor takes down the pages that only need part of it:
+ * <ul>
+ *     <li>a timeout: the whole time of a blocking call, from the permit of the bulkhead to the end of the body
+ *     (see {@link OperationTimeouts}), the whole time of a Mono, the time between two elements of a Flux;</li>
+ *     <li>a bulkhead: at most maxConcurrentCalls calls of the operation in flight, a call waiting at most
+ *     maxWait for its turn (the asynchronous ones do not wait);</li>
+ *     <li>a {@link CircuitBreaker}: while it is open, the operation fails at once, without calling the API;</li>
+ *     <li>for the reads (get..., find...), the last known good result of the same arguments is returned
+ *     when the call fails, is rejected or times out, and recorded as a {@link StaleReads stale read};
+ *     without one, the failure is thrown.</li>
+ * </ul>
+ * A failure is a timeout, an unreachable API or a 5xx; a 4xx is an answer of the API.
+ * Rejected calls throw a ResourceAccessException, like an unreachable API.
+ * <p>
+ * Published: parcinfo.api.circuit.state (0 closed, 1 open, 2 half open), parcinfo.api.rejected
+ * (tagged reason) and parcinfo.api.fallbacks, all tagged operation.
+ */
+@Slf4j
+@Component
+public class ApiResilience implements BeanPostProcessor {
+
+    private static final String PACKAGE = PeripheriqueRepository.class.getPackageName();
+
+    @Autowired
+    private ObjectProvider<CustomProperties> props;
+
+    @Autowired
+    private ObjectProvider<MeterRegistry> meterRegistry;
+
+    private final Map<Method, Operation> operations = new ConcurrentHashMap<>();
+
+    @Override
+    public Object postProcessAfterInitialization(Object bean, String beanName) {
+        Class<?> repository = AopUtils.getTargetClass(bean);
+        if (!repository.getPackageName().equals(PACKAGE) || !props.getObject().getResilience().isEnabled()) {
+            return bean;
+        }
+        MethodInterceptor guard = invocation -> guarded(repository, invocation);
+        if (bean instanceof Advised advised) {
+            // Outermost, so that the inner advices (metrics) see the calls actually made
+            advised.addAdvice(0, guard);
+            return bean;
+        }
+        ProxyFactory proxy = new ProxyFactory(bean);
+        proxy.setProxyTargetClass(true);
+        proxy.addAdvice(guard);
+        return proxy.getProxy(repository.getClassLoader());
+    }
+
+    /**
+     * @return the state of the circuit of each operation called so far.
+     */
+    public Map<String, CircuitBreaker.State> getCircuitStates() {
+        Map<String, CircuitBreaker.State> states = new ConcurrentHashMap<>();
+        operations.values().forEach(operation -> states.put(operation.name, operation.breaker.getState()));
+        return states;
+    }
+
+    private Object guarded(Class<?> repository, MethodInvocation invocation) throws Throwable {
+        Method method = invocation.getMethod();
+        if (method.getDeclaringClass() == Object.class) {
+            return invocation.proceed();
+        }
+        Operation operation = operations.computeIfAbsent(method, m -> new Operation(repository, m));
+        List<Object> arguments = Arrays.asList(invocation.getArguments());
+        Class<?> returnType = method.getReturnType();
+        if (Mono.class.isAssignableFrom(returnType)) {
+            return operation.mono(invocation, arguments);
+        }
+        if (Flux.class.isAssignableFrom(returnType)) {
+            return operation.flux(invocation);
+        }
+        return operation.call(invocation, arguments);
+    }
+
+    /**
+     * @param error the exception of a call to the API.
+     * @return true if the API failed to answer: timeout, unreachable API, rejected call or 5xx;
+     * false for an answer of the API, such as a 4xx.
+     */
+    public static boolean isFailure(Throwable error) {
+        Throwable cause = unwrap(error);
+        if (cause instanceof RestClientResponseException e) {
+            return e.getStatusCode().is5xxServerError();
+        }
+        if (cause instanceof WebClientResponseException e) {
+            return e.getStatusCode().is5xxServerError();
+        }
+        return cause instanceof RestClientException || cause instanceof WebClientException
+                || cause instanceof TimeoutException || cause instanceof IOException
+                || cause instanceof UncheckedIOException;
+    }
+
+    private static boolean isAnswer(Throwable error) {
+        Throwable cause = unwrap(error);
+        if (cause instanceof RestClientResponseException e) {
+            return e.getStatusCode().isError();
+        }
+        // A body that failed to come is reported with the status of its response, a 200
+        return cause instanceof WebClientResponseException e && e.getStatusCode().isError();
+    }
+
+    private static Throwable unwrap(Throwable error) {
+        return (error instanceof CompletionException || error instanceof ExecutionException) && error.getCause() != null
+                ? error.getCause()
+                : error;
+    }
+
+    static String name(Class<?> repository, Method method) {
+        for (Class<?> type : ClassUtils.getAllInterfacesForClassAsSet(repository)) {
+            if (ClassUtils.hasMethod(type, method.getName(), method.getParameterTypes())) {
+                return type.getSimpleName() + '.' + method.getName();
+            }
+        }
+        return repository.getSimpleName() + '.' + method.getName();
+    }
+
+    /**
+     * Policy and state of one operation.
+     */
+    private class Operation {
+
+        private final String name;
+
+        private final CustomProperties.Policy policy;
+
+        private final Semaphore bulkhead;
+
+        private final CircuitBreaker breaker;
+
+        // Last known good result by list of arguments, null for the writes and the streamed reads
+        private final Cache<List<Object>, Known> lastKnownGood;
+
+        Operation(Class<?> repository, Method method) {
+            CustomProperties.Resilience resilience = props.getObject().getResilience();
+            name = name(repository, method);
+            policy = resilience.policy(name);
+            bulkhead = new Semaphore(policy.getMaxConcurrentCalls());
+            breaker = new CircuitBreaker(name, policy.getSlidingWindow(), policy.getMinimumCalls(),
+                    policy.getFailureRateThreshold(), policy.getOpenDuration(), policy.getHalfOpenCalls());
+            boolean read = method.getName().startsWith("get") || method.getName().startsWith("find");
+            boolean streamed = Stream.class.isAssignableFrom(method.getReturnType())
+                    || Flux.class.isAssignableFrom(method.getReturnType());
+            lastKnownGood = read && !streamed
+                    ? Caffeine.newBuilder().maximumSize(resilience.getMaxFallbackEntries()).build()
+                    : null;
+            Gauge.builder("parcinfo.api.circuit.state", breaker, circuit -> circuit.getState().ordinal())
+                    .tag("operation", name)
+                    .register(meterRegistry.getObject());
+        }
+
+        Object call(MethodInvocation invocation, List<Object> arguments) throws Throwable {
+            RequestAttributes request = RequestContextHolder.getRequestAttributes();
+            if (!breaker.tryAcquire()) {
+                return fallback(arguments, request, rejected("circuit_open", "the circuit is open"));
+            }
+            if (!acquireBulkhead(policy.getMaxWait().toMillis())) {
+                breaker.release();
+                return fallback(arguments, request, rejected("bulkhead_full",
+                        policy.getMaxConcurrentCalls() + " calls already in flight"));
+            }
+            Object result;
+            OperationTimeouts.Deadline deadline = OperationTimeouts.start(policy.getTimeout());
+            OperationTimeouts.Deadline previous = OperationTimeouts.set(deadline);
+            try {
+                result = invocation.proceed();
+            } catch (Throwable e) {
+                Throwable failure = deadline.isExpired() && !isAnswer(e) ? timedOut(e) : e;
+                if (!isFailure(failure)) {
+                    breaker.onSuccess();
+                    throw failure;
+                }
+                breaker.onFailure();
+                return fallback(arguments, request, failure);
+            } finally {
+                deadline.end();
+                OperationTimeouts.restore(previous);
+                bulkhead.release();
+            }
+            breaker.onSuccess();
+            remember(arguments, result);
+            return result;
+        }
+
+        @SuppressWarnings("unchecked")
+        Mono<Object> mono(MethodInvocation invocation, List<Object> arguments) throws Throwable {
+            // Nothing is sent before subscription: the policy applies from there
+            Mono<Object> call = (Mono<Object>) invocation.proceed();
+            RequestAttributes request = RequestContextHolder.getRequestAttributes();
+            return Mono.defer(() -> {
+                if (!breaker.tryAcquire()) {
+                    return fallbackMono(arguments, request, rejected("circuit_open", "the circuit is open"));
+                }
+                if (!acquireBulkhead(0)) {
+                    breaker.release();
+                    return fallbackMono(arguments, request, rejected("bulkhead_full",
+                            policy.getMaxConcurrentCalls() + " calls already in flight"));
+                }
+                return call.timeout(policy.getTimeout())
+                        .doOnSuccess(value -> {
+                            breaker.onSuccess();
+                            remember(arguments, value);
+                        })
+                        .onErrorResume(error -> {
+                            if (!isFailure(error)) {
+                                breaker.onSuccess();
+                                return Mono.error(error);
+                            }
+                            breaker.onFailure();
+                            return fallbackMono(arguments, request, error);
+                        })
+                        .doOnCancel(breaker::release)
+                        .doFinally(signal -> bulkhead.release());
+            });
+        }
+
+        @SuppressWarnings("unchecked")
+        Flux<Object> flux(MethodInvocation invocation) throws Throwable {
+            Flux<Object> call = (Flux<Object>) invocation.proceed();
+            return Flux.defer(() -> {
+                if (!breaker.tryAcquire()) {
+                    return Flux.error(rejected("circuit_open", "the circuit is open"));
+                }
+                if (!acquireBulkhead(0)) {
+                    breaker.release();
+                    return Flux.error(rejected("bulkhead_full", policy.getMaxConcurrentCalls() + " calls already in flight"));
+                }
+                return call.timeout(policy.getTimeout())
+                        .doOnComplete(breaker::onSuccess)
+                        .doOnError(error -> {
+                            if (isFailure(error)) {
+                                breaker.onFailure();
+                            } else {
+                                breaker.onSuccess();
+                            }
+                        })
+                        .doOnCancel(breaker::release)
+                        .doFinally(signal -> bulkhead.release());
+            });
+        }
+
+        private boolean acquireBulkhead(long maxWaitMillis) {
+            try {
+                return bulkhead.tryAcquire(maxWaitMillis, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return false;
+            }
+        }
+
+        private void remember(List<Object> arguments, Object result) {
+            if (lastKnownGood != null && result != null) {
+                lastKnownGood.put(arguments, new Known(result, Instant.now()));
+            }
+        }
+
+        private Object fallback(List<Object> arguments, RequestAttributes request, Throwable failure) throws Throwable {
+            Known lastKnown = lastKnownGood != null ? lastKnownGood.getIfPresent(arguments) : null;
+            if (lastKnown == null) {
+                throw failure;
+            }
+            log.debug("{} answered from its last known good result: {}", name, failure.getMessage());
+            meterRegistry.getObject().counter("parcinfo.api.fallbacks", "operation", name).increment();
+            StaleReads.record(request, lastKnown.readAt());
+            return lastKnown.result();
+        }
+
+        private Mono<Object> fallbackMono(List<Object> arguments, RequestAttributes request, Throwable failure) {
+            try {
+                return Mono.just(fallback(arguments, request, failure));
+            } catch (Throwable e) {
+                return Mono.error(e);
+            }
+        }
+
+        // The requests aborted at the deadline fail in many ways (aborted request, interrupted wait...)
+        private ResourceAccessException timedOut(Throwable e) {
+            ResourceAccessException timeout = new ResourceAccessException(name + " took longer than " + policy.getTimeout());
+            timeout.initCause(e);
+            return timeout;
+        }
+
+        private ResourceAccessException rejected(String reason, String why) {
+            meterRegistry.getObject().counter("parcinfo.api.rejected", "operation", name, "reason", reason).increment();
+            return new ResourceAccessException(name + " not called: " + why);
+        }
+    }
+
+    /**
+     * A result of the API, and when it was read.
+     */
+    private record Known(Object result, Instant readAt) {
+    }
+}
@@ -0,0 +1,109 @@
+package fr.afpa.pompey.cda17.ParcInfo.http;
+
+import config.CustomProperties;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.ResourceAccessException;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Runs API calls on the apiExecutor and waits for independent calls together,
+ * so that the caller waits for the slowest of its calls instead of their sum.
+ * Cancelling a returned future interrupts its call: it stops waiting for a permit
+ * of the ApiConcurrencyLimiter, or for the socket when it runs on a virtual thread.
+ */
+@Component
+public class AsyncApiCalls {
+
+    @Autowired
+    @Qualifier("apiExecutor")
+    private AsyncTaskExecutor apiExecutor;
+
+    @Autowired
+    private CustomProperties props;
+
+    /**
+     * Starts a call on the apiExecutor.
+     * @param call the blocking call to the API.
+     * @param <T> the type of the result.
+     * @return the future result; cancelling it interrupts the call.
+     */
+    public <T> CompletableFuture<T> supply(Callable<T> call) {
+        CompletableFuture<T> result = new CompletableFuture<>();
+        Future<?> task = apiExecutor.submit(() -> {
+            try {
+                result.complete(call.call());
+            } catch (Throwable e) {
+                result.completeExceptionally(e);
+            }
+        });
+        result.whenComplete((value, error) -> {
+            if (result.isCancelled()) {
+                task.cancel(true);
+            }
+        });
+        return result;
+    }
+
+    /**
+     * Waits for all the calls, at most http.join-timeout.
+     * As soon as one of them fails, or when the time is up, the others are cancelled.
+     * @param calls the calls started together.
+     * @throws ResourceAccessException if the calls did not all end in time.
+     * @throws RuntimeException the failure of the first call that failed.
+     */
+    public void joinAll(CompletableFuture<?>... calls) {
+        AtomicReference<Throwable> firstFailure = new AtomicReference<>();
+        for (CompletableFuture<?> call : calls) {
+            call.whenComplete((value, error) -> {
+                if (error != null && firstFailure.compareAndSet(null, unwrap(error))) {
+                    cancel(calls);
+                }
+            });
+        }
+
+        try {
+            CompletableFuture.allOf(calls).get(props.getHttp().getJoinTimeout().toMillis(), TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            cancel(calls);
+            throw new ResourceAccessException("The API did not answer within " + props.getHttp().getJoinTimeout());
+        } catch (InterruptedException e) {
+            cancel(calls);
+            Thread.currentThread().interrupt();
+            throw new ResourceAccessException("Interrupted while waiting for the API");
+        } catch (ExecutionException | CancellationException e) {
+            // Give the caller the exception of the call that failed first, not the cancellation of its siblings
+            Throwable failure = firstFailure.get() != null ? firstFailure.get() : unwrap(e);
+            if (failure instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            if (failure instanceof Error error) {
+                throw error;
+            }
+            throw new IllegalStateException(failure);
+        }
+    }
+
+    private static Throwable unwrap(Throwable error) {
+        return (error instanceof CompletionException || error instanceof ExecutionException) && error.getCause() != null
+                ? error.getCause()
+                : error;
+    }
+
+    private static void cancel(CompletableFuture<?>... calls) {
+        for (CompletableFuture<?> call : calls) {
+            call.cancel(true);
+        }
+    }
+}
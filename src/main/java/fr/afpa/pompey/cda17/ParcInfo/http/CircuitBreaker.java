@@ -0,0 +1,177 @@
+package fr.afpa.pompey.cda17.ParcInfo.http;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.time.Duration;
+import java.util.function.LongSupplier;
+
+/**
+ * Stops calling the API while it fails, so that the callers fail (or fall back) at once
+ * instead of each waiting for a timeout.
+ * <ul>
+ *     <li>CLOSED: the calls go through; the outcomes of the last slidingWindow calls are kept, and once
+ *     minimumCalls have been made, a failure rate of failureRateThreshold % or more opens the circuit;</li>
+ *     <li>OPEN: no call goes through during openDuration;</li>
+ *     <li>HALF_OPEN: halfOpenCalls trial calls go through; the circuit closes if they all succeed,
+ *     and opens again at the first failure.</li>
+ * </ul>
+ * The sections are short and never block, so a plain monitor is enough, virtual threads included.
+ */
+@Slf4j
+public class CircuitBreaker {
+
+    public enum State {
+        CLOSED, OPEN, HALF_OPEN
+    }
+
+    private final String name;
+
+    private final int minimumCalls;
+
+    private final int failureRateThreshold;
+
+    private final long openNanos;
+
+    private final int halfOpenCalls;
+
+    private final LongSupplier clock;
+
+    // Outcomes of the last calls, true for a failure, written in a ring
+    private final boolean[] outcomes;
+
+    private int next;
+
+    private int recorded;
+
+    private int failures;
+
+    private State state = State.CLOSED;
+
+    private long openedAt;
+
+    private int trialPermits;
+
+    private int trialSuccesses;
+
+    public CircuitBreaker(String name, int slidingWindow, int minimumCalls, int failureRateThreshold,
+                          Duration openDuration, int halfOpenCalls) {
+        this(name, slidingWindow, minimumCalls, failureRateThreshold, openDuration, halfOpenCalls, System::nanoTime);
+    }
+
+    CircuitBreaker(String name, int slidingWindow, int minimumCalls, int failureRateThreshold,
+                   Duration openDuration, int halfOpenCalls, LongSupplier clock) {
+        this.name = name;
+        this.outcomes = new boolean[slidingWindow];
+        this.minimumCalls = Math.min(minimumCalls, slidingWindow);
+        this.failureRateThreshold = failureRateThreshold;
+        this.openNanos = openDuration.toNanos();
+        this.halfOpenCalls = halfOpenCalls;
+        this.clock = clock;
+    }
+
+    /**
+     * Asks to make a call. A permitted call must end with {@link #onSuccess()}, {@link #onFailure()}
+     * or {@link #release()}.
+     * @return false if the circuit is open, or if the trial calls are all in flight.
+     */
+    public synchronized boolean tryAcquire() {
+        if (state == State.OPEN) {
+            if (clock.getAsLong() - openedAt < openNanos) {
+                return false;
+            }
+            transition(State.HALF_OPEN);
+            trialPermits = halfOpenCalls;
+            trialSuccesses = 0;
+        }
+        if (state == State.HALF_OPEN) {
+            if (trialPermits == 0) {
+                return false;
+            }
+            trialPermits--;
+        }
+        return true;
+    }
+
+    /**
+     * The API answered (an error answer for a wrong request, such as a 404, is an answer).
+     */
+    public synchronized void onSuccess() {
+        if (state == State.HALF_OPEN) {
+            if (++trialSuccesses == halfOpenCalls) {
+                reset();
+                transition(State.CLOSED);
+            }
+            return;
+        }
+        if (state == State.CLOSED) {
+            record(false);
+        }
+    }
+
+    /**
+     * The API did not answer in time, could not be reached, or failed (5xx).
+     */
+    public synchronized void onFailure() {
+        if (state == State.HALF_OPEN) {
+            open();
+            return;
+        }
+        if (state == State.CLOSED) {
+            record(true);
+        }
+    }
+
+    /**
+     * The permitted call was not made, or ended without telling anything about the API (cancelled).
+     */
+    public synchronized void release() {
+        if (state == State.HALF_OPEN && trialPermits < halfOpenCalls - trialSuccesses) {
+            trialPermits++;
+        }
+    }
+
+    public synchronized State getState() {
+        return state;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    private void record(boolean failure) {
+        if (recorded == outcomes.length) {
+            if (outcomes[next]) {
+                failures--;
+            }
+        } else {
+            recorded++;
+        }
+        outcomes[next] = failure;
+        if (failure) {
+            failures++;
+        }
+        next = (next + 1) % outcomes.length;
+        if (recorded >= minimumCalls && failures * 100 >= failureRateThreshold * recorded) {
+            open();
+        }
+    }
+
+    private void open() {
+        openedAt = clock.getAsLong();
+        reset();
+        transition(State.OPEN);
+    }
+
+    private void reset() {
+        next = 0;
+        recorded = 0;
+        failures = 0;
+    }
+
+    private void transition(State to) {
+        if (state != to) {
+            log.warn("Circuit of {}: {} -> {}", name, state, to);
+            state = to;
+        }
+    }
+}
@@ -0,0 +1,141 @@
+package fr.afpa.pompey.cda17.ParcInfo.http;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import config.CustomProperties;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.RestTemplate;
+
+/**
+ * Performs the GET requests of the repositories as conditional requests.
+ * The validators sent by the API (ETag, Last-Modified) are kept with the
+ * deserialized body; the next GET of the same URI sends If-None-Match /
+ * If-Modified-Since, and a 304 answer reuses the stored objects instead of
+ * downloading and parsing the JSON again.
+ * <p>
+ * The stored objects are the ones handed to the callers: the repositories call
+ * {@link #invalidateAll()} after each write, since a caller may have modified them.
+ */
+@Slf4j
+@Component
+public class ConditionalGetClient {
+
+    @Autowired
+    private RestTemplate restTemplate;
+
+    @Autowired
+    private CustomProperties props;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    // Last validated representation of each URI
+    private Cache<String, Validated<?>> validated;
+
+    private Counter notModified;
+
+    private Counter modified;
+
+    @PostConstruct
+    void init() {
+        // Its size and hit ratio are published as the "api.validated" cache
+        validated = CaffeineCacheMetrics.monitor(meterRegistry, Caffeine.newBuilder()
+                .maximumSize(props.getHttp().getMaxValidatedResponses())
+                .recordStats()
+                .<String, Validated<?>>build(), "api.validated");
+        notModified = meterRegistry.counter("parcinfo.api.conditional", "result", "not_modified");
+        modified = meterRegistry.counter("parcinfo.api.conditional", "result", "modified");
+    }
+
+    /**
+     * Sends a conditional GET.
+     * @param uriTemplate the endpoint, relative to the API URL (e.g. "/personne/{id}").
+     * @param type the type of the body.
+     * @param uriVariables the values of the URI template variables.
+     * @return the body, fresh or reused when the API answered 304.
+     */
+    public <T> T get(String uriTemplate, Class<T> type, Object... uriVariables) {
+        return get(uriTemplate, ParameterizedTypeReference.forType(type), uriVariables);
+    }
+
+    /**
+     * Sends a conditional GET.
+     * @param uriTemplate the endpoint, relative to the API URL (e.g. "/personnes").
+     * @param type the type of the body.
+     * @param uriVariables the values of the URI template variables.
+     * @return the body, fresh or reused when the API answered 304.
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T get(String uriTemplate, ParameterizedTypeReference<T> type, Object... uriVariables) {
+        if (!props.getHttp().isConditionalGet()) {
+            return restTemplate.exchange(uriTemplate, HttpMethod.GET, null, type, uriVariables).getBody();
+        }
+
+        String uri = restTemplate.getUriTemplateHandler().expand(uriTemplate, uriVariables).toString();
+        Validated<T> previous = (Validated<T>) validated.getIfPresent(uri);
+
+        HttpHeaders headers = new HttpHeaders();
+        if (previous != null) {
+            if (previous.etag() != null) {
+                headers.setIfNoneMatch(previous.etag());
+            }
+            if (previous.lastModified() > 0) {
+                headers.setIfModifiedSince(previous.lastModified());
+            }
+        }
+
+        ResponseEntity<T> response = restTemplate.exchange(
+                uriTemplate, HttpMethod.GET, new HttpEntity<>(headers), type, uriVariables);
+
+        if (response.getStatusCode().isSameCodeAs(HttpStatus.NOT_MODIFIED) && previous != null) {
+            notModified.increment();
+            return previous.body();
+        }
+
+        modified.increment();
+        String etag = response.getHeaders().getETag();
+        long lastModified = response.getHeaders().getLastModified();
+        if (etag != null || lastModified > 0) {
+            validated.put(uri, new Validated<>(etag, lastModified, response.getBody()));
+        } else {
+            validated.invalidate(uri);
+        }
+        return response.getBody();
+    }
+
+    /**
+     * Forgets every stored representation, the next GETs download full bodies.
+     */
+    public void invalidateAll() {
+        validated.invalidateAll();
+    }
+
+    /**
+     * @return the number of GETs answered 304 by the API.
+     */
+    public long getNotModifiedCount() {
+        return (long) notModified.count();
+    }
+
+    /**
+     * @return the number of GETs answered with a full body.
+     */
+    public long getModifiedCount() {
+        return (long) modified.count();
+    }
+
+    private record Validated<T>(String etag, long lastModified, T body) {
+    }
+}
@@ -0,0 +1,53 @@
+package fr.afpa.pompey.cda17.ParcInfo.http;
+
+import lombok.extern.slf4j.Slf4j;
+import org.apache.hc.client5.http.HttpRoute;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManager;
+import org.apache.hc.core5.pool.PoolStats;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Exposes the statistics of the connection pool used to call the API.
+ */
+@Slf4j
+@Component
+public class ConnectionPoolStatistics {
+
+    @Autowired
+    private PoolingHttpClientConnectionManager apiConnectionManager;
+
+    /**
+     * Returns the statistics of the whole pool.
+     * @return leased, available, pending and max connections.
+     */
+    public PoolStats getTotalStats() {
+        return apiConnectionManager.getTotalStats();
+    }
+
+    /**
+     * Returns the statistics of each route known by the pool.
+     * @return the statistics indexed by route (scheme://host:port).
+     */
+    public Map<String, PoolStats> getRouteStats() {
+        Map<String, PoolStats> stats = new LinkedHashMap<>();
+        for (HttpRoute route : apiConnectionManager.getRoutes()) {
+            stats.put(route.getTargetHost().toURI(), apiConnectionManager.getStats(route));
+        }
+        return stats;
+    }
+
+    /**
+     * Periodically logs the pool statistics, useful to size the pool.
+     */
+    @Scheduled(fixedDelayString = "${fr.afpa.pompey.cda17.http.stats-log-interval:PT1M}")
+    public void log() {
+        if (log.isDebugEnabled()) {
+            log.debug("API connection pool: {} / routes: {}", getTotalStats(), getRouteStats());
+        }
+    }
+}
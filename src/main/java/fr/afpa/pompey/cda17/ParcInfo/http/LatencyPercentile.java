@@ -0,0 +1,60 @@
+package fr.afpa.pompey.cda17.ParcInfo.http;
+
+import java.util.Arrays;
+
+/**
+ * A percentile of the latest latencies of an operation, kept in a ring of the last window samples.
+ * Sorting the ring on each call would cost more than the call saves, so the percentile is computed
+ * again only every window / 16 samples, and read for free in between.
+ */
+class LatencyPercentile {
+
+    private final double percentile;
+
+    private final int minSamples;
+
+    private final int recomputeEvery;
+
+    private final long[] samples;
+
+    private int next;
+
+    private int count;
+
+    private int sinceComputed;
+
+    private volatile long nanos = -1;
+
+    /**
+     * @param percentile the percentile, between 0 and 100.
+     * @param window the number of latest samples it is computed on.
+     * @param minSamples the number of samples needed before it is known.
+     */
+    LatencyPercentile(double percentile, int window, int minSamples) {
+        this.percentile = percentile;
+        this.minSamples = Math.max(1, Math.min(minSamples, window));
+        this.recomputeEvery = Math.max(1, window / 16);
+        this.samples = new long[window];
+    }
+
+    synchronized void record(long latencyNanos) {
+        samples[next] = latencyNanos;
+        next = (next + 1) % samples.length;
+        count = Math.min(count + 1, samples.length);
+        if (count >= minSamples && (nanos < 0 || ++sinceComputed >= recomputeEvery)) {
+            long[] sorted = Arrays.copyOf(samples, count);
+            Arrays.sort(sorted);
+            // Nearest rank
+            int rank = (int) Math.ceil(percentile / 100 * count);
+            nanos = sorted[Math.max(0, rank - 1)];
+            sinceComputed = 0;
+        }
+    }
+
+    /**
+     * @return the percentile in nanoseconds, -1 until minSamples samples were recorded.
+     */
+    long nanos() {
+        return nanos;
+    }
+}
@@ -0,0 +1,148 @@
+package fr.afpa.pompey.cda17.ParcInfo.http;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Deadline of the blocking call the current thread is making, set by {@link ApiResilience} from the timeout
+ * of the policy of the repository operation. It bounds the whole operation, not each read of the socket:
+ * the HTTP clients register how to abort the requests they send for it (the request factory of the
+ * RestTemplate, a filter of the WebClient), and once the deadline has passed they are aborted, whether
+ * they wait for a permit, a pooled connection, the response or the rest of its body.
+ */
+public final class OperationTimeouts {
+
+    private static final ThreadLocal<Deadline> CURRENT = new ThreadLocal<>();
+
+    // Expires the deadlines; its tasks only abort requests
+    private static final ScheduledExecutorService TIMER = Executors.newSingleThreadScheduledExecutor(
+            Thread.ofPlatform().name("api-deadlines").daemon().factory());
+
+    private OperationTimeouts() {
+    }
+
+    /**
+     * @return the deadline of the operation in progress on this thread, null outside of an operation.
+     */
+    public static Deadline current() {
+        return CURRENT.get();
+    }
+
+    /**
+     * Starts the deadline of an operation, to give to {@link #set(Deadline)} and to end once the operation is over.
+     * @param timeout the time the whole operation may take.
+     * @return the deadline.
+     */
+    static Deadline start(Duration timeout) {
+        Deadline deadline = new Deadline(timeout);
+        deadline.expiry = TIMER.schedule(deadline::expire, timeout.toNanos(), TimeUnit.NANOSECONDS);
+        return deadline;
+    }
+
+    /**
+     * @param deadline the deadline of the operation running on this thread, e.g. an attempt started for it.
+     * @return the deadline it replaces, to give to {@link #restore(Deadline)} once the operation is over.
+     */
+    static Deadline set(Deadline deadline) {
+        Deadline previous = CURRENT.get();
+        CURRENT.set(deadline);
+        return previous;
+    }
+
+    static void restore(Deadline previous) {
+        if (previous == null) {
+            CURRENT.remove();
+        } else {
+            CURRENT.set(previous);
+        }
+    }
+
+    /**
+     * The deadline of one operation, shared by the threads working for it.
+     */
+    public static final class Deadline {
+
+        private final Duration timeout;
+
+        private final long deadlineNanos;
+
+        // Guarded by this; null once the deadline has passed or the operation is over
+        private List<Runnable> aborts = new ArrayList<>();
+
+        private boolean expired;
+
+        private ScheduledFuture<?> expiry;
+
+        private Deadline(Duration timeout) {
+            this.timeout = timeout;
+            this.deadlineNanos = System.nanoTime() + timeout.toNanos();
+        }
+
+        /**
+         * @return the time the whole operation may take.
+         */
+        public Duration getTimeout() {
+            return timeout;
+        }
+
+        /**
+         * @return the time left before the deadline, zero once it has passed.
+         */
+        public Duration remaining() {
+            return Duration.ofNanos(Math.max(deadlineNanos - System.nanoTime(), 0));
+        }
+
+        /**
+         * @return true if the deadline passed before the operation was over.
+         */
+        public synchronized boolean isExpired() {
+            return expired;
+        }
+
+        /**
+         * Registers how to abort a request sent for the operation; at once if the deadline has passed.
+         * @param abort aborts the request, and makes the thread waiting for it fail.
+         */
+        public void onExpiry(Runnable abort) {
+            synchronized (this) {
+                if (aborts != null) {
+                    aborts.add(abort);
+                    return;
+                }
+                if (!expired) {
+                    // The operation is over: a request it left open (a streamed body) is not bounded
+                    return;
+                }
+            }
+            abort.run();
+        }
+
+        private void expire() {
+            List<Runnable> pending;
+            synchronized (this) {
+                if (aborts == null) {
+                    return;
+                }
+                expired = true;
+                pending = aborts;
+                aborts = null;
+            }
+            pending.forEach(Runnable::run);
+        }
+
+        /**
+         * Ends the operation: the requests it sent are no longer aborted.
+         */
+        void end() {
+            synchronized (this) {
+                aborts = null;
+            }
+            expiry.cancel(false);
+        }
+    }
+}
@@ -0,0 +1,81 @@
+package fr.afpa.pompey.cda17.ParcInfo.http;
+
+import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+
+import java.time.Instant;
+
+/**
+ * Keeps track of the reads answered from a copy of the API data rather than by the API
+ * (last known good results, local snapshot), and of how old the oldest of those copies is:
+ * per request, so that the page can tell its age, and per thread around {@link #during(Runnable)}.
+ */
+public final class StaleReads {
+
+    private static final String ATTRIBUTE = StaleReads.class.getName() + ".OLDEST";
+
+    private static final ThreadLocal<Instant[]> TRACKED = new ThreadLocal<>();
+
+    private StaleReads() {
+    }
+
+    /**
+     * Records a read answered from a copy, in the current request if any.
+     * @param asOf when the copy was read from the API.
+     */
+    public static void record(Instant asOf) {
+        record(RequestContextHolder.getRequestAttributes(), asOf);
+    }
+
+    /**
+     * Records a read answered from a copy, for a request captured beforehand
+     * (the asynchronous reads complete on another thread).
+     * @param request the request the read was made for, null outside of a request.
+     * @param asOf when the copy was read from the API.
+     */
+    public static void record(RequestAttributes request, Instant asOf) {
+        Instant[] tracked = TRACKED.get();
+        if (tracked != null && (tracked[0] == null || asOf.isBefore(tracked[0]))) {
+            tracked[0] = asOf;
+        }
+        if (request != null) {
+            Instant oldest = (Instant) request.getAttribute(ATTRIBUTE, RequestAttributes.SCOPE_REQUEST);
+            if (oldest == null || asOf.isBefore(oldest)) {
+                request.setAttribute(ATTRIBUTE, asOf, RequestAttributes.SCOPE_REQUEST);
+            }
+        }
+    }
+
+    /**
+     * @param request a request.
+     * @return when the oldest copy it was answered from was read from the API, null if none was used.
+     */
+    public static Instant oldest(HttpServletRequest request) {
+        return (Instant) request.getAttribute(ATTRIBUTE);
+    }
+
+    /**
+     * Makes reads on the current thread, and tells whether some were answered from a copy.
+     * @param reads the reads.
+     * @return when the oldest copy used was read from the API, null if the API answered every read.
+     */
+    public static Instant during(Runnable reads) {
+        Instant[] outer = TRACKED.get();
+        Instant[] tracked = new Instant[1];
+        TRACKED.set(tracked);
+        try {
+            reads.run();
+        } finally {
+            if (outer != null) {
+                TRACKED.set(outer);
+            } else {
+                TRACKED.remove();
+            }
+        }
+        if (outer != null && tracked[0] != null && (outer[0] == null || tracked[0].isBefore(outer[0]))) {
+            outer[0] = tracked[0];
+        }
+        return tracked[0];
+    }
+}
@@ -0,0 +1,87 @@
+package fr.afpa.pompey.cda17.ParcInfo.http;
+
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.MediaType;
+import org.springframework.http.client.ClientHttpRequest;
+import org.springframework.http.client.ClientHttpResponse;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.RestTemplate;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.util.List;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Reads the JSON arrays of the API one element at a time with a Jackson streaming parser,
+ * so that only the element being consumed is held in memory, whatever the size of the array.
+ * The request goes through the request factory of the shared RestTemplate (pool, limiter)
+ * and its error handler, but bypasses the conditional GETs, whose stored bodies are whole lists.
+ */
+@Slf4j
+@Component
+public class StreamingGetClient {
+
+    @Autowired
+    private RestTemplate restTemplate;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    /**
+     * Sends a GET and returns the elements of the array it answers as they are parsed.
+     * The HTTP response stays open until the stream is exhausted or closed:
+     * the caller must close the stream (try-with-resources or request completion).
+     * @param path the path of the collection, relative to the API URL.
+     * @param elementType the type of the elements of the array.
+     * @param <T> the type of the elements.
+     * @return the lazy stream of elements, in the API order.
+     */
+    public <T> Stream<T> stream(String path, Class<T> elementType) {
+        URI uri = restTemplate.getUriTemplateHandler().expand(path);
+        ClientHttpResponse response = null;
+        try {
+            ClientHttpRequest request = restTemplate.getRequestFactory().createRequest(uri, HttpMethod.GET);
+            request.getHeaders().setAccept(List.of(MediaType.APPLICATION_JSON));
+            response = request.execute();
+            if (restTemplate.getErrorHandler().hasError(response)) {
+                restTemplate.getErrorHandler().handleError(uri, HttpMethod.GET, response);
+            }
+
+            // The root array is unwrapped by the iterator: each next() parses one element.
+            MappingIterator<T> elements = objectMapper
+                    .readerFor(elementType)
+                    .readValues(response.getBody());
+            ClientHttpResponse opened = response;
+            return StreamSupport
+                    .stream(Spliterators.spliteratorUnknownSize(elements, Spliterator.ORDERED | Spliterator.NONNULL), false)
+                    .onClose(() -> {
+                        try {
+                            elements.close();
+                        } catch (IOException e) {
+                            log.debug("Could not close the parser of {}", uri, e);
+                        } finally {
+                            opened.close();
+                        }
+                    });
+        } catch (IOException e) {
+            if (response != null) {
+                response.close();
+            }
+            throw new UncheckedIOException("Could not read " + uri, e);
+        } catch (RuntimeException e) {
+            if (response != null) {
+                response.close();
+            }
+            throw e;
+        }
+    }
+}
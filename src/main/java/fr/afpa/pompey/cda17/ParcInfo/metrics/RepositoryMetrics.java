@@ -0,0 +1,129 @@
+package fr.afpa.pompey.cda17.ParcInfo.metrics;
+
+import fr.afpa.pompey.cda17.ParcInfo.repositories.PeripheriqueRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import org.aopalliance.intercept.MethodInterceptor;
+import org.aopalliance.intercept.MethodInvocation;
+import org.springframework.aop.framework.Advised;
+import org.springframework.aop.framework.ProxyFactory;
+import org.springframework.aop.support.AopUtils;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.RestClientResponseException;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Times each method of the repositories, that is each call to the API, and counts the failed ones:
+ * <ul>
+ *     <li>parcinfo.api.calls: timer tagged repository, method, status and exception;</li>
+ *     <li>parcinfo.api.errors: counter of the failed calls, with the same tags.</li>
+ * </ul>
+ * The status is OK, the HTTP status of an error answer, or CLIENT_ERROR when no answer came
+ * (connection refused, timeout, concurrency limit).
+ * A Mono or Flux is timed until it completes; a Stream until the response is opened,
+ * its reading being part of the rendering of the page.
+ * Each HTTP exchange is also timed by Spring Boot (http.client.requests, tagged uri and status).
+ */
+@Component
+public class RepositoryMetrics implements BeanPostProcessor {
+
+    private static final String PACKAGE = PeripheriqueRepository.class.getPackageName();
+
+    @Autowired
+    private ObjectProvider<MeterRegistry> meterRegistry;
+
+    @Override
+    public Object postProcessAfterInitialization(Object bean, String beanName) {
+        Class<?> type = AopUtils.getTargetClass(bean);
+        if (!type.getPackageName().equals(PACKAGE)) {
+            return bean;
+        }
+        String repository = type.getSimpleName();
+        MethodInterceptor timer = invocation -> timed(repository, invocation);
+        if (bean instanceof Advised advised) {
+            // Innermost, next to the repository: the calls actually made are timed
+            advised.addAdvice(timer);
+            return bean;
+        }
+        ProxyFactory proxy = new ProxyFactory(bean);
+        // Proxy the class, so that the bean can still be injected or checked by its implementation type
+        proxy.setProxyTargetClass(true);
+        proxy.addAdvice(timer);
+        return proxy.getProxy(type.getClassLoader());
+    }
+
+    private Object timed(String repository, MethodInvocation invocation) throws Throwable {
+        String method = invocation.getMethod().getName();
+        long start = System.nanoTime();
+        Object result;
+        try {
+            result = invocation.proceed();
+        } catch (Throwable e) {
+            record(repository, method, start, e);
+            throw e;
+        }
+        if (result instanceof Mono<?> mono) {
+            return timed(repository, method, mono);
+        }
+        if (result instanceof Flux<?> flux) {
+            return timed(repository, method, flux);
+        }
+        record(repository, method, start, null);
+        return result;
+    }
+
+    // Nothing is sent before subscription: the time runs from there
+    private <T> Mono<T> timed(String repository, String method, Mono<T> mono) {
+        return Mono.defer(() -> {
+            long start = System.nanoTime();
+            return mono.doOnSuccess(value -> record(repository, method, start, null))
+                    .doOnError(e -> record(repository, method, start, e));
+        });
+    }
+
+    private <T> Flux<T> timed(String repository, String method, Flux<T> flux) {
+        return Flux.defer(() -> {
+            long start = System.nanoTime();
+            return flux.doOnComplete(() -> record(repository, method, start, null))
+                    .doOnError(e -> record(repository, method, start, e));
+        });
+    }
+
+    private void record(String repository, String method, long start, Throwable failure) {
+        long elapsed = System.nanoTime() - start;
+        Throwable cause = failure instanceof CompletionException && failure.getCause() != null
+                ? failure.getCause()
+                : failure;
+        Tags tags = Tags.of(
+                "repository", repository,
+                "method", method,
+                "status", status(cause),
+                "exception", cause == null ? "none" : cause.getClass().getSimpleName());
+        MeterRegistry registry = meterRegistry.getObject();
+        registry.timer("parcinfo.api.calls", tags).record(elapsed, TimeUnit.NANOSECONDS);
+        if (cause != null) {
+            registry.counter("parcinfo.api.errors", tags).increment();
+        }
+    }
+
+    static String status(Throwable cause) {
+        if (cause == null) {
+            return "OK";
+        }
+        if (cause instanceof RestClientResponseException e) {
+            return String.valueOf(e.getStatusCode().value());
+        }
+        if (cause instanceof WebClientResponseException e) {
+            return String.valueOf(e.getStatusCode().value());
+        }
+        return "CLIENT_ERROR";
+    }
+}
@@ -0,0 +1,44 @@
+package fr.afpa.pompey.cda17.ParcInfo.metrics;
+
+import io.micrometer.core.instrument.Meter;
+import io.micrometer.core.instrument.config.MeterFilter;
+import io.micrometer.core.instrument.distribution.DistributionStatisticConfig;
+
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Publishes the timings of the configured routes as histograms, with their own percentiles
+ * (fr.afpa.pompey.cda17.metrics.histograms[/peripheriques]=0.5,0.95,0.99).
+ * Applies to the timers tagged by route: the requests (http.server.requests) and the rendering
+ * of the views (parcinfo.view.render). The other routes keep a plain timer, cheaper to scrape.
+ */
+public class RouteHistograms implements MeterFilter {
+
+    private static final Set<String> TIMERS = Set.of("http.server.requests", "parcinfo.view.render");
+
+    private final Map<String, double[]> percentiles;
+
+    /**
+     * @param percentiles the percentiles to compute, by route; an empty array publishes only the histogram.
+     */
+    public RouteHistograms(Map<String, double[]> percentiles) {
+        this.percentiles = Map.copyOf(percentiles);
+    }
+
+    @Override
+    public DistributionStatisticConfig configure(Meter.Id id, DistributionStatisticConfig config) {
+        if (!TIMERS.contains(id.getName())) {
+            return config;
+        }
+        double[] route = percentiles.get(id.getTag("uri"));
+        if (route == null) {
+            return config;
+        }
+        return DistributionStatisticConfig.builder()
+                .percentilesHistogram(true)
+                .percentiles(route)
+                .build()
+                .merge(config);
+    }
+}
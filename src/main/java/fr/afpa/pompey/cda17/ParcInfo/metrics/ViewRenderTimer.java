@@ -0,0 +1,68 @@
+package fr.afpa.pompey.cda17.ParcInfo.metrics;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.HandlerInterceptor;
+import org.springframework.web.servlet.HandlerMapping;
+import org.springframework.web.servlet.ModelAndView;
+import org.springframework.web.servlet.view.RedirectView;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Times the rendering of the views, from the return of the controller method to the end of the response:
+ * parcinfo.view.render, tagged uri (the route), view and exception.
+ * Next to http.server.requests, which times the whole request, it separates the time spent
+ * building the model (the API calls) from the time spent writing the HTML.
+ */
+@Component
+public class ViewRenderTimer implements HandlerInterceptor {
+
+    private static final String START = ViewRenderTimer.class.getName() + ".start";
+
+    private static final String VIEW = ViewRenderTimer.class.getName() + ".view";
+
+    // Provided: registered by MetricsConfig, whose MeterFilter is needed to build the registry
+    @Autowired
+    private ObjectProvider<MeterRegistry> meterRegistry;
+
+    @Override
+    public void postHandle(HttpServletRequest request, HttpServletResponse response, Object handler,
+                           ModelAndView modelAndView) {
+        // No view for @ResponseBody methods and the responses written by the handler
+        if (modelAndView != null) {
+            request.setAttribute(VIEW, view(modelAndView));
+            request.setAttribute(START, System.nanoTime());
+        }
+    }
+
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler,
+                                Exception ex) {
+        if (request.getAttribute(START) instanceof Long start) {
+            Object uri = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+            meterRegistry.getObject().timer("parcinfo.view.render",
+                            "uri", uri != null ? uri.toString() : "UNKNOWN",
+                            "view", (String) request.getAttribute(VIEW),
+                            "exception", ex == null ? "none" : ex.getClass().getSimpleName())
+                    .record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    // The template name; the target of a redirect is left out, it would make a tag value per ID
+    private static String view(ModelAndView modelAndView) {
+        String name = modelAndView.getViewName();
+        if (name != null) {
+            int prefix = name.indexOf(':');
+            return name.startsWith("redirect:") || name.startsWith("forward:") ? name.substring(0, prefix) : name;
+        }
+        if (modelAndView.getView() instanceof RedirectView) {
+            return "redirect";
+        }
+        return modelAndView.getView() != null ? modelAndView.getView().getClass().getSimpleName() : "default";
+    }
+}
@@ -0,0 +1,43 @@
+package fr.afpa.pompey.cda17.ParcInfo.models;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Outcome of one assignment of a bulk assignment:
+ * whether the Peripherique has been given its new holders, and why not.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class AffectationResult {
+
+    /**
+     * The ID of the assigned Peripherique.
+     */
+    private long idAppareil;
+
+    /**
+     * The IDs of its new holders.
+     */
+    private String[] personnes;
+
+    /**
+     * True if the API has applied the assignment.
+     */
+    private boolean success;
+
+    /**
+     * The reason of the failure, null on success.
+     */
+    private String error;
+
+    public static AffectationResult success(long idAppareil, String[] personnes) {
+        return new AffectationResult(idAppareil, personnes, true, null);
+    }
+
+    public static AffectationResult failure(long idAppareil, String[] personnes, String error) {
+        return new AffectationResult(idAppareil, personnes, false, error);
+    }
+}
@@ -1,24 +1,32 @@
 package fr.afpa.pompey.cda17.ParcInfo.models;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import lombok.AccessLevel;
 import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
 import lombok.NoArgsConstructor;
+import lombok.Setter;
+import lombok.ToString;
 
 import java.util.ArrayList;
 import java.util.List;
-import java.util.stream.Collectors;
 
 /**
  * The Appareil class represents a device or equipment in the system.
  * It uses Lombok's @Data annotation to automatically generate
  * boilerplate code such as getters, setters, equals, hashCode, and toString methods.
+ * Two Appareil are equal when they have the same ID.
  */
 @Data
 @NoArgsConstructor
+@EqualsAndHashCode(onlyExplicitlyIncluded = true)
 public class Appareil {
 
     /**
      * The unique identifier for the Appareil.
      */
+    @EqualsAndHashCode.Include
     private long id;
 
     /**
@@ -31,13 +39,87 @@ public class Appareil {
      */
     private List<Personne> proprietaires = new ArrayList<>();
 
+    /**
+     * The identities of the proprietaires, computed on first use and reset by {@link #setProprietaires(List)}.
+     * Not named after its getter, so that Jackson never fills it from a response.
+     */
+    @ToString.Exclude
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    private transient String identites;
+
+    /**
+     * The IDs of the proprietaires, computed on first use and reset by {@link #setProprietaires(List)}.
+     */
+    @JsonIgnore
+    @ToString.Exclude
+    @Setter(AccessLevel.NONE)
+    private transient IdSet proprietaireIds;
+
     public boolean estAffecte(){
         return !this.getProprietaires().isEmpty();
     }
 
+    /**
+     * The first names and names of the proprietaires, as displayed in each row of the lists.
+     * It is computed once, then kept until the proprietaires are set again: changes made to the list
+     * returned by {@link #getProprietaires()}, or to the names of the Personne, are not seen.
+     * @return the identities of the proprietaires, separated by commas.
+     */
     public String getProprietairesIdentites() {
-        return this.getProprietaires().stream()
-                .map(p -> p.getPrenom() + ' ' + p.getNom())
-                .collect(Collectors.joining(", "));
+        String identites = this.identites;
+        if (identites == null) {
+            List<Personne> personnes = this.getProprietaires();
+            if (personnes.isEmpty()) {
+                identites = "";
+            } else if (personnes.size() == 1) {
+                identites = personnes.get(0).getPrenom() + ' ' + personnes.get(0).getNom();
+            } else {
+                StringBuilder builder = new StringBuilder(personnes.size() * 24);
+                for (Personne personne : personnes) {
+                    if (!builder.isEmpty()) {
+                        builder.append(", ");
+                    }
+                    builder.append(personne.getPrenom()).append(' ').append(personne.getNom());
+                }
+                identites = builder.toString();
+            }
+            // Computing it twice from two threads is harmless: both results are equal
+            this.identites = identites;
+        }
+        return identites;
+    }
+
+    /**
+     * @param proprietaires the new proprietaires of the Appareil.
+     */
+    public void setProprietaires(List<Personne> proprietaires) {
+        this.proprietaires = proprietaires;
+        this.proprietaireIds = null;
+        this.identites = null;
+    }
+
+    /**
+     * The IDs of the proprietaires, to know if a Personne holds the Appareil without comparing the Personne.
+     * Changes made to the list returned by {@link #getProprietaires()} are not seen: set a new list instead.
+     * @return the IDs of the proprietaires.
+     */
+    @JsonIgnore
+    public IdSet getProprietaireIds() {
+        IdSet ids = proprietaireIds;
+        if (ids == null) {
+            // Computing it twice from two threads is harmless: both results are equal and immutable
+            ids = IdSet.of(proprietaires, Personne::getId);
+            proprietaireIds = ids;
+        }
+        return ids;
+    }
+
+    /**
+     * @param personneId the ID of a Personne.
+     * @return true if the Personne is one of the proprietaires.
+     */
+    public boolean estDetenuPar(long personneId) {
+        return getProprietaireIds().contains(personneId);
     }
 }
@@ -0,0 +1,70 @@
+package fr.afpa.pompey.cda17.ParcInfo.models;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The changes of the inventory made after a cursor, as read from the change feed of the API
+ * (GET /changes?since={cursor}&limit={limit}):
+ * {"cursor": 42, "more": false, "personnes": [...], "appareils": [...], "peripheriques": [...],
+ * "deletedPersonnes": [3], "deletedAppareils": [], "deletedPeripheriques": []}.
+ * Each entity changed is given once, as it is after its last change; an assignment is a change
+ * of the Appareil and of the Peripherique, with their new holders.
+ */
+@Data
+@NoArgsConstructor
+public class Changes {
+
+    /**
+     * The cursor of the last change given: the next changes are read after it.
+     */
+    private long cursor;
+
+    /**
+     * True if more changes were made after the cursor than the limit of the read.
+     */
+    private boolean more;
+
+    /**
+     * The Personne created or updated.
+     */
+    private List<Personne> personnes = new ArrayList<>();
+
+    /**
+     * The Appareil created or updated.
+     */
+    private List<Appareil> appareils = new ArrayList<>();
+
+    /**
+     * The Peripherique created or updated.
+     */
+    private List<Peripherique> peripheriques = new ArrayList<>();
+
+    /**
+     * The IDs of the Personne deleted.
+     */
+    private List<Long> deletedPersonnes = new ArrayList<>();
+
+    /**
+     * The IDs of the Appareil deleted.
+     */
+    private List<Long> deletedAppareils = new ArrayList<>();
+
+    /**
+     * The IDs of the Peripherique deleted.
+     */
+    private List<Long> deletedPeripheriques = new ArrayList<>();
+
+    /**
+     * @return the number of entities changed.
+     */
+    @JsonIgnore
+    public int size() {
+        return personnes.size() + appareils.size() + peripheriques.size()
+                + deletedPersonnes.size() + deletedAppareils.size() + deletedPeripheriques.size();
+    }
+}
@@ -0,0 +1,188 @@
+package fr.afpa.pompey.cda17.ParcInfo.models;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.function.ToLongFunction;
+
+/**
+ * Immutable set of IDs, kept as primitive longs in an open-addressing table:
+ * {@link #contains(long)} is a hash and a few array reads, without boxing the ID
+ * nor calling equals on the models.
+ * It replaces lookups such as {@code proprietaires.contains(personne)}, which compare the models one by one.
+ */
+public final class IdSet {
+
+    /**
+     * The set without any ID.
+     */
+    public static final IdSet EMPTY = new IdSet(new long[0], false, 0);
+
+    // Marks a free slot: 0 is not a valid ID in the API, it is kept apart in hasZero
+    private static final long FREE = 0L;
+
+    private final long[] slots;
+
+    private final boolean hasZero;
+
+    private final int size;
+
+    private IdSet(long[] slots, boolean hasZero, int size) {
+        this.slots = slots;
+        this.hasZero = hasZero;
+        this.size = size;
+    }
+
+    /**
+     * @param ids the IDs, duplicates allowed.
+     * @return the set of these IDs.
+     */
+    public static IdSet of(long... ids) {
+        if (ids == null || ids.length == 0) {
+            return EMPTY;
+        }
+        // At most half full, so that the probe sequences stay short
+        long[] slots = new long[Integer.highestOneBit(Math.max(ids.length, 1) * 2 - 1) << 1];
+        boolean hasZero = false;
+        int size = 0;
+        for (long id : ids) {
+            if (id == FREE) {
+                size += hasZero ? 0 : 1;
+                hasZero = true;
+            } else if (insert(slots, id)) {
+                size++;
+            }
+        }
+        return new IdSet(slots, hasZero, size);
+    }
+
+    /**
+     * @param models the models, e.g. the proprietaires of an Appareil.
+     * @param id the ID of a model, e.g. {@code Personne::getId}.
+     * @param <T> the type of the models.
+     * @return the set of the IDs of the models.
+     */
+    public static <T> IdSet of(Collection<T> models, ToLongFunction<T> id) {
+        if (models == null || models.isEmpty()) {
+            return EMPTY;
+        }
+        return of(models.stream().mapToLong(id).toArray());
+    }
+
+    /**
+     * @param id an ID.
+     * @return true if the ID is in the set.
+     */
+    public boolean contains(long id) {
+        if (id == FREE) {
+            return hasZero;
+        }
+        if (slots.length == 0) {
+            return false;
+        }
+        int mask = slots.length - 1;
+        for (int slot = hash(id) & mask; ; slot = (slot + 1) & mask) {
+            long value = slots[slot];
+            if (value == id) {
+                return true;
+            }
+            if (value == FREE) {
+                return false;
+            }
+        }
+    }
+
+    /**
+     * @param id an ID.
+     * @return this set with the ID added; this set itself if it has it already.
+     */
+    public IdSet with(long id) {
+        if (contains(id)) {
+            return this;
+        }
+        long[] ids = Arrays.copyOf(toArray(), size + 1);
+        ids[size] = id;
+        return of(ids);
+    }
+
+    /**
+     * @param id an ID.
+     * @return this set without the ID; this set itself if it does not have it.
+     */
+    public IdSet without(long id) {
+        if (!contains(id)) {
+            return this;
+        }
+        return of(Arrays.stream(toArray()).filter(value -> value != id).toArray());
+    }
+
+    /**
+     * @return the number of IDs.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return true if the set has no ID.
+     */
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * @return the IDs, in ascending order.
+     */
+    public long[] toArray() {
+        long[] ids = new long[size];
+        int i = 0;
+        if (hasZero) {
+            ids[i++] = FREE;
+        }
+        for (long value : slots) {
+            if (value != FREE) {
+                ids[i++] = value;
+            }
+        }
+        Arrays.sort(ids);
+        return ids;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return this == o || o instanceof IdSet other && Arrays.equals(toArray(), other.toArray());
+    }
+
+    @Override
+    public int hashCode() {
+        return Arrays.hashCode(toArray());
+    }
+
+    @Override
+    public String toString() {
+        return Arrays.toString(toArray());
+    }
+
+    private static boolean insert(long[] slots, long id) {
+        int mask = slots.length - 1;
+        for (int slot = hash(id) & mask; ; slot = (slot + 1) & mask) {
+            if (slots[slot] == id) {
+                return false;
+            }
+            if (slots[slot] == FREE) {
+                slots[slot] = id;
+                return true;
+            }
+        }
+    }
+
+    // Spreads consecutive IDs over the table (finalizer of MurmurHash3)
+    private static int hash(long id) {
+        long h = id;
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb93fe53a87c7L;
+        h ^= h >>> 33;
+        return (int) h;
+    }
+}
@@ -0,0 +1,60 @@
+package fr.afpa.pompey.cda17.ParcInfo.models;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * One page of a list, with what the pager needs to link to the other pages.
+ * Its JSON form ({"content": [...], "number": 0, "size": 20, "totalElements": 42})
+ * is the one expected from the API when it pages itself.
+ * @param <T> the type of the rows.
+ */
+@Data
+@NoArgsConstructor
+public class Page<T> {
+
+    /**
+     * The rows of the page.
+     */
+    private List<T> content = new ArrayList<>();
+
+    /**
+     * Index of the page, starting at 0.
+     */
+    private int number;
+
+    /**
+     * Requested number of rows per page.
+     */
+    private int size;
+
+    /**
+     * Number of rows of the whole (filtered) list.
+     */
+    private long totalElements;
+
+    public Page(List<T> content, int number, int size, long totalElements) {
+        this.content = content;
+        this.number = number;
+        this.size = size;
+        this.totalElements = totalElements;
+    }
+
+    /**
+     * @return the number of pages, at least 1.
+     */
+    public int getTotalPages() {
+        return size <= 0 || totalElements == 0 ? 1 : (int) ((totalElements + size - 1) / size);
+    }
+
+    public boolean hasPrevious() {
+        return number > 0;
+    }
+
+    public boolean hasNext() {
+        return number + 1 < getTotalPages();
+    }
+}
@@ -0,0 +1,62 @@
+package fr.afpa.pompey.cda17.ParcInfo.models;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Slice of a list requested by a page: page number, page size, sort and filter.
+ * It is bound from the request parameters (?page=0&size=20&sort=nom,desc&q=cond).
+ */
+@Data
+@NoArgsConstructor
+public class PageQuery {
+
+    /**
+     * Suffix of the sort parameter for a descending order.
+     */
+    public static final String DESC = ",desc";
+
+    /**
+     * Index of the requested page, starting at 0.
+     */
+    private int page = 0;
+
+    /**
+     * Number of rows per page.
+     */
+    private int size = 20;
+
+    /**
+     * Sort property, followed by ",desc" for a descending order. Empty to keep the API order.
+     */
+    private String sort = "";
+
+    /**
+     * Text searched in the rows. Empty for no filter.
+     */
+    private String q = "";
+
+    /**
+     * @return the sorted property, without the direction.
+     */
+    public String getSortProperty() {
+        return sort == null ? "" : sort.replace(DESC, "");
+    }
+
+    /**
+     * @return true if the rows are sorted in descending order.
+     */
+    public boolean isDescending() {
+        return sort != null && sort.endsWith(DESC);
+    }
+
+    /**
+     * Gives the sort parameter of a column header link:
+     * ascending on the property, or descending if it is already sorted ascending.
+     * @param property the property of the column.
+     * @return the sort parameter to use in the link.
+     */
+    public String toggle(String property) {
+        return property.equals(sort) ? property + DESC : property;
+    }
+}
@@ -1,20 +1,24 @@
 package fr.afpa.pompey.cda17.ParcInfo.models;
 
 import lombok.Data;
+import lombok.EqualsAndHashCode;
 import lombok.NoArgsConstructor;
 
 /**
  * Represents a peripheral device in the system.
  * A Peripherique is associated with an Appareil and has a specific type.
+ * Two Peripherique are equal when they have the same ID.
  */
 @Data
 @NoArgsConstructor
+@EqualsAndHashCode(onlyExplicitlyIncluded = true)
 public class Peripherique {
 
     /**
      * Unique identifier for the peripheral device.
      * This ID is used to distinguish one Peripherique from another.
      */
+    @EqualsAndHashCode.Include
     private long idAppareil;
 
     /**
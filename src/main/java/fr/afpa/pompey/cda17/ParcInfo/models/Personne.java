@@ -1,18 +1,24 @@
 package fr.afpa.pompey.cda17.ParcInfo.models;
 
 import lombok.Data;
+import lombok.EqualsAndHashCode;
 import lombok.NoArgsConstructor;
+import lombok.ToString;
 
 import java.time.LocalDate;
 import java.util.ArrayList;
 import java.util.List;
 
 // The @Data annotation from Lombok generates boilerplate code such as getters, setters, equals, hashCode, and toString methods.
+// Two Personne are equal when they have the same ID: comparing all the fields would go through the appareils,
+// and from them through their proprietaires, for each comparison.
 @Data
 @NoArgsConstructor
+@EqualsAndHashCode(onlyExplicitlyIncluded = true)
 public class Personne {
 
     // Unique identifier for the person
+    @EqualsAndHashCode.Include
     private long id;
 
     // Last name of the person
@@ -31,5 +37,6 @@ public class Personne {
     private LocalDate dateNaissance;
 
     // List of devices (Appareil) associated with the person
+    @ToString.Exclude
     private List<Appareil> appareils = new ArrayList<>();
 }
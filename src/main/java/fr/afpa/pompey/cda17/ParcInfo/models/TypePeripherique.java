@@ -21,8 +21,15 @@ public enum TypePeripherique {
 
     private final int value;
 
+    // Displayed in every row of the lists: computed once per constant
+    private final String label;
+
     TypePeripherique(int value) {
         this.value = value;
+        this.label = this.name().charAt(0) + this.name()
+                .substring(1)
+                .replace('_',' ')
+                .toLowerCase();
     }
 
     public int getValue() {
@@ -31,9 +38,6 @@ public enum TypePeripherique {
 
     @Override
     public String toString() {
-        return this.name().charAt(0) + this.name()
-                .substring(1)
-                .replace('_',' ')
-                .toLowerCase();
+        return label;
     }
 }
\ No newline at end of file
@@ -0,0 +1,26 @@
+package fr.afpa.pompey.cda17.ParcInfo.repositories;
+
+import fr.afpa.pompey.cda17.ParcInfo.models.Changes;
+
+/**
+ * Access to the change feed of the API, read by the replica of the inventory.
+ * The implementation is chosen with fr.afpa.pompey.cda17.http.client:
+ * {@link RestTemplateChangeFeedRepository} (rest-template, the default)
+ * or {@link WebClientChangeFeedRepository} (web-client).
+ * The methods are not named get...: a failed read is not answered from its last known good result.
+ */
+public interface ChangeFeedRepository {
+
+    /**
+     * @return the cursor of the last change made: the changes made from now on are read after it.
+     */
+    long readCursor();
+
+    /**
+     * @param cursor the cursor of the last change already read.
+     * @param limit the maximum number of entities to read.
+     * @return the changes made after the cursor; null if the API no longer keeps them (410 Gone):
+     * the whole inventory has to be read again.
+     */
+    Changes readChanges(long cursor, int limit);
+}
@@ -1,111 +1,75 @@
 package fr.afpa.pompey.cda17.ParcInfo.repositories;
 
-import config.CustomProperties;
+import fr.afpa.pompey.cda17.ParcInfo.models.AffectationResult;
+import fr.afpa.pompey.cda17.ParcInfo.models.Page;
+import fr.afpa.pompey.cda17.ParcInfo.models.PageQuery;
 import fr.afpa.pompey.cda17.ParcInfo.models.Peripherique;
-import lombok.extern.slf4j.Slf4j;
-import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.core.ParameterizedTypeReference;
-import org.springframework.http.HttpEntity;
-import org.springframework.http.HttpMethod;
-import org.springframework.http.ResponseEntity;
-import org.springframework.stereotype.Component;
-import org.springframework.web.client.RestTemplate;
 
 import java.util.List;
-
-@Slf4j
-@Component
-public class PeripheriqueRepository {
-
-    @Autowired
-    private CustomProperties props;
-
-    public List<Peripherique> getPeripheriques() {
-        String baseApiUrl = props.getApiUrl();
-        String getPeripheriquesUrl = baseApiUrl + "/peripheriques";
-
-        RestTemplate restTemplate = new RestTemplate();
-        ResponseEntity<List<Peripherique>> response =
-                restTemplate.exchange(
-                        getPeripheriquesUrl,
-                        HttpMethod.GET,
-                        null,
-                        new ParameterizedTypeReference<>() {}
-                );
-
-        return response.getBody();
-    }
-
-    public Peripherique getPeripherique(int id) {
-        String baseApiUrl = props.getApiUrl();
-        String getPeripheriquesUrl = baseApiUrl + "/peripherique/" + id;
-
-        RestTemplate restTemplate = new RestTemplate();
-        ResponseEntity<Peripherique> response = restTemplate.exchange(
-                getPeripheriquesUrl,
-                HttpMethod.GET,
-                null,
-                Peripherique.class
-        );
-
-        return response.getBody();
-    }
-
-    public Peripherique createPeripherique(Peripherique peripherique) {
-        String baseApiUrl = props.getApiUrl();
-        String createPeripheriqueUrl = baseApiUrl + "/peripherique";
-
-        RestTemplate restTemplate = new RestTemplate();
-        HttpEntity<Peripherique> request = new HttpEntity<>(peripherique);
-        ResponseEntity<Peripherique> response = restTemplate.exchange(
-                createPeripheriqueUrl,
-                HttpMethod.POST,
-                request,
-                Peripherique.class
-        );
-
-        return response.getBody();
-    }
-
-    public void deletePeripherique(int id) {
-        String baseApiUrl = props.getApiUrl();
-        String deletePeripheriqueUrl = baseApiUrl + "/peripherique/" + id;
-        RestTemplate restTemplate = new RestTemplate();
-        restTemplate.exchange(
-                deletePeripheriqueUrl,
-                HttpMethod.DELETE,
-                null,
-                Void.class
-        );
-    }
-
-    public Peripherique updatePeripherique(Peripherique peripherique) {
-        String baseApiUrl = props.getApiUrl();
-        String updatePeripheriqueUrl = baseApiUrl + "/peripherique";
-        RestTemplate restTemplate = new RestTemplate();
-        HttpEntity<Peripherique> request = new HttpEntity<>(peripherique);
-        ResponseEntity<Peripherique> response = restTemplate.exchange(
-                updatePeripheriqueUrl,
-                HttpMethod.PUT,
-                request,
-                Peripherique.class
-        );
-
-        return  response.getBody();
-    }
-
-    public void affectPersonnes(Peripherique peripherique, String[] personnes) {
-        String baseApiUrl = props.getApiUrl();
-        String affectUrl = baseApiUrl + "/peripherique/"+peripherique.getIdAppareil()+
-                "/personnes";
-
-        RestTemplate restTemplate = new RestTemplate();
-        HttpEntity<String[]> request = new HttpEntity<>(personnes);
-        restTemplate.exchange(
-                affectUrl,
-                HttpMethod.PUT,
-                request,
-                Void.class
-        );
-    }
+import java.util.Map;
+import java.util.stream.Stream;
+
+/**
+ * Access to the Peripherique resources of the API, as used by the services.
+ * The implementation is chosen with fr.afpa.pompey.cda17.http.client:
+ * {@link RestTemplatePeripheriqueRepository} (rest-template, the default)
+ * or {@link WebClientPeripheriqueRepository} (web-client).
+ */
+public interface PeripheriqueRepository {
+
+    /**
+     * @return all the Peripherique objects.
+     */
+    List<Peripherique> getPeripheriques();
+
+    /**
+     * Reads all the Peripherique objects while they are parsed, keeping only a few in memory.
+     * The stream holds an open HTTP response: the caller must close it.
+     * @return the lazy stream of Peripherique, in the API order.
+     */
+    Stream<Peripherique> streamPeripheriques();
+
+    /**
+     * @param query the requested page, sort and filter, for an API able to page itself.
+     * @return the page of Peripherique objects.
+     */
+    Page<Peripherique> getPeripheriques(PageQuery query);
+
+    /**
+     * @param id the ID of the Peripherique.
+     * @return the Peripherique.
+     */
+    Peripherique getPeripherique(int id);
+
+    /**
+     * @param peripherique the Peripherique to create.
+     * @return the created Peripherique.
+     */
+    Peripherique createPeripherique(Peripherique peripherique);
+
+    /**
+     * @param id the ID of the Peripherique to delete.
+     */
+    void deletePeripherique(int id);
+
+    /**
+     * @param peripherique the Peripherique with its updated data and its ID.
+     * @return the updated Peripherique.
+     */
+    Peripherique updatePeripherique(Peripherique peripherique);
+
+    /**
+     * Replaces the holders of a Peripherique.
+     * @param peripherique the Peripherique to assign.
+     * @param personnes the IDs of its new holders.
+     */
+    void affectPersonnes(Peripherique peripherique, String[] personnes);
+
+    /**
+     * Assigns many Peripherique objects at once. The assignments are sent in chunks of bulk.chunk-size,
+     * at most bulk.parallelism chunks at a time, and a failed assignment does not stop the others.
+     * @param affectations the IDs of the new holders, by ID of Peripherique.
+     * @return the outcome of each assignment, in the order of the map.
+     */
+    List<AffectationResult> affectPersonnes(Map<Long, String[]> affectations);
 }
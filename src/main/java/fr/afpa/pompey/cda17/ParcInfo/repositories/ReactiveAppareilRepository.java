@@ -0,0 +1,12 @@
+package fr.afpa.pompey.cda17.ParcInfo.repositories;
+
+import fr.afpa.pompey.cda17.ParcInfo.models.Appareil;
+import reactor.core.publisher.Flux;
+
+/**
+ * Non-blocking access to the Appareil resources of the API.
+ */
+public interface ReactiveAppareilRepository {
+
+    Flux<Appareil> findAll();
+}
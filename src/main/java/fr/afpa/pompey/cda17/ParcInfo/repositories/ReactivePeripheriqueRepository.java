@@ -0,0 +1,44 @@
+package fr.afpa.pompey.cda17.ParcInfo.repositories;
+
+import fr.afpa.pompey.cda17.ParcInfo.models.AffectationResult;
+import fr.afpa.pompey.cda17.ParcInfo.models.Page;
+import fr.afpa.pompey.cda17.ParcInfo.models.PageQuery;
+import fr.afpa.pompey.cda17.ParcInfo.models.Peripherique;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.Map;
+
+/**
+ * Non-blocking access to the Peripherique resources of the API.
+ * Nothing is sent before subscription; no thread waits for the answer.
+ */
+public interface ReactivePeripheriqueRepository {
+
+    /**
+     * Emits the Peripherique objects as the /peripheriques array is decoded.
+     * The response is read only as fast as the subscriber requests elements.
+     * @return the Peripherique objects, in the API order.
+     */
+    Flux<Peripherique> findAll();
+
+    Mono<Page<Peripherique>> findPage(PageQuery query);
+
+    Mono<Peripherique> findById(long id);
+
+    Mono<Peripherique> create(Peripherique peripherique);
+
+    Mono<Peripherique> update(Peripherique peripherique);
+
+    Mono<Void> deleteById(long id);
+
+    Mono<Void> affect(long id, String[] personnes);
+
+    /**
+     * Sends many assignments, in chunks of bulk.chunk-size, at most bulk.parallelism chunks at a time.
+     * A failed assignment is emitted as such and does not stop the others.
+     * @param affectations the IDs of the new holders, by ID of Peripherique.
+     * @return the outcome of each assignment, in the order of the map.
+     */
+    Flux<AffectationResult> affectAll(Map<Long, String[]> affectations);
+}
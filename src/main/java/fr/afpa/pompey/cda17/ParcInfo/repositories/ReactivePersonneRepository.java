@@ -0,0 +1,26 @@
+package fr.afpa.pompey.cda17.ParcInfo.repositories;
+
+import fr.afpa.pompey.cda17.ParcInfo.models.Page;
+import fr.afpa.pompey.cda17.ParcInfo.models.PageQuery;
+import fr.afpa.pompey.cda17.ParcInfo.models.Personne;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * Non-blocking access to the Personne resources of the API.
+ * Nothing is sent before subscription; no thread waits for the answer.
+ */
+public interface ReactivePersonneRepository {
+
+    Flux<Personne> findAll();
+
+    Mono<Page<Personne>> findPage(PageQuery query);
+
+    Mono<Personne> findById(long id);
+
+    Mono<Personne> create(Personne personne);
+
+    Mono<Personne> update(Personne personne);
+
+    Mono<Void> deleteById(long id);
+}
@@ -0,0 +1,38 @@
+package fr.afpa.pompey.cda17.ParcInfo.repositories;
+
+import fr.afpa.pompey.cda17.ParcInfo.http.ConditionalGetClient;
+import fr.afpa.pompey.cda17.ParcInfo.models.Appareil;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.stereotype.Component;
+
+/**
+ * AppareilRepository calling the API with the shared, pooled RestTemplate.
+ * This is the default implementation (fr.afpa.pompey.cda17.http.client=rest-template).
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "fr.afpa.pompey.cda17.http.client", havingValue = "rest-template", matchIfMissing = true)
+public class RestTemplateAppareilRepository implements AppareilRepository {
+
+    // Injects the client sending the GETs as conditional requests (ETag / Last-Modified)
+    @Autowired
+    private ConditionalGetClient conditionalGetClient;
+
+    /**
+     * Fetches a list of Appareil objects from the external API.
+     * 
+     * @return An iterable collection of Appareil objects.
+     */
+    @Override
+    public Iterable<Appareil> getAppareils() {
+        // Make a conditional GET request to the API and parse the response into an Iterable of Appareil,
+        // the previous one is reused if the API answers 304 Not Modified
+        return conditionalGetClient.get(
+                "/appareils", // API endpoint, relative to the API URL
+                new ParameterizedTypeReference<Iterable<Appareil>>() {} // Response type
+        );
+    }
+}
@@ -0,0 +1,38 @@
+package fr.afpa.pompey.cda17.ParcInfo.repositories;
+
+import fr.afpa.pompey.cda17.ParcInfo.models.Changes;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.RestTemplate;
+
+/**
+ * ChangeFeedRepository calling the API with the shared, pooled RestTemplate.
+ * This is the default implementation (fr.afpa.pompey.cda17.http.client=rest-template).
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "fr.afpa.pompey.cda17.http.client", havingValue = "rest-template", matchIfMissing = true)
+public class RestTemplateChangeFeedRepository implements ChangeFeedRepository {
+
+    @Autowired
+    private RestTemplate restTemplate; // Injects the shared, pooled RestTemplate whose root URI is the API URL.
+
+    @Override
+    public long readCursor() {
+        Changes head = restTemplate.getForObject("/changes/cursor", Changes.class);
+        return head != null ? head.getCursor() : 0;
+    }
+
+    @Override
+    public Changes readChanges(long cursor, int limit) {
+        try {
+            return restTemplate.getForObject("/changes?since={cursor}&limit={limit}", Changes.class, cursor, limit);
+        } catch (HttpClientErrorException.Gone e) {
+            log.debug("Changes after {} no longer kept by the API", cursor);
+            return null;
+        }
+    }
+}
@@ -0,0 +1,201 @@
+package fr.afpa.pompey.cda17.ParcInfo.repositories;
+
+import config.CustomProperties;
+import fr.afpa.pompey.cda17.ParcInfo.http.AsyncApiCalls;
+import fr.afpa.pompey.cda17.ParcInfo.http.ConditionalGetClient;
+import fr.afpa.pompey.cda17.ParcInfo.http.StreamingGetClient;
+import fr.afpa.pompey.cda17.ParcInfo.models.AffectationResult;
+import fr.afpa.pompey.cda17.ParcInfo.models.Page;
+import fr.afpa.pompey.cda17.ParcInfo.models.PageQuery;
+import fr.afpa.pompey.cda17.ParcInfo.models.Peripherique;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.ResourceAccessException;
+import org.springframework.web.client.RestClientException;
+import org.springframework.web.client.RestTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Semaphore;
+import java.util.stream.Stream;
+
+/**
+ * PeripheriqueRepository calling the API with the shared, pooled RestTemplate.
+ * This is the default implementation (fr.afpa.pompey.cda17.http.client=rest-template).
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "fr.afpa.pompey.cda17.http.client", havingValue = "rest-template", matchIfMissing = true)
+public class RestTemplatePeripheriqueRepository implements PeripheriqueRepository {
+
+    @Autowired
+    private RestTemplate restTemplate;
+
+    @Autowired
+    private ConditionalGetClient conditionalGetClient;
+
+    @Autowired
+    private StreamingGetClient streamingGetClient;
+
+    @Autowired
+    private AsyncApiCalls asyncApiCalls;
+
+    @Autowired
+    private CustomProperties props;
+
+    @Override
+    public List<Peripherique> getPeripheriques() {
+        return conditionalGetClient.get(
+                "/peripheriques",
+                new ParameterizedTypeReference<>() {}
+        );
+    }
+
+    /**
+     * Reads /peripheriques one element at a time, so that only the Peripherique
+     * being consumed is held in memory (see {@link StreamingGetClient}).
+     * The caller must close the stream (try-with-resources or request completion).
+     * @return the lazy stream of Peripherique, in the API order.
+     */
+    @Override
+    public Stream<Peripherique> streamPeripheriques() {
+        return streamingGetClient.stream("/peripheriques", Peripherique.class);
+    }
+
+    @Override
+    public Page<Peripherique> getPeripheriques(PageQuery query) {
+        return conditionalGetClient.get(
+                "/peripheriques?page={page}&size={size}&sort={sort}&q={q}",
+                new ParameterizedTypeReference<>() {},
+                query.getPage(), query.getSize(), query.getSort(), query.getQ()
+        );
+    }
+
+    @Override
+    public Peripherique getPeripherique(int id) {
+        return conditionalGetClient.get(
+                "/peripherique/{id}",
+                Peripherique.class,
+                id
+        );
+    }
+
+    @Override
+    public Peripherique createPeripherique(Peripherique peripherique) {
+        HttpEntity<Peripherique> request = new HttpEntity<>(peripherique);
+        try {
+            ResponseEntity<Peripherique> response = restTemplate.exchange(
+                    "/peripherique",
+                    HttpMethod.POST,
+                    request,
+                    Peripherique.class
+            );
+
+            return response.getBody();
+        } finally {
+            conditionalGetClient.invalidateAll();
+        }
+    }
+
+    @Override
+    public void deletePeripherique(int id) {
+        try {
+            restTemplate.exchange(
+                    "/peripherique/{id}",
+                    HttpMethod.DELETE,
+                    null,
+                    Void.class,
+                    id
+            );
+        } finally {
+            conditionalGetClient.invalidateAll();
+        }
+    }
+
+    @Override
+    public Peripherique updatePeripherique(Peripherique peripherique) {
+        HttpEntity<Peripherique> request = new HttpEntity<>(peripherique);
+        try {
+            ResponseEntity<Peripherique> response = restTemplate.exchange(
+                    "/peripherique",
+                    HttpMethod.PUT,
+                    request,
+                    Peripherique.class
+            );
+
+            return  response.getBody();
+        } finally {
+            conditionalGetClient.invalidateAll();
+        }
+    }
+
+    @Override
+    public void affectPersonnes(Peripherique peripherique, String[] personnes) {
+        HttpEntity<String[]> request = new HttpEntity<>(personnes);
+        try {
+            restTemplate.exchange(
+                    "/peripherique/{id}/personnes",
+                    HttpMethod.PUT,
+                    request,
+                    Void.class,
+                    peripherique.getIdAppareil()
+            );
+        } finally {
+            conditionalGetClient.invalidateAll();
+        }
+    }
+
+    /**
+     * Each chunk is sent by one task of the apiExecutor, one assignment after the other,
+     * so that a chunk reuses the same pooled connection; the chunks themselves run in parallel.
+     */
+    @Override
+    public List<AffectationResult> affectPersonnes(Map<Long, String[]> affectations) {
+        List<Map.Entry<Long, String[]>> items = List.copyOf(affectations.entrySet());
+        int chunkSize = Math.max(props.getBulk().getChunkSize(), 1);
+        Semaphore chunksInFlight = new Semaphore(Math.max(props.getBulk().getParallelism(), 1));
+        List<CompletableFuture<List<AffectationResult>>> chunks = new ArrayList<>();
+        try {
+            for (int from = 0; from < items.size(); from += chunkSize) {
+                List<Map.Entry<Long, String[]>> chunk = items.subList(from, Math.min(from + chunkSize, items.size()));
+                // Wait for a chunk to end before starting one more than allowed
+                chunksInFlight.acquire();
+                CompletableFuture<List<AffectationResult>> sent = asyncApiCalls.supply(
+                        () -> chunk.stream().map(this::affect).toList());
+                sent.whenComplete((results, error) -> chunksInFlight.release());
+                chunks.add(sent);
+            }
+            return chunks.stream().flatMap(chunk -> chunk.join().stream()).toList();
+        } catch (InterruptedException e) {
+            chunks.forEach(chunk -> chunk.cancel(true));
+            Thread.currentThread().interrupt();
+            throw new ResourceAccessException("Interrupted while assigning the peripherals");
+        } finally {
+            conditionalGetClient.invalidateAll();
+        }
+    }
+
+    private AffectationResult affect(Map.Entry<Long, String[]> affectation) {
+        try {
+            restTemplate.exchange(
+                    "/peripherique/{id}/personnes",
+                    HttpMethod.PUT,
+                    new HttpEntity<>(affectation.getValue()),
+                    Void.class,
+                    affectation.getKey()
+            );
+            return AffectationResult.success(affectation.getKey(), affectation.getValue());
+        } catch (RestClientException e) {
+            log.warn("Assignment of peripheral {} failed: {}", affectation.getKey(), e.getMessage());
+            return AffectationResult.failure(affectation.getKey(), affectation.getValue(), e.getMessage());
+        }
+    }
+}
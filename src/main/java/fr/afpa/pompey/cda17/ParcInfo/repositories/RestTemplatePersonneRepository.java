@@ -0,0 +1,187 @@
+package fr.afpa.pompey.cda17.ParcInfo.repositories;
+
+import fr.afpa.pompey.cda17.ParcInfo.http.ConditionalGetClient;
+import fr.afpa.pompey.cda17.ParcInfo.http.StreamingGetClient;
+import fr.afpa.pompey.cda17.ParcInfo.models.Page;
+import fr.afpa.pompey.cda17.ParcInfo.models.PageQuery;
+import fr.afpa.pompey.cda17.ParcInfo.models.Personne;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.RestTemplate;
+
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * PersonneRepository calling the API with the shared, pooled RestTemplate.
+ * This is the default implementation (fr.afpa.pompey.cda17.http.client=rest-template).
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "fr.afpa.pompey.cda17.http.client", havingValue = "rest-template", matchIfMissing = true)
+public class RestTemplatePersonneRepository implements PersonneRepository {
+
+    @Autowired
+    private RestTemplate restTemplate; // Injects the shared, pooled RestTemplate whose root URI is the API URL.
+
+    @Autowired
+    private ConditionalGetClient conditionalGetClient; // Sends the GETs with the validators of the previous response.
+
+    @Autowired
+    private StreamingGetClient streamingGetClient; // Parses the lists one element at a time.
+
+    /**
+     * Fetches all Personne objects from the API.
+     * Makes a conditional GET request to the API endpoint for retrieving all Personne objects.
+     * @return A list of Personne objects retrieved from the API (reused if the API answers 304).
+     */
+    @Override
+    public List<Personne> getPersonnes() {
+        // Make a GET request to the API and retrieve the response as a list of Personne objects.
+        return conditionalGetClient.get(
+                "/personnes",
+                new ParameterizedTypeReference<>() {} // Specify the response type.
+        );
+    }
+
+    /**
+     * Reads /personnes one element at a time, so that only the Personne
+     * being consumed is held in memory (see {@link StreamingGetClient}).
+     * The caller must close the stream (try-with-resources or request completion).
+     * @return the lazy stream of Personne, in the API order.
+     */
+    @Override
+    public Stream<Personne> streamPersonnes() {
+        return streamingGetClient.stream("/personnes", Personne.class);
+    }
+
+    /**
+     * Fetches one page of Personne objects from the API, for an API able to page, sort and filter.
+     * Makes a conditional GET request with the page, size, sort and q parameters.
+     * @param query The requested page, sort and filter.
+     * @return The page of Personne objects retrieved from the API.
+     */
+    @Override
+    public Page<Personne> getPersonnes(PageQuery query) {
+        // Only the requested slice is transferred.
+        return conditionalGetClient.get(
+                "/personnes?page={page}&size={size}&sort={sort}&q={q}",
+                new ParameterizedTypeReference<>() {}, // Specify the response type.
+                query.getPage(), query.getSize(), query.getSort(), query.getQ()
+        );
+    }
+
+    /**
+     * Fetches a specific Personne by ID from the API.
+     * Makes a conditional GET request to the API endpoint for retrieving a Personne by its ID.
+     * @param id The ID of the Personne to fetch.
+     * @return The Personne object retrieved from the API (reused if the API answers 304).
+     */
+    @Override
+    public Personne getPersonne(long id) {
+        // Make a GET request to the API and retrieve the response as a single Personne object.
+        return conditionalGetClient.get(
+                "/personne/{id}",
+                Personne.class, // Specify the response type.
+                id
+        );
+    }
+
+    /**
+     * Creates a new Personne in the API.
+     * Makes a POST request to the API endpoint for creating a new Personne.
+     * Handles HTTP status codes: returns the created Personne if status is 201, 
+     * throws an exception if status is 204 or unexpected.
+     * @param personne The Personne object to create.
+     * @return The created Personne object.
+     */
+    @Override
+    public Personne createPersonne(Personne personne) {
+        // Wrap the Personne object in an HTTP request entity.
+        HttpEntity<Personne> request = new HttpEntity<>(personne);
+        // Make a POST request to the API and retrieve the response as a Personne object.
+        ResponseEntity<Personne> response;
+        try {
+            response = restTemplate.exchange(
+                    "/personne",
+                    HttpMethod.POST,
+                    request,
+                    Personne.class // Specify the response type.
+            );
+        } finally {
+            // The data changed: the stored responses can no longer be reused.
+            conditionalGetClient.invalidateAll();
+        }
+
+        // Check the HTTP status code and handle accordingly.
+        if (response.getStatusCodeValue() == 201) {
+            // Return the created Personne object if the status is 201 (Created).
+            return response.getBody();
+        } else if (response.getStatusCodeValue() == 204) {
+            // Throw an exception if the status is 204 (No Content).
+            throw new RuntimeException("Personne non créée");
+        } else {
+            // Throw an exception for any other unexpected status code.
+            throw new RuntimeException("Unexpected response status: " + response.getStatusCodeValue());
+        }
+    }
+
+    /**
+     * Deletes a specific Personne by ID in the API.
+     * Makes a DELETE request to the API endpoint for deleting a Personne by its ID.
+     * No content is expected in the response.
+     * @param id The ID of the Personne to delete.
+     */
+    @Override
+    public void deletePersonne(long id) {
+        // Make a DELETE request to the API. No response body is expected.
+        try {
+            restTemplate.exchange(
+                    "/personne/{id}",
+                    HttpMethod.DELETE,
+                    null, // No request body is needed for DELETE requests.
+                    Void.class, // Specify that no response body is expected.
+                    id
+            );
+        } finally {
+            // The data changed: the stored responses can no longer be reused.
+            conditionalGetClient.invalidateAll();
+        }
+    }
+
+    /**
+     * Updates an existing Personne in the API.
+     * Makes a PUT request to the API endpoint for updating a Personne.
+     * The Personne object must contain the updated data and its ID.
+     * @param personne The Personne object with updated data.
+     * @return The updated Personne object retrieved from the API.
+     */
+    @Override
+    public Personne updatePersonne(Personne personne) {
+        // Wrap the updated Personne object in an HTTP request entity.
+        HttpEntity<Personne> request = new HttpEntity<>(personne);
+        // Make a PUT request to the API and retrieve the response as a Personne object.
+        ResponseEntity<Personne> response;
+        try {
+            response = restTemplate.exchange(
+                    "/personne/{id}",
+                    HttpMethod.PUT,
+                    request,
+                    Personne.class, // Specify the response type.
+                    personne.getId()
+            );
+        } finally {
+            // The data changed (and the Personne may be a stored instance modified by the caller).
+            conditionalGetClient.invalidateAll();
+        }
+
+        // Return the updated Personne object from the response body.
+        return response.getBody();
+    }
+}
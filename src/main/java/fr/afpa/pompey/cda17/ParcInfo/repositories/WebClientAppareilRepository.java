@@ -0,0 +1,34 @@
+package fr.afpa.pompey.cda17.ParcInfo.repositories;
+
+import fr.afpa.pompey.cda17.ParcInfo.models.Appareil;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Flux;
+
+/**
+ * AppareilRepository built on the non-blocking WebClient (fr.afpa.pompey.cda17.http.client=web-client).
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "fr.afpa.pompey.cda17.http.client", havingValue = "web-client")
+public class WebClientAppareilRepository implements AppareilRepository, ReactiveAppareilRepository {
+
+    @Autowired
+    private WebClient apiWebClient;
+
+    @Override
+    public Flux<Appareil> findAll() {
+        return apiWebClient.get()
+                .uri("/appareils")
+                .retrieve()
+                .bodyToFlux(Appareil.class);
+    }
+
+    @Override
+    public Iterable<Appareil> getAppareils() {
+        return findAll().collectList().block();
+    }
+}
@@ -0,0 +1,43 @@
+package fr.afpa.pompey.cda17.ParcInfo.repositories;
+
+import fr.afpa.pompey.cda17.ParcInfo.models.Changes;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import reactor.core.publisher.Mono;
+
+/**
+ * ChangeFeedRepository built on the non-blocking WebClient (fr.afpa.pompey.cda17.http.client=web-client).
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "fr.afpa.pompey.cda17.http.client", havingValue = "web-client")
+public class WebClientChangeFeedRepository implements ChangeFeedRepository {
+
+    @Autowired
+    private WebClient apiWebClient;
+
+    @Override
+    public long readCursor() {
+        Changes head = apiWebClient.get()
+                .uri("/changes/cursor")
+                .retrieve()
+                .bodyToMono(Changes.class)
+                .block();
+        return head != null ? head.getCursor() : 0;
+    }
+
+    @Override
+    public Changes readChanges(long cursor, int limit) {
+        return apiWebClient.get()
+                .uri("/changes?since={cursor}&limit={limit}", cursor, limit)
+                .retrieve()
+                .bodyToMono(Changes.class)
+                // Empty, so null once blocked: the changes are no longer kept by the API
+                .onErrorResume(WebClientResponseException.Gone.class, e -> Mono.empty())
+                .block();
+    }
+}
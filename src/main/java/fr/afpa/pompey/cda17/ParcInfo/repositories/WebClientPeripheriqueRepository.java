@@ -0,0 +1,166 @@
+package fr.afpa.pompey.cda17.ParcInfo.repositories;
+
+import config.CustomProperties;
+import fr.afpa.pompey.cda17.ParcInfo.models.AffectationResult;
+import fr.afpa.pompey.cda17.ParcInfo.models.Page;
+import fr.afpa.pompey.cda17.ParcInfo.models.PageQuery;
+import fr.afpa.pompey.cda17.ParcInfo.models.Peripherique;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.reactive.function.client.WebClientException;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+/**
+ * PeripheriqueRepository built on the non-blocking WebClient (fr.afpa.pompey.cda17.http.client=web-client).
+ * The /peripheriques array is decoded element by element into a Flux,
+ * and read from the socket only as fast as the elements are requested.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "fr.afpa.pompey.cda17.http.client", havingValue = "web-client")
+public class WebClientPeripheriqueRepository implements PeripheriqueRepository, ReactivePeripheriqueRepository {
+
+    @Autowired
+    private WebClient apiWebClient;
+
+    @Autowired
+    private CustomProperties props;
+
+    @Override
+    public Flux<Peripherique> findAll() {
+        return apiWebClient.get()
+                .uri("/peripheriques")
+                .retrieve()
+                .bodyToFlux(Peripherique.class)
+                // Ask the decoder for one chunk of rows at a time instead of an unbounded demand
+                .limitRate(props.getStreaming().getChunkSize());
+    }
+
+    @Override
+    public Mono<Page<Peripherique>> findPage(PageQuery query) {
+        return apiWebClient.get()
+                .uri("/peripheriques?page={page}&size={size}&sort={sort}&q={q}",
+                        query.getPage(), query.getSize(), query.getSort(), query.getQ())
+                .retrieve()
+                .bodyToMono(new ParameterizedTypeReference<>() {});
+    }
+
+    @Override
+    public Mono<Peripherique> findById(long id) {
+        return apiWebClient.get()
+                .uri("/peripherique/{id}", id)
+                .retrieve()
+                .bodyToMono(Peripherique.class);
+    }
+
+    @Override
+    public Mono<Peripherique> create(Peripherique peripherique) {
+        return apiWebClient.post()
+                .uri("/peripherique")
+                .bodyValue(peripherique)
+                .retrieve()
+                .bodyToMono(Peripherique.class);
+    }
+
+    @Override
+    public Mono<Peripherique> update(Peripherique peripherique) {
+        return apiWebClient.put()
+                .uri("/peripherique")
+                .bodyValue(peripherique)
+                .retrieve()
+                .bodyToMono(Peripherique.class);
+    }
+
+    @Override
+    public Mono<Void> deleteById(long id) {
+        return apiWebClient.delete()
+                .uri("/peripherique/{id}", id)
+                .retrieve()
+                .toBodilessEntity()
+                .then();
+    }
+
+    @Override
+    public Mono<Void> affect(long id, String[] personnes) {
+        return apiWebClient.put()
+                .uri("/peripherique/{id}/personnes", id)
+                .bodyValue(personnes)
+                .retrieve()
+                .toBodilessEntity()
+                .then();
+    }
+
+    @Override
+    public Flux<AffectationResult> affectAll(Map<Long, String[]> affectations) {
+        return Flux.fromIterable(affectations.entrySet())
+                .buffer(Math.max(props.getBulk().getChunkSize(), 1))
+                // The chunks run in parallel, the assignments of a chunk one after the other
+                .flatMapSequential(chunk -> Flux.fromIterable(chunk).concatMap(affectation ->
+                        affect(affectation.getKey(), affectation.getValue())
+                                .thenReturn(AffectationResult.success(affectation.getKey(), affectation.getValue()))
+                                .onErrorResume(WebClientException.class, e -> {
+                                    log.warn("Assignment of peripheral {} failed: {}", affectation.getKey(), e.getMessage());
+                                    return Mono.just(AffectationResult.failure(
+                                            affectation.getKey(), affectation.getValue(), e.getMessage()));
+                                })), Math.max(props.getBulk().getParallelism(), 1));
+    }
+
+    @Override
+    public List<Peripherique> getPeripheriques() {
+        return findAll().collectList().block();
+    }
+
+    /**
+     * Blocking view of {@link #findAll()}: the stream pulls one chunk of rows at a time,
+     * and closing it cancels the exchange.
+     * @return the lazy stream of Peripherique, in the API order.
+     */
+    @Override
+    public Stream<Peripherique> streamPeripheriques() {
+        return findAll().toStream(props.getStreaming().getChunkSize());
+    }
+
+    @Override
+    public Page<Peripherique> getPeripheriques(PageQuery query) {
+        return findPage(query).block();
+    }
+
+    @Override
+    public Peripherique getPeripherique(int id) {
+        return findById(id).block();
+    }
+
+    @Override
+    public Peripherique createPeripherique(Peripherique peripherique) {
+        return create(peripherique).block();
+    }
+
+    @Override
+    public void deletePeripherique(int id) {
+        deleteById(id).block();
+    }
+
+    @Override
+    public Peripherique updatePeripherique(Peripherique peripherique) {
+        return update(peripherique).block();
+    }
+
+    @Override
+    public void affectPersonnes(Peripherique peripherique, String[] personnes) {
+        affect(peripherique.getIdAppareil(), personnes).block();
+    }
+
+    @Override
+    public List<AffectationResult> affectPersonnes(Map<Long, String[]> affectations) {
+        return affectAll(affectations).collectList().block();
+    }
+}
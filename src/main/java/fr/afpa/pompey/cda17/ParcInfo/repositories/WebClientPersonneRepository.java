@@ -0,0 +1,139 @@
+package fr.afpa.pompey.cda17.ParcInfo.repositories;
+
+import config.CustomProperties;
+import fr.afpa.pompey.cda17.ParcInfo.models.Page;
+import fr.afpa.pompey.cda17.ParcInfo.models.PageQuery;
+import fr.afpa.pompey.cda17.ParcInfo.models.Personne;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * PersonneRepository built on the non-blocking WebClient (fr.afpa.pompey.cda17.http.client=web-client).
+ * The asynchronous variants hold no thread while the API answers;
+ * the blocking ones wait on the caller thread, as the RestTemplate does.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "fr.afpa.pompey.cda17.http.client", havingValue = "web-client")
+public class WebClientPersonneRepository implements PersonneRepository, ReactivePersonneRepository {
+
+    @Autowired
+    private WebClient apiWebClient; // Non-blocking client whose base URL is the API URL.
+
+    @Autowired
+    private CustomProperties props; // Gives the number of elements requested at a time by the streams.
+
+    @Override
+    public Flux<Personne> findAll() {
+        return apiWebClient.get()
+                .uri("/personnes")
+                .retrieve()
+                .bodyToFlux(Personne.class);
+    }
+
+    @Override
+    public Mono<Page<Personne>> findPage(PageQuery query) {
+        return apiWebClient.get()
+                .uri("/personnes?page={page}&size={size}&sort={sort}&q={q}",
+                        query.getPage(), query.getSize(), query.getSort(), query.getQ())
+                .retrieve()
+                .bodyToMono(new ParameterizedTypeReference<>() {});
+    }
+
+    @Override
+    public Mono<Personne> findById(long id) {
+        return apiWebClient.get()
+                .uri("/personne/{id}", id)
+                .retrieve()
+                .bodyToMono(Personne.class);
+    }
+
+    /**
+     * Creates a Personne: the API answers 201 with the created Personne, or 204 when it created nothing.
+     * @param personne The Personne object to create.
+     * @return The created Personne object, or an error.
+     */
+    @Override
+    public Mono<Personne> create(Personne personne) {
+        return apiWebClient.post()
+                .uri("/personne")
+                .bodyValue(personne)
+                .exchangeToMono(response -> {
+                    if (response.statusCode().value() == 201) {
+                        return response.bodyToMono(Personne.class);
+                    } else if (response.statusCode().value() == 204) {
+                        return Mono.error(new RuntimeException("Personne non créée"));
+                    } else if (response.statusCode().isError()) {
+                        return response.createError();
+                    }
+                    return Mono.error(new RuntimeException("Unexpected response status: " + response.statusCode().value()));
+                });
+    }
+
+    @Override
+    public Mono<Personne> update(Personne personne) {
+        return apiWebClient.put()
+                .uri("/personne/{id}", personne.getId())
+                .bodyValue(personne)
+                .retrieve()
+                .bodyToMono(Personne.class);
+    }
+
+    @Override
+    public Mono<Void> deleteById(long id) {
+        return apiWebClient.delete()
+                .uri("/personne/{id}", id)
+                .retrieve()
+                .toBodilessEntity()
+                .then();
+    }
+
+    @Override
+    public List<Personne> getPersonnes() {
+        return findAll().collectList().block();
+    }
+
+    /**
+     * Blocking view of {@link #findAll()}: the stream pulls one chunk of elements at a time,
+     * and closing it cancels the exchange.
+     * @return the lazy stream of Personne, in the API order.
+     */
+    @Override
+    public Stream<Personne> streamPersonnes() {
+        return findAll().toStream(props.getStreaming().getChunkSize());
+    }
+
+    @Override
+    public Page<Personne> getPersonnes(PageQuery query) {
+        return findPage(query).block();
+    }
+
+    @Override
+    public Personne getPersonne(long id) {
+        return findById(id).block();
+    }
+
+    @Override
+    public Personne createPersonne(Personne personne) {
+        return create(personne).block();
+    }
+
+    @Override
+    public void deletePersonne(long id) {
+        deleteById(id).block();
+    }
+
+    @Override
+    public Personne updatePersonne(Personne personne) {
+        return update(personne).block();
+    }
+}
@@ -0,0 +1,12 @@
+package fr.afpa.pompey.cda17.ParcInfo.search;
+
+import fr.afpa.pompey.cda17.ParcInfo.models.TypePeripherique;
+
+/**
+ * A Peripherique held by a Personne, with only what the equipment view displays.
+ * @param id the ID of the Peripherique.
+ * @param libelle the label of its Appareil.
+ * @param type its type.
+ */
+public record Equipement(long id, String libelle, TypePeripherique type) {
+}
@@ -0,0 +1,269 @@
+package fr.afpa.pompey.cda17.ParcInfo.search;
+
+import fr.afpa.pompey.cda17.ParcInfo.cache.InventoryVersion;
+import fr.afpa.pompey.cda17.ParcInfo.models.Appareil;
+import fr.afpa.pompey.cda17.ParcInfo.models.IdSet;
+import fr.afpa.pompey.cda17.ParcInfo.models.Peripherique;
+import fr.afpa.pompey.cda17.ParcInfo.models.Personne;
+import fr.afpa.pompey.cda17.ParcInfo.repositories.PeripheriqueRepository;
+import fr.afpa.pompey.cda17.ParcInfo.snapshot.Inventory;
+import fr.afpa.pompey.cda17.ParcInfo.snapshot.InventorySnapshot;
+import fr.afpa.pompey.cda17.ParcInfo.sync.InventoryReplica;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Stream;
+
+/**
+ * Reverse index of the inventory: the Peripherique held by each Personne.
+ * The API only gives the holders of each Peripherique; this index answers "what does this Personne hold?"
+ * and "how many Peripherique does each Personne hold?" with a lookup, instead of a scan of the inventory.
+ * The IDs are kept in primitive {@link IdSet}s, replaced as a whole on each change.
+ * <p>
+ * The index is built from the streamed inventory on first use, then refreshed every search.refresh-interval;
+ * the services update it at once on each assignment, save or delete.
+ */
+@Component
+public class EquipementIndex extends RefreshedIndex<EquipementIndex.Snapshot> {
+
+    @Autowired
+    private PeripheriqueRepository peripheriqueRepository;
+
+    @Autowired
+    private InventorySnapshot inventorySnapshot;
+
+    @Autowired // Provided: the replica refreshes the index
+    private ObjectProvider<InventoryReplica> replica;
+
+    @Autowired
+    private InventoryVersion version;
+
+    /**
+     * @param personneId the ID of a Personne.
+     * @return the Peripherique held by the Personne, in the order of their IDs.
+     */
+    public List<Equipement> equipements(long personneId) {
+        Snapshot current = current();
+        long[] ids = current.detenus.getOrDefault(personneId, IdSet.EMPTY).toArray();
+        List<Equipement> equipements = new ArrayList<>(ids.length);
+        for (long id : ids) {
+            Equipement equipement = current.equipements.get(id);
+            if (equipement != null) {
+                equipements.add(equipement);
+            }
+        }
+        return equipements;
+    }
+
+    /**
+     * @param personneId the ID of a Personne.
+     * @return the number of Peripherique held by the Personne.
+     */
+    public int count(long personneId) {
+        return current().detenus.getOrDefault(personneId, IdSet.EMPTY).size();
+    }
+
+    /**
+     * @param personnes Personne, e.g. a page of the list.
+     * @return the number of Peripherique held by each of them, by ID.
+     */
+    public Map<Long, Integer> counts(Iterable<Personne> personnes) {
+        Snapshot current = current();
+        Map<Long, Integer> counts = new HashMap<>();
+        for (Personne personne : personnes) {
+            counts.put(personne.getId(), current.detenus.getOrDefault(personne.getId(), IdSet.EMPTY).size());
+        }
+        return counts;
+    }
+
+    /**
+     * Adds a Peripherique with its holders, or replaces it.
+     * @param peripherique the created Peripherique.
+     */
+    public void put(Peripherique peripherique) {
+        change(snapshot -> snapshot.put(peripherique));
+    }
+
+    /**
+     * Updates the label and type of a Peripherique, keeping its holders:
+     * they are changed by the assignments only.
+     * @param peripherique the updated Peripherique.
+     */
+    public void describe(Peripherique peripherique) {
+        change(snapshot -> snapshot.describe(peripherique));
+    }
+
+    /**
+     * Gives a Peripherique its new holders, after an assignment.
+     * @param idAppareil the ID of the Peripherique.
+     * @param personnes the IDs of its new holders, as posted by the forms.
+     */
+    public void affect(long idAppareil, String[] personnes) {
+        IdSet holders = IdSet.of(Arrays.stream(personnes == null ? new String[0] : personnes)
+                .filter(personne -> !personne.isBlank())
+                .mapToLong(Long::parseLong)
+                .toArray());
+        change(snapshot -> snapshot.affect(idAppareil, holders));
+    }
+
+    /**
+     * Removes a Peripherique after its deletion.
+     * @param idAppareil the ID of the deleted Peripherique.
+     */
+    public void removePeripherique(long idAppareil) {
+        change(snapshot -> snapshot.removePeripherique(idAppareil));
+    }
+
+    /**
+     * Removes a Personne from the holders after its deletion.
+     * @param personneId the ID of the deleted Personne.
+     */
+    public void removePersonne(long personneId) {
+        change(snapshot -> snapshot.removePersonne(personneId));
+    }
+
+    /**
+     * Replaces the whole content of the index.
+     * @param peripheriques all the Peripherique.
+     */
+    public void rebuild(Iterable<Peripherique> peripheriques) {
+        Snapshot fresh = new Snapshot();
+        fresh.fill(peripheriques);
+        install(fresh);
+    }
+
+    @Override
+    protected void reload() {
+        List<Peripherique> replicated = replica.getObject().peripheriques();
+        if (replicated != null) {
+            rebuild(replicated);
+            return;
+        }
+        // Streamed: only the index is kept, not the whole inventory.
+        // From the local snapshot while the API is unreachable, rather than empty pages.
+        inventorySnapshot.orElse(() -> {
+            try (Stream<Peripherique> peripheriques = peripheriqueRepository.streamPeripheriques()) {
+                rebuild(peripheriques::iterator);
+            }
+            return Boolean.TRUE;
+        }, inventory -> {
+            rebuild(inventory.peripheriques());
+            return Boolean.TRUE;
+        });
+        // The counts of the list of Personne may have changed: other clients assign too
+        version.changed();
+    }
+
+    @Override
+    protected Snapshot empty() {
+        return new Snapshot();
+    }
+
+    /**
+     * @return the number of Peripherique in the index.
+     */
+    @Override
+    public int size() {
+        Snapshot current = snapshot();
+        return current == null ? 0 : current.equipements.size();
+    }
+
+    /**
+     * One state of the index: the Peripherique by ID, their holders, and the other way round.
+     * It is changed under the lock of the index only; the lookups read it without locking.
+     */
+    static final class Snapshot {
+
+        private final Map<Long, Equipement> equipements = new ConcurrentHashMap<>();
+
+        private final Map<Long, IdSet> proprietaires = new ConcurrentHashMap<>();
+
+        private final Map<Long, IdSet> detenus = new ConcurrentHashMap<>();
+
+        /**
+         * Fills an empty state: the Peripherique held are gathered per Personne first,
+         * instead of copying the set of a Personne for each of its Peripherique.
+         */
+        void fill(Iterable<Peripherique> peripheriques) {
+            Map<Long, long[]> held = new HashMap<>();
+            Map<Long, Integer> counts = new HashMap<>();
+            for (Peripherique peripherique : peripheriques) {
+                describe(peripherique);
+                Appareil appareil = peripherique.getAppareil();
+                IdSet holders = appareil == null ? IdSet.EMPTY : appareil.getProprietaireIds();
+                if (holders.isEmpty()) {
+                    continue;
+                }
+                proprietaires.put(peripherique.getIdAppareil(), holders);
+                for (long personne : holders.toArray()) {
+                    int count = counts.merge(personne, 1, Integer::sum);
+                    long[] ids = held.computeIfAbsent(personne, id -> new long[4]);
+                    if (count > ids.length) {
+                        ids = Arrays.copyOf(ids, ids.length * 2);
+                        held.put(personne, ids);
+                    }
+                    ids[count - 1] = peripherique.getIdAppareil();
+                }
+            }
+            held.forEach((personne, ids) -> detenus.put(personne, IdSet.of(Arrays.copyOf(ids, counts.get(personne)))));
+        }
+
+        void put(Peripherique peripherique) {
+            describe(peripherique);
+            Appareil appareil = peripherique.getAppareil();
+            affect(peripherique.getIdAppareil(), appareil == null ? IdSet.EMPTY : appareil.getProprietaireIds());
+        }
+
+        void describe(Peripherique peripherique) {
+            Appareil appareil = peripherique.getAppareil();
+            equipements.put(peripherique.getIdAppareil(), new Equipement(peripherique.getIdAppareil(),
+                    appareil == null ? null : appareil.getLibelle(), peripherique.getType()));
+        }
+
+        void affect(long idAppareil, IdSet holders) {
+            IdSet former = proprietaires.getOrDefault(idAppareil, IdSet.EMPTY);
+            if (holders.isEmpty()) {
+                proprietaires.remove(idAppareil);
+            } else {
+                proprietaires.put(idAppareil, holders);
+            }
+            for (long personne : former.toArray()) {
+                if (!holders.contains(personne)) {
+                    detenus.computeIfPresent(personne, (id, held) -> {
+                        IdSet rest = held.without(idAppareil);
+                        return rest.isEmpty() ? null : rest;
+                    });
+                }
+            }
+            for (long personne : holders.toArray()) {
+                if (!former.contains(personne)) {
+                    detenus.merge(personne, IdSet.of(idAppareil), (held, added) -> held.with(idAppareil));
+                }
+            }
+        }
+
+        void removePeripherique(long idAppareil) {
+            affect(idAppareil, IdSet.EMPTY);
+            equipements.remove(idAppareil);
+        }
+
+        void removePersonne(long personneId) {
+            IdSet held = detenus.remove(personneId);
+            if (held != null) {
+                for (long idAppareil : held.toArray()) {
+                    proprietaires.computeIfPresent(idAppareil, (id, holders) -> {
+                        IdSet rest = holders.without(personneId);
+                        return rest.isEmpty() ? null : rest;
+                    });
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,238 @@
+package fr.afpa.pompey.cda17.ParcInfo.search;
+
+import fr.afpa.pompey.cda17.ParcInfo.models.IdSet;
+import fr.afpa.pompey.cda17.ParcInfo.models.Personne;
+import fr.afpa.pompey.cda17.ParcInfo.repositories.PersonneRepository;
+import fr.afpa.pompey.cda17.ParcInfo.snapshot.Inventory;
+import fr.afpa.pompey.cda17.ParcInfo.snapshot.InventorySnapshot;
+import fr.afpa.pompey.cda17.ParcInfo.sync.InventoryReplica;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.regex.Pattern;
+
+/**
+ * In-memory prefix index over the Personne, for the typeahead of the assignment forms.
+ * Every word of the last name and the first name, and the digits of the phone number,
+ * are kept in a sorted map with accents and case removed: a prefix lookup is a range of the map,
+ * whatever the number of Personne.
+ * <p>
+ * The index is built from the API on the first search, then refreshed every search.refresh-interval
+ * to see the changes made by other clients; the services update it at once on each save or delete.
+ */
+@Component
+public class PersonneIndex extends RefreshedIndex<PersonneIndex.Snapshot> {
+
+    // Diacritics left by the NFD decomposition ("é" becomes "e" + U+0301)
+    private static final Pattern DIACRITICS = Pattern.compile("\\p{M}+");
+
+    private static final Pattern WORD_SEPARATORS = Pattern.compile("[\\s'’-]+");
+
+    private static final Pattern NOT_DIGITS = Pattern.compile("\\D+");
+
+    // A query made of these characters only is a phone number ("06 12", "06.12"...)
+    private static final Pattern PHONE_QUERY = Pattern.compile("[\\d\\s.+-]+");
+
+    // Separates the term from the ID in the keys, and sorts before any character of a term
+    private static final char ID_SEPARATOR = '\u0000';
+
+    @Autowired
+    private PersonneRepository personneRepository;
+
+    @Autowired
+    private InventorySnapshot inventorySnapshot;
+
+    @Autowired // Provided: the replica refreshes the index
+    private ObjectProvider<InventoryReplica> replica;
+
+    /**
+     * Finds the Personne whose name, first name or phone number start with the words of the query.
+     * Each word must be the prefix of at least one of them; accents and case are ignored.
+     * @param query what has been typed, e.g. "cond" or "jean conde" or "06 12".
+     * @param limit the maximum number of Personne returned.
+     * @return the Personne found, sorted by the matched word.
+     */
+    public List<PersonneSuggestion> search(String query, int limit) {
+        return search(query, limit, IdSet.EMPTY);
+    }
+
+    /**
+     * Same as {@link #search(String, int)}, skipping some Personne, so that the limit is reached
+     * with Personne that can still be chosen.
+     * @param query what has been typed.
+     * @param limit the maximum number of Personne returned.
+     * @param excluded the IDs of the Personne to skip, e.g. the holders already chosen.
+     * @return the Personne found, sorted by the matched word.
+     */
+    public List<PersonneSuggestion> search(String query, int limit, IdSet excluded) {
+        List<String> tokens = tokens(query);
+        if (tokens.isEmpty() || limit <= 0) {
+            return List.of();
+        }
+        Snapshot current = current();
+
+        // Walk the range of the longest word, the most selective one, and check the others on the way
+        String driver = tokens.stream().max((a, b) -> a.length() - b.length()).orElseThrow();
+        ConcurrentNavigableMap<String, Long> range = current.terms.subMap(driver, driver + Character.MAX_VALUE);
+        List<PersonneSuggestion> found = new ArrayList<>(Math.min(limit, 32));
+        Set<Long> seen = new HashSet<>();
+        for (Long id : range.values()) {
+            Entry entry = current.entries.get(id);
+            if (entry == null || excluded.contains(id) || !seen.add(id) || !entry.matchesAll(tokens)) {
+                continue;
+            }
+            found.add(entry.suggestion());
+            if (found.size() == limit) {
+                break;
+            }
+        }
+        return found;
+    }
+
+    /**
+     * Adds a Personne, or replaces it after an update.
+     * @param personne the saved Personne.
+     */
+    public void put(Personne personne) {
+        change(snapshot -> snapshot.put(personne));
+    }
+
+    /**
+     * Removes a Personne after its deletion.
+     * @param id the ID of the deleted Personne.
+     */
+    public void remove(long id) {
+        change(snapshot -> snapshot.remove(id));
+    }
+
+    /**
+     * Replaces the whole content of the index.
+     * @param personnes all the Personne.
+     */
+    public void rebuild(Iterable<Personne> personnes) {
+        Snapshot fresh = new Snapshot();
+        personnes.forEach(fresh::put);
+        install(fresh);
+    }
+
+    @Override
+    protected void reload() {
+        List<Personne> replicated = replica.getObject().personnes();
+        if (replicated != null) {
+            rebuild(replicated);
+            return;
+        }
+        // From the local snapshot while the API is unreachable, rather than an empty typeahead
+        rebuild(inventorySnapshot.orElse(personneRepository::getPersonnes, Inventory::personnes));
+    }
+
+    @Override
+    protected Snapshot empty() {
+        return new Snapshot();
+    }
+
+    /**
+     * @return the number of Personne in the index.
+     */
+    @Override
+    public int size() {
+        Snapshot current = snapshot();
+        return current == null ? 0 : current.entries.size();
+    }
+
+    static String normalize(String text) {
+        return DIACRITICS.matcher(Normalizer.normalize(text, Normalizer.Form.NFD))
+                .replaceAll("")
+                .toLowerCase(Locale.ROOT);
+    }
+
+    private static List<String> tokens(String query) {
+        if (query == null || query.isBlank()) {
+            return List.of();
+        }
+        if (PHONE_QUERY.matcher(query).matches()) {
+            String digits = NOT_DIGITS.matcher(query).replaceAll("");
+            return digits.isEmpty() ? List.of() : List.of(digits);
+        }
+        List<String> tokens = new ArrayList<>();
+        for (String token : WORD_SEPARATORS.split(normalize(query.strip()))) {
+            if (!token.isEmpty()) {
+                tokens.add(token);
+            }
+        }
+        return tokens;
+    }
+
+    private static List<String> terms(Personne personne) {
+        List<String> terms = new ArrayList<>();
+        for (String text : new String[]{personne.getNom(), personne.getPrenom()}) {
+            if (text != null) {
+                for (String word : WORD_SEPARATORS.split(normalize(text.strip()))) {
+                    if (!word.isEmpty() && !terms.contains(word)) {
+                        terms.add(word);
+                    }
+                }
+            }
+        }
+        if (personne.getTelephone() != null) {
+            String digits = NOT_DIGITS.matcher(personne.getTelephone()).replaceAll("");
+            if (!digits.isEmpty()) {
+                terms.add(digits);
+            }
+        }
+        return terms;
+    }
+
+    /**
+     * One state of the index. The terms map is what the searches walk, the entries map
+     * gives the Personne of each ID and the terms to remove when it changes.
+     */
+    static final class Snapshot {
+
+        private final ConcurrentSkipListMap<String, Long> terms = new ConcurrentSkipListMap<>();
+
+        private final Map<Long, Entry> entries = new ConcurrentHashMap<>();
+
+        void put(Personne personne) {
+            remove(personne.getId());
+            Entry entry = new Entry(new PersonneSuggestion(personne.getId(), personne.getPrenom(),
+                    personne.getNom(), personne.getTelephone()), terms(personne));
+            entries.put(personne.getId(), entry);
+            for (String term : entry.terms()) {
+                terms.put(term + ID_SEPARATOR + personne.getId(), personne.getId());
+            }
+        }
+
+        void remove(long id) {
+            Entry entry = entries.remove(id);
+            if (entry != null) {
+                for (String term : entry.terms()) {
+                    terms.remove(term + ID_SEPARATOR + id);
+                }
+            }
+        }
+    }
+
+    private record Entry(PersonneSuggestion suggestion, List<String> terms) {
+
+        boolean matchesAll(List<String> tokens) {
+            for (String token : tokens) {
+                if (terms.stream().noneMatch(term -> term.startsWith(token))) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+}
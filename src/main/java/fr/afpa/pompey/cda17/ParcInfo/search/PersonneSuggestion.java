@@ -0,0 +1,11 @@
+package fr.afpa.pompey.cda17.ParcInfo.search;
+
+/**
+ * A Personne found by the typeahead, with only what the suggestion list displays.
+ * @param id the ID of the Personne.
+ * @param prenom its first name.
+ * @param nom its last name.
+ * @param telephone its phone number.
+ */
+public record PersonneSuggestion(long id, String prenom, String nom, String telephone) {
+}
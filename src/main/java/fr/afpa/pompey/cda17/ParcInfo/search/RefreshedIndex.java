@@ -0,0 +1,127 @@
+package fr.afpa.pompey.cda17.ParcInfo.search;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.web.client.RestClientException;
+import org.springframework.web.reactive.function.client.WebClientException;
+
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * In-memory index built from the API on first use, then rebuilt every search.refresh-interval
+ * to see the changes made by other clients. The services apply their own changes at once:
+ * those made while a rebuild reads the API are replayed on the rebuilt index.
+ * @param <S> one state of the index, replaced as a whole by each rebuild.
+ */
+@Slf4j
+public abstract class RefreshedIndex<S> {
+
+    private final Object lock = new Object();
+
+    private volatile S snapshot;
+
+    // Changes made while a refresh reads the API, replayed on the refreshed snapshot
+    private List<Consumer<S>> changesDuringRefresh;
+
+    /**
+     * Reads the API and builds a new state with {@link #install(Object)}.
+     * @throws RestClientException if the API could not be read (WebClientException with the web-client,
+     * UncheckedIOException if a streamed response breaks).
+     */
+    protected abstract void reload();
+
+    /**
+     * @return a state without any entry.
+     */
+    protected abstract S empty();
+
+    /**
+     * @return the number of entries in the index.
+     */
+    public abstract int size();
+
+    /**
+     * Rebuilds the index from the API, if it has been used since the start.
+     */
+    @Scheduled(fixedDelayString = "${fr.afpa.pompey.cda17.search.refresh-interval:PT5M}",
+            initialDelayString = "${fr.afpa.pompey.cda17.search.refresh-interval:PT5M}")
+    public void refreshIfUsed() {
+        if (snapshot != null) {
+            refresh();
+        }
+    }
+
+    /**
+     * Rebuilds the index from the API. On failure, the previous index is kept.
+     */
+    public void refresh() {
+        synchronized (lock) {
+            changesDuringRefresh = new ArrayList<>();
+        }
+        try {
+            reload();
+            log.debug("{} rebuilt: {} entries", getClass().getSimpleName(), size());
+        } catch (RestClientException | WebClientException | UncheckedIOException e) {
+            log.warn("Could not refresh {}: {}", getClass().getSimpleName(), e.getMessage());
+        } finally {
+            synchronized (lock) {
+                changesDuringRefresh = null;
+            }
+        }
+    }
+
+    /**
+     * Replaces the whole state, after replaying the changes made while it was built.
+     * @param fresh the new state.
+     */
+    protected void install(S fresh) {
+        synchronized (lock) {
+            if (changesDuringRefresh != null) {
+                changesDuringRefresh.forEach(change -> change.accept(fresh));
+            }
+            snapshot = fresh;
+        }
+    }
+
+    /**
+     * @return the current state, or null if the index has not been built yet.
+     */
+    protected S snapshot() {
+        return snapshot;
+    }
+
+    /**
+     * @return the current state, built from the API on first use; empty if the API could not be read.
+     */
+    protected S current() {
+        S current = snapshot;
+        if (current == null) {
+            synchronized (this) {
+                if (snapshot == null) {
+                    refresh();
+                }
+            }
+            current = snapshot;
+        }
+        // Still null if the API could not be read: find nothing until it can
+        return current != null ? current : empty();
+    }
+
+    /**
+     * Applies a change made by this application, now and on the rebuild in progress if any.
+     * @param change the change of a state.
+     */
+    protected void change(Consumer<S> change) {
+        synchronized (lock) {
+            if (snapshot != null) {
+                change.accept(snapshot);
+            }
+            if (changesDuringRefresh != null) {
+                changesDuringRefresh.add(change);
+            }
+        }
+    }
+}
@@ -2,6 +2,7 @@ package fr.afpa.pompey.cda17.ParcInfo.services;
 
 import fr.afpa.pompey.cda17.ParcInfo.models.Appareil;
 import fr.afpa.pompey.cda17.ParcInfo.repositories.AppareilRepository;
+import fr.afpa.pompey.cda17.ParcInfo.sync.InventoryReplica;
 import lombok.Data;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
@@ -13,12 +14,19 @@ public class AppareilService {
     @Autowired // Automatically injects an instance of AppareilRepository into this service.
     private AppareilRepository appareilRepository;
 
+    @Autowired // Answers the reads without calling the API, once synchronized.
+    private InventoryReplica replica;
+
     /**
-     * Retrieves all Appareil entities from the repository.
+     * Retrieves all Appareil entities from the replica, or from the repository until it is synchronized.
      * 
      * @return an Iterable containing all Appareil objects.
      */
     public Iterable<Appareil> getAppareils(){
+        Iterable<Appareil> replicated = replica.appareils();
+        if (replicated != null) {
+            return replicated;
+        }
         return appareilRepository.getAppareils(); // Delegates the call to the repository to fetch all Appareil entities.
     }
 }
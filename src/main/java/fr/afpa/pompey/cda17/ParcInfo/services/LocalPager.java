@@ -0,0 +1,84 @@
+package fr.afpa.pompey.cda17.ParcInfo.services;
+
+import fr.afpa.pompey.cda17.ParcInfo.models.Page;
+import fr.afpa.pompey.cda17.ParcInfo.models.PageQuery;
+
+import java.text.Collator;
+import java.text.Normalizer;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.regex.Pattern;
+
+/**
+ * Filters, sorts and slices a list held in memory,
+ * used when the API cannot return a page by itself.
+ */
+final class LocalPager {
+
+    private static final Pattern DIACRITICS = Pattern.compile("\\p{M}+");
+
+    private LocalPager() {
+    }
+
+    /**
+     * Builds the requested page of a list.
+     * @param all the whole list, left unmodified.
+     * @param query the requested page, sort and filter.
+     * @param sortKeys the sortable properties and how to read them.
+     * @param text the text of a row in which the filter is searched.
+     * @return the page.
+     */
+    static <T> Page<T> page(List<T> all, PageQuery query,
+                            Map<String, Function<T, ?>> sortKeys, Function<T, String> text) {
+        List<T> rows = all;
+
+        String filter = normalize(query.getQ());
+        if (!filter.isEmpty()) {
+            rows = rows.stream()
+                    .filter(row -> normalize(text.apply(row)).contains(filter))
+                    .toList();
+        }
+
+        Function<T, ?> sortKey = sortKeys.get(query.getSortProperty());
+        if (sortKey != null) {
+            Comparator<T> comparator = comparator(sortKey);
+            rows = rows.stream()
+                    .sorted(query.isDescending() ? comparator.reversed() : comparator)
+                    .toList();
+        }
+
+        int from = (int) Math.min((long) query.getPage() * query.getSize(), rows.size());
+        int to = Math.min(from + query.getSize(), rows.size());
+        return new Page<>(List.copyOf(rows.subList(from, to)), query.getPage(), query.getSize(), rows.size());
+    }
+
+    /**
+     * Lower-cases a text and removes its accents, "Condé" becomes "conde".
+     * @param text the text, may be null.
+     * @return the normalized text, empty for null.
+     */
+    static String normalize(String text) {
+        if (text == null) {
+            return "";
+        }
+        return DIACRITICS.matcher(Normalizer.normalize(text, Normalizer.Form.NFD))
+                .replaceAll("")
+                .toLowerCase(Locale.ROOT)
+                .trim();
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static <T> Comparator<T> comparator(Function<T, ?> sortKey) {
+        // French collation: accents and case do not change the order of the names
+        Collator collator = Collator.getInstance(Locale.FRENCH);
+        collator.setStrength(Collator.PRIMARY);
+
+        Comparator<Object> values = (a, b) -> a instanceof String && b instanceof String
+                ? collator.compare(a, b)
+                : ((Comparable) a).compareTo(b);
+        return Comparator.comparing(sortKey, Comparator.nullsLast(values));
+    }
+}
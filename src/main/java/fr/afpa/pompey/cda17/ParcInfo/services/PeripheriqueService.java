@@ -1,35 +1,133 @@
 package fr.afpa.pompey.cda17.ParcInfo.services;
 
+import config.CustomProperties;
+import fr.afpa.pompey.cda17.ParcInfo.cache.InventoryCache;
+import fr.afpa.pompey.cda17.ParcInfo.cache.InventoryVersion;
+import fr.afpa.pompey.cda17.ParcInfo.cache.SingleFlight;
+import fr.afpa.pompey.cda17.ParcInfo.models.AffectationResult;
+import fr.afpa.pompey.cda17.ParcInfo.models.Page;
+import fr.afpa.pompey.cda17.ParcInfo.models.PageQuery;
 import fr.afpa.pompey.cda17.ParcInfo.models.Peripherique;
 import fr.afpa.pompey.cda17.ParcInfo.repositories.PeripheriqueRepository;
+import fr.afpa.pompey.cda17.ParcInfo.search.EquipementIndex;
+import fr.afpa.pompey.cda17.ParcInfo.snapshot.InventorySnapshot;
+import fr.afpa.pompey.cda17.ParcInfo.sync.InventoryReplica;
 import lombok.Data;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Stream;
+
 @Data
 @Service
 public class PeripheriqueService {
 
+    // Columns of the peripherals list that can be sorted, by sort parameter.
+    private static final Map<String, Function<Peripherique, ?>> SORT_KEYS = Map.of(
+            "libelle", peripherique -> peripherique.getAppareil().getLibelle(),
+            "type", peripherique -> String.valueOf(peripherique.getType()),
+            "locataires", peripherique -> peripherique.getAppareil().getProprietairesIdentites()
+    );
+
     @Autowired
     private PeripheriqueRepository peripheriqueRepository;
 
+    @Autowired
+    private InventoryCache cache;
+
+    @Autowired
+    private SingleFlight singleFlight;
+
+    @Autowired
+    private EquipementIndex equipementIndex;
+
+    @Autowired
+    private CustomProperties props;
+
+    @Autowired
+    private InventorySnapshot snapshot;
+
+    @Autowired
+    private InventoryVersion version;
+
+    @Autowired
+    private InventoryReplica replica;
+
     /**
      * Retrieves a Peripherique by its ID.
-     * Calls the repository method to fetch a Peripherique object based on the provided ID.
+     * Calls the repository method to fetch a Peripherique object based on the provided ID,
+     * unless it is in the replica or already in the cache; from the local snapshot when the API is unreachable.
      * @param id the ID of the Peripherique to retrieve.
      * @return the Peripherique object.
      */
     public Peripherique getPeripherique(int id) {
-        return peripheriqueRepository.getPeripherique(id);
+        Peripherique replicated = replica.peripherique(id);
+        if (replicated != null) {
+            return replicated;
+        }
+        return snapshot.orElse(() -> cache.peripherique(id, () -> singleFlight.read(InventoryCache.PERIPHERIQUE, id,
+                () -> peripheriqueRepository.getPeripherique(id))), inventory -> inventory.peripherique(id));
     }
 
     /**
      * Retrieves all Peripheriques.
-     * Calls the repository method to fetch all Peripherique objects.
+     * Calls the repository method to fetch all Peripherique objects,
+     * unless they are in the replica or already in the cache; from the local snapshot when the API is unreachable.
      * @return an iterable collection of Peripherique objects.
      */
     public Iterable<Peripherique> getPeripheriques() {
-        return peripheriqueRepository.getPeripheriques();
+        List<Peripherique> replicated = replica.peripheriques();
+        if (replicated != null) {
+            return replicated;
+        }
+        return snapshot.orElse(() -> cache.peripheriques(() -> singleFlight.read(InventoryCache.PERIPHERIQUES, "",
+                peripheriqueRepository::getPeripheriques)), inventory -> inventory.peripheriques());
+    }
+
+    /**
+     * Streams all the Peripheriques straight from the API, without caching them,
+     * so that a whole inventory can be rendered in constant memory.
+     * The returned stream holds an open HTTP response and must be closed.
+     * @return the lazy stream of Peripherique objects.
+     */
+    public Stream<Peripherique> streamPeripheriques() {
+        return peripheriqueRepository.streamPeripheriques();
+    }
+
+    /**
+     * Retrieves one page of Peripheriques, sorted and filtered.
+     * The API is asked for the page only when it can page itself;
+     * otherwise the page is built from the cached list, or from the replica once synchronized.
+     * While the API is unreachable, the page is built from the local snapshot.
+     * @param query the requested page, sort and filter.
+     * @return the page of Peripherique objects.
+     */
+    public Page<Peripherique> getPeripheriques(PageQuery query) {
+        query.setPage(Math.max(query.getPage(), 0));
+        query.setSize(Math.min(Math.max(query.getSize(), 1), props.getPagination().getMaxSize()));
+
+        List<Peripherique> replicated = replica.peripheriques();
+        if (replicated != null) {
+            return page(replicated, query);
+        }
+        if (props.getPagination().isServerSide()) {
+            String key = query.getPage() + "/" + query.getSize() + "/" + query.getSort() + "/" + query.getQ();
+            return snapshot.orElse(() -> version.read(InventoryCache.PERIPHERIQUES + "/" + key,
+                    singleFlight.read(InventoryCache.PERIPHERIQUES, key,
+                            () -> peripheriqueRepository.getPeripheriques(query))),
+                    inventory -> page(inventory.peripheriques(), query));
+        }
+        return page(snapshot.orElse(() -> cache.peripheriques(() -> singleFlight.read(InventoryCache.PERIPHERIQUES,
+                "", peripheriqueRepository::getPeripheriques)), inventory -> inventory.peripheriques()), query);
+    }
+
+    private static Page<Peripherique> page(List<Peripherique> peripheriques, PageQuery query) {
+        return LocalPager.page(peripheriques, query, SORT_KEYS,
+                peripherique -> peripherique.getAppareil().getLibelle() + ' ' + peripherique.getType() + ' '
+                        + peripherique.getAppareil().getProprietairesIdentites());
     }
 
     /**
@@ -39,7 +137,17 @@ public class PeripheriqueService {
      * @return the created Peripherique object.
      */
     public Peripherique createPeripherique(Peripherique peripherique) {
-        return peripheriqueRepository.createPeripherique(peripherique);
+        try {
+            Peripherique created = peripheriqueRepository.createPeripherique(peripherique);
+            if (created != null && created.getIdAppareil() != 0) {
+                equipementIndex.put(created);
+                snapshot.saved(created);
+                replica.saved(created);
+            }
+            return created;
+        } finally {
+            cache.evictPeripherique(0);
+        }
     }
 
     /**
@@ -48,7 +156,15 @@ public class PeripheriqueService {
      * @param id the ID of the Peripherique to delete.
      */
     public void deletePeripherique(int id) {
-        peripheriqueRepository.deletePeripherique(id);
+        try {
+            peripheriqueRepository.deletePeripherique(id);
+            equipementIndex.removePeripherique(id);
+            snapshot.deletedPeripherique(id);
+            replica.deletedPeripherique(id);
+        } finally {
+            // Invalidate even on failure: the deletion may have been applied by the API.
+            cache.evictPeripherique(id);
+        }
     }
 
     /**
@@ -61,10 +177,23 @@ public class PeripheriqueService {
     public Peripherique save(Peripherique peripherique) {
         Peripherique saved;
 
-        if(peripherique.getIdAppareil() == 0){
-            saved = peripheriqueRepository.createPeripherique(peripherique);
-        }else{
-            saved = peripheriqueRepository.updatePeripherique(peripherique);
+        try {
+            if(peripherique.getIdAppareil() == 0){
+                saved = peripheriqueRepository.createPeripherique(peripherique);
+                if (saved != null && saved.getIdAppareil() != 0) {
+                    equipementIndex.put(saved);
+                    snapshot.saved(saved);
+                    replica.saved(saved);
+                }
+            }else{
+                saved = peripheriqueRepository.updatePeripherique(peripherique);
+                equipementIndex.describe(saved != null ? saved : peripherique);
+                snapshot.saved(saved != null ? saved : peripherique);
+                replica.saved(saved != null ? saved : peripherique);
+            }
+        } finally {
+            // Invalidate even on failure: the Peripherique may be a cached instance modified by the caller.
+            cache.evictPeripherique(peripherique.getIdAppareil());
         }
 
         return saved;
@@ -77,6 +206,36 @@ public class PeripheriqueService {
      * @param personnes an array of Personne identifiers.
      */
     public void affect(Peripherique peripherique, String[] personnes) {
-        peripheriqueRepository.affectPersonnes(peripherique, personnes);
+        try {
+            peripheriqueRepository.affectPersonnes(peripherique, personnes);
+            equipementIndex.affect(peripherique.getIdAppareil(), personnes);
+            snapshot.affected(peripherique.getIdAppareil(), personnes);
+            replica.affected(peripherique.getIdAppareil(), personnes);
+        } finally {
+            cache.evictAffectation(peripherique.getIdAppareil(), personnes);
+        }
+    }
+
+    /**
+     * Assigns many Peripheriques at once, each to its own list of Personnes.
+     * The assignments are sent in parallel chunks; one that fails does not stop the others.
+     * @param affectations the Personne identifiers to assign, by Peripherique identifier.
+     * @return the outcome of each assignment, in the order of the map.
+     */
+    public List<AffectationResult> affect(Map<Long, String[]> affectations) {
+        try {
+            List<AffectationResult> results = peripheriqueRepository.affectPersonnes(affectations);
+            results.stream()
+                    .filter(AffectationResult::isSuccess)
+                    .forEach(result -> {
+                        equipementIndex.affect(result.getIdAppareil(), result.getPersonnes());
+                        snapshot.affected(result.getIdAppareil(), result.getPersonnes());
+                        replica.affected(result.getIdAppareil(), result.getPersonnes());
+                    });
+            return results;
+        } finally {
+            // Invalidate every assignment, even the failed ones: the API may have applied them.
+            cache.evictAffectations(affectations);
+        }
     }
 }
@@ -1,33 +1,168 @@
 package fr.afpa.pompey.cda17.ParcInfo.services;
 
+import config.CustomProperties;
+import fr.afpa.pompey.cda17.ParcInfo.cache.InventoryCache;
+import fr.afpa.pompey.cda17.ParcInfo.cache.InventoryVersion;
+import fr.afpa.pompey.cda17.ParcInfo.cache.SingleFlight;
+import fr.afpa.pompey.cda17.ParcInfo.models.IdSet;
+import fr.afpa.pompey.cda17.ParcInfo.models.Page;
+import fr.afpa.pompey.cda17.ParcInfo.models.PageQuery;
 import fr.afpa.pompey.cda17.ParcInfo.models.Personne;
 import fr.afpa.pompey.cda17.ParcInfo.repositories.PersonneRepository;
+import fr.afpa.pompey.cda17.ParcInfo.search.Equipement;
+import fr.afpa.pompey.cda17.ParcInfo.search.EquipementIndex;
+import fr.afpa.pompey.cda17.ParcInfo.search.PersonneIndex;
+import fr.afpa.pompey.cda17.ParcInfo.search.PersonneSuggestion;
+import fr.afpa.pompey.cda17.ParcInfo.snapshot.InventorySnapshot;
+import fr.afpa.pompey.cda17.ParcInfo.sync.InventoryReplica;
 import lombok.Data;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Stream;
+
 @Data
 @Service
 public class PersonneService {
 
+    // Properties of Personne the list can be sorted on, by sort parameter.
+    private static final Map<String, Function<Personne, ?>> SORT_KEYS = Map.of(
+            "nom", Personne::getNom,
+            "prenom", Personne::getPrenom,
+            "adresse", Personne::getAdresse,
+            "telephone", Personne::getTelephone,
+            "dateNaissance", Personne::getDateNaissance
+    );
+
     @Autowired
     private PersonneRepository personneRepository; // Injects the repository to interact with the data layer.
 
+    @Autowired
+    private InventoryCache cache; // Read-through cache in front of the repository.
+
+    @Autowired
+    private SingleFlight singleFlight; // Shares the reads in flight between concurrent callers.
+
+    @Autowired
+    private CustomProperties props; // Tells whether the API pages itself.
+
+    @Autowired
+    private PersonneIndex personneIndex; // Typeahead index, updated on each save or delete.
+
+    @Autowired
+    private EquipementIndex equipementIndex; // Peripherals held by each Personne, updated on each delete.
+
+    @Autowired
+    private InventorySnapshot snapshot; // Answers the reads while the API is unreachable, updated on each save.
+
+    @Autowired
+    private InventoryVersion version; // Tells the pages whether their data changed.
+
+    @Autowired
+    private InventoryReplica replica; // Answers the reads without calling the API, once synchronized.
+
     /**
-     * Retrieves a Personne object by its ID.
+     * Retrieves a Personne object by its ID, from the replica or the cache when possible,
+     * from the local snapshot when the API is unreachable.
      * @param id The ID of the Personne to retrieve.
      * @return The Personne object with the specified ID.
      */
     public Personne getPersonne(int id) {
-        return personneRepository.getPersonne(id);
+        Personne replicated = replica.personne(id);
+        if (replicated != null) {
+            return replicated;
+        }
+        return snapshot.orElse(() -> cache.personne(id, () -> singleFlight.read(InventoryCache.PERSONNE, id,
+                () -> personneRepository.getPersonne(id))), inventory -> inventory.personne(id));
     }
 
     /**
-     * Retrieves all Personne objects.
+     * Retrieves all Personne objects, from the replica or the cache when possible,
+     * from the local snapshot when the API is unreachable.
      * @return An iterable collection of all Personne objects.
      */
     public Iterable<Personne> getPersonnes() {
-        return personneRepository.getPersonnes();
+        List<Personne> replicated = replica.personnes();
+        if (replicated != null) {
+            return replicated;
+        }
+        return snapshot.orElse(() -> cache.personnes(() -> singleFlight.read(InventoryCache.PERSONNES, "",
+                personneRepository::getPersonnes)), inventory -> inventory.personnes());
+    }
+
+    /**
+     * Streams all the Personne objects straight from the API, without caching them,
+     * so that a whole directory can be exported in constant memory.
+     * The returned stream holds an open HTTP response and must be closed.
+     * @return The lazy stream of Personne objects.
+     */
+    public Stream<Personne> streamPersonnes() {
+        return personneRepository.streamPersonnes();
+    }
+
+    /**
+     * Retrieves one page of Personne objects, sorted and filtered.
+     * The API is asked for the page only when it can page itself;
+     * otherwise the page is built from the cached list, or from the replica once synchronized.
+     * While the API is unreachable, the page is built from the local snapshot.
+     * @param query The requested page, sort and filter.
+     * @return The page of Personne objects.
+     */
+    public Page<Personne> getPersonnes(PageQuery query) {
+        // Never serve more rows than allowed, whatever the request says.
+        query.setPage(Math.max(query.getPage(), 0));
+        query.setSize(Math.min(Math.max(query.getSize(), 1), props.getPagination().getMaxSize()));
+
+        List<Personne> replicated = replica.personnes();
+        if (replicated != null) {
+            return page(replicated, query);
+        }
+        if (props.getPagination().isServerSide()) {
+            String key = query.getPage() + "/" + query.getSize() + "/" + query.getSort() + "/" + query.getQ();
+            return snapshot.orElse(() -> version.read(InventoryCache.PERSONNES + "/" + key,
+                    singleFlight.read(InventoryCache.PERSONNES, key, () -> personneRepository.getPersonnes(query))),
+                    inventory -> page(inventory.personnes(), query));
+        }
+        return page(snapshot.orElse(() -> cache.personnes(() -> singleFlight.read(InventoryCache.PERSONNES, "",
+                personneRepository::getPersonnes)), inventory -> inventory.personnes()), query);
+    }
+
+    private static Page<Personne> page(List<Personne> personnes, PageQuery query) {
+        return LocalPager.page(personnes, query, SORT_KEYS,
+                personne -> personne.getPrenom() + ' ' + personne.getNom() + ' '
+                        + personne.getAdresse() + ' ' + personne.getTelephone());
+    }
+
+    /**
+     * Finds the Personne whose name, first name or phone number start with the words typed,
+     * ignoring accents and case, for the typeahead of the assignment forms.
+     * @param query What has been typed.
+     * @param excluded The IDs of the Personne already chosen, left out of the suggestions.
+     * @return The first matching Personne, at most search.max-suggestions.
+     */
+    public List<PersonneSuggestion> searchPersonnes(String query, long... excluded) {
+        return personneIndex.search(query, props.getSearch().getMaxSuggestions(), IdSet.of(excluded));
+    }
+
+    /**
+     * Lists the Peripherique held by a Personne, from the reverse index of the inventory.
+     * @param id The ID of the Personne.
+     * @return The Peripherique it holds.
+     */
+    public List<Equipement> getEquipements(long id) {
+        return equipementIndex.equipements(id);
+    }
+
+    /**
+     * Counts the Peripherique held by each Personne, from the reverse index of the inventory.
+     * @param personnes The Personne, e.g. a page of the list.
+     * @return The number of Peripherique held, by ID of Personne.
+     */
+    public Map<Long, Integer> countEquipements(Iterable<Personne> personnes) {
+        return equipementIndex.counts(personnes);
     }
 
     /**
@@ -35,7 +170,16 @@ public class PersonneService {
      * @param id The ID of the Personne to delete.
      */
     public void deletePersonne(int id) {
-        personneRepository.deletePersonne(id);
+        try {
+            personneRepository.deletePersonne(id);
+            personneIndex.remove(id);
+            equipementIndex.removePersonne(id);
+            snapshot.deletedPersonne(id);
+            replica.deletedPersonne(id);
+        } finally {
+            // Invalidate even on failure: the deletion may have been applied by the API.
+            cache.evictPersonne(id);
+        }
     }
 
     /**
@@ -47,12 +191,24 @@ public class PersonneService {
     public Personne savePersonne(Personne personne) {
         Personne saved;
 
-        if(personne.getId() == 0){
-            // Create a new Personne if the ID is 0.
-            saved = personneRepository.createPersonne(personne);
-        }else{
-            // Update the existing Personne if the ID is not 0.
-            saved = personneRepository.updatePersonne(personne);
+        try {
+            if(personne.getId() == 0){
+                // Create a new Personne if the ID is 0.
+                saved = personneRepository.createPersonne(personne);
+            }else{
+                // Update the existing Personne if the ID is not 0.
+                saved = personneRepository.updatePersonne(personne);
+            }
+            // Make the saved Personne searchable at once (a created one needs the ID given by the API).
+            Personne indexed = saved != null ? saved : personne;
+            if (indexed.getId() != 0) {
+                personneIndex.put(indexed);
+                snapshot.saved(indexed);
+                replica.saved(indexed);
+            }
+        } finally {
+            // Invalidate even on failure: the Personne may be a cached instance modified by the caller.
+            cache.evictPersonne(personne.getId());
         }
 
         return saved;
@@ -0,0 +1,203 @@
+package fr.afpa.pompey.cda17.ParcInfo.snapshot;
+
+import fr.afpa.pompey.cda17.ParcInfo.models.Appareil;
+import fr.afpa.pompey.cda17.ParcInfo.models.Peripherique;
+import fr.afpa.pompey.cda17.ParcInfo.models.Personne;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The inventory as loaded from the snapshot: all the Personne and all the Peripherique, in the order
+ * of the API, as they were when last read from it, with the changes saved since then.
+ * A change gives a new Inventory, with its own lists; a Peripherique whose holders change is replaced by a copy,
+ * with a copy of its Appareil: the pages rendering the previous Inventory at that moment never see them change.
+ * The holders are the Personne of the Inventory.
+ */
+public final class Inventory {
+
+    private final long generation;
+
+    private final Instant readAt;
+
+    private final Map<Long, Personne> personnes;
+
+    private final Map<Long, Peripherique> peripheriques;
+
+    private final List<Personne> personneList;
+
+    private final List<Peripherique> peripheriqueList;
+
+    Inventory(long generation, Instant readAt, Map<Long, Personne> personnes, Map<Long, Peripherique> peripheriques) {
+        this.generation = generation;
+        this.readAt = readAt;
+        this.personnes = personnes;
+        this.peripheriques = peripheriques;
+        this.personneList = List.copyOf(personnes.values());
+        this.peripheriqueList = List.copyOf(peripheriques.values());
+    }
+
+    /**
+     * @return when the inventory was last read from the API.
+     */
+    public Instant getReadAt() {
+        return readAt;
+    }
+
+    long getGeneration() {
+        return generation;
+    }
+
+    /**
+     * @return all the Personne, shared: not to be modified.
+     */
+    public List<Personne> personnes() {
+        return personneList;
+    }
+
+    /**
+     * @return all the Peripherique, shared: not to be modified.
+     */
+    public List<Peripherique> peripheriques() {
+        return peripheriqueList;
+    }
+
+    /**
+     * @param id the ID of a Personne.
+     * @return a copy of the Personne, that the caller may modify; null if unknown.
+     */
+    public Personne personne(long id) {
+        Personne personne = personnes.get(id);
+        return personne == null ? null : copy(personne);
+    }
+
+    /**
+     * @param id the ID of a Peripherique.
+     * @return a copy of the Peripherique and of its Appareil, that the caller may modify; null if unknown.
+     */
+    public Peripherique peripherique(long id) {
+        Peripherique peripherique = peripheriques.get(id);
+        return peripherique == null ? null : copy(peripherique);
+    }
+
+    /**
+     * @param id the ID of a Personne.
+     * @return the Personne of the inventory, or one holding only the ID if it is unknown.
+     */
+    Personne holder(long id) {
+        Personne personne = personnes.get(id);
+        if (personne == null) {
+            personne = new Personne();
+            personne.setId(id);
+        }
+        return personne;
+    }
+
+    Inventory readAgainAt(Instant readAt) {
+        return new Inventory(generation, readAt, personnes, peripheriques);
+    }
+
+    Inventory withPersonne(Personne personne) {
+        Map<Long, Personne> changed = new LinkedHashMap<>(personnes);
+        changed.put(personne.getId(), personne);
+        // The holders are displayed by name: the Peripherique held show the new one
+        Map<Long, Peripherique> held = new LinkedHashMap<>(peripheriques);
+        for (Peripherique peripherique : peripheriques.values()) {
+            Appareil appareil = peripherique.getAppareil();
+            if (appareil != null && appareil.estDetenuPar(personne.getId())) {
+                List<Personne> proprietaires = appareil.getProprietaires().stream()
+                        .map(holder -> holder.getId() == personne.getId() ? personne : holder)
+                        .toList();
+                held.put(peripherique.getIdAppareil(), withProprietaires(peripherique, proprietaires));
+            }
+        }
+        return new Inventory(generation, readAt, changed, held);
+    }
+
+    Inventory withoutPersonne(long id) {
+        Map<Long, Personne> changed = new LinkedHashMap<>(personnes);
+        changed.remove(id);
+        Map<Long, Peripherique> held = new LinkedHashMap<>(peripheriques);
+        for (Peripherique peripherique : peripheriques.values()) {
+            Appareil appareil = peripherique.getAppareil();
+            if (appareil != null && appareil.estDetenuPar(id)) {
+                List<Personne> proprietaires = appareil.getProprietaires().stream()
+                        .filter(holder -> holder.getId() != id)
+                        .toList();
+                held.put(peripherique.getIdAppareil(), withProprietaires(peripherique, proprietaires));
+            }
+        }
+        return new Inventory(generation, readAt, changed, held);
+    }
+
+    Inventory withPeripherique(Peripherique peripherique) {
+        Map<Long, Peripherique> changed = new LinkedHashMap<>(peripheriques);
+        changed.put(peripherique.getIdAppareil(), peripherique);
+        return new Inventory(generation, readAt, personnes, changed);
+    }
+
+    Inventory withoutPeripherique(long id) {
+        Map<Long, Peripherique> changed = new LinkedHashMap<>(peripheriques);
+        changed.remove(id);
+        return new Inventory(generation, readAt, personnes, changed);
+    }
+
+    Inventory withAffectation(long id, long[] holders) {
+        Peripherique peripherique = peripheriques.get(id);
+        if (peripherique == null || peripherique.getAppareil() == null) {
+            return this;
+        }
+        List<Personne> proprietaires = new ArrayList<>(holders.length);
+        for (long holder : holders) {
+            proprietaires.add(holder(holder));
+        }
+        Map<Long, Peripherique> changed = new LinkedHashMap<>(peripheriques);
+        changed.put(id, withProprietaires(peripherique, proprietaires));
+        return new Inventory(generation, readAt, personnes, changed);
+    }
+
+    // A copy of the Peripherique and of its Appareil, with other holders
+    private static Peripherique withProprietaires(Peripherique peripherique, List<Personne> proprietaires) {
+        Appareil appareil = new Appareil();
+        appareil.setId(peripherique.getAppareil().getId());
+        appareil.setLibelle(peripherique.getAppareil().getLibelle());
+        appareil.setProprietaires(proprietaires);
+        Peripherique copy = new Peripherique();
+        copy.setIdAppareil(peripherique.getIdAppareil());
+        copy.setType(peripherique.getType());
+        copy.setAppareil(appareil);
+        return copy;
+    }
+
+    private static Personne copy(Personne personne) {
+        Personne copy = new Personne();
+        copy.setId(personne.getId());
+        copy.setNom(personne.getNom());
+        copy.setPrenom(personne.getPrenom());
+        copy.setAdresse(personne.getAdresse());
+        copy.setTelephone(personne.getTelephone());
+        copy.setDateNaissance(personne.getDateNaissance());
+        if (personne.getAppareils() != null) {
+            copy.setAppareils(new ArrayList<>(personne.getAppareils()));
+        }
+        return copy;
+    }
+
+    private static Peripherique copy(Peripherique peripherique) {
+        Peripherique copy = new Peripherique();
+        copy.setIdAppareil(peripherique.getIdAppareil());
+        copy.setType(peripherique.getType());
+        Appareil appareil = peripherique.getAppareil();
+        if (appareil != null) {
+            Appareil appareilCopy = new Appareil();
+            appareilCopy.setId(appareil.getId());
+            appareilCopy.setLibelle(appareil.getLibelle());
+            appareilCopy.setProprietaires(new ArrayList<>(appareil.getProprietaires()));
+            copy.setAppareil(appareilCopy);
+        }
+        return copy;
+    }
+}
@@ -0,0 +1,258 @@
+package fr.afpa.pompey.cda17.ParcInfo.snapshot;
+
+import config.CustomProperties;
+import fr.afpa.pompey.cda17.ParcInfo.http.ApiResilience;
+import fr.afpa.pompey.cda17.ParcInfo.http.StaleReads;
+import fr.afpa.pompey.cda17.ParcInfo.models.Peripherique;
+import fr.afpa.pompey.cda17.ParcInfo.models.Personne;
+import fr.afpa.pompey.cda17.ParcInfo.repositories.PeripheriqueRepository;
+import fr.afpa.pompey.cda17.ParcInfo.repositories.PersonneRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Local copy of the inventory, kept on disk so that the pages can still be read while the API is unreachable,
+ * even right after a restart.
+ * <p>
+ * Every snapshot.interval, the lists of Personne and Peripherique are read from the API and written to
+ * {@link SnapshotFile}; when the API answers that they did not change (the conditional GETs then give
+ * the same lists), only the time of the read is updated. Between two writes, each successful save of the
+ * services is appended to the {@link SnapshotJournal}. Both are loaded at startup.
+ * <p>
+ * The services read through {@link #orElse(Supplier, Function)}: when the API fails to answer,
+ * the read is answered from the snapshot, and recorded as a {@link StaleReads stale read} so that
+ * the page shows how old it is.
+ */
+@Slf4j
+@Component
+public class InventorySnapshot {
+
+    private static final String FILE = "inventory.snapshot";
+
+    private static final String JOURNAL = "inventory.journal";
+
+    @Autowired
+    private CustomProperties props;
+
+    @Autowired
+    private PersonneRepository personneRepository;
+
+    @Autowired
+    private PeripheriqueRepository peripheriqueRepository;
+
+    private volatile Inventory inventory;
+
+    private SnapshotJournal journal;
+
+    // Lists of the last write, compared by identity
+    private List<Personne> writtenPersonnes;
+
+    private List<Peripherique> writtenPeripheriques;
+
+    /**
+     * Loads the snapshot and its journal, if any.
+     */
+    @PostConstruct
+    public synchronized void load() {
+        if (!props.getSnapshot().isEnabled()) {
+            return;
+        }
+        try {
+            close();
+        } catch (IOException e) {
+            log.debug("Journal of the inventory snapshot not closed: {}", e.getMessage());
+        }
+        journal = null;
+        Path file = file(FILE);
+        Inventory loaded = null;
+        try {
+            if (Files.exists(file)) {
+                loaded = SnapshotFile.read(file);
+            }
+        } catch (IOException e) {
+            log.warn("Snapshot of the inventory ignored: {}", e.getMessage());
+        }
+        if (loaded == null) {
+            // The journal is opened by the first write
+            return;
+        }
+        try {
+            journal = SnapshotJournal.open(file(JOURNAL), loaded);
+            loaded = journal.replay(loaded);
+        } catch (IOException | RuntimeException e) {
+            log.warn("Journal of the inventory snapshot ignored: {}", e.getMessage());
+        }
+        inventory = loaded;
+        log.info("Snapshot of the inventory loaded: {} personnes, {} peripheriques, read from the API at {}",
+                loaded.personnes().size(), loaded.peripheriques().size(), loaded.getReadAt());
+    }
+
+    @PreDestroy
+    public synchronized void close() throws IOException {
+        if (journal != null) {
+            journal.close();
+        }
+    }
+
+    /**
+     * Reads the lists from the API, and writes them when they changed.
+     * Nothing is written if the API fails, or answers from its last known good results.
+     */
+    @Scheduled(fixedDelayString = "${fr.afpa.pompey.cda17.snapshot.interval:PT5M}",
+            initialDelayString = "${fr.afpa.pompey.cda17.snapshot.interval:PT5M}")
+    public synchronized void save() {
+        if (!props.getSnapshot().isEnabled()) {
+            return;
+        }
+        Object[] lists = new Object[2];
+        Instant stale;
+        try {
+            stale = StaleReads.during(() -> {
+                lists[0] = personneRepository.getPersonnes();
+                lists[1] = peripheriqueRepository.getPeripheriques();
+            });
+        } catch (RuntimeException e) {
+            log.info("Snapshot of the inventory not saved, the API could not be read: {}", e.getMessage());
+            return;
+        }
+        if (stale != null) {
+            log.info("Snapshot of the inventory not saved, the API answered from copies of {}", stale);
+            return;
+        }
+        @SuppressWarnings("unchecked")
+        List<Personne> personnes = (List<Personne>) lists[0];
+        @SuppressWarnings("unchecked")
+        List<Peripherique> peripheriques = (List<Peripherique>) lists[1];
+        Instant readAt = Instant.now();
+
+        try {
+            if (inventory != null && personnes == writtenPersonnes && peripheriques == writtenPeripheriques) {
+                SnapshotFile.touch(file(FILE), readAt);
+                inventory = inventory.readAgainAt(readAt);
+                return;
+            }
+            long generation = ThreadLocalRandom.current().nextLong();
+            SnapshotFile.write(file(FILE), generation, readAt, personnes, peripheriques);
+            if (journal == null) {
+                journal = SnapshotJournal.open(file(JOURNAL), null);
+            }
+            journal.reset(generation);
+            inventory = SnapshotFile.read(file(FILE));
+            writtenPersonnes = personnes;
+            writtenPeripheriques = peripheriques;
+            log.debug("Snapshot of the inventory written: {} personnes, {} peripheriques",
+                    personnes.size(), peripheriques.size());
+        } catch (IOException e) {
+            log.warn("Snapshot of the inventory not saved: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Reads from the API, or from the snapshot when the API fails to answer.
+     * @param api the read from the API (through the cache).
+     * @param local the same read from the snapshot, null if the snapshot does not have it.
+     * @param <T> the type of the result.
+     * @return the result of the API, or of the snapshot.
+     * @throws RuntimeException the failure of the API, if the snapshot could not answer instead,
+     * and any answer of the API, such as a 404.
+     */
+    public <T> T orElse(Supplier<T> api, Function<Inventory, T> local) {
+        try {
+            return api.get();
+        } catch (RuntimeException e) {
+            Inventory current = inventory;
+            if (current == null || !ApiResilience.isFailure(e)) {
+                throw e;
+            }
+            T result = local.apply(current);
+            if (result == null) {
+                throw e;
+            }
+            log.debug("Read from the snapshot of {}: {}", current.getReadAt(), e.getMessage());
+            StaleReads.record(current.getReadAt());
+            return result;
+        }
+    }
+
+    /**
+     * @return the snapshot, null if there is none yet.
+     */
+    public Inventory getInventory() {
+        return inventory;
+    }
+
+    /**
+     * Records a Personne created or updated by this application.
+     * @param personne the Personne, as saved by the API.
+     */
+    public void saved(Personne personne) {
+        change(SnapshotJournal.PERSONNE_SAVED, () -> SnapshotJournal.personneSaved(personne));
+    }
+
+    /**
+     * Records a Personne deleted by this application.
+     * @param id the ID of the Personne.
+     */
+    public void deletedPersonne(long id) {
+        change(SnapshotJournal.PERSONNE_DELETED, () -> SnapshotJournal.deleted(id));
+    }
+
+    /**
+     * Records a Peripherique created or updated by this application.
+     * @param peripherique the Peripherique, as saved by the API.
+     */
+    public void saved(Peripherique peripherique) {
+        change(SnapshotJournal.PERIPHERIQUE_SAVED, () -> SnapshotJournal.peripheriqueSaved(peripherique));
+    }
+
+    /**
+     * Records a Peripherique deleted by this application.
+     * @param id the ID of the Peripherique.
+     */
+    public void deletedPeripherique(long id) {
+        change(SnapshotJournal.PERIPHERIQUE_DELETED, () -> SnapshotJournal.deleted(id));
+    }
+
+    /**
+     * Records an assignment made by this application.
+     * @param id the ID of the Peripherique.
+     * @param personnes the IDs of its new holders.
+     */
+    public void affected(long id, String[] personnes) {
+        change(SnapshotJournal.PERIPHERIQUE_AFFECTED, () ->
+                SnapshotJournal.affected(id, Arrays.stream(personnes).mapToLong(Long::parseLong).toArray()));
+    }
+
+    // A change not recorded is only missing until the next write: the save that made it goes on
+    private synchronized void change(byte kind, Supplier<byte[]> payload) {
+        if (inventory == null || journal == null) {
+            return;
+        }
+        byte[] record = payload.get();
+        try {
+            journal.append(kind, record);
+        } catch (IOException e) {
+            log.warn("Change not recorded in the snapshot journal: {}", e.getMessage());
+            return;
+        }
+        inventory = SnapshotJournal.apply(inventory, kind, java.nio.ByteBuffer.wrap(record));
+    }
+
+    private Path file(String name) {
+        return props.getSnapshot().getDirectory().resolve(name);
+    }
+}
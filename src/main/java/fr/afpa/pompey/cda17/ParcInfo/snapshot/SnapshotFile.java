@@ -0,0 +1,208 @@
+package fr.afpa.pompey.cda17.ParcInfo.snapshot;
+
+import fr.afpa.pompey.cda17.ParcInfo.models.Appareil;
+import fr.afpa.pompey.cda17.ParcInfo.models.Peripherique;
+import fr.afpa.pompey.cda17.ParcInfo.models.Personne;
+import fr.afpa.pompey.cda17.ParcInfo.models.TypePeripherique;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.LongFunction;
+
+/**
+ * Binary file of the whole inventory, read through a memory-mapped buffer.
+ * <pre>
+ * int magic, int version, long generation, long readAt (epoch ms, rewritten in place by {@link #touch}),
+ * int count, count × Personne,
+ * int count, count × Peripherique
+ * </pre>
+ * A Personne is its ID, names, address, phone, birth date (epoch day) and the ID and label of its Appareil;
+ * a Peripherique is its ID, type, Appareil ID and label, and the IDs of its holders, which are
+ * the Personne of the file. Strings are UTF-8 prefixed by their length in bytes, -1 for null.
+ * The file is written beside, then moved over the previous one: a reader never sees half a file.
+ */
+final class SnapshotFile {
+
+    private static final int MAGIC = 0x50415243; // "PARC"
+
+    private static final int VERSION = 1;
+
+    // Position of readAt in the header
+    private static final int READ_AT = 16;
+
+    private SnapshotFile() {
+    }
+
+    static void write(Path file, long generation, Instant readAt, List<Personne> personnes,
+                      List<Peripherique> peripheriques) throws IOException {
+        Files.createDirectories(file.toAbsolutePath().getParent());
+        Path written = file.resolveSibling(file.getFileName() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(written), 1 << 16))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeLong(generation);
+            out.writeLong(readAt.toEpochMilli());
+            out.writeInt(personnes.size());
+            for (Personne personne : personnes) {
+                writePersonne(out, personne);
+            }
+            out.writeInt(peripheriques.size());
+            for (Peripherique peripherique : peripheriques) {
+                writePeripherique(out, peripherique);
+            }
+        }
+        try (FileChannel channel = FileChannel.open(written, StandardOpenOption.WRITE)) {
+            channel.force(true);
+        }
+        Files.move(written, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    static Inventory read(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            MappedByteBuffer in = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (in.remaining() < READ_AT + 8 || in.getInt() != MAGIC || in.getInt() != VERSION) {
+                throw new IOException(file + " is not a snapshot of version " + VERSION);
+            }
+            long generation = in.getLong();
+            Instant readAt = Instant.ofEpochMilli(in.getLong());
+
+            int personneCount = in.getInt();
+            Map<Long, Personne> personnes = new LinkedHashMap<>(personneCount * 4 / 3 + 1);
+            for (int i = 0; i < personneCount; i++) {
+                Personne personne = readPersonne(in);
+                personnes.put(personne.getId(), personne);
+            }
+            int peripheriqueCount = in.getInt();
+            Map<Long, Peripherique> peripheriques = new LinkedHashMap<>(peripheriqueCount * 4 / 3 + 1);
+            Inventory holders = new Inventory(generation, readAt, personnes, Map.of());
+            for (int i = 0; i < peripheriqueCount; i++) {
+                Peripherique peripherique = readPeripherique(in, holders::holder);
+                peripheriques.put(peripherique.getIdAppareil(), peripherique);
+            }
+            return new Inventory(generation, readAt, personnes, peripheriques);
+        } catch (RuntimeException e) {
+            // A truncated or corrupted file underflows the buffer or gives impossible lengths
+            throw new IOException(file + " is not readable: " + e, e);
+        }
+    }
+
+    /**
+     * Sets the time the inventory was read from the API, when it was read again unchanged,
+     * without writing the whole file again.
+     */
+    static void touch(Path file, Instant readAt) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            channel.write(ByteBuffer.allocate(8).putLong(0, readAt.toEpochMilli()), READ_AT);
+        }
+    }
+
+    static void writePersonne(DataOutputStream out, Personne personne) throws IOException {
+        out.writeLong(personne.getId());
+        writeString(out, personne.getNom());
+        writeString(out, personne.getPrenom());
+        writeString(out, personne.getAdresse());
+        writeString(out, personne.getTelephone());
+        out.writeLong(personne.getDateNaissance() == null ? Long.MIN_VALUE : personne.getDateNaissance().toEpochDay());
+        List<Appareil> appareils = personne.getAppareils() == null ? List.of() : personne.getAppareils();
+        out.writeInt(appareils.size());
+        for (Appareil appareil : appareils) {
+            out.writeLong(appareil.getId());
+            writeString(out, appareil.getLibelle());
+        }
+    }
+
+    static Personne readPersonne(ByteBuffer in) {
+        Personne personne = new Personne();
+        personne.setId(in.getLong());
+        personne.setNom(readString(in));
+        personne.setPrenom(readString(in));
+        personne.setAdresse(readString(in));
+        personne.setTelephone(readString(in));
+        long dateNaissance = in.getLong();
+        personne.setDateNaissance(dateNaissance == Long.MIN_VALUE ? null : LocalDate.ofEpochDay(dateNaissance));
+        int appareilCount = in.getInt();
+        List<Appareil> appareils = new ArrayList<>(appareilCount);
+        for (int i = 0; i < appareilCount; i++) {
+            Appareil appareil = new Appareil();
+            appareil.setId(in.getLong());
+            appareil.setLibelle(readString(in));
+            appareils.add(appareil);
+        }
+        personne.setAppareils(appareils);
+        return personne;
+    }
+
+    static void writePeripherique(DataOutputStream out, Peripherique peripherique) throws IOException {
+        out.writeLong(peripherique.getIdAppareil());
+        out.writeByte(peripherique.getType() == null ? -1 : peripherique.getType().ordinal());
+        Appareil appareil = peripherique.getAppareil();
+        out.writeBoolean(appareil != null);
+        if (appareil != null) {
+            out.writeLong(appareil.getId());
+            writeString(out, appareil.getLibelle());
+            List<Personne> proprietaires = appareil.getProprietaires() == null ? List.of() : appareil.getProprietaires();
+            out.writeInt(proprietaires.size());
+            for (Personne proprietaire : proprietaires) {
+                out.writeLong(proprietaire.getId());
+            }
+        }
+    }
+
+    /**
+     * @param holders the Personne of each holder ID.
+     */
+    static Peripherique readPeripherique(ByteBuffer in, LongFunction<Personne> holders) {
+        Peripherique peripherique = new Peripherique();
+        peripherique.setIdAppareil(in.getLong());
+        byte type = in.get();
+        peripherique.setType(type < 0 ? null : TypePeripherique.values()[type]);
+        if (in.get() != 0) {
+            Appareil appareil = new Appareil();
+            appareil.setId(in.getLong());
+            appareil.setLibelle(readString(in));
+            int holderCount = in.getInt();
+            List<Personne> proprietaires = new ArrayList<>(holderCount);
+            for (int i = 0; i < holderCount; i++) {
+                proprietaires.add(holders.apply(in.getLong()));
+            }
+            appareil.setProprietaires(proprietaires);
+            peripherique.setAppareil(appareil);
+        }
+        return peripherique;
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        if (value == null) {
+            out.writeInt(-1);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(ByteBuffer in) {
+        int length = in.getInt();
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        in.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
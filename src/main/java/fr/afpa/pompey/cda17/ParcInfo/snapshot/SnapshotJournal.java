@@ -0,0 +1,218 @@
+package fr.afpa.pompey.cda17.ParcInfo.snapshot;
+
+import fr.afpa.pompey.cda17.ParcInfo.models.Peripherique;
+import fr.afpa.pompey.cda17.ParcInfo.models.Personne;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32;
+
+/**
+ * Journal of the changes saved since the snapshot file was written, appended after each successful save
+ * so that the snapshot stays fresh without writing the whole inventory again.
+ * <pre>
+ * int magic, long generation of the snapshot file it follows,
+ * then records: byte kind, int length, length bytes, int CRC32 of the kind and bytes
+ * </pre>
+ * A journal that follows another generation is ignored; replaying stops at the first torn record
+ * (the last append of a crash), which is cut off before the next append.
+ */
+@Slf4j
+final class SnapshotJournal implements Closeable {
+
+    private static final int MAGIC = 0x4A524E4C; // "JRNL"
+
+    private static final int HEADER = 12;
+
+    static final byte PERSONNE_SAVED = 1;
+    static final byte PERSONNE_DELETED = 2;
+    static final byte PERIPHERIQUE_SAVED = 3;
+    static final byte PERIPHERIQUE_DELETED = 4;
+    static final byte PERIPHERIQUE_AFFECTED = 5;
+
+    private final Path file;
+
+    private final FileChannel channel;
+
+    private SnapshotJournal(Path file, FileChannel channel) {
+        this.file = file;
+        this.channel = channel;
+    }
+
+    /**
+     * Opens the journal that follows a snapshot file, and replays it on the inventory read from that file.
+     * @param file the journal.
+     * @param inventory the inventory of the snapshot file, null if there is none.
+     * @return the journal, positioned after its last whole record.
+     */
+    static SnapshotJournal open(Path file, Inventory inventory) throws IOException {
+        Files.createDirectories(file.toAbsolutePath().getParent());
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+        SnapshotJournal journal = new SnapshotJournal(file, channel);
+        if (inventory == null || !journal.follows(inventory.getGeneration())) {
+            journal.reset(inventory == null ? 0 : inventory.getGeneration());
+        }
+        return journal;
+    }
+
+    /**
+     * Empties the journal, which now follows a new snapshot file.
+     * @param generation the generation of the new snapshot file.
+     */
+    void reset(long generation) throws IOException {
+        channel.truncate(0);
+        ByteBuffer header = ByteBuffer.allocate(HEADER).putInt(MAGIC).putLong(generation).flip();
+        while (header.hasRemaining()) {
+            channel.write(header, header.position());
+        }
+        channel.position(HEADER);
+        channel.force(false);
+    }
+
+    /**
+     * Applies the whole records of the journal to an inventory, and cuts off a torn one.
+     * @param inventory the inventory of the snapshot file the journal follows.
+     * @return the inventory with the changes of the journal.
+     */
+    Inventory replay(Inventory inventory) throws IOException {
+        long size = channel.size();
+        ByteBuffer in = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+        in.position(HEADER);
+        int records = 0;
+        long end = HEADER;
+        while (in.remaining() >= 5) {
+            byte kind = in.get();
+            int length = in.getInt();
+            if (length < 0 || in.remaining() < length + 4) {
+                break;
+            }
+            ByteBuffer payload = in.slice(in.position(), length);
+            in.position(in.position() + length);
+            if (in.getInt() != crc(kind, payload.duplicate())) {
+                break;
+            }
+            inventory = apply(inventory, kind, payload);
+            records++;
+            end = in.position();
+        }
+        if (end < size) {
+            log.warn("Torn record at the end of {} cut off ({} bytes)", file, size - end);
+            channel.truncate(end);
+        }
+        channel.position(end);
+        log.debug("{} changes replayed from {}", records, file);
+        return inventory;
+    }
+
+    /**
+     * Appends a record, and forces it to the disk.
+     * @param kind the kind of change.
+     * @param payload its encoding.
+     */
+    void append(byte kind, byte[] payload) throws IOException {
+        ByteBuffer record = ByteBuffer.allocate(1 + 4 + payload.length + 4)
+                .put(kind)
+                .putInt(payload.length)
+                .put(payload)
+                .putInt(crc(kind, ByteBuffer.wrap(payload)))
+                .flip();
+        while (record.hasRemaining()) {
+            channel.write(record);
+        }
+        channel.force(false);
+    }
+
+    /**
+     * Applies one change to an inventory.
+     * @param inventory the inventory.
+     * @param kind the kind of change.
+     * @param payload its encoding.
+     * @return the changed inventory.
+     */
+    static Inventory apply(Inventory inventory, byte kind, ByteBuffer payload) {
+        return switch (kind) {
+            case PERSONNE_SAVED -> inventory.withPersonne(SnapshotFile.readPersonne(payload));
+            case PERSONNE_DELETED -> inventory.withoutPersonne(payload.getLong());
+            case PERIPHERIQUE_SAVED -> inventory.withPeripherique(SnapshotFile.readPeripherique(payload, inventory::holder));
+            case PERIPHERIQUE_DELETED -> inventory.withoutPeripherique(payload.getLong());
+            case PERIPHERIQUE_AFFECTED -> {
+                long id = payload.getLong();
+                long[] holders = new long[payload.getInt()];
+                for (int i = 0; i < holders.length; i++) {
+                    holders[i] = payload.getLong();
+                }
+                yield inventory.withAffectation(id, holders);
+            }
+            default -> throw new IllegalStateException("Unknown change " + kind + " in the snapshot journal");
+        };
+    }
+
+    static byte[] personneSaved(Personne personne) {
+        return encode(out -> SnapshotFile.writePersonne(out, personne));
+    }
+
+    static byte[] peripheriqueSaved(Peripherique peripherique) {
+        return encode(out -> SnapshotFile.writePeripherique(out, peripherique));
+    }
+
+    static byte[] deleted(long id) {
+        return ByteBuffer.allocate(8).putLong(id).array();
+    }
+
+    static byte[] affected(long id, long[] holders) {
+        ByteBuffer payload = ByteBuffer.allocate(8 + 4 + holders.length * 8).putLong(id).putInt(holders.length);
+        for (long holder : holders) {
+            payload.putLong(holder);
+        }
+        return payload.array();
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    private boolean follows(long generation) throws IOException {
+        if (channel.size() < HEADER) {
+            return false;
+        }
+        ByteBuffer header = ByteBuffer.allocate(HEADER);
+        while (header.hasRemaining() && channel.read(header, header.position()) > 0) {
+            // Read the whole header
+        }
+        header.flip();
+        return header.getInt() == MAGIC && header.getLong() == generation;
+    }
+
+    private static int crc(byte kind, ByteBuffer payload) {
+        CRC32 crc = new CRC32();
+        crc.update(kind);
+        crc.update(payload);
+        return (int) crc.getValue();
+    }
+
+    private static byte[] encode(Encoder encoder) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(256);
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            encoder.write(out);
+        } catch (IOException e) {
+            // Written to memory only
+            throw new UncheckedIOException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    private interface Encoder {
+        void write(DataOutputStream out) throws IOException;
+    }
+}
@@ -0,0 +1,215 @@
+package fr.afpa.pompey.cda17.ParcInfo.startup;
+
+import config.CustomProperties;
+import fr.afpa.pompey.cda17.ParcInfo.http.AsyncApiCalls;
+import fr.afpa.pompey.cda17.ParcInfo.models.Peripherique;
+import fr.afpa.pompey.cda17.ParcInfo.models.Personne;
+import fr.afpa.pompey.cda17.ParcInfo.repositories.PersonneRepository;
+import fr.afpa.pompey.cda17.ParcInfo.services.AppareilService;
+import fr.afpa.pompey.cda17.ParcInfo.services.PeripheriqueService;
+import fr.afpa.pompey.cda17.ParcInfo.services.PersonneService;
+import fr.afpa.pompey.cda17.ParcInfo.snapshot.InventorySnapshot;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.CommandLineRunner;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ApplicationContext;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Warms the application up at startup, so that the first users after a deploy do not pay for it:
+ * <ul>
+ *     <li>fills the caches, the indexes and the local snapshot with the data of the API;</li>
+ *     <li>opens warm-up.connections connections to the API, kept in the pool;</li>
+ *     <li>requests each of the warm-up.pages from the application itself, warm-up.iterations times:
+ *     the DispatcherServlet, the message converters and the templates are initialized, the templates
+ *     are parsed and cached, and the rendering and the model are compiled by the JIT.</li>
+ * </ul>
+ * The pages are requested rather than rendered by the TemplateEngine with synthetic data: their links
+ * need a request (context path, URLs fingerprinted by the resource chain), and a request also warms the
+ * filters, interceptors and view resolution the first user goes through. They are requested after the
+ * data is primed: the lists come from the caches, the other pages read their Personne or Peripherique once.
+ * <p>
+ * It runs with the other CommandLineRunners, before Spring Boot switches the readiness state to
+ * ACCEPTING_TRAFFIC: /actuator/health/readiness answers OUT_OF_SERVICE until the warm-up is done.
+ * A step that fails is logged and skipped; the application gets ready anyway, after warm-up.timeout at most.
+ * Without an embedded web server (tests with a mock environment), nothing is done.
+ */
+@Slf4j
+@Component
+public class WarmUp implements CommandLineRunner {
+
+    @Autowired
+    private CustomProperties props;
+
+    @Autowired
+    private ApplicationContext context;
+
+    @Autowired
+    private Environment environment;
+
+    @Autowired
+    private PersonneService personneService;
+
+    @Autowired
+    private PeripheriqueService peripheriqueService;
+
+    @Autowired
+    private AppareilService appareilService;
+
+    @Autowired
+    private PersonneRepository personneRepository;
+
+    @Autowired
+    private AsyncApiCalls asyncApiCalls;
+
+    @Autowired
+    private InventorySnapshot snapshot;
+
+    // Pages requested by the last warm-up, answered with an error
+    private volatile int requests;
+
+    private volatile int errors;
+
+    @Override
+    public void run(String... args) {
+        CustomProperties.WarmUp warmUp = props.getWarmUp();
+        if (!warmUp.isEnabled()) {
+            return;
+        }
+        if (!(context instanceof WebServerApplicationContext web) || web.getWebServer() == null) {
+            log.debug("No embedded web server: warm-up skipped");
+            return;
+        }
+        long start = System.nanoTime();
+        long deadline = start + warmUp.getTimeout().toNanos();
+
+        long[] ids = primeData();
+        openConnections(ids[0], warmUp.getConnections());
+        requestPages(web.getWebServer().getPort(), ids, warmUp, deadline);
+
+        log.info("Warm-up done in {} ms: {} pages requested, {} answered with an error",
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start), requests, errors);
+    }
+
+    /**
+     * @return the number of pages requested by the warm-up.
+     */
+    public int getRequests() {
+        return requests;
+    }
+
+    /**
+     * @return the number of pages answered with an error during the warm-up.
+     */
+    public int getErrors() {
+        return errors;
+    }
+
+    /**
+     * Reads the lists through the services, which caches them and builds the indexes,
+     * and writes the local snapshot if there is none yet.
+     * @return the ID of a Personne and of a Peripherique, 0 if there is none.
+     */
+    private long[] primeData() {
+        long[] ids = new long[2];
+        try {
+            Iterable<Personne> personnes = personneService.getPersonnes();
+            Iterator<Personne> personne = personnes.iterator();
+            ids[0] = personne.hasNext() ? personne.next().getId() : 0;
+            Iterator<Peripherique> peripherique = peripheriqueService.getPeripheriques().iterator();
+            ids[1] = peripherique.hasNext() ? peripherique.next().getIdAppareil() : 0;
+            appareilService.getAppareils();
+            personneService.searchPersonnes("a");
+            personneService.countEquipements(personnes);
+        } catch (RuntimeException e) {
+            log.warn("Warm-up: the data could not be read from the API: {}", e.getMessage());
+        }
+        if (snapshot.getInventory() == null) {
+            snapshot.save();
+        }
+        return ids;
+    }
+
+    /**
+     * Sends concurrent reads, so that the pool opens as many connections.
+     * @param id the ID of a Personne.
+     * @param connections the number of connections to open.
+     */
+    private void openConnections(long id, int connections) {
+        if (id == 0 || connections <= 0) {
+            return;
+        }
+        List<CompletableFuture<Personne>> calls = new ArrayList<>(connections);
+        for (int i = 0; i < connections; i++) {
+            calls.add(asyncApiCalls.supply(() -> personneRepository.getPersonne((int) id)));
+        }
+        try {
+            asyncApiCalls.joinAll(calls.toArray(CompletableFuture[]::new));
+        } catch (RuntimeException e) {
+            log.warn("Warm-up: the connections to the API could not be opened: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Requests the pages from the application itself, through the whole stack of Spring MVC.
+     */
+    private void requestPages(int port, long[] ids, CustomProperties.WarmUp warmUp, long deadline) {
+        String base = "http://localhost:" + port + environment.getProperty("server.servlet.context-path", "");
+        List<URI> pages = new ArrayList<>();
+        for (String page : warmUp.getPages()) {
+            if ((page.contains("{personne}") && ids[0] == 0) || (page.contains("{peripherique}") && ids[1] == 0)) {
+                continue;
+            }
+            pages.add(URI.create(base + page
+                    .replace("{personne}", Long.toString(ids[0]))
+                    .replace("{peripherique}", Long.toString(ids[1]))));
+        }
+
+        HttpClient client = HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(2)).build();
+        int requested = 0;
+        int failed = 0;
+        try {
+            for (int i = 0; i < warmUp.getIterations(); i++) {
+                for (URI page : pages) {
+                    long left = deadline - System.nanoTime();
+                    if (left <= 0) {
+                        log.warn("Warm-up stopped after {}", warmUp.getTimeout());
+                        return;
+                    }
+                    HttpResponse<Void> response = client.send(HttpRequest.newBuilder(page)
+                            .timeout(Duration.ofNanos(left))
+                            .build(), HttpResponse.BodyHandlers.discarding());
+                    requested++;
+                    if (response.statusCode() >= 400) {
+                        failed++;
+                        if (i == 0) {
+                            log.warn("Warm-up: {} answered {}", page.getPath(), response.statusCode());
+                        }
+                    }
+                }
+            }
+        } catch (IOException e) {
+            log.warn("Warm-up: the pages could not be requested: {}", e.getMessage());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            requests = requested;
+            errors = failed;
+            client.close();
+        }
+    }
+}
@@ -0,0 +1,330 @@
+package fr.afpa.pompey.cda17.ParcInfo.sync;
+
+import config.CustomProperties;
+import fr.afpa.pompey.cda17.ParcInfo.cache.InventoryVersion;
+import fr.afpa.pompey.cda17.ParcInfo.http.StaleReads;
+import fr.afpa.pompey.cda17.ParcInfo.models.Appareil;
+import fr.afpa.pompey.cda17.ParcInfo.models.Changes;
+import fr.afpa.pompey.cda17.ParcInfo.models.Peripherique;
+import fr.afpa.pompey.cda17.ParcInfo.models.Personne;
+import fr.afpa.pompey.cda17.ParcInfo.repositories.AppareilRepository;
+import fr.afpa.pompey.cda17.ParcInfo.repositories.ChangeFeedRepository;
+import fr.afpa.pompey.cda17.ParcInfo.repositories.PeripheriqueRepository;
+import fr.afpa.pompey.cda17.ParcInfo.repositories.PersonneRepository;
+import fr.afpa.pompey.cda17.ParcInfo.search.EquipementIndex;
+import fr.afpa.pompey.cda17.ParcInfo.search.PersonneIndex;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Local replica of the inventory (Personne, Appareil, Peripherique), kept up to date from the change feed
+ * of the API, so that the pages are read without any call to the API (fr.afpa.pompey.cda17.sync).
+ * <p>
+ * The whole inventory is read once; then, every sync.interval, only the changes made after the cursor of
+ * the last change applied are read ({@link ChangeFeedRepository}), by batches of sync.batch-size, and applied.
+ * When the API no longer keeps the changes after the cursor, the whole inventory is read again; the cursor
+ * is taken before the lists, so that the changes made while they are read are applied after.
+ * The changes made by this application are applied at once, and read again from the feed later.
+ * <p>
+ * The services read the replica first, and the API (or the local snapshot) only until the replica is
+ * first synchronized, or for an entity it does not know yet. A replica not synchronized for sync.max-lag
+ * is still read, as a {@link StaleReads stale read}: the page tells how old it is.
+ * <p>
+ * Published: parcinfo.sync.changes (entities changed), parcinfo.sync.resyncs, parcinfo.sync.failures
+ * and parcinfo.sync.lag (seconds since the last synchronization).
+ */
+@Slf4j
+@Component
+public class InventoryReplica {
+
+    @Autowired
+    private CustomProperties props;
+
+    @Autowired
+    private ChangeFeedRepository changeFeedRepository;
+
+    @Autowired
+    private PersonneRepository personneRepository;
+
+    @Autowired
+    private AppareilRepository appareilRepository;
+
+    @Autowired
+    private PeripheriqueRepository peripheriqueRepository;
+
+    @Autowired
+    private InventoryVersion version;
+
+    @Autowired
+    private PersonneIndex personneIndex;
+
+    @Autowired
+    private EquipementIndex equipementIndex;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    // Replaced under stateLock, so that a change made here is not lost by a batch applied at the same time
+    private volatile ReplicaState state;
+
+    private final Object stateLock = new Object();
+
+    // When the replica was last synchronized with the API
+    private volatile Instant syncedAt;
+
+    // Cursor of the last change applied, guarded by this
+    private long cursor;
+
+    private Counter changes;
+
+    private Counter resyncs;
+
+    private Counter failures;
+
+    @PostConstruct
+    void init() {
+        changes = meterRegistry.counter("parcinfo.sync.changes");
+        resyncs = meterRegistry.counter("parcinfo.sync.resyncs");
+        failures = meterRegistry.counter("parcinfo.sync.failures");
+        Gauge.builder("parcinfo.sync.lag", this, replica -> replica.syncedAt == null ? Double.NaN
+                        : Duration.between(replica.syncedAt, Instant.now()).toMillis() / 1000.0)
+                .baseUnit("seconds")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Reads the changes made since the last synchronization and applies them,
+     * or reads the whole inventory if the replica is empty or its cursor too old.
+     * On failure, the replica is left as it was, and read again at the next interval.
+     */
+    @Scheduled(fixedDelayString = "${fr.afpa.pompey.cda17.sync.interval:PT10S}")
+    public synchronized void sync() {
+        if (!props.getSync().isEnabled()) {
+            return;
+        }
+        try {
+            if (state == null || !poll()) {
+                resync();
+                poll();
+            }
+            syncedAt = Instant.now();
+        } catch (RuntimeException e) {
+            failures.increment();
+            log.warn("Replica of the inventory not synchronized: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Reads the whole inventory again.
+     * @throws IllegalStateException if the API answered from copies of its previous results.
+     */
+    private void resync() {
+        long head = changeFeedRepository.readCursor();
+        Object[] lists = new Object[3];
+        Instant stale = StaleReads.during(() -> {
+            lists[0] = personneRepository.getPersonnes();
+            lists[1] = appareilRepository.getAppareils();
+            lists[2] = peripheriqueRepository.getPeripheriques();
+        });
+        if (stale != null) {
+            throw new IllegalStateException("the API answered from copies of " + stale);
+        }
+        @SuppressWarnings("unchecked")
+        List<Personne> personnes = (List<Personne>) lists[0];
+        @SuppressWarnings("unchecked")
+        Iterable<Appareil> appareils = (Iterable<Appareil>) lists[1];
+        @SuppressWarnings("unchecked")
+        List<Peripherique> peripheriques = (List<Peripherique>) lists[2];
+        // The changes made here while the lists were read are read again from the feed
+        synchronized (stateLock) {
+            install(ReplicaState.of(personnes, appareils, peripheriques));
+        }
+        reindex();
+        cursor = head;
+        resyncs.increment();
+        log.info("Replica of the inventory read in full: {} personnes, {} peripheriques, cursor {}",
+                personnes.size(), peripheriques.size(), head);
+    }
+
+    /**
+     * Applies the changes made after the cursor, batch after batch.
+     * @return false if the API no longer keeps them: the whole inventory has to be read again.
+     */
+    private boolean poll() {
+        int batchSize = Math.max(props.getSync().getBatchSize(), 1);
+        Changes batch;
+        do {
+            batch = changeFeedRepository.readChanges(cursor, batchSize);
+            if (batch == null) {
+                log.info("Changes after cursor {} no longer kept by the API: the replica is read in full", cursor);
+                return false;
+            }
+            if (batch.size() > 0) {
+                synchronized (stateLock) {
+                    install(state.apply(batch));
+                }
+                reindex();
+                changes.increment(batch.size());
+                log.debug("{} changes applied to the replica, cursor {}", batch.size(), batch.getCursor());
+            }
+            cursor = batch.getCursor();
+        } while (batch.isMore());
+        return true;
+    }
+
+    private void install(ReplicaState fresh) {
+        state = fresh;
+        version.changed();
+    }
+
+    // Rebuilt from the replica, if they are in use; the services update them on the changes made here
+    private void reindex() {
+        personneIndex.refreshIfUsed();
+        equipementIndex.refreshIfUsed();
+    }
+
+    /**
+     * @return all the Personne, shared: not to be modified; null if the replica is not synchronized.
+     */
+    public List<Personne> personnes() {
+        ReplicaState current = read();
+        return current != null ? current.personnes() : null;
+    }
+
+    /**
+     * @return all the Appareil, shared: not to be modified; null if the replica is not synchronized.
+     */
+    public List<Appareil> appareils() {
+        ReplicaState current = read();
+        return current != null ? current.appareils() : null;
+    }
+
+    /**
+     * @return all the Peripherique, shared: not to be modified; null if the replica is not synchronized.
+     */
+    public List<Peripherique> peripheriques() {
+        ReplicaState current = read();
+        return current != null ? current.peripheriques() : null;
+    }
+
+    /**
+     * @param id the ID of a Personne.
+     * @return a copy of the Personne, that the caller may modify; null if the replica does not know it.
+     */
+    public Personne personne(long id) {
+        ReplicaState current = read();
+        return current != null ? current.personne(id) : null;
+    }
+
+    /**
+     * @param id the ID of a Peripherique.
+     * @return a copy of the Peripherique, that the caller may modify; null if the replica does not know it.
+     */
+    public Peripherique peripherique(long id) {
+        ReplicaState current = read();
+        return current != null ? current.peripherique(id) : null;
+    }
+
+    /**
+     * Records a Personne created or updated by this application.
+     * @param personne the Personne, as saved by the API.
+     */
+    public void saved(Personne personne) {
+        Changes change = new Changes();
+        change.getPersonnes().add(personne);
+        applyLocal(change);
+    }
+
+    /**
+     * Records a Personne deleted by this application.
+     * @param id the ID of the Personne.
+     */
+    public void deletedPersonne(long id) {
+        Changes change = new Changes();
+        change.getDeletedPersonnes().add(id);
+        applyLocal(change);
+    }
+
+    /**
+     * Records a Peripherique created or updated by this application.
+     * @param peripherique the Peripherique, as saved by the API.
+     */
+    public void saved(Peripherique peripherique) {
+        Changes change = new Changes();
+        change.getPeripheriques().add(peripherique);
+        if (peripherique.getAppareil() != null) {
+            change.getAppareils().add(peripherique.getAppareil());
+        }
+        applyLocal(change);
+    }
+
+    /**
+     * Records a Peripherique deleted by this application.
+     * @param id the ID of the Peripherique.
+     */
+    public void deletedPeripherique(long id) {
+        Changes change = new Changes();
+        change.getDeletedPeripheriques().add(id);
+        change.getDeletedAppareils().add(id);
+        applyLocal(change);
+    }
+
+    /**
+     * Records an assignment made by this application.
+     * @param id the ID of the Peripherique.
+     * @param personnes the IDs of its new holders.
+     */
+    public void affected(long id, String[] personnes) {
+        synchronized (stateLock) {
+            ReplicaState current = state;
+            Peripherique peripherique = current != null ? current.peripherique(id) : null;
+            if (peripherique == null || peripherique.getAppareil() == null) {
+                return;
+            }
+            List<Personne> holders = new ArrayList<>(personnes.length);
+            for (String personne : personnes) {
+                if (!personne.isBlank()) {
+                    holders.add(current.holder(Long.parseLong(personne)));
+                }
+            }
+            Changes change = new Changes();
+            change.getAppareils().add(ReplicaState.withProprietaires(peripherique.getAppareil(), holders));
+            applyLocal(change);
+        }
+    }
+
+    // Applied without moving the cursor: the feed gives the same change again, which changes nothing
+    private void applyLocal(Changes change) {
+        synchronized (stateLock) {
+            if (state != null) {
+                install(state.apply(change));
+            }
+        }
+    }
+
+    /**
+     * @return the state to read, null if the replica is disabled or not synchronized yet.
+     */
+    private ReplicaState read() {
+        ReplicaState current = state;
+        if (current == null || !props.getSync().isEnabled()) {
+            return null;
+        }
+        Instant synced = syncedAt;
+        if (synced != null && synced.isBefore(Instant.now().minus(props.getSync().getMaxLag()))) {
+            StaleReads.record(synced);
+        }
+        return current;
+    }
+}
@@ -0,0 +1,199 @@
+package fr.afpa.pompey.cda17.ParcInfo.sync;
+
+import fr.afpa.pompey.cda17.ParcInfo.models.Appareil;
+import fr.afpa.pompey.cda17.ParcInfo.models.Changes;
+import fr.afpa.pompey.cda17.ParcInfo.models.Peripherique;
+import fr.afpa.pompey.cda17.ParcInfo.models.Personne;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+
+/**
+ * One state of the replica: all the Personne, Appareil and Peripherique, in the order of the API.
+ * It is never modified: applying changes gives a new state, sharing the entities left unchanged,
+ * so that the pages can read a state while the next one is built. The holders of the Appareil
+ * are the Personne of the state: a Personne changed or deleted is replaced or removed in them,
+ * in copies of the Appareil and Peripherique concerned.
+ */
+final class ReplicaState {
+
+    private final Map<Long, Personne> personnes;
+
+    private final Map<Long, Appareil> appareils;
+
+    private final Map<Long, Peripherique> peripheriques;
+
+    private final List<Personne> personneList;
+
+    private final List<Appareil> appareilList;
+
+    private final List<Peripherique> peripheriqueList;
+
+    private ReplicaState(Map<Long, Personne> personnes, Map<Long, Appareil> appareils,
+                         Map<Long, Peripherique> peripheriques) {
+        this.personnes = personnes;
+        this.appareils = appareils;
+        this.peripheriques = peripheriques;
+        this.personneList = List.copyOf(personnes.values());
+        this.appareilList = List.copyOf(appareils.values());
+        this.peripheriqueList = List.copyOf(peripheriques.values());
+    }
+
+    /**
+     * @return a state holding the whole inventory, as read from the API.
+     */
+    static ReplicaState of(Iterable<Personne> personnes, Iterable<Appareil> appareils,
+                           Iterable<Peripherique> peripheriques) {
+        return new ReplicaState(byId(personnes, Personne::getId), byId(appareils, Appareil::getId),
+                byId(peripheriques, Peripherique::getIdAppareil));
+    }
+
+    List<Personne> personnes() {
+        return personneList;
+    }
+
+    List<Appareil> appareils() {
+        return appareilList;
+    }
+
+    List<Peripherique> peripheriques() {
+        return peripheriqueList;
+    }
+
+    /**
+     * @param id the ID of a Personne.
+     * @return a copy of the Personne, that the caller may modify; null if unknown.
+     */
+    Personne personne(long id) {
+        Personne personne = personnes.get(id);
+        if (personne == null) {
+            return null;
+        }
+        Personne copy = new Personne();
+        copy.setId(personne.getId());
+        copy.setNom(personne.getNom());
+        copy.setPrenom(personne.getPrenom());
+        copy.setAdresse(personne.getAdresse());
+        copy.setTelephone(personne.getTelephone());
+        copy.setDateNaissance(personne.getDateNaissance());
+        if (personne.getAppareils() != null) {
+            copy.setAppareils(new ArrayList<>(personne.getAppareils()));
+        }
+        return copy;
+    }
+
+    /**
+     * @param id the ID of a Peripherique.
+     * @return a copy of the Peripherique and of its Appareil, that the caller may modify; null if unknown.
+     */
+    Peripherique peripherique(long id) {
+        Peripherique peripherique = peripheriques.get(id);
+        if (peripherique == null) {
+            return null;
+        }
+        Appareil appareil = peripherique.getAppareil();
+        return withAppareil(peripherique, appareil == null ? null
+                : withProprietaires(appareil, new ArrayList<>(appareil.getProprietaires())));
+    }
+
+    /**
+     * @param id the ID of a Personne.
+     * @return the Personne of the state, or one holding only the ID if it is unknown.
+     */
+    Personne holder(long id) {
+        Personne personne = personnes.get(id);
+        if (personne == null) {
+            personne = new Personne();
+            personne.setId(id);
+        }
+        return personne;
+    }
+
+    /**
+     * @param changes the changes to apply, each entity as it is after them.
+     * @return the new state.
+     */
+    ReplicaState apply(Changes changes) {
+        Map<Long, Personne> personnes = new LinkedHashMap<>(this.personnes);
+        changes.getPersonnes().forEach(personne -> personnes.put(personne.getId(), personne));
+        changes.getDeletedPersonnes().forEach(personnes::remove);
+
+        // Holders to replace or remove in the Appareil
+        Set<Long> holders = new HashSet<>(changes.getDeletedPersonnes());
+        changes.getPersonnes().forEach(personne -> holders.add(personne.getId()));
+
+        Map<Long, Appareil> appareils = new LinkedHashMap<>(this.appareils);
+        changes.getAppareils().forEach(appareil -> appareils.put(appareil.getId(), appareil));
+        changes.getDeletedAppareils().forEach(appareils::remove);
+        if (!holders.isEmpty()) {
+            appareils.replaceAll((id, appareil) -> relinked(appareil, holders, personnes));
+        }
+
+        Map<Long, Peripherique> peripheriques = new LinkedHashMap<>(this.peripheriques);
+        changes.getPeripheriques().forEach(peripherique ->
+                peripheriques.put(peripherique.getIdAppareil(), peripherique));
+        changes.getDeletedPeripheriques().forEach(peripheriques::remove);
+        Map<Long, Appareil> changedAppareils = new HashMap<>();
+        changes.getAppareils().forEach(appareil -> changedAppareils.put(appareil.getId(), appareil));
+        peripheriques.replaceAll((id, peripherique) -> {
+            Appareil appareil = peripherique.getAppareil();
+            if (appareil == null) {
+                return peripherique;
+            }
+            // An Appareil changed alone (e.g. assigned) is the one of its Peripherique
+            Appareil changed = changedAppareils.get(appareil.getId());
+            Appareil relinked = relinked(changed != null ? changed : appareil, holders, personnes);
+            return relinked == appareil ? peripherique : withAppareil(peripherique, relinked);
+        });
+        return new ReplicaState(personnes, appareils, peripheriques);
+    }
+
+    /**
+     * @return the Appareil, or a copy whose holders are the current Personne if some of them changed.
+     */
+    private static Appareil relinked(Appareil appareil, Set<Long> holders, Map<Long, Personne> personnes) {
+        List<Personne> proprietaires = appareil.getProprietaires();
+        if (proprietaires == null || proprietaires.stream().noneMatch(holder -> holders.contains(holder.getId()))) {
+            return appareil;
+        }
+        List<Personne> relinked = new ArrayList<>(proprietaires.size());
+        for (Personne holder : proprietaires) {
+            if (!holders.contains(holder.getId())) {
+                relinked.add(holder);
+            } else if (personnes.containsKey(holder.getId())) {
+                relinked.add(personnes.get(holder.getId()));
+            }
+        }
+        return withProprietaires(appareil, relinked);
+    }
+
+    static Appareil withProprietaires(Appareil appareil, List<Personne> proprietaires) {
+        Appareil copy = new Appareil();
+        copy.setId(appareil.getId());
+        copy.setLibelle(appareil.getLibelle());
+        copy.setProprietaires(proprietaires);
+        return copy;
+    }
+
+    static Peripherique withAppareil(Peripherique peripherique, Appareil appareil) {
+        Peripherique copy = new Peripherique();
+        copy.setIdAppareil(peripherique.getIdAppareil());
+        copy.setType(peripherique.getType());
+        copy.setAppareil(appareil);
+        return copy;
+    }
+
+    private static <T> Map<Long, T> byId(Iterable<T> entities, Function<T, Long> id) {
+        Map<Long, T> byId = new LinkedHashMap<>();
+        if (entities != null) {
+            entities.forEach(entity -> byId.put(id.apply(entity), entity));
+        }
+        return byId;
+    }
+}
@@ -0,0 +1,76 @@
+package fr.afpa.pompey.cda17.ParcInfo.views;
+
+import jakarta.servlet.http.HttpServletResponse;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Iterator;
+import java.util.stream.Stream;
+
+/**
+ * Rows fed lazily to a th:each, for templates rendered while their data is still being read.
+ * Every chunkSize rows the response is flushed, so the browser receives the first rows
+ * before the last ones are even parsed. Thymeleaf does not know the size of a plain Iterable
+ * and pulls the rows one by one, so no row is kept once it has been written.
+ * It can be iterated only once.
+ * @param <T> the type of the rows.
+ */
+public final class ChunkedRows<T> implements Iterable<T> {
+
+    private final Stream<T> rows;
+
+    private final HttpServletResponse response;
+
+    private final int chunkSize;
+
+    private long count;
+
+    private boolean iterated;
+
+    public ChunkedRows(Stream<T> rows, HttpServletResponse response, int chunkSize) {
+        this.rows = rows;
+        this.response = response;
+        this.chunkSize = Math.max(chunkSize, 1);
+    }
+
+    @Override
+    public Iterator<T> iterator() {
+        if (iterated) {
+            throw new IllegalStateException("The rows have already been rendered");
+        }
+        iterated = true;
+        Iterator<T> source = rows.iterator();
+
+        return new Iterator<>() {
+            @Override
+            public boolean hasNext() {
+                return source.hasNext();
+            }
+
+            @Override
+            public T next() {
+                T row = source.next();
+                if (++count % chunkSize == 0) {
+                    flush();
+                }
+                return row;
+            }
+        };
+    }
+
+    /**
+     * @return the number of rows rendered so far, the total once the th:each is done.
+     */
+    public long getCount() {
+        return count;
+    }
+
+    private void flush() {
+        try {
+            response.flushBuffer();
+        } catch (IOException e) {
+            // The browser went away: stop reading the API.
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -0,0 +1,144 @@
+package fr.afpa.pompey.cda17.ParcInfo.views;
+
+import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.core.io.AbstractResource;
+import org.springframework.core.io.Resource;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.web.servlet.resource.HttpResource;
+import org.springframework.web.servlet.resource.ResourceResolverChain;
+import org.springframework.web.servlet.resource.VersionResourceResolver;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.net.URL;
+import java.nio.channels.ReadableByteChannel;
+import java.util.List;
+
+/**
+ * Resolves the assets by their fingerprinted URLs (/css/parcinfo.min-3f2a….css), with a hash of their content,
+ * and only those are sent with the given Cache-Control: a new version has a new URL, so the browsers can keep
+ * them for good. An asset requested by its plain URL (/css/parcinfo.min.css) keeps the Cache-Control of the
+ * resource handler, as its content changes with each deploy.
+ */
+public class FingerprintedAssetResolver extends VersionResourceResolver {
+
+    private final CacheControl cacheControl;
+
+    /**
+     * @param cacheControl the Cache-Control of the assets requested by a fingerprinted URL.
+     */
+    public FingerprintedAssetResolver(CacheControl cacheControl) {
+        this.cacheControl = cacheControl;
+        addContentVersionStrategy("/**");
+    }
+
+    @Override
+    protected Resource resolveResourceInternal(HttpServletRequest request, String requestPath,
+                                               List<? extends Resource> locations, ResourceResolverChain chain) {
+        Resource plain = chain.resolveResource(request, requestPath, locations);
+        if (plain != null) {
+            return plain;
+        }
+        Resource fingerprinted = super.resolveResourceInternal(request, requestPath, locations, chain);
+        return fingerprinted != null ? new FingerprintedResource(fingerprinted, cacheControl) : null;
+    }
+
+    /**
+     * An asset resolved by its fingerprinted URL: the headers of the resource handler are replaced by
+     * its response headers, the Cache-Control included. The .br or .gz variant is looked up next to it.
+     */
+    private static class FingerprintedResource extends AbstractResource implements HttpResource {
+
+        private final Resource original;
+
+        private final CacheControl cacheControl;
+
+        FingerprintedResource(Resource original, CacheControl cacheControl) {
+            this.original = original;
+            this.cacheControl = cacheControl;
+        }
+
+        @Override
+        public HttpHeaders getResponseHeaders() {
+            HttpHeaders headers = new HttpHeaders();
+            if (original instanceof HttpResource resource) {
+                headers.putAll(resource.getResponseHeaders());
+            }
+            headers.setCacheControl(cacheControl);
+            return headers;
+        }
+
+        @Override
+        public boolean exists() {
+            return original.exists();
+        }
+
+        @Override
+        public boolean isReadable() {
+            return original.isReadable();
+        }
+
+        @Override
+        public boolean isOpen() {
+            return original.isOpen();
+        }
+
+        @Override
+        public boolean isFile() {
+            return original.isFile();
+        }
+
+        @Override
+        public URL getURL() throws IOException {
+            return original.getURL();
+        }
+
+        @Override
+        public URI getURI() throws IOException {
+            return original.getURI();
+        }
+
+        @Override
+        public File getFile() throws IOException {
+            return original.getFile();
+        }
+
+        @Override
+        public InputStream getInputStream() throws IOException {
+            return original.getInputStream();
+        }
+
+        @Override
+        public ReadableByteChannel readableChannel() throws IOException {
+            return original.readableChannel();
+        }
+
+        @Override
+        public long contentLength() throws IOException {
+            return original.contentLength();
+        }
+
+        @Override
+        public long lastModified() throws IOException {
+            return original.lastModified();
+        }
+
+        @Override
+        public Resource createRelative(String relativePath) throws IOException {
+            return original.createRelative(relativePath);
+        }
+
+        @Override
+        public String getFilename() {
+            return original.getFilename();
+        }
+
+        @Override
+        public String getDescription() {
+            return original.getDescription();
+        }
+    }
+}
@@ -0,0 +1,169 @@
+package fr.afpa.pompey.cda17.ParcInfo.views;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import config.CustomProperties;
+import fr.afpa.pompey.cda17.ParcInfo.cache.InventoryVersion;
+import fr.afpa.pompey.cda17.ParcInfo.http.StaleReads;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import jakarta.annotation.PostConstruct;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.context.request.ServletWebRequest;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.servlet.HandlerInterceptor;
+import org.springframework.web.servlet.ModelAndView;
+import org.springframework.web.servlet.support.RequestContextUtils;
+import org.springframework.web.servlet.view.RedirectView;
+import org.springframework.web.util.ContentCachingResponseWrapper;
+
+import java.io.IOException;
+import java.util.Map;
+
+/**
+ * Conditional GETs and reuse of the rendered HTML of the list pages.
+ * <p>
+ * The ETag of a page is the {@link InventoryVersion} read before the controller reads the data of the page.
+ * When the version changed meanwhile (a write, or a read finding a change of another client), the data
+ * of the page may be older or newer than either version: the page is rendered without ETag, and not kept.
+ * A browser sending the ETag back
+ * in If-None-Match gets a 304, without rendering. Otherwise the HTML rendered for the same version and URL
+ * (header and footer included) is sent again as is, to any client; only a miss renders the template,
+ * and {@link #capture()} keeps its HTML.
+ * Each create, update, delete or assignment changes the version: the pages rendered before are not
+ * reused, and age out of the cache.
+ * <p>
+ * Pages showing an alert (flash attributes) or built from copies of the API data (their banner tells
+ * the age of the data) are always rendered.
+ */
+@Component
+public class ListPageCache implements HandlerInterceptor, MeterBinder {
+
+    // Version of the inventory when the request came, before any data of the page is read
+    private static final String VERSION = ListPageCache.class.getName() + ".VERSION";
+
+    // Key of the rendered HTML to keep, set for the capture filter on a miss
+    private static final String KEY = ListPageCache.class.getName() + ".KEY";
+
+    private static final String CACHE_CONTROL = CacheControl.noCache().cachePrivate().getHeaderValue();
+
+    @Autowired
+    private InventoryVersion version;
+
+    @Autowired
+    private CustomProperties props;
+
+    // Rendered HTML, by ETag and URL
+    private Cache<String, byte[]> rendered;
+
+    private Counter notModified;
+
+    private Counter hits;
+
+    private Counter misses;
+
+    @PostConstruct
+    void init() {
+        rendered = Caffeine.newBuilder()
+                .maximumSize(props.getCache().getMaxRenderedPages())
+                .recordStats()
+                .build();
+    }
+
+    /**
+     * Bound by Spring Boot once the registry is built: WebConfig, which registers this interceptor,
+     * is needed before it.
+     * @param registry the registry of the application.
+     */
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        // Its size and hit ratio are published as the "views.rendered" cache
+        CaffeineCacheMetrics.monitor(registry, rendered, "views.rendered");
+        notModified = registry.counter("parcinfo.view.cache", "result", "not_modified");
+        hits = registry.counter("parcinfo.view.cache", "result", "hit");
+        misses = registry.counter("parcinfo.view.cache", "result", "miss");
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        request.setAttribute(VERSION, version.current());
+        return true;
+    }
+
+    @Override
+    public void postHandle(HttpServletRequest request, HttpServletResponse response, Object handler,
+                           ModelAndView modelAndView) throws IOException {
+        if (modelAndView == null || !HttpMethod.GET.matches(request.getMethod()) || isRedirect(modelAndView)
+                || hasAlert(request) || StaleReads.oldest(request) != null) {
+            return;
+        }
+        response.setHeader(HttpHeaders.CACHE_CONTROL, CACHE_CONTROL);
+        String current = version.current();
+        if (!current.equals(request.getAttribute(VERSION))) {
+            return;
+        }
+        String etag = "W/\"" + current + '"';
+        if (new ServletWebRequest(request, response).checkNotModified(etag)) {
+            // 304, with the ETag: nothing to render
+            modelAndView.clear();
+            notModified.increment();
+            return;
+        }
+
+        String key = etag + ' ' + request.getRequestURI() + '?' + request.getQueryString();
+        byte[] html = rendered.getIfPresent(key);
+        if (html != null) {
+            response.setContentType(MediaType.TEXT_HTML_VALUE + ";charset=UTF-8");
+            response.setContentLength(html.length);
+            response.getOutputStream().write(html);
+            modelAndView.clear();
+            hits.increment();
+            return;
+        }
+        misses.increment();
+        request.setAttribute(KEY, key);
+    }
+
+    /**
+     * @return the filter keeping the HTML of the list pages rendered on a miss, to be mapped to their URLs.
+     */
+    public OncePerRequestFilter capture() {
+        return new OncePerRequestFilter() {
+            @Override
+            protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response,
+                                            FilterChain chain) throws ServletException, IOException {
+                ContentCachingResponseWrapper wrapper = new ContentCachingResponseWrapper(response);
+                try {
+                    chain.doFilter(request, wrapper);
+                    if (request.getAttribute(KEY) instanceof String key
+                            && wrapper.getStatus() == HttpServletResponse.SC_OK) {
+                        rendered.put(key, wrapper.getContentAsByteArray());
+                    }
+                } finally {
+                    wrapper.copyBodyToResponse();
+                }
+            }
+        };
+    }
+
+    private static boolean hasAlert(HttpServletRequest request) {
+        Map<String, ?> flash = RequestContextUtils.getInputFlashMap(request);
+        return flash != null && !flash.isEmpty();
+    }
+
+    private static boolean isRedirect(ModelAndView modelAndView) {
+        String name = modelAndView.getViewName();
+        return name != null ? name.startsWith("redirect:") : modelAndView.getView() instanceof RedirectView;
+    }
+}
@@ -0,0 +1,57 @@
+package fr.afpa.pompey.cda17.ParcInfo.views;
+
+import fr.afpa.pompey.cda17.ParcInfo.http.StaleReads;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.HandlerInterceptor;
+import org.springframework.web.servlet.ModelAndView;
+import org.springframework.web.servlet.view.RedirectView;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+
+/**
+ * Tells the pages built from copies of the API data (last known good results, local snapshot)
+ * how old those copies are: staleSince and staleAge, shown by the header.
+ */
+@Component
+public class StaleDataBanner implements HandlerInterceptor {
+
+    private static final DateTimeFormatter SINCE = DateTimeFormatter.ofPattern("dd/MM/yyyy 'à' HH:mm");
+
+    @Override
+    public void postHandle(HttpServletRequest request, HttpServletResponse response, Object handler,
+                           ModelAndView modelAndView) {
+        Instant oldest = StaleReads.oldest(request);
+        if (oldest == null || modelAndView == null || isRedirect(modelAndView)) {
+            return;
+        }
+        modelAndView.addObject("staleSince", SINCE.format(oldest.atZone(ZoneId.systemDefault())));
+        modelAndView.addObject("staleAge", age(Duration.between(oldest, Instant.now())));
+    }
+
+    /**
+     * @param age the age of the data.
+     * @return the age in French, to the minute: "moins d’une minute", "12 min", "3 h 05", "2 j".
+     */
+    static String age(Duration age) {
+        if (age.toMinutes() < 1) {
+            return "moins d’une minute";
+        }
+        if (age.toHours() < 1) {
+            return age.toMinutes() + " min";
+        }
+        if (age.toDays() < 1) {
+            return String.format("%d h %02d", age.toHours(), age.toMinutesPart());
+        }
+        return age.toDays() + " j";
+    }
+
+    private static boolean isRedirect(ModelAndView modelAndView) {
+        String name = modelAndView.getViewName();
+        return name != null ? name.startsWith("redirect:") : modelAndView.getView() instanceof RedirectView;
+    }
+}
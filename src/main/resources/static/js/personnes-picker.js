@@ -0,0 +1,106 @@
+// Typeahead of the persons on the assignment forms (fragments/personnes-picker.html).
+// Each keystroke cancels the previous search, and the searches start only once typing pauses.
+document.querySelectorAll('.personnes-picker').forEach((picker) => {
+  const url = picker.dataset.searchUrl;
+  const closeIcon = picker.dataset.closeIcon;
+  const input = picker.querySelector('input[type="search"]');
+  const suggestions = picker.querySelector('ul.suggestions');
+  const selected = picker.querySelector('ul.selected');
+  let timer;
+  let pending;
+
+  function isSelected(id) {
+    return selected.querySelector('input[value="' + id + '"]') !== null;
+  }
+
+  function select(personne) {
+    if (!isSelected(personne.id)) {
+      const item = document.createElement('li');
+      const hidden = document.createElement('input');
+      hidden.type = 'hidden';
+      hidden.name = 'personnes';
+      hidden.value = personne.id;
+      const label = document.createElement('span');
+      label.textContent = personne.prenom + ' ' + personne.nom;
+      const remove = document.createElement('button');
+      remove.type = 'button';
+      remove.title = 'Retirer';
+      remove.innerHTML = '<svg class="icon" aria-hidden="true"><use href="' + closeIcon + '"></use></svg>';
+      item.append(hidden, label, remove);
+      selected.append(item);
+    }
+    input.value = '';
+    suggestions.replaceChildren();
+    input.focus();
+  }
+
+  function show(personnes) {
+    suggestions.replaceChildren(...personnes
+      .filter((personne) => !isSelected(personne.id))
+      .map((personne, index) => {
+        const item = document.createElement('li');
+        item.setAttribute('role', 'option');
+        item.textContent = personne.prenom + ' ' + personne.nom + ' - ' + (personne.telephone || '');
+        item.classList.toggle('active', index === 0);
+        item.addEventListener('mousedown', (event) => {
+          event.preventDefault();
+          select(personne);
+        });
+        item.personne = personne;
+        return item;
+      }));
+  }
+
+  function search() {
+    if (pending) {
+      pending.abort();
+    }
+    const query = input.value.trim();
+    if (query === '') {
+      suggestions.replaceChildren();
+      return;
+    }
+    pending = new AbortController();
+    // The holders already chosen are left out by the server, so that they do not take the place of others
+    const params = new URLSearchParams({q: query});
+    selected.querySelectorAll('input[name="personnes"]').forEach((hidden) => params.append('exclude', hidden.value));
+    fetch(url + '?' + params, {signal: pending.signal, headers: {Accept: 'application/json'}})
+      .then((response) => response.ok ? response.json() : [])
+      .then(show)
+      .catch((error) => {
+        if (error.name !== 'AbortError') {
+          suggestions.replaceChildren();
+        }
+      });
+  }
+
+  input.addEventListener('input', () => {
+    clearTimeout(timer);
+    timer = setTimeout(search, 120);
+  });
+
+  input.addEventListener('keydown', (event) => {
+    const items = Array.from(suggestions.children);
+    const active = items.findIndex((item) => item.classList.contains('active'));
+    if (event.key === 'ArrowDown' || event.key === 'ArrowUp') {
+      event.preventDefault();
+      if (items.length > 0) {
+        const next = (active + (event.key === 'ArrowDown' ? 1 : items.length - 1)) % items.length;
+        items.forEach((item, index) => item.classList.toggle('active', index === next));
+      }
+    } else if (event.key === 'Enter') {
+      // Choose the highlighted person instead of submitting the form
+      event.preventDefault();
+      if (active >= 0) {
+        select(items[active].personne);
+      }
+    }
+  });
+
+  selected.addEventListener('click', (event) => {
+    const remove = event.target.closest('button');
+    if (remove) {
+      remove.closest('li').remove();
+    }
+  });
+});
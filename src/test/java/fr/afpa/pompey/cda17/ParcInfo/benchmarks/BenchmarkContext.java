@@ -0,0 +1,63 @@
+package fr.afpa.pompey.cda17.ParcInfo.benchmarks;
+
+import fr.afpa.pompey.cda17.ParcInfo.ParcInfoApplication;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Starts the application context, with or without web server, for the benchmarks
+ * that need the real beans (repositories, services, caches...).
+ */
+final class BenchmarkContext {
+
+    private BenchmarkContext() {
+    }
+
+    /**
+     * @param apiUrl the URL of the API, usually a StubApiServer.
+     * @param properties additional properties, as "key=value".
+     * @return the started context, to be closed in the benchmark tear down.
+     */
+    static ConfigurableApplicationContext start(String apiUrl, String... properties) {
+        return start(WebApplicationType.NONE, apiUrl, properties);
+    }
+
+    /**
+     * Same as {@link #start(String, String...)}, with the Tomcat server listening on a random port.
+     * @param apiUrl the URL of the API, usually a StubApiServer.
+     * @param properties additional properties, as "key=value".
+     * @return the started context; its port is given by {@link #port(ConfigurableApplicationContext)}.
+     */
+    static ConfigurableApplicationContext startWeb(String apiUrl, String... properties) {
+        List<String> all = new ArrayList<>(Arrays.asList(properties));
+        all.add("server.port=0");
+        return start(WebApplicationType.SERVLET, apiUrl, all.toArray(String[]::new));
+    }
+
+    /**
+     * @param context a context started by {@link #startWeb(String, String...)}.
+     * @return the port of its web server.
+     */
+    static int port(ConfigurableApplicationContext context) {
+        return context.getEnvironment().getRequiredProperty("local.server.port", Integer.class);
+    }
+
+    private static ConfigurableApplicationContext start(WebApplicationType type, String apiUrl, String... properties) {
+        // The benchmarks warm up by themselves, and leave no snapshot behind; a benchmark may still turn them on
+        List<String> all = new ArrayList<>(List.of("fr.afpa.pompey.cda17.warm-up.enabled=false",
+                "fr.afpa.pompey.cda17.snapshot.enabled=false"));
+        all.addAll(Arrays.asList(properties));
+        all.add("fr.afpa.pompey.cda17.apiUrl=" + apiUrl);
+        all.add("logging.file.name=");
+
+        return new SpringApplicationBuilder(ParcInfoApplication.class)
+                .web(type)
+                .properties(all.toArray(String[]::new))
+                .run();
+    }
+}
@@ -0,0 +1,93 @@
+package fr.afpa.pompey.cda17.ParcInfo.benchmarks;
+
+import fr.afpa.pompey.cda17.ParcInfo.models.AffectationResult;
+import fr.afpa.pompey.cda17.ParcInfo.models.Peripherique;
+import fr.afpa.pompey.cda17.ParcInfo.services.PeripheriqueService;
+import fr.afpa.pompey.cda17.ParcInfo.stub.StubApiServer;
+import fr.afpa.pompey.cda17.ParcInfo.stub.StubDataset;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares assigning "peripheriques" peripherals one at a time, as N posts of the assign form do,
+ * with one bulk assignment sent in parallel chunks, against a stub of the API answering after 20 ms.
+ * Run with: mvn -Pbenchmark -DskipTests verify -Dbenchmark.include=BulkAffectBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Threads(1)
+@Fork(1)
+public class BulkAffectBenchmark {
+
+    // Number of peripherals assigned by one operation
+    @Param({"20", "200"})
+    public int peripheriques;
+
+    // fr.afpa.pompey.cda17.bulk.parallelism
+    @Param({"4", "16"})
+    public int parallelism;
+
+    private static final String[] PERSONNES = {"1", "2"};
+
+    private StubApiServer stub;
+
+    private ConfigurableApplicationContext context;
+
+    private PeripheriqueService service;
+
+    private Map<Long, String[]> affectations;
+
+    @Setup
+    public void setUp() throws IOException {
+        stub = StubApiServer.start(new StubDataset(100, peripheriques)).withLatency(Duration.ofMillis(20));
+        context = BenchmarkContext.start(stub.getUrl(),
+                "fr.afpa.pompey.cda17.bulk.parallelism=" + parallelism);
+        service = context.getBean(PeripheriqueService.class);
+
+        affectations = new LinkedHashMap<>();
+        for (long id = 1; id <= peripheriques; id++) {
+            affectations.put(id, PERSONNES);
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        System.out.println("Assignments: " + stub.getAssignmentCount());
+        context.close();
+        stub.close();
+    }
+
+    /**
+     * One assignment after the other, each waiting for the previous one.
+     * @return the number of assignments sent.
+     */
+    @Benchmark
+    public int sequential() {
+        for (long id : affectations.keySet()) {
+            Peripherique peripherique = new Peripherique();
+            peripherique.setIdAppareil(id);
+            service.affect(peripherique, PERSONNES);
+        }
+        return affectations.size();
+    }
+
+    /**
+     * All the assignments at once, in parallel chunks.
+     * @return the number of assignments applied.
+     */
+    @Benchmark
+    public long bulk() {
+        List<AffectationResult> results = service.affect(affectations);
+        return results.stream().filter(AffectationResult::isSuccess).count();
+    }
+}
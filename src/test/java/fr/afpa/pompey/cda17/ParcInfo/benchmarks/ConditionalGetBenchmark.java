@@ -0,0 +1,72 @@
+package fr.afpa.pompey.cda17.ParcInfo.benchmarks;
+
+import fr.afpa.pompey.cda17.ParcInfo.models.Personne;
+import fr.afpa.pompey.cda17.ParcInfo.repositories.PersonneRepository;
+import fr.afpa.pompey.cda17.ParcInfo.stub.StubApiServer;
+import fr.afpa.pompey.cda17.ParcInfo.stub.StubDataset;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.http.HttpMethod;
+import org.springframework.web.client.RestTemplate;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of re-downloading GET /personnes versus revalidating it with If-None-Match.
+ * Add "-prof gc" to the JMH arguments to see the allocation saved by not parsing the JSON again.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ConditionalGetBenchmark {
+
+    @Param({"1000", "10000"})
+    public int personnes;
+
+    private StubApiServer stub;
+
+    private ConfigurableApplicationContext context;
+
+    private RestTemplate restTemplate;
+
+    private PersonneRepository personneRepository;
+
+    @Setup
+    public void setUp() throws IOException {
+        stub = StubApiServer.start(new StubDataset(personnes, 0));
+        context = BenchmarkContext.start(stub.getUrl());
+        restTemplate = context.getBean(RestTemplate.class);
+        personneRepository = context.getBean(PersonneRepository.class);
+    }
+
+    @TearDown
+    public void tearDown() {
+        System.out.println("Stub: " + stub.getBytesSent() + " bytes sent, "
+                + stub.getNotModifiedCount() + " / " + stub.getRequestCount() + " requests answered 304");
+        context.close();
+        stub.close();
+    }
+
+    /**
+     * Plain GET: the whole JSON is transferred and parsed.
+     */
+    @Benchmark
+    public List<Personne> fullGet() {
+        return restTemplate.exchange("/personnes", HttpMethod.GET, null,
+                new ParameterizedTypeReference<List<Personne>>() {}).getBody();
+    }
+
+    /**
+     * Repository GET: after the first call the API answers 304 and the parsed list is reused.
+     */
+    @Benchmark
+    public List<Personne> conditionalGet() {
+        return personneRepository.getPersonnes();
+    }
+}
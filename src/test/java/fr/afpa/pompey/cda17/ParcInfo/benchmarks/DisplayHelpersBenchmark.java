@@ -0,0 +1,95 @@
+package fr.afpa.pompey.cda17.ParcInfo.benchmarks;
+
+import fr.afpa.pompey.cda17.ParcInfo.models.Appareil;
+import fr.afpa.pompey.cda17.ParcInfo.models.Peripherique;
+import fr.afpa.pompey.cda17.ParcInfo.models.TypePeripherique;
+import fr.afpa.pompey.cda17.ParcInfo.stub.StubDataset;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Cost of the display helpers called for each row of the lists of peripherals:
+ * the identities of the holders and the label of the type.
+ * The former helpers rebuilt both strings at each call (copied below); the current ones
+ * compute them once per Appareil and per constant.
+ * <ul>
+ *     <li>rows: the strings of each row, as the list page renders the cached list again and again;</li>
+ *     <li>sortByLocataires: the sort of the whole list on the holders column, which calls the helper
+ *     in each comparison.</li>
+ * </ul>
+ * The gc profiler of the benchmark profile reports the bytes allocated per operation (gc.alloc.rate.norm).
+ * Run with: mvn -Pbenchmark -DskipTests verify -Dbenchmark.include=DisplayHelpersBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class DisplayHelpersBenchmark {
+
+    @Param({"20", "10000"})
+    public int peripheriques;
+
+    private List<Peripherique> list;
+
+    @Setup
+    public void setUp() {
+        StubDataset dataset = new StubDataset(1_000, peripheriques);
+        list = new ArrayList<>(peripheriques);
+        for (long id = 1; id <= peripheriques; id++) {
+            list.add(dataset.peripherique(id));
+        }
+    }
+
+    @Benchmark
+    public void rowsFormer(Blackhole blackhole) {
+        for (Peripherique peripherique : list) {
+            blackhole.consume(formerIdentites(peripherique.getAppareil()));
+            blackhole.consume(formerLabel(peripherique.getType()));
+        }
+    }
+
+    @Benchmark
+    public void rowsCurrent(Blackhole blackhole) {
+        for (Peripherique peripherique : list) {
+            blackhole.consume(peripherique.getAppareil().getProprietairesIdentites());
+            blackhole.consume(peripherique.getType().toString());
+        }
+    }
+
+    @Benchmark
+    public List<Peripherique> sortByLocatairesFormer() {
+        List<Peripherique> sorted = new ArrayList<>(list);
+        sorted.sort(Comparator.comparing(peripherique -> formerIdentites(peripherique.getAppareil())));
+        return sorted;
+    }
+
+    @Benchmark
+    public List<Peripherique> sortByLocatairesCurrent() {
+        List<Peripherique> sorted = new ArrayList<>(list);
+        sorted.sort(Comparator.comparing(peripherique -> peripherique.getAppareil().getProprietairesIdentites()));
+        return sorted;
+    }
+
+    // Appareil.getProprietairesIdentites() before it was memoised
+    private static String formerIdentites(Appareil appareil) {
+        return appareil.getProprietaires().stream()
+                .map(p -> p.getPrenom() + ' ' + p.getNom())
+                .collect(Collectors.joining(", "));
+    }
+
+    // TypePeripherique.toString() before the labels were precomputed
+    private static String formerLabel(TypePeripherique type) {
+        return type.name().charAt(0) + type.name()
+                .substring(1)
+                .replace('_',' ')
+                .toLowerCase();
+    }
+}
@@ -0,0 +1,88 @@
+package fr.afpa.pompey.cda17.ParcInfo.benchmarks;
+
+import config.CustomProperties;
+import config.HttpClientConfig;
+import fr.afpa.pompey.cda17.ParcInfo.models.Personne;
+import fr.afpa.pompey.cda17.ParcInfo.stub.StubApiServer;
+import fr.afpa.pompey.cda17.ParcInfo.stub.StubDataset;
+import org.apache.hc.client5.http.config.RequestConfig;
+import org.apache.hc.client5.http.impl.classic.CloseableHttpClient;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManager;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.boot.web.client.RestTemplateBuilder;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.http.HttpMethod;
+import org.springframework.web.client.RestTemplate;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the historical "new RestTemplate() on each call" with the shared,
+ * pooled RestTemplate declared by {@link HttpClientConfig}, against a local stub of the API.
+ * Run with: mvn -Pbenchmark -DskipTests verify -Dbenchmark.include=HttpClientBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Threads(8)
+@Fork(1)
+public class HttpClientBenchmark {
+
+    private static final ParameterizedTypeReference<List<Personne>> PERSONNES = new ParameterizedTypeReference<>() {};
+
+    // Size of the /personnes payload
+    @Param({"10", "1000"})
+    public int personnes;
+
+    private StubApiServer stub;
+
+    private PoolingHttpClientConnectionManager connectionManager;
+
+    private CloseableHttpClient httpClient;
+
+    private RestTemplate pooledRestTemplate;
+
+    @Setup
+    public void setUp() throws IOException {
+        stub = StubApiServer.start(new StubDataset(personnes, 0));
+
+        CustomProperties props = new CustomProperties();
+        props.setApiUrl(stub.getUrl());
+
+        HttpClientConfig config = new HttpClientConfig();
+        connectionManager = config.apiConnectionManager(props);
+        RequestConfig requestConfig = config.apiRequestConfig(props);
+        httpClient = config.apiHttpClient(connectionManager, requestConfig, props);
+        pooledRestTemplate = config.apiRestTemplate(new RestTemplateBuilder(), httpClient, requestConfig,
+                config.apiConcurrencyLimiter(props), props);
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        System.out.println("Pool: " + connectionManager.getTotalStats() + ", stub requests: " + stub.getRequestCount());
+        httpClient.close();
+        stub.close();
+    }
+
+    /**
+     * What the repositories used to do: a new RestTemplate, with its own
+     * request factory and message converters, for every call.
+     */
+    @Benchmark
+    public List<Personne> perCallRestTemplate() {
+        RestTemplate restTemplate = new RestTemplate();
+        return restTemplate.exchange(stub.getUrl() + "/personnes", HttpMethod.GET, null, PERSONNES).getBody();
+    }
+
+    /**
+     * What the repositories do now: the shared RestTemplate over the keep-alive pool.
+     */
+    @Benchmark
+    public List<Personne> pooledRestTemplate() {
+        return pooledRestTemplate.exchange("/personnes", HttpMethod.GET, null, PERSONNES).getBody();
+    }
+}
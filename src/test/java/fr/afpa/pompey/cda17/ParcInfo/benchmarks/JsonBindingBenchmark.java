@@ -0,0 +1,68 @@
+package fr.afpa.pompey.cda17.ParcInfo.benchmarks;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import fr.afpa.pompey.cda17.ParcInfo.models.Peripherique;
+import fr.afpa.pompey.cda17.ParcInfo.models.Personne;
+import fr.afpa.pompey.cda17.ParcInfo.stub.StubDataset;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Deserialization time of the lists read from the API, with the ObjectMapper configured like the one
+ * of the application (the one of Spring Boot: unknown properties ignored, java.time supported).
+ * Each Peripherique carries its Appareil and the Personne holding it, as the API sends them.
+ * Run with: mvn -Pbenchmark -DskipTests verify -Dbenchmark.include=JsonBindingBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class JsonBindingBenchmark {
+
+    private static final TypeReference<List<Peripherique>> PERIPHERIQUES = new TypeReference<>() {
+    };
+
+    private static final TypeReference<List<Personne>> PERSONNES = new TypeReference<>() {
+    };
+
+    @Param({"100", "10000", "100000"})
+    public int rows;
+
+    private ObjectMapper mapper;
+
+    private byte[] peripheriques;
+
+    private byte[] personnes;
+
+    @Setup
+    public void setUp() throws IOException {
+        mapper = Jackson2ObjectMapperBuilder.json().build();
+        StubDataset dataset = new StubDataset(rows, rows);
+        List<Peripherique> peripheriqueList = new ArrayList<>(rows);
+        List<Personne> personneList = new ArrayList<>(rows);
+        for (long id = 1; id <= rows; id++) {
+            peripheriqueList.add(dataset.peripherique(id));
+            personneList.add(dataset.personne(id));
+        }
+        peripheriques = mapper.writeValueAsBytes(peripheriqueList);
+        personnes = mapper.writeValueAsBytes(personneList);
+    }
+
+    @Benchmark
+    public List<Peripherique> peripheriques() throws IOException {
+        return mapper.readValue(peripheriques, PERIPHERIQUES);
+    }
+
+    @Benchmark
+    public List<Personne> personnes() throws IOException {
+        return mapper.readValue(personnes, PERSONNES);
+    }
+}
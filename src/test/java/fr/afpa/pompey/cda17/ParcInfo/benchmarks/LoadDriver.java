@@ -0,0 +1,244 @@
+package fr.afpa.pompey.cda17.ParcInfo.benchmarks;
+
+import fr.afpa.pompey.cda17.ParcInfo.stub.StubApiServer;
+import fr.afpa.pompey.cda17.ParcInfo.stub.StubDataset;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.LongFunction;
+
+/**
+ * End-to-end load test: starts a stub of the API and the application in process, then makes
+ * load.users simulated users browse the pages for load.duration, each loading a page as soon
+ * as the previous one is received. The throughput and the p50/p95/p99 latencies of each route
+ * are printed, and written to load.output as CSV.
+ * <p>
+ * Settings (system properties): load.users (50), load.duration (PT30S), load.warmup (PT5S),
+ * load.personnes (1000), load.peripheriques (20000), load.latency of the API (PT0.02S),
+ * load.error-rate of the API (0), load.slow-every (0: one request to the API out of load.slow-every waits
+ * load.slow-latency more, PT1S), load.properties of the application ("key=value", separated by spaces).
+ * The arguments are properties of the application too.
+ * Run with: mvn -Pload -DskipTests verify -Dload.users=200
+ */
+public final class LoadDriver {
+
+    private final int personnes = Integer.getInteger("load.personnes", 1_000);
+
+    private final int peripheriques = Integer.getInteger("load.peripheriques", 20_000);
+
+    private final StubDataset dataset = new StubDataset(personnes, peripheriques);
+
+    // Weighted routes: a user mostly lists and searches, sometimes opens a form
+    private final Map<String, LongFunction<String>> routes = new LinkedHashMap<>();
+
+    private final List<String> draws = new ArrayList<>();
+
+    private LoadDriver() {
+        route("GET /personnes", 3, page -> "/personnes?page=" + page % 10);
+        route("GET /peripheriques", 3, page -> "/peripheriques?page=" + page % 10);
+        route("GET /personnes/search", 4, id -> "/personnes/search?q="
+                + URLEncoder.encode(prefix(id), StandardCharsets.UTF_8));
+        route("GET /personnes/{id}/equipements", 1, id -> "/personnes/" + (id % personnes + 1) + "/equipements");
+        route("GET /personnes/{id}/update", 1, id -> "/personnes/" + (id % personnes + 1) + "/update");
+        route("GET /peripheriques/{id}/affect", 1, id -> "/peripheriques/" + (id % peripheriques + 1) + "/affect");
+    }
+
+    public static void main(String[] args) throws Exception {
+        new LoadDriver().run(args);
+    }
+
+    private void run(String[] properties) throws Exception {
+        int users = Integer.getInteger("load.users", 50);
+        Duration duration = Duration.parse(System.getProperty("load.duration", "PT30S"));
+        Duration warmup = Duration.parse(System.getProperty("load.warmup", "PT5S"));
+        Duration latency = Duration.parse(System.getProperty("load.latency", "PT0.02S"));
+        double errorRate = Double.parseDouble(System.getProperty("load.error-rate", "0"));
+        int slowEvery = Integer.getInteger("load.slow-every", 0);
+        Duration slowLatency = Duration.parse(System.getProperty("load.slow-latency", "PT1S"));
+        List<String> settings = new ArrayList<>(Arrays.asList(properties));
+        Arrays.stream(System.getProperty("load.properties", "").split("\\s+"))
+                .filter(setting -> !setting.isEmpty())
+                .forEach(settings::add);
+        Path output = Path.of(System.getProperty("load.output", "target/load-result.csv"));
+
+        try (StubApiServer stub = StubApiServer.start(dataset)
+                     .withLatency(latency)
+                     .withErrorRate(errorRate)
+                     .withSlowRequests(slowEvery, slowLatency);
+             ConfigurableApplicationContext context = BenchmarkContext.startWeb(stub.getUrl(),
+                     settings.toArray(String[]::new));
+             ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            HttpClient client = HttpClient.newBuilder()
+                    .version(HttpClient.Version.HTTP_1_1)
+                    .executor(executor)
+                    .build();
+            String base = "http://localhost:" + BenchmarkContext.port(context);
+
+            System.out.printf("%d users, API latency %s, API error rate %.1f %%, warm-up %s, measure %s%n",
+                    users, latency, errorRate * 100, warmup, duration);
+            if (slowEvery > 0) {
+                System.out.printf("One API request out of %d slower by %s%n", slowEvery, slowLatency);
+            }
+            long start = System.nanoTime();
+            long measureFrom = start + warmup.toNanos();
+            long end = measureFrom + duration.toNanos();
+            List<Map<String, Samples>> perUser = new ArrayList<>();
+            List<Future<?>> running = new ArrayList<>();
+            for (int user = 0; user < users; user++) {
+                Map<String, Samples> samples = new LinkedHashMap<>();
+                perUser.add(samples);
+                running.add(executor.submit(() -> browse(client, base, measureFrom, end, samples)));
+            }
+            for (Future<?> user : running) {
+                user.get();
+            }
+
+            Map<String, Samples> all = new LinkedHashMap<>();
+            routes.keySet().forEach(route -> all.put(route, new Samples()));
+            perUser.forEach(samples -> samples.forEach((route, recorded) -> all.get(route).addAll(recorded)));
+            report(all, duration, stub, output);
+        }
+    }
+
+    private void browse(HttpClient client, String base, long measureFrom, long end, Map<String, Samples> samples) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        while (System.nanoTime() < end) {
+            String route = draws.get(random.nextInt(draws.size()));
+            HttpRequest request = HttpRequest.newBuilder(URI.create(base + routes.get(route).apply(random.nextLong(1_000_000))))
+                    .timeout(Duration.ofSeconds(30))
+                    .build();
+            long sent = System.nanoTime();
+            boolean error;
+            try {
+                HttpResponse<Void> response = client.send(request, HttpResponse.BodyHandlers.discarding());
+                error = response.statusCode() >= 400;
+            } catch (IOException e) {
+                error = true;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            long received = System.nanoTime();
+            if (sent >= measureFrom && received <= end) {
+                samples.computeIfAbsent(route, r -> new Samples()).add(received - sent, error);
+            }
+        }
+    }
+
+    private void report(Map<String, Samples> all, Duration duration, StubApiServer stub, Path output) throws IOException {
+        double seconds = duration.toNanos() / 1e9;
+        String header = "route;requests;errors;throughput_per_s;p50_ms;p95_ms;p99_ms;max_ms";
+        List<String> lines = new ArrayList<>();
+        lines.add(header);
+        System.out.printf("%-34s %9s %7s %9s %8s %8s %8s %8s%n",
+                "route", "requests", "errors", "req/s", "p50 ms", "p95 ms", "p99 ms", "max ms");
+        Samples total = new Samples();
+        all.forEach((route, samples) -> {
+            total.addAll(samples);
+            lines.add(line(route, samples, seconds));
+        });
+        all.put("all", total);
+        lines.add(line("all", total, seconds));
+        all.forEach((route, samples) -> {
+            long[] sorted = samples.sorted();
+            System.out.printf(Locale.ROOT, "%-34s %9d %7d %9.1f %8.1f %8.1f %8.1f %8.1f%n", route, sorted.length,
+                    samples.errors, sorted.length / seconds, millis(sorted, 0.50), millis(sorted, 0.95),
+                    millis(sorted, 0.99), millis(sorted, 1));
+        });
+        System.out.printf("API: %d requests, %d errors injected%n", stub.getRequestCount(), stub.getInjectedErrorCount());
+
+        if (output.getParent() != null) {
+            Files.createDirectories(output.getParent());
+        }
+        try (PrintWriter writer = new PrintWriter(Files.newBufferedWriter(output))) {
+            lines.forEach(writer::println);
+        }
+        System.out.println("Results written to " + output.toAbsolutePath());
+    }
+
+    private static String line(String route, Samples samples, double seconds) {
+        long[] sorted = samples.sorted();
+        return String.format(Locale.ROOT, "%s;%d;%d;%.1f;%.2f;%.2f;%.2f;%.2f", route, sorted.length, samples.errors,
+                sorted.length / seconds, millis(sorted, 0.50), millis(sorted, 0.95), millis(sorted, 0.99),
+                millis(sorted, 1));
+    }
+
+    // Nearest-rank percentile
+    private static double millis(long[] sorted, double percentile) {
+        if (sorted.length == 0) {
+            return 0;
+        }
+        int rank = (int) Math.ceil(percentile * sorted.length);
+        return sorted[Math.max(rank, 1) - 1] / 1e6;
+    }
+
+    private void route(String name, int weight, LongFunction<String> path) {
+        routes.put(name, path);
+        for (int i = 0; i < weight; i++) {
+            draws.add(name);
+        }
+    }
+
+    // What a user types in the typeahead: the start of a name of the dataset
+    private String prefix(long id) {
+        String nom = dataset.personne(id % personnes + 1).getNom();
+        return nom.substring(0, 1 + (int) (id % Math.min(4, nom.length())));
+    }
+
+    /**
+     * Latencies of one route, in nanoseconds, recorded by one user (no locking) then merged.
+     */
+    private static final class Samples {
+
+        private long[] latencies = new long[1024];
+
+        private int count;
+
+        private long errors;
+
+        void add(long latency, boolean error) {
+            if (count == latencies.length) {
+                latencies = Arrays.copyOf(latencies, count * 2);
+            }
+            latencies[count++] = latency;
+            if (error) {
+                errors++;
+            }
+        }
+
+        void addAll(Samples other) {
+            if (count + other.count > latencies.length) {
+                latencies = Arrays.copyOf(latencies, Math.max(latencies.length * 2, count + other.count));
+            }
+            System.arraycopy(other.latencies, 0, latencies, count, other.count);
+            count += other.count;
+            errors += other.errors;
+        }
+
+        long[] sorted() {
+            long[] sorted = Arrays.copyOf(latencies, count);
+            Arrays.sort(sorted);
+            return sorted;
+        }
+    }
+}
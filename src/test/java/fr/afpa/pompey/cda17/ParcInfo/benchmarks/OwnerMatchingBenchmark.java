@@ -0,0 +1,166 @@
+package fr.afpa.pompey.cda17.ParcInfo.benchmarks;
+
+import fr.afpa.pompey.cda17.ParcInfo.models.Appareil;
+import fr.afpa.pompey.cda17.ParcInfo.models.Peripherique;
+import fr.afpa.pompey.cda17.ParcInfo.models.Personne;
+import fr.afpa.pompey.cda17.ParcInfo.stub.StubDataset;
+import lombok.Data;
+import org.openjdk.jmh.annotations.*;
+import org.thymeleaf.context.Context;
+import org.thymeleaf.spring6.SpringTemplateEngine;
+import org.thymeleaf.templatemode.TemplateMode;
+import org.thymeleaf.templateresolver.StringTemplateResolver;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Render time of a multi-select of all the people with the holders of a peripheral selected,
+ * as the assignment form did before the typeahead, for the three ways of finding the holders:
+ * <ul>
+ *     <li>fieldEquals: {@code proprietaires.contains(personne)} with the former equality of the models,
+ *     comparing every field and, through the appareils, the graph of the holders (copied below);</li>
+ *     <li>idEquals: the same lookup with the current equality of the models, on the ID only;</li>
+ *     <li>idSet: {@code proprietaireIds.contains(personne.id)}, a primitive ID set.</li>
+ * </ul>
+ * The people are read from the API without their appareils (appareils = 0); appareils = 3 gives
+ * them devices, each with its holders, like a full object graph would.
+ * Run with: mvn -Pbenchmark -DskipTests verify -Dbenchmark.include=OwnerMatchingBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class OwnerMatchingBenchmark {
+
+    private static final String TEMPLATE = """
+            <select multiple name="personnes">
+              <option th:each="personne : ${personnes}" th:value="${personne.id}"
+                      th:text="${personne.prenom + ' ' + personne.nom}" th:selected="${%s}"></option>
+            </select>""";
+
+    @Param({"1000", "10000"})
+    public int personnes;
+
+    @Param({"0", "3"})
+    public int appareils;
+
+    private SpringTemplateEngine engine;
+
+    private Context current;
+
+    private Context former;
+
+    @Setup
+    public void setUp() {
+        engine = new SpringTemplateEngine();
+        StringTemplateResolver resolver = new StringTemplateResolver();
+        resolver.setTemplateMode(TemplateMode.HTML);
+        engine.setTemplateResolver(resolver);
+
+        StubDataset dataset = new StubDataset(personnes, 0);
+        // A peripheral with two holders; the holders are other instances than the listed people, as read from the API
+        long[] holders = {personnes / 3, personnes * 2 / 3};
+        List<Personne> all = new ArrayList<>(personnes);
+        List<FieldEqualsPersonne> allFormer = new ArrayList<>(personnes);
+        for (long id = 1; id <= personnes; id++) {
+            all.add(personne(dataset, id));
+            allFormer.add(formerPersonne(dataset, id));
+        }
+        List<Personne> proprietaires = new ArrayList<>();
+        List<FieldEqualsPersonne> formerProprietaires = new ArrayList<>();
+        for (long holder : holders) {
+            proprietaires.add(personne(dataset, holder));
+            formerProprietaires.add(formerPersonne(dataset, holder));
+        }
+        Appareil appareil = new Appareil();
+        appareil.setId(1);
+        appareil.setProprietaires(proprietaires);
+        Peripherique peripherique = new Peripherique();
+        peripherique.setIdAppareil(1);
+        peripherique.setAppareil(appareil);
+
+        current = new Context(Locale.FRANCE, Map.of("personnes", all, "peripherique", peripherique));
+        former = new Context(Locale.FRANCE, Map.of("personnes", allFormer, "proprietaires", formerProprietaires));
+    }
+
+    @Benchmark
+    public String fieldEquals() {
+        return engine.process(TEMPLATE.formatted("proprietaires.contains(personne)"), former);
+    }
+
+    @Benchmark
+    public String idEquals() {
+        return engine.process(TEMPLATE.formatted("peripherique.appareil.proprietaires.contains(personne)"), current);
+    }
+
+    @Benchmark
+    public String idSet() {
+        return engine.process(TEMPLATE.formatted("peripherique.appareil.proprietaireIds.contains(personne.id)"), current);
+    }
+
+    private Personne personne(StubDataset dataset, long id) {
+        Personne personne = dataset.personne(id);
+        for (int i = 0; i < appareils; i++) {
+            Appareil appareil = new Appareil();
+            appareil.setId(id * 10 + i);
+            appareil.setLibelle("Appareil #" + appareil.getId());
+            appareil.setProprietaires(List.of(dataset.personne(id)));
+            personne.getAppareils().add(appareil);
+        }
+        return personne;
+    }
+
+    private FieldEqualsPersonne formerPersonne(StubDataset dataset, long id) {
+        Personne personne = dataset.personne(id);
+        FieldEqualsPersonne former = new FieldEqualsPersonne();
+        former.setId(id);
+        former.setNom(personne.getNom());
+        former.setPrenom(personne.getPrenom());
+        former.setAdresse(personne.getAdresse());
+        former.setTelephone(personne.getTelephone());
+        former.setDateNaissance(personne.getDateNaissance());
+        for (int i = 0; i < appareils; i++) {
+            FieldEqualsAppareil appareil = new FieldEqualsAppareil();
+            appareil.setId(id * 10 + i);
+            appareil.setLibelle("Appareil #" + appareil.getId());
+            FieldEqualsPersonne holder = new FieldEqualsPersonne();
+            holder.setId(id);
+            holder.setNom(personne.getNom());
+            holder.setPrenom(personne.getPrenom());
+            appareil.getProprietaires().add(holder);
+            former.getAppareils().add(appareil);
+        }
+        return former;
+    }
+
+    /**
+     * Personne with the equality generated on all its fields, as before.
+     */
+    @Data
+    public static class FieldEqualsPersonne {
+        private long id;
+        private String nom;
+        private String prenom;
+        private String adresse;
+        private String telephone;
+        private LocalDate dateNaissance;
+        private List<FieldEqualsAppareil> appareils = new ArrayList<>();
+    }
+
+    /**
+     * Appareil with the equality generated on all its fields, as before.
+     */
+    @Data
+    public static class FieldEqualsAppareil {
+        private long id;
+        private String libelle;
+        private List<FieldEqualsPersonne> proprietaires = new ArrayList<>();
+    }
+}
@@ -0,0 +1,94 @@
+package fr.afpa.pompey.cda17.ParcInfo.benchmarks;
+
+import fr.afpa.pompey.cda17.ParcInfo.models.Personne;
+import fr.afpa.pompey.cda17.ParcInfo.search.PersonneIndex;
+import fr.afpa.pompey.cda17.ParcInfo.search.PersonneSuggestion;
+import fr.afpa.pompey.cda17.ParcInfo.stub.StubDataset;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Lookup time of the typeahead index, per keystroke, at 100k people,
+ * compared with filtering the whole list like the multi-select of the assignment form had to.
+ * The generated names repeat, so a short prefix matches tens of thousands of people:
+ * the lookups stop at the 20 suggestions displayed.
+ * Run with: mvn -Pbenchmark -DskipTests verify -Dbenchmark.include=PersonneIndexBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PersonneIndexBenchmark {
+
+    private static final int SUGGESTIONS = 20;
+
+    @Param({"100000"})
+    public int personnes;
+
+    // What has been typed: a short prefix, a longer one, two words with an accent, a phone number
+    @Param({"m", "mart", "zoé cond", "06000123"})
+    public String query;
+
+    private List<Personne> all;
+
+    private PersonneIndex index;
+
+    @Setup
+    public void setUp() {
+        StubDataset dataset = new StubDataset(personnes, 0);
+        all = new ArrayList<>(personnes);
+        for (long id = 1; id <= personnes; id++) {
+            all.add(dataset.personne(id));
+        }
+        index = new PersonneIndex();
+        index.rebuild(all);
+    }
+
+    /**
+     * Range lookup in the index.
+     */
+    @Benchmark
+    public List<PersonneSuggestion> indexed() {
+        return index.search(query, SUGGESTIONS);
+    }
+
+    /**
+     * Scan of the whole list with the same matching rules, as a baseline.
+     */
+    @Benchmark
+    public List<Personne> scan() {
+        String[] words = query.split(" ");
+        List<Personne> found = new ArrayList<>(SUGGESTIONS);
+        for (Personne personne : all) {
+            String text = (personne.getNom() + ' ' + personne.getPrenom() + ' ' + personne.getTelephone()).toLowerCase();
+            boolean matches = true;
+            for (String word : words) {
+                if (!text.startsWith(word) && !text.contains(' ' + word)) {
+                    matches = false;
+                    break;
+                }
+            }
+            if (matches && found.add(personne) && found.size() == SUGGESTIONS) {
+                break;
+            }
+        }
+        return found;
+    }
+
+    /**
+     * Full rebuild, as done every search.refresh-interval.
+     */
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public PersonneIndex rebuild() {
+        PersonneIndex rebuilt = new PersonneIndex();
+        rebuilt.rebuild(all);
+        return rebuilt;
+    }
+}
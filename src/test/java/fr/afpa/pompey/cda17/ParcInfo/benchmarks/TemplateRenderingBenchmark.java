@@ -0,0 +1,123 @@
+package fr.afpa.pompey.cda17.ParcInfo.benchmarks;
+
+import fr.afpa.pompey.cda17.ParcInfo.models.Page;
+import fr.afpa.pompey.cda17.ParcInfo.models.PageQuery;
+import fr.afpa.pompey.cda17.ParcInfo.models.Peripherique;
+import fr.afpa.pompey.cda17.ParcInfo.models.Personne;
+import fr.afpa.pompey.cda17.ParcInfo.stub.StubDataset;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.web.context.WebApplicationContext;
+import org.springframework.web.servlet.DispatcherServlet;
+import org.springframework.web.servlet.View;
+import org.springframework.web.servlet.ViewResolver;
+
+import java.io.PrintWriter;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Rendering time of the list pages, with the view resolver and the templates of the application,
+ * for pages of 100, 10k and 100k rows. The models are built beforehand: the API is not called.
+ * The HTML is counted, not kept, so that the measure is the rendering, not the growth of a buffer.
+ * Run with: mvn -Pbenchmark -DskipTests verify -Dbenchmark.include=TemplateRenderingBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TemplateRenderingBenchmark {
+
+    @Param({"100", "10000", "100000"})
+    public int rows;
+
+    @Param({"peripheriques/index", "personnes/index"})
+    public String view;
+
+    private ConfigurableApplicationContext context;
+
+    private View template;
+
+    private Map<String, Object> model;
+
+    @Setup
+    public void setUp() throws Exception {
+        // The rendering does not call the API: any URL does
+        context = BenchmarkContext.startWeb("http://localhost:9");
+        template = context.getBean("thymeleafViewResolver", ViewResolver.class).resolveViewName(view, Locale.FRANCE);
+
+        StubDataset dataset = new StubDataset(rows, rows);
+        PageQuery query = new PageQuery();
+        query.setSize(rows);
+        model = new HashMap<>();
+        model.put("pageQuery", query);
+        if (view.startsWith("peripheriques")) {
+            List<Peripherique> content = new ArrayList<>(rows);
+            for (long id = 1; id <= rows; id++) {
+                content.add(dataset.peripherique(id));
+            }
+            model.put("page", new Page<>(content, 0, rows, rows));
+        } else {
+            List<Personne> content = new ArrayList<>(rows);
+            Map<Long, Integer> equipements = new HashMap<>();
+            for (long id = 1; id <= rows; id++) {
+                content.add(dataset.personne(id));
+                equipements.put(id, (int) (id % 4));
+            }
+            model.put("page", new Page<>(content, 0, rows, rows));
+            model.put("equipements", equipements);
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public long render() throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest(
+                ((WebApplicationContext) context).getServletContext(), "GET", "/" + view);
+        request.setAttribute(DispatcherServlet.WEB_APPLICATION_CONTEXT_ATTRIBUTE, context);
+        CountingResponse response = new CountingResponse();
+        template.render(model, request, response);
+        return response.count;
+    }
+
+    /**
+     * Response counting the characters written instead of keeping them.
+     */
+    private static final class CountingResponse extends MockHttpServletResponse {
+
+        private long count;
+
+        private final PrintWriter writer = new PrintWriter(new Writer() {
+            @Override
+            public void write(char[] buffer, int offset, int length) {
+                count += length;
+            }
+
+            @Override
+            public void flush() {
+            }
+
+            @Override
+            public void close() {
+            }
+        });
+
+        @Override
+        public PrintWriter getWriter() {
+            return writer;
+        }
+    }
+}
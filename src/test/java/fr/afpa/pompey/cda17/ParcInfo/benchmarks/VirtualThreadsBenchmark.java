@@ -0,0 +1,109 @@
+package fr.afpa.pompey.cda17.ParcInfo.benchmarks;
+
+import fr.afpa.pompey.cda17.ParcInfo.stub.StubApiServer;
+import fr.afpa.pompey.cda17.ParcInfo.stub.StubDataset;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares platform and virtual request threads when many users load /personnes at once,
+ * against a stub of the API answering after 50 ms.
+ * One operation is a wave of "users" simultaneous page loads; the cache is disabled so that
+ * every page load waits on the API. The limiter and the pool are sized to the number of users,
+ * so the only bound left is the request threads (200 Tomcat threads when they are platform ones).
+ * Pinned virtual threads, if any, are reported on the console (-Djdk.tracePinnedThreads).
+ * Run with: mvn -Pbenchmark -DskipTests verify -Dbenchmark.include=VirtualThreadsBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Threads(1)
+@Fork(value = 1, jvmArgsAppend = "-Djdk.tracePinnedThreads=short")
+public class VirtualThreadsBenchmark {
+
+    // spring.threads.virtual.enabled
+    @Param({"false", "true"})
+    public boolean virtual;
+
+    // Simultaneous page loads per wave
+    @Param({"200", "1000"})
+    public int users;
+
+    private StubApiServer stub;
+
+    private ConfigurableApplicationContext context;
+
+    private ExecutorService clientExecutor;
+
+    private HttpClient client;
+
+    private HttpRequest request;
+
+    @Setup
+    public void setUp() throws IOException {
+        stub = StubApiServer.start(new StubDataset(100, 0)).withLatency(Duration.ofMillis(50));
+        context = BenchmarkContext.startWeb(stub.getUrl(),
+                "spring.threads.virtual.enabled=" + virtual,
+                "server.tomcat.threads.max=200",
+                "server.tomcat.accept-count=" + users,
+                "fr.afpa.pompey.cda17.cache.ttl=0s",
+                "fr.afpa.pompey.cda17.http.max-concurrent-calls=" + users,
+                "fr.afpa.pompey.cda17.http.max-connections=" + users,
+                "fr.afpa.pompey.cda17.http.max-connections-per-route=" + users,
+                "fr.afpa.pompey.cda17.http.concurrency-acquire-timeout=30s",
+                "fr.afpa.pompey.cda17.http.connection-request-timeout=30s");
+
+        clientExecutor = Executors.newVirtualThreadPerTaskExecutor();
+        client = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .executor(clientExecutor)
+                .build();
+        request = HttpRequest.newBuilder(URI.create("http://localhost:" + BenchmarkContext.port(context) + "/personnes"))
+                .timeout(Duration.ofSeconds(60))
+                .build();
+    }
+
+    @TearDown
+    public void tearDown() {
+        System.out.println("Stub requests: " + stub.getRequestCount());
+        client.close();
+        clientExecutor.shutdownNow();
+        context.close();
+        stub.close();
+    }
+
+    /**
+     * Loads the page for every user at the same time and waits for all the pages.
+     * @return the number of pages answered 200.
+     */
+    @Benchmark
+    public int wave() {
+        List<CompletableFuture<HttpResponse<Void>>> responses = new ArrayList<>(users);
+        for (int i = 0; i < users; i++) {
+            responses.add(client.sendAsync(request, HttpResponse.BodyHandlers.discarding()));
+        }
+
+        int ok = 0;
+        for (CompletableFuture<HttpResponse<Void>> response : responses) {
+            if (response.join().statusCode() == 200) {
+                ok++;
+            }
+        }
+        return ok;
+    }
+}
@@ -0,0 +1,131 @@
+package fr.afpa.pompey.cda17.ParcInfo.cache;
+
+import fr.afpa.pompey.cda17.ParcInfo.models.Personne;
+import fr.afpa.pompey.cda17.ParcInfo.repositories.PersonneRepository;
+import fr.afpa.pompey.cda17.ParcInfo.stub.StubApiServer;
+import fr.afpa.pompey.cda17.ParcInfo.stub.StubDataset;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Test class for SingleFlight.
+ * Many callers read the same Personne at once from a slow stub of the API.
+ */
+@SpringBootTest
+public class SingleFlightTest {
+
+    private static final int CALLERS = 50;
+
+    private static StubApiServer stub;
+
+    @Autowired
+    private SingleFlight singleFlight;
+
+    @Autowired
+    private PersonneRepository personneRepository;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @BeforeAll
+    static void startStub() throws IOException {
+        stub = StubApiServer.start(new StubDataset(1_000, 1_000)).withLatency(Duration.ofMillis(300));
+    }
+
+    @AfterAll
+    static void stopStub() {
+        stub.close();
+    }
+
+    @DynamicPropertySource
+    static void apiUrl(DynamicPropertyRegistry registry) {
+        registry.add("fr.afpa.pompey.cda17.apiUrl", () -> stub.getUrl());
+    }
+
+    /**
+     * Concurrent callers share one request and all get the Personne.
+     */
+    @Test
+    public void coalescesConcurrentReads() throws Exception {
+        long requestsBefore = stub.getRequestCount();
+        double coalescedBefore = coalesced();
+
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService callers = Executors.newFixedThreadPool(CALLERS);
+        try {
+            List<Future<Personne>> results = new ArrayList<>();
+            for (int i = 0; i < CALLERS; i++) {
+                results.add(callers.submit(() -> {
+                    start.await();
+                    return singleFlight.read(InventoryCache.PERSONNE, 7L, () -> personneRepository.getPersonne(7));
+                }));
+            }
+            start.countDown();
+            for (Future<Personne> result : results) {
+                assertEquals(7, result.get().getId());
+            }
+        } finally {
+            callers.shutdown();
+        }
+
+        long requests = stub.getRequestCount() - requestsBefore;
+        assertTrue(requests < CALLERS, requests + " requests sent for " + CALLERS + " callers");
+        assertEquals(CALLERS - requests, coalesced() - coalescedBefore);
+        assertEquals(0, singleFlight.getInFlightCount());
+    }
+
+    /**
+     * An Error thrown by the read is given to the callers waiting for it too, instead of leaving them waiting.
+     */
+    @Test
+    public void failsTheWaitingCallersOnError() throws Exception {
+        CountDownLatch reading = new CountDownLatch(1);
+        CountDownLatch waiting = new CountDownLatch(1);
+        ExecutorService callers = Executors.newFixedThreadPool(2);
+        try {
+            Future<Object> first = callers.submit(() -> singleFlight.read(InventoryCache.PERSONNE, 8L, () -> {
+                reading.countDown();
+                waiting.await();
+                throw new AssertionError("read failed");
+            }));
+            reading.await();
+            Future<Object> second = callers.submit(() -> singleFlight.read(InventoryCache.PERSONNE, 8L, () -> {
+                throw new IllegalStateException("the read in flight must be shared");
+            }));
+            // Let the second caller find the read in flight before it fails
+            Thread.sleep(200);
+            waiting.countDown();
+
+            Exception failure = assertThrows(Exception.class, () -> first.get(5, TimeUnit.SECONDS));
+            assertInstanceOf(AssertionError.class, failure.getCause());
+            failure = assertThrows(Exception.class, () -> second.get(5, TimeUnit.SECONDS));
+            assertInstanceOf(AssertionError.class, failure.getCause());
+        } finally {
+            callers.shutdownNow();
+        }
+        assertEquals(0, singleFlight.getInFlightCount());
+    }
+
+    private double coalesced() {
+        return meterRegistry.find("parcinfo.api.coalesced").tag("resource", InventoryCache.PERSONNE).counters()
+                .stream().mapToDouble(counter -> counter.count()).sum();
+    }
+}
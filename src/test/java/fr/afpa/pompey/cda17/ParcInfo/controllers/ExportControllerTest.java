@@ -0,0 +1,143 @@
+package fr.afpa.pompey.cda17.ParcInfo.controllers;
+
+import fr.afpa.pompey.cda17.ParcInfo.stub.StubApiServer;
+import fr.afpa.pompey.cda17.ParcInfo.stub.StubDataset;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.Iterator;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Test class for ExportController.
+ * The exports are downloaded through the real server, from a stub serving a very large inventory,
+ * while the heap used by the whole JVM is watched. The warm-up, which would cache the whole inventory, is off.
+ * The heap is only measured after a full collection, so that the garbage of other threads is not counted;
+ * the export of the large inventory is tagged slow (mvn test -DexcludedGroups=slow leaves it out).
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+        properties = "fr.afpa.pompey.cda17.warm-up.enabled=false")
+public class ExportControllerTest {
+
+    private static final int PERIPHERIQUES = 300_000;
+
+    // Far below what the whole list of peripherals takes once parsed
+    private static final long MAX_HEAP_GROWTH = 64L * 1024 * 1024;
+
+    private static final StubDataset DATASET = new StubDataset(2_000, PERIPHERIQUES);
+
+    private static StubApiServer stub;
+
+    @LocalServerPort
+    private int port;
+
+    private final HttpClient client = HttpClient.newHttpClient();
+
+    @BeforeAll
+    static void startStub() throws IOException {
+        stub = StubApiServer.start(DATASET);
+    }
+
+    @AfterAll
+    static void stopStub() {
+        stub.close();
+    }
+
+    @DynamicPropertySource
+    static void apiUrl(DynamicPropertyRegistry registry) {
+        registry.add("fr.afpa.pompey.cda17.apiUrl", () -> stub.getUrl());
+    }
+
+    /**
+     * Every peripheral is exported, and the heap does not grow with the number of rows.
+     */
+    @Test
+    @Tag("slow")
+    public void exportsLargeInventoryInBoundedHeap() throws Exception {
+        MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+        long baseline = usedAfterGc(memory);
+
+        HttpResponse<Stream<String>> response = client.send(request("/peripheriques/export.csv"),
+                HttpResponse.BodyHandlers.ofLines());
+        assertEquals(200, response.statusCode());
+        assertTrue(response.headers().firstValue("Content-Disposition").orElse("").contains(".csv"));
+
+        long lines = 0;
+        long peakGrowth = 0;
+        try (Stream<String> body = response.body()) {
+            Iterator<String> iterator = body.iterator();
+            assertEquals("\uFEFFID;Libellé;Type;Locataires", iterator.next());
+            assertTrue(iterator.next().startsWith("1;" + DATASET.peripherique(1).getAppareil().getLibelle() + ';'));
+            lines = 2;
+            while (iterator.hasNext()) {
+                iterator.next();
+                if (++lines % 50_000 == 0) {
+                    peakGrowth = Math.max(peakGrowth, usedAfterGc(memory) - baseline);
+                }
+            }
+        }
+
+        assertEquals(PERIPHERIQUES + 1, lines);
+        assertTrue(peakGrowth < MAX_HEAP_GROWTH, "heap grew by " + peakGrowth / 1024 / 1024 + " MB during the export");
+    }
+
+    /**
+     * The persons are exported as an Excel workbook.
+     */
+    @Test
+    public void exportsPersonnesAsXlsx() throws Exception {
+        HttpResponse<byte[]> response = client.send(request("/personnes/export.xlsx"),
+                HttpResponse.BodyHandlers.ofByteArray());
+
+        assertEquals(200, response.statusCode());
+        assertEquals("application/vnd.openxmlformats-officedocument.spreadsheetml.sheet",
+                response.headers().firstValue("Content-Type").orElse(""));
+        // An xlsx file is a zip archive
+        assertEquals('P', response.body()[0]);
+        assertEquals('K', response.body()[1]);
+    }
+
+    /**
+     * An unknown format is not found.
+     */
+    @Test
+    public void rejectsUnknownFormat() throws Exception {
+        HttpResponse<Void> response = client.send(request("/personnes/export.pdf"),
+                HttpResponse.BodyHandlers.discarding());
+
+        assertEquals(404, response.statusCode());
+    }
+
+    // System.gc() is only a hint: collect until the used heap stops shrinking
+    private static long usedAfterGc(MemoryMXBean memory) {
+        long used = Long.MAX_VALUE;
+        for (int i = 0; i < 5; i++) {
+            memory.gc();
+            long after = memory.getHeapMemoryUsage().getUsed();
+            if (after >= used) {
+                break;
+            }
+            used = after;
+        }
+        return used;
+    }
+
+    private HttpRequest request(String path) {
+        return HttpRequest.newBuilder(URI.create("http://localhost:" + port + path)).build();
+    }
+}
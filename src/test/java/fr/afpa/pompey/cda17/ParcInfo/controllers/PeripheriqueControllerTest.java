@@ -0,0 +1,142 @@
+package fr.afpa.pompey.cda17.ParcInfo.controllers;
+
+import fr.afpa.pompey.cda17.ParcInfo.models.Personne;
+import fr.afpa.pompey.cda17.ParcInfo.stub.StubApiServer;
+import fr.afpa.pompey.cda17.ParcInfo.stub.StubDataset;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.io.IOException;
+
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.not;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+/**
+ * Test class for PeripheriqueController.
+ * The API is replaced by a stub serving a generated inventory.
+ */
+@SpringBootTest
+@AutoConfigureMockMvc
+public class PeripheriqueControllerTest {
+
+    private static final StubDataset DATASET = new StubDataset(1_000, 20_000);
+
+    private static StubApiServer stub;
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @BeforeAll
+    static void startStub() throws IOException {
+        stub = StubApiServer.start(DATASET);
+    }
+
+    @AfterAll
+    static void stopStub() {
+        stub.close();
+    }
+
+    @DynamicPropertySource
+    static void apiUrl(DynamicPropertyRegistry registry) {
+        registry.add("fr.afpa.pompey.cda17.apiUrl", () -> stub.getUrl());
+    }
+
+    /**
+     * The streamed list renders every peripheral, in the API order, then counts them.
+     */
+    @Test
+    public void stream() throws Exception {
+        mockMvc.perform(get("/peripheriques/stream"))
+                .andExpect(status().isOk())
+                .andExpect(view().name("peripheriques/stream"))
+                .andExpect(content().string(containsString(DATASET.peripherique(1).getAppareil().getLibelle())))
+                .andExpect(content().string(containsString(DATASET.peripherique(20_000).getAppareil().getLibelle())))
+                .andExpect(content().string(containsString("20000 périphérique(s)")));
+    }
+
+    /**
+     * The assignment form shows the peripheral and its current holders, without listing all the persons.
+     */
+    @Test
+    public void affect() throws Exception {
+        Personne holder = DATASET.peripherique(3).getAppareil().getProprietaires().get(0);
+        mockMvc.perform(get("/peripheriques/3/affect"))
+                .andExpect(status().isOk())
+                .andExpect(view().name("peripheriques/affect"))
+                .andExpect(content().string(containsString(DATASET.peripherique(3).getAppareil().getLibelle())))
+                .andExpect(content().string(containsString(holder.getPrenom() + ' ' + holder.getNom())))
+                .andExpect(content().string(not(containsString("<option"))));
+    }
+
+    /**
+     * The typeahead of the assignment form finds the persons whatever the accents.
+     */
+    @Test
+    public void searchPersonnes() throws Exception {
+        mockMvc.perform(get("/personnes/search").param("q", "conde"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(20))
+                .andExpect(jsonPath("$[0].nom").value("Condé"));
+    }
+
+    /**
+     * The holders already chosen are not suggested again.
+     */
+    @Test
+    public void searchPersonnesExcludesChosenOnes() throws Exception {
+        // The phone numbers 0600000010 to 0600000019: persons 10 to 19
+        mockMvc.perform(get("/personnes/search").param("q", "060000001").param("exclude", "10", "12"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(8))
+                .andExpect(jsonPath("$[?(@.id == 10)]").isEmpty())
+                .andExpect(jsonPath("$[?(@.id == 12)]").isEmpty());
+    }
+
+    /**
+     * The equipment view lists what a person holds, from the reverse index of the inventory.
+     */
+    @Test
+    public void equipements() throws Exception {
+        // Peripheral 1003 is held by person 22 only, and no other test assigns it
+        Personne holder = DATASET.peripherique(1003).getAppareil().getProprietaires().get(0);
+        mockMvc.perform(get("/personnes/{id}/equipements", holder.getId()))
+                .andExpect(status().isOk())
+                .andExpect(view().name("personnes/equipements"))
+                .andExpect(content().string(containsString(holder.getPrenom() + ' ' + holder.getNom())))
+                .andExpect(content().string(containsString(DATASET.peripherique(1003).getAppareil().getLibelle() + "<")));
+    }
+
+    /**
+     * The bulk assignment sends every assignment and reports the one the API refused.
+     */
+    @Test
+    public void bulkAffect() throws Exception {
+        long assignmentsBefore = stub.getAssignmentCount();
+        String[] peripheriques = new String[51];
+        for (int i = 0; i < 50; i++) {
+            peripheriques[i] = String.valueOf(i + 1);
+        }
+        peripheriques[50] = "999999";
+
+        mockMvc.perform(post("/peripheriques/affect")
+                        .param("peripheriques", peripheriques)
+                        .param("personnes", "1", "2"))
+                .andExpect(status().isOk())
+                .andExpect(view().name("peripheriques/bulk-affect-results"))
+                .andExpect(model().attribute("failures", 1L))
+                .andExpect(content().string(containsString("50 affectation(s) réussie(s), 1 en échec")));
+
+        assertEquals(assignmentsBefore + 50, stub.getAssignmentCount());
+    }
+}
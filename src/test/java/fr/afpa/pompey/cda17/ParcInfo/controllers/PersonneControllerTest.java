@@ -1,11 +1,19 @@
 package fr.afpa.pompey.cda17.ParcInfo.controllers;
 
+import fr.afpa.pompey.cda17.ParcInfo.stub.StubApiServer;
+import fr.afpa.pompey.cda17.ParcInfo.stub.StubDataset;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
 import org.springframework.test.web.servlet.MockMvc;
 
+import java.io.IOException;
+
 import static org.hamcrest.Matchers.containsString;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
@@ -13,14 +21,32 @@ import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.
 /**
  * Test class for PersonneController.
  * This class contains integration tests to verify the behavior of the PersonneController.
+ * The API is replaced by a stub serving a generated directory, whose last names include Condé, Kuntz and Pierson.
  */
 @SpringBootTest
 @AutoConfigureMockMvc
 public class PersonneControllerTest {
 
+    private static StubApiServer stub;
+
     @Autowired
     private MockMvc mockMvc; // MockMvc is used to perform HTTP requests and verify responses.
 
+    @BeforeAll
+    static void startStub() throws IOException {
+        stub = StubApiServer.start(new StubDataset(1_000, 1_000));
+    }
+
+    @AfterAll
+    static void stopStub() {
+        stub.close();
+    }
+
+    @DynamicPropertySource
+    static void apiUrl(DynamicPropertyRegistry registry) {
+        registry.add("fr.afpa.pompey.cda17.apiUrl", () -> stub.getUrl());
+    }
+
     /**
      * Test the index method of PersonneController.
      * This test verifies that the "/personnes" endpoint returns the correct view and contains expected content.
@@ -0,0 +1,58 @@
+package fr.afpa.pompey.cda17.ParcInfo.exports;
+
+import fr.afpa.pompey.cda17.ParcInfo.models.Personne;
+import fr.afpa.pompey.cda17.ParcInfo.stub.StubDataset;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Test class for CsvExport, with the columns of the persons export.
+ */
+public class CsvExportTest {
+
+    private static final StubDataset DATASET = new StubDataset(10, 10);
+
+    /**
+     * A text that Excel would run as a formula is written as text, the other cells as they are.
+     */
+    @Test
+    public void neutralisesFormulas() throws IOException {
+        Personne personne = DATASET.personne(3);
+        personne.setNom("=HYPERLINK(\"https://example.com\";\"Cliquez\")");
+        personne.setPrenom("@SUM(A1:A9)");
+        personne.setAdresse("-2+3");
+        personne.setTelephone("+33600000003");
+
+        String[] lines = export(personne).split("\r\n");
+
+        assertEquals(2, lines.length);
+        assertEquals("3;\"'=HYPERLINK(\"\"https://example.com\"\";\"\"Cliquez\"\")\";'@SUM(A1:A9);'-2+3;'+33600000003;"
+                + personne.getDateNaissance(), lines[1]);
+    }
+
+    /**
+     * The values that cannot start a formula are not changed.
+     */
+    @Test
+    public void keepsPlainValues() throws IOException {
+        Personne personne = DATASET.personne(4);
+
+        String[] lines = export(personne).split("\r\n");
+
+        assertEquals("\uFEFFID;Nom;Prénom;Adresse;Téléphone;Date de naissance", lines[0]);
+        assertEquals("4;" + personne.getNom() + ';' + personne.getPrenom() + ';' + personne.getAdresse() + ';'
+                + personne.getTelephone() + ';' + personne.getDateNaissance(), lines[1]);
+    }
+
+    private static String export(Personne personne) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        CsvExport.write(Stream.of(personne), InventoryColumns.PERSONNES, out, 100);
+        return out.toString(StandardCharsets.UTF_8);
+    }
+}
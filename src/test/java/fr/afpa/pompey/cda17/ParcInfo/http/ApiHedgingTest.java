@@ -0,0 +1,81 @@
+package fr.afpa.pompey.cda17.ParcInfo.http;
+
+import fr.afpa.pompey.cda17.ParcInfo.repositories.PeripheriqueRepository;
+import fr.afpa.pompey.cda17.ParcInfo.stub.StubApiServer;
+import fr.afpa.pompey.cda17.ParcInfo.stub.StubDataset;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import java.io.IOException;
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Test class for ApiHedging.
+ * The repositories call a stub of the API which makes one request out of two wait 2 seconds.
+ */
+@SpringBootTest(properties = {
+        "fr.afpa.pompey.cda17.hedging.enabled=true",
+        "fr.afpa.pompey.cda17.hedging.window=50",
+        "fr.afpa.pompey.cda17.hedging.min-samples=20",
+        "fr.afpa.pompey.cda17.hedging.min-delay=100ms"
+})
+public class ApiHedgingTest {
+
+    private static StubApiServer stub;
+
+    @Autowired
+    private PeripheriqueRepository peripheriqueRepository;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @BeforeAll
+    static void startStub() throws IOException {
+        stub = StubApiServer.start(new StubDataset(100, 1_000));
+    }
+
+    @AfterAll
+    static void stopStub() {
+        stub.close();
+    }
+
+    @DynamicPropertySource
+    static void apiUrl(DynamicPropertyRegistry registry) {
+        registry.add("fr.afpa.pompey.cda17.apiUrl", () -> stub.getUrl());
+    }
+
+    /**
+     * Once the usual latency is known, a slow first attempt is overtaken by the second one.
+     */
+    @Test
+    public void theSecondAttemptOvertakesASlowOne() {
+        for (int id = 1; id <= 20; id++) {
+            peripheriqueRepository.getPeripherique(id);
+        }
+        stub.withSlowRequests(2, Duration.ofSeconds(2));
+
+        try {
+            for (int id = 1; id <= 6; id++) {
+                long start = System.nanoTime();
+                assertEquals(id, peripheriqueRepository.getPeripherique(id).getIdAppareil());
+                assertTrue(System.nanoTime() - start < Duration.ofSeconds(1).toNanos(), "answered by the fast attempt");
+            }
+        } finally {
+            stub.withSlowRequests(0, Duration.ZERO);
+        }
+
+        String operation = "PeripheriqueRepository.getPeripherique";
+        double hedges = meterRegistry.get("parcinfo.api.hedges").tag("operation", operation).counter().count();
+        double wins = meterRegistry.get("parcinfo.api.hedge.wins").tag("operation", operation).counter().count();
+        assertTrue(hedges >= 3, "one call out of two hedged");
+        assertEquals(hedges, wins);
+    }
+}
@@ -0,0 +1,116 @@
+package fr.afpa.pompey.cda17.ParcInfo.http;
+
+import fr.afpa.pompey.cda17.ParcInfo.models.Peripherique;
+import fr.afpa.pompey.cda17.ParcInfo.repositories.PeripheriqueRepository;
+import fr.afpa.pompey.cda17.ParcInfo.repositories.PersonneRepository;
+import fr.afpa.pompey.cda17.ParcInfo.stub.StubApiServer;
+import fr.afpa.pompey.cda17.ParcInfo.stub.StubDataset;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.ResourceAccessException;
+
+import java.io.IOException;
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Test class for ApiResilience.
+ * The repositories call a stub of the API made to fail or to be slow; the circuits open after 4 calls.
+ */
+@SpringBootTest(properties = {
+        "fr.afpa.pompey.cda17.resilience.defaults.sliding-window=4",
+        "fr.afpa.pompey.cda17.resilience.defaults.minimum-calls=4",
+        "fr.afpa.pompey.cda17.resilience.defaults.open-duration=10m",
+        "fr.afpa.pompey.cda17.resilience.operations[PeripheriqueRepository.getPeripheriques].timeout=1s"
+})
+public class ApiResilienceTest {
+
+    private static StubApiServer stub;
+
+    @Autowired
+    private PeripheriqueRepository peripheriqueRepository;
+
+    @Autowired
+    private PersonneRepository personneRepository;
+
+    @Autowired
+    private ApiResilience apiResilience;
+
+    @BeforeAll
+    static void startStub() throws IOException {
+        stub = StubApiServer.start(new StubDataset(100, 1_000));
+    }
+
+    @AfterAll
+    static void stopStub() {
+        stub.close();
+    }
+
+    @DynamicPropertySource
+    static void apiUrl(DynamicPropertyRegistry registry) {
+        registry.add("fr.afpa.pompey.cda17.apiUrl", () -> stub.getUrl());
+    }
+
+    @AfterEach
+    void heal() {
+        stub.withErrorRate(0).withElementDelay(Duration.ZERO);
+    }
+
+    /**
+     * While the API fails, a read gets its last known good result; once the circuit is open,
+     * the API is no longer called, and a read never made before fails at once.
+     */
+    @Test
+    public void fallsBackThenFailsFast() {
+        Peripherique known = peripheriqueRepository.getPeripherique(3);
+        stub.withErrorRate(1);
+
+        for (int i = 0; i < 4; i++) {
+            assertSame(known, peripheriqueRepository.getPeripherique(3));
+        }
+        assertEquals(CircuitBreaker.State.OPEN,
+                apiResilience.getCircuitStates().get("PeripheriqueRepository.getPeripherique"));
+
+        long requests = stub.getRequestCount();
+        assertSame(known, peripheriqueRepository.getPeripherique(3));
+        assertThrows(ResourceAccessException.class, () -> peripheriqueRepository.getPeripherique(4));
+        assertEquals(requests, stub.getRequestCount());
+    }
+
+    /**
+     * A 404 is an answer of the API: it is thrown as is, and does not open the circuit.
+     */
+    @Test
+    public void notFoundIsAnAnswer() {
+        for (int i = 0; i < 5; i++) {
+            assertThrows(HttpClientErrorException.class, () -> personneRepository.getPersonne(999_999));
+        }
+        assertEquals(CircuitBreaker.State.CLOSED,
+                apiResilience.getCircuitStates().get("PersonneRepository.getPersonne"));
+    }
+
+    /**
+     * The timeout of an operation bounds the whole call: a body that keeps coming, slower than the read
+     * timeout of the socket, is given up at the deadline.
+     */
+    @Test
+    public void timesOutTheWholeCall() {
+        stub.withElementDelay(Duration.ofMillis(10));
+
+        long start = System.nanoTime();
+        ResourceAccessException failure = assertThrows(ResourceAccessException.class,
+                () -> peripheriqueRepository.getPeripheriques());
+        Duration elapsed = Duration.ofNanos(System.nanoTime() - start);
+
+        assertTrue(failure.getMessage().contains("took longer than PT1S"), failure.getMessage());
+        assertTrue(elapsed.compareTo(Duration.ofSeconds(3)) < 0, "gave up after " + elapsed);
+    }
+}
@@ -0,0 +1,109 @@
+package fr.afpa.pompey.cda17.ParcInfo.http;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Test class for CircuitBreaker, on a clock moved by hand.
+ */
+public class CircuitBreakerTest {
+
+    private final AtomicLong clock = new AtomicLong();
+
+    // Opens at 50 % of failures over the last 10 calls, after 4 calls; 2 trial calls after 30 s
+    private final CircuitBreaker breaker = new CircuitBreaker("test", 10, 4, 50, Duration.ofSeconds(30), 2, clock::get);
+
+    /**
+     * The circuit waits for the minimum number of calls, then opens at the failure rate.
+     */
+    @Test
+    public void opensAtTheFailureRate() {
+        fail(3);
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+
+        succeed(1);
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState(), "3 failures out of 4 calls");
+        assertFalse(breaker.tryAcquire());
+    }
+
+    /**
+     * Only the last calls count: the old successes leave the window.
+     */
+    @Test
+    public void forgetsTheOldCalls() {
+        succeed(10);
+        fail(4);
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState(), "4 failures out of the last 10 calls");
+
+        fail(1);
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState(), "5 failures out of the last 10 calls");
+    }
+
+    /**
+     * Once the open duration is over, the trial calls close the circuit if they all succeed.
+     */
+    @Test
+    public void closesAfterSuccessfulTrials() {
+        fail(4);
+        clock.addAndGet(Duration.ofSeconds(30).toNanos());
+
+        assertTrue(breaker.tryAcquire());
+        assertTrue(breaker.tryAcquire());
+        assertFalse(breaker.tryAcquire(), "only 2 trial calls");
+        assertEquals(CircuitBreaker.State.HALF_OPEN, breaker.getState());
+
+        breaker.onSuccess();
+        breaker.onSuccess();
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+    }
+
+    /**
+     * A failed trial call opens the circuit again, for a whole open duration.
+     */
+    @Test
+    public void opensAgainAfterAFailedTrial() {
+        fail(4);
+        clock.addAndGet(Duration.ofSeconds(30).toNanos());
+
+        assertTrue(breaker.tryAcquire());
+        breaker.onFailure();
+
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+        clock.addAndGet(Duration.ofSeconds(29).toNanos());
+        assertFalse(breaker.tryAcquire());
+    }
+
+    /**
+     * A trial call that is not made gives its place back.
+     */
+    @Test
+    public void releasesTheTrialsNotMade() {
+        fail(4);
+        clock.addAndGet(Duration.ofSeconds(30).toNanos());
+        assertTrue(breaker.tryAcquire());
+        assertTrue(breaker.tryAcquire());
+
+        breaker.release();
+
+        assertTrue(breaker.tryAcquire());
+        assertFalse(breaker.tryAcquire());
+    }
+
+    private void fail(int calls) {
+        for (int i = 0; i < calls; i++) {
+            assertTrue(breaker.tryAcquire());
+            breaker.onFailure();
+        }
+    }
+
+    private void succeed(int calls) {
+        for (int i = 0; i < calls; i++) {
+            assertTrue(breaker.tryAcquire());
+            breaker.onSuccess();
+        }
+    }
+}
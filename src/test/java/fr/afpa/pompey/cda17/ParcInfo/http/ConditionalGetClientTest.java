@@ -0,0 +1,89 @@
+package fr.afpa.pompey.cda17.ParcInfo.http;
+
+import fr.afpa.pompey.cda17.ParcInfo.models.Peripherique;
+import fr.afpa.pompey.cda17.ParcInfo.repositories.PeripheriqueRepository;
+import fr.afpa.pompey.cda17.ParcInfo.stub.StubApiServer;
+import fr.afpa.pompey.cda17.ParcInfo.stub.StubDataset;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import java.io.IOException;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Test class for ConditionalGetClient.
+ * The repositories are called against a stub of the API which emits and honours ETags,
+ * and the bytes it sends are compared between a first and a revalidated GET.
+ */
+@SpringBootTest
+public class ConditionalGetClientTest {
+
+    private static StubApiServer stub;
+
+    @Autowired
+    private PeripheriqueRepository peripheriqueRepository;
+
+    @Autowired
+    private ConditionalGetClient conditionalGetClient;
+
+    @BeforeAll
+    static void startStub() throws IOException {
+        stub = StubApiServer.start(new StubDataset(1_000, 5_000));
+    }
+
+    @AfterAll
+    static void stopStub() {
+        stub.close();
+    }
+
+    @DynamicPropertySource
+    static void apiUrl(DynamicPropertyRegistry registry) {
+        registry.add("fr.afpa.pompey.cda17.apiUrl", () -> stub.getUrl());
+    }
+
+    @BeforeEach
+    void forget() {
+        conditionalGetClient.invalidateAll();
+    }
+
+    /**
+     * A second GET of an unchanged collection is answered 304 and reuses the parsed list.
+     */
+    @Test
+    public void revalidatesUnchangedCollection() {
+        long bytesBefore = stub.getBytesSent();
+        List<Peripherique> first = peripheriqueRepository.getPeripheriques();
+        long fullBytes = stub.getBytesSent() - bytesBefore;
+
+        long notModifiedBefore = stub.getNotModifiedCount();
+        List<Peripherique> second = peripheriqueRepository.getPeripheriques();
+        long revalidationBytes = stub.getBytesSent() - bytesBefore - fullBytes;
+
+        assertEquals(5_000, first.size());
+        assertSame(first, second, "the deserialized list must be reused on 304");
+        assertEquals(notModifiedBefore + 1, stub.getNotModifiedCount());
+        assertEquals(0, revalidationBytes);
+        assertTrue(revalidationBytes < fullBytes, "the first GET must download the body, " + fullBytes + " bytes");
+    }
+
+    /**
+     * Once the data has changed, the full body is downloaded again.
+     */
+    @Test
+    public void downloadsChangedEntity() {
+        Peripherique first = peripheriqueRepository.getPeripherique(42);
+        stub.touch();
+        Peripherique second = peripheriqueRepository.getPeripherique(42);
+
+        assertNotSame(first, second);
+        assertEquals(first.getAppareil().getLibelle(), second.getAppareil().getLibelle());
+    }
+}
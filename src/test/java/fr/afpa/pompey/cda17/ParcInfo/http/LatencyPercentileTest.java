@@ -0,0 +1,43 @@
+package fr.afpa.pompey.cda17.ParcInfo.http;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Test class for LatencyPercentile.
+ */
+public class LatencyPercentileTest {
+
+    /**
+     * The percentile is unknown until the minimum number of samples, then taken by nearest rank.
+     */
+    @Test
+    public void nearestRankAfterTheMinimumSamples() {
+        LatencyPercentile p90 = new LatencyPercentile(90, 100, 10);
+        for (int i = 1; i < 10; i++) {
+            p90.record(i);
+        }
+        assertEquals(-1, p90.nanos());
+
+        p90.record(10);
+        assertEquals(9, p90.nanos());
+    }
+
+    /**
+     * Only the latest samples count: a slower period raises the percentile once it fills the window.
+     */
+    @Test
+    public void followsTheLatestSamples() {
+        LatencyPercentile p50 = new LatencyPercentile(50, 16, 16);
+        for (int i = 0; i < 16; i++) {
+            p50.record(1);
+        }
+        assertEquals(1, p50.nanos());
+
+        for (int i = 0; i < 16; i++) {
+            p50.record(100);
+        }
+        assertEquals(100, p50.nanos());
+    }
+}
@@ -0,0 +1,92 @@
+package fr.afpa.pompey.cda17.ParcInfo.metrics;
+
+import fr.afpa.pompey.cda17.ParcInfo.repositories.PeripheriqueRepository;
+import fr.afpa.pompey.cda17.ParcInfo.stub.StubApiServer;
+import fr.afpa.pompey.cda17.ParcInfo.stub.StubDataset;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.web.client.HttpClientErrorException;
+
+import java.io.IOException;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Test class for the metrics of the repositories and of the views.
+ * The API is replaced by a stub serving a generated inventory.
+ */
+@SpringBootTest
+@AutoConfigureMockMvc
+public class MetricsTest {
+
+    private static StubApiServer stub;
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private PeripheriqueRepository peripheriqueRepository;
+
+    @BeforeAll
+    static void startStub() throws IOException {
+        stub = StubApiServer.start(new StubDataset(100, 1_000));
+    }
+
+    @AfterAll
+    static void stopStub() {
+        stub.close();
+    }
+
+    @DynamicPropertySource
+    static void apiUrl(DynamicPropertyRegistry registry) {
+        registry.add("fr.afpa.pompey.cda17.apiUrl", () -> stub.getUrl());
+    }
+
+    /**
+     * Each call of a repository is timed, and a failed one is counted with the HTTP status.
+     */
+    @Test
+    public void timesTheRepositories() {
+        peripheriqueRepository.getPeripherique(3);
+        assertThrows(HttpClientErrorException.class, () -> peripheriqueRepository.getPeripherique(999_999));
+
+        assertTrue(meterRegistry.get("parcinfo.api.calls")
+                .tags("method", "getPeripherique", "status", "OK")
+                .timer().count() >= 1);
+        assertEquals(1, meterRegistry.get("parcinfo.api.errors")
+                .tags("method", "getPeripherique", "status", "404")
+                .counter().count());
+    }
+
+    /**
+     * The rendering of a view is timed under its route, and a route listed in metrics.histograms
+     * gets its percentiles.
+     */
+    @Test
+    public void timesTheViewsByRoute() throws Exception {
+        mockMvc.perform(get("/peripheriques/3/affect")).andExpect(status().isOk());
+        mockMvc.perform(get("/peripheriques")).andExpect(status().isOk());
+
+        assertEquals(1, meterRegistry.get("parcinfo.view.render")
+                .tags("uri", "/peripheriques/{id}/affect", "view", "peripheriques/affect")
+                .timer().count());
+        Timer list = meterRegistry.get("parcinfo.view.render")
+                .tags("uri", "/peripheriques", "view", "peripheriques/index")
+                .timer();
+        assertEquals(3, list.takeSnapshot().percentileValues().length);
+    }
+}
@@ -0,0 +1,46 @@
+package fr.afpa.pompey.cda17.ParcInfo.models;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Test class for the display helpers of Appareil and TypePeripherique.
+ */
+public class AppareilTest {
+
+    /**
+     * The identities of the holders are kept until the holders are set again.
+     */
+    @Test
+    public void proprietairesIdentites() {
+        Appareil appareil = new Appareil();
+        assertEquals("", appareil.getProprietairesIdentites());
+
+        appareil.setProprietaires(List.of(personne("Zoé", "Condé"), personne("Jean", "Martin")));
+        assertEquals("Zoé Condé, Jean Martin", appareil.getProprietairesIdentites());
+        assertSame(appareil.getProprietairesIdentites(), appareil.getProprietairesIdentites());
+
+        appareil.setProprietaires(List.of(personne("Jean", "Martin")));
+        assertEquals("Jean Martin", appareil.getProprietairesIdentites());
+    }
+
+    /**
+     * The labels of the types are computed once.
+     */
+    @Test
+    public void typeLabels() {
+        assertEquals("Casque microphone", TypePeripherique.CASQUE_MICROPHONE.toString());
+        assertEquals("Souris", TypePeripherique.SOURIS.toString());
+        assertSame(TypePeripherique.ECRAN.toString(), TypePeripherique.ECRAN.toString());
+    }
+
+    private static Personne personne(String prenom, String nom) {
+        Personne personne = new Personne();
+        personne.setPrenom(prenom);
+        personne.setNom(nom);
+        return personne;
+    }
+}
@@ -0,0 +1,95 @@
+package fr.afpa.pompey.cda17.ParcInfo.models;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Test class for IdSet, and for the equality of the models on their ID.
+ */
+public class IdSetTest {
+
+    /**
+     * Only the given IDs are found, 0 and duplicates included.
+     */
+    @Test
+    public void containsTheGivenIds() {
+        IdSet ids = IdSet.of(3, 0, 1_000_000_007L, 3, -5);
+
+        assertEquals(4, ids.size());
+        assertTrue(ids.contains(3));
+        assertTrue(ids.contains(0));
+        assertTrue(ids.contains(1_000_000_007L));
+        assertTrue(ids.contains(-5));
+        assertFalse(ids.contains(4));
+        assertArrayEquals(new long[]{-5, 0, 3, 1_000_000_007L}, ids.toArray());
+        assertFalse(IdSet.EMPTY.contains(0));
+        assertTrue(IdSet.of().isEmpty());
+    }
+
+    /**
+     * A large set finds all its IDs and nothing else.
+     */
+    @Test
+    public void largeSet() {
+        List<Personne> personnes = new ArrayList<>();
+        for (long id = 1; id <= 10_000; id++) {
+            Personne personne = new Personne();
+            personne.setId(id * 64);
+            personnes.add(personne);
+        }
+        IdSet ids = IdSet.of(personnes, Personne::getId);
+
+        assertEquals(10_000, ids.size());
+        for (long id = 1; id <= 640_000; id++) {
+            assertEquals(id % 64 == 0, ids.contains(id));
+        }
+    }
+
+    /**
+     * The IDs of the proprietaires follow the list set on the Appareil.
+     */
+    @Test
+    public void proprietaireIds() {
+        Appareil appareil = new Appareil();
+        assertFalse(appareil.estDetenuPar(1));
+
+        appareil.setProprietaires(List.of(personne(1, "Martin"), personne(2, "Condé")));
+        assertTrue(appareil.estDetenuPar(2));
+        assertFalse(appareil.estDetenuPar(3));
+
+        appareil.setProprietaires(List.of(personne(3, "Durand")));
+        assertFalse(appareil.estDetenuPar(2));
+        assertTrue(appareil.estDetenuPar(3));
+    }
+
+    /**
+     * Two copies of the same Personne are equal, whatever their other fields and their Appareil.
+     */
+    @Test
+    public void modelsAreEqualOnTheirId() {
+        Personne personne = personne(1, "Martin");
+        Personne copy = personne(1, "Martin-Durand");
+        Appareil appareil = new Appareil();
+        appareil.setId(10);
+        appareil.setProprietaires(List.of(copy));
+        copy.setAppareils(List.of(appareil));
+
+        assertEquals(personne, copy);
+        assertEquals(personne.hashCode(), copy.hashCode());
+        assertNotEquals(personne, personne(2, "Martin"));
+        assertTrue(appareil.getProprietaires().contains(personne));
+        // No infinite recursion through the back reference
+        assertFalse(copy.toString().isEmpty());
+    }
+
+    private static Personne personne(long id, String nom) {
+        Personne personne = new Personne();
+        personne.setId(id);
+        personne.setNom(nom);
+        return personne;
+    }
+}
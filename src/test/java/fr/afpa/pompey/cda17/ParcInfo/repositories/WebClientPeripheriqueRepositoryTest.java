@@ -0,0 +1,71 @@
+package fr.afpa.pompey.cda17.ParcInfo.repositories;
+
+import fr.afpa.pompey.cda17.ParcInfo.models.Peripherique;
+import fr.afpa.pompey.cda17.ParcInfo.stub.StubApiServer;
+import fr.afpa.pompey.cda17.ParcInfo.stub.StubDataset;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import java.io.IOException;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Test class for WebClientPeripheriqueRepository, selected with http.client=web-client,
+ * against a stub of the API.
+ */
+@SpringBootTest(properties = "fr.afpa.pompey.cda17.http.client=web-client")
+public class WebClientPeripheriqueRepositoryTest {
+
+    private static final StubDataset DATASET = new StubDataset(100, 10_000);
+
+    private static StubApiServer stub;
+
+    @Autowired
+    private PeripheriqueRepository peripheriqueRepository;
+
+    @Autowired
+    private ReactivePeripheriqueRepository reactivePeripheriqueRepository;
+
+    @BeforeAll
+    static void startStub() throws IOException {
+        stub = StubApiServer.start(DATASET);
+    }
+
+    @AfterAll
+    static void stopStub() {
+        stub.close();
+    }
+
+    @DynamicPropertySource
+    static void apiUrl(DynamicPropertyRegistry registry) {
+        registry.add("fr.afpa.pompey.cda17.apiUrl", () -> stub.getUrl());
+    }
+
+    /**
+     * The property selects the WebClient implementation behind the common interface.
+     */
+    @Test
+    public void selectsWebClientImplementation() {
+        assertInstanceOf(WebClientPeripheriqueRepository.class, peripheriqueRepository);
+        assertEquals(DATASET.peripherique(42).getAppareil().getLibelle(),
+                peripheriqueRepository.getPeripherique(42).getAppareil().getLibelle());
+    }
+
+    /**
+     * The Flux emits every element of the array, in order.
+     */
+    @Test
+    public void streamsAllPeripheriques() {
+        assertEquals(Long.valueOf(10_000), reactivePeripheriqueRepository.findAll().count().block());
+        try (Stream<Peripherique> peripheriques = peripheriqueRepository.streamPeripheriques()) {
+            assertEquals(1, peripheriques.findFirst().orElseThrow().getIdAppareil());
+        }
+    }
+}
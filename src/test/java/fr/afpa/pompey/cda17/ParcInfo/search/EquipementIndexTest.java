@@ -0,0 +1,96 @@
+package fr.afpa.pompey.cda17.ParcInfo.search;
+
+import fr.afpa.pompey.cda17.ParcInfo.models.Peripherique;
+import fr.afpa.pompey.cda17.ParcInfo.models.Personne;
+import fr.afpa.pompey.cda17.ParcInfo.stub.StubDataset;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Test class for EquipementIndex, filled with a generated inventory.
+ */
+public class EquipementIndexTest {
+
+    private static final StubDataset DATASET = new StubDataset(100, 5_000);
+
+    private List<Peripherique> peripheriques;
+
+    private EquipementIndex index;
+
+    @BeforeEach
+    void build() {
+        peripheriques = new ArrayList<>();
+        for (long id = 1; id <= DATASET.getPeripheriqueCount(); id++) {
+            peripheriques.add(DATASET.peripherique(id));
+        }
+        index = new EquipementIndex();
+        index.rebuild(peripheriques);
+    }
+
+    /**
+     * Each Personne holds what a scan of the inventory finds.
+     */
+    @Test
+    public void matchesAScanOfTheInventory() {
+        for (long personne = 1; personne <= DATASET.getPersonneCount(); personne++) {
+            long id = personne;
+            List<Long> scanned = peripheriques.stream()
+                    .filter(peripherique -> peripherique.getAppareil().estDetenuPar(id))
+                    .map(Peripherique::getIdAppareil)
+                    .toList();
+
+            assertEquals(scanned, index.equipements(personne).stream().map(Equipement::id).toList());
+            assertEquals(scanned.size(), index.count(personne));
+        }
+        assertEquals(DATASET.getPeripheriqueCount(), index.size());
+    }
+
+    /**
+     * An assignment moves the Peripherique from its former holders to the new ones.
+     */
+    @Test
+    public void followsTheAssignments() {
+        Peripherique peripherique = DATASET.peripherique(3);
+        long former = peripherique.getAppareil().getProprietaires().get(0).getId();
+        int formerCount = index.count(former);
+
+        index.affect(3, new String[]{"99", "100"});
+
+        assertEquals(formerCount - 1, index.count(former));
+        assertTrue(index.equipements(99).stream().anyMatch(equipement -> equipement.id() == 3
+                && equipement.libelle().equals(peripherique.getAppareil().getLibelle())));
+        assertTrue(index.equipements(100).stream().anyMatch(equipement -> equipement.id() == 3));
+
+        index.affect(3, new String[]{""});
+
+        assertTrue(index.equipements(99).stream().noneMatch(equipement -> equipement.id() == 3));
+    }
+
+    /**
+     * Deleted Peripherique and Personne disappear from the index.
+     */
+    @Test
+    public void followsTheDeletions() {
+        long holder = DATASET.peripherique(3).getAppareil().getProprietaires().get(0).getId();
+        int count = index.count(holder);
+
+        index.removePeripherique(3);
+
+        assertEquals(count - 1, index.count(holder));
+        assertEquals(DATASET.getPeripheriqueCount() - 1, index.size());
+
+        index.removePersonne(holder);
+
+        assertEquals(0, index.count(holder));
+        Personne other = new Personne();
+        other.setId(holder == 1 ? 2 : 1);
+        assertEquals(Map.of(holder, 0, other.getId(), index.count(other.getId())),
+                index.counts(List.of(DATASET.personne(holder), other)));
+    }
+}
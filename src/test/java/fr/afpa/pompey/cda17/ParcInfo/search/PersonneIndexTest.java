@@ -0,0 +1,106 @@
+package fr.afpa.pompey.cda17.ParcInfo.search;
+
+import fr.afpa.pompey.cda17.ParcInfo.models.IdSet;
+import fr.afpa.pompey.cda17.ParcInfo.models.Personne;
+import fr.afpa.pompey.cda17.ParcInfo.stub.StubDataset;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Test class for PersonneIndex, filled with a generated directory.
+ */
+public class PersonneIndexTest {
+
+    private static final StubDataset DATASET = new StubDataset(1_000, 0);
+
+    private PersonneIndex index;
+
+    @BeforeEach
+    void build() {
+        List<Personne> personnes = new ArrayList<>();
+        for (long id = 1; id <= DATASET.getPersonneCount(); id++) {
+            personnes.add(DATASET.personne(id));
+        }
+        index = new PersonneIndex();
+        index.rebuild(personnes);
+    }
+
+    /**
+     * Accents and case are ignored, on both sides.
+     */
+    @Test
+    public void ignoresAccentsAndCase() {
+        List<PersonneSuggestion> found = index.search("CONDE", 1_000);
+
+        assertEquals(100, found.size());
+        assertTrue(found.stream().allMatch(personne -> personne.nom().equals("Condé")));
+        assertEquals(found.size(), index.search("condé", 1_000).size());
+    }
+
+    /**
+     * Every word must start a name, a first name or the phone number.
+     */
+    @Test
+    public void matchesEveryWordAsPrefix() {
+        List<PersonneSuggestion> found = index.search("zo cond", 1_000);
+
+        assertFalse(found.isEmpty());
+        assertTrue(found.stream().allMatch(personne -> personne.prenom().equals("Zoé") && personne.nom().equals("Condé")));
+        assertTrue(index.search("zo xyz", 1_000).isEmpty());
+    }
+
+    /**
+     * A phone number is found whatever its separators.
+     */
+    @Test
+    public void matchesPhoneNumbers() {
+        List<PersonneSuggestion> found = index.search("06 00 00 04 20", 10);
+
+        assertEquals(List.of(420L), found.stream().map(PersonneSuggestion::id).toList());
+    }
+
+    /**
+     * The number of suggestions is bounded.
+     */
+    @Test
+    public void limitsSuggestions() {
+        assertEquals(20, index.search("m", 20).size());
+        assertTrue(index.search("", 20).isEmpty());
+    }
+
+    /**
+     * The persons already chosen are skipped, and others take their place.
+     */
+    @Test
+    public void skipsExcludedPersons() {
+        List<Long> first = index.search("conde", 5).stream().map(PersonneSuggestion::id).toList();
+        List<PersonneSuggestion> found = index.search("conde", 5, IdSet.of(first.get(0), first.get(1)));
+
+        assertEquals(5, found.size());
+        assertTrue(found.stream().noneMatch(personne -> personne.id() == first.get(0) || personne.id() == first.get(1)));
+    }
+
+    /**
+     * Saved and deleted persons are seen at once.
+     */
+    @Test
+    public void updatesIncrementally() {
+        Personne personne = DATASET.personne(42);
+        personne.setNom("Lefèvre");
+        index.put(personne);
+
+        assertEquals(List.of(42L), index.search("lefev", 10).stream().map(PersonneSuggestion::id).toList());
+        assertTrue(index.search(DATASET.personne(42).getTelephone(), 10).stream()
+                .allMatch(suggestion -> suggestion.nom().equals("Lefèvre")));
+
+        index.remove(42);
+
+        assertTrue(index.search("lefev", 10).isEmpty());
+        assertEquals(DATASET.getPersonneCount() - 1, index.size());
+    }
+}
@@ -0,0 +1,138 @@
+package fr.afpa.pompey.cda17.ParcInfo.snapshot;
+
+import fr.afpa.pompey.cda17.ParcInfo.cache.InventoryCache;
+import fr.afpa.pompey.cda17.ParcInfo.models.Peripherique;
+import fr.afpa.pompey.cda17.ParcInfo.models.Personne;
+import fr.afpa.pompey.cda17.ParcInfo.services.PeripheriqueService;
+import fr.afpa.pompey.cda17.ParcInfo.services.PersonneService;
+import fr.afpa.pompey.cda17.ParcInfo.stub.StubApiServer;
+import fr.afpa.pompey.cda17.ParcInfo.stub.StubDataset;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.not;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+/**
+ * Test class for InventorySnapshot.
+ * The snapshot is written from a stub of the API, then the stub is made to fail: the pages are read
+ * from the snapshot, reloaded from the disk as after a restart. The last known good results of
+ * the repositories are disabled, so that only the snapshot can answer.
+ */
+@SpringBootTest(properties = "fr.afpa.pompey.cda17.resilience.enabled=false")
+@AutoConfigureMockMvc
+public class InventorySnapshotTest {
+
+    private static final StubDataset DATASET = new StubDataset(50, 100);
+
+    private static StubApiServer stub;
+
+    private static Path directory;
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private InventorySnapshot snapshot;
+
+    @Autowired
+    private PersonneService personneService;
+
+    @Autowired
+    private PeripheriqueService peripheriqueService;
+
+    @Autowired
+    private InventoryCache cache;
+
+    @BeforeAll
+    static void startStub() throws IOException {
+        stub = StubApiServer.start(DATASET);
+        directory = Files.createTempDirectory("snapshot");
+    }
+
+    @AfterAll
+    static void stopStub() {
+        stub.close();
+    }
+
+    @DynamicPropertySource
+    static void properties(DynamicPropertyRegistry registry) {
+        registry.add("fr.afpa.pompey.cda17.apiUrl", () -> stub.getUrl());
+        registry.add("fr.afpa.pompey.cda17.snapshot.directory", () -> directory.toString());
+    }
+
+    @AfterEach
+    void heal() {
+        stub.withErrorRate(0);
+    }
+
+    /**
+     * While the API fails, the lists are served from the snapshot, with the age of the data.
+     */
+    @Test
+    public void servesTheSnapshotWhileTheApiFails() throws Exception {
+        snapshot.save();
+        assertTrue(Files.exists(directory.resolve("inventory.snapshot")));
+        stub.withErrorRate(1);
+        snapshot.load();
+
+        mockMvc.perform(get("/personnes"))
+                .andExpect(status().isOk())
+                .andExpect(content().string(containsString("L’API ne répond pas")))
+                .andExpect(content().string(containsString(DATASET.personne(1).getNom())));
+        mockMvc.perform(get("/peripheriques"))
+                .andExpect(status().isOk())
+                .andExpect(content().string(containsString("L’API ne répond pas")));
+
+        stub.withErrorRate(0);
+        mockMvc.perform(get("/personnes"))
+                .andExpect(status().isOk())
+                .andExpect(content().string(not(containsString("L’API ne répond pas"))));
+    }
+
+    /**
+     * While the API fails, a Personne or a Peripherique read by its ID is served from the snapshot too.
+     */
+    @Test
+    public void servesOneEntityFromTheSnapshotWhileTheApiFails() {
+        snapshot.save();
+        cache.evictPersonne(11);
+        cache.evictPeripherique(11);
+        stub.withErrorRate(1);
+
+        assertEquals(DATASET.personne(11).getNom(), personneService.getPersonne(11).getNom());
+        assertEquals(11, peripheriqueService.getPeripherique(11).getIdAppareil());
+    }
+
+    /**
+     * An assignment saved after the snapshot is written is journaled, and found again after a restart.
+     */
+    @Test
+    public void journalsTheSavedChanges() {
+        snapshot.save();
+        Peripherique peripherique = peripheriqueService.getPeripherique(1);
+        peripheriqueService.affect(peripherique, new String[] {"7", "9"});
+
+        snapshot.load();
+
+        List<Personne> holders = snapshot.getInventory().peripherique(1).getAppareil().getProprietaires();
+        assertEquals(List.of(7L, 9L), holders.stream().map(Personne::getId).toList());
+        assertEquals(DATASET.personne(7).getNom(), holders.get(0).getNom());
+    }
+}
@@ -0,0 +1,213 @@
+package fr.afpa.pompey.cda17.ParcInfo.snapshot;
+
+import fr.afpa.pompey.cda17.ParcInfo.models.Peripherique;
+import fr.afpa.pompey.cda17.ParcInfo.models.Personne;
+import fr.afpa.pompey.cda17.ParcInfo.stub.StubDataset;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Test class for SnapshotFile and SnapshotJournal, with a generated inventory written to a temporary directory.
+ */
+public class SnapshotFileTest {
+
+    private static final StubDataset DATASET = new StubDataset(100, 500);
+
+    private static final Instant READ_AT = Instant.parse("2025-03-14T09:30:00Z");
+
+    private List<Personne> personnes;
+
+    private List<Peripherique> peripheriques;
+
+    private Path file;
+
+    private Path journalFile;
+
+    @BeforeEach
+    void write() throws IOException {
+        personnes = new ArrayList<>();
+        for (long id = 1; id <= DATASET.getPersonneCount(); id++) {
+            personnes.add(DATASET.personne(id));
+        }
+        peripheriques = new ArrayList<>();
+        for (long id = 1; id <= DATASET.getPeripheriqueCount(); id++) {
+            peripheriques.add(DATASET.peripherique(id));
+        }
+        Path directory = Files.createTempDirectory("snapshot");
+        file = directory.resolve("inventory.snapshot");
+        journalFile = directory.resolve("inventory.journal");
+        SnapshotFile.write(file, 42, READ_AT, personnes, peripheriques);
+    }
+
+    /**
+     * The file gives back the inventory written, in the same order; the holders are its Personne.
+     */
+    @Test
+    public void roundTrip() throws IOException {
+        Inventory inventory = SnapshotFile.read(file);
+
+        assertEquals(42, inventory.getGeneration());
+        assertEquals(READ_AT, inventory.getReadAt());
+        assertEquals(personnes.size(), inventory.personnes().size());
+        assertEquals(peripheriques.size(), inventory.peripheriques().size());
+        for (int i = 0; i < personnes.size(); i++) {
+            Personne expected = personnes.get(i);
+            Personne actual = inventory.personnes().get(i);
+            assertEquals(expected.getId(), actual.getId());
+            assertEquals(expected.getNom(), actual.getNom());
+            assertEquals(expected.getPrenom(), actual.getPrenom());
+            assertEquals(expected.getAdresse(), actual.getAdresse());
+            assertEquals(expected.getTelephone(), actual.getTelephone());
+            assertEquals(expected.getDateNaissance(), actual.getDateNaissance());
+        }
+        for (int i = 0; i < peripheriques.size(); i++) {
+            Peripherique expected = peripheriques.get(i);
+            Peripherique actual = inventory.peripheriques().get(i);
+            assertEquals(expected.getIdAppareil(), actual.getIdAppareil());
+            assertEquals(expected.getType(), actual.getType());
+            assertEquals(expected.getAppareil().getLibelle(), actual.getAppareil().getLibelle());
+            assertEquals(expected.getAppareil().getProprietairesIdentites(),
+                    actual.getAppareil().getProprietairesIdentites());
+            for (Personne holder : actual.getAppareil().getProprietaires()) {
+                assertSame(inventory.holder(holder.getId()), holder);
+            }
+        }
+    }
+
+    /**
+     * Touching the file changes the time of the read only.
+     */
+    @Test
+    public void touch() throws IOException {
+        Instant later = READ_AT.plusSeconds(300);
+        SnapshotFile.touch(file, later);
+
+        Inventory inventory = SnapshotFile.read(file);
+        assertEquals(later, inventory.getReadAt());
+        assertEquals(42, inventory.getGeneration());
+        assertEquals(personnes.size(), inventory.personnes().size());
+    }
+
+    /**
+     * A file that is not a snapshot, or is cut short, is not read.
+     */
+    @Test
+    public void truncatedFileIsRejected() throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            channel.truncate(channel.size() / 2);
+        }
+        assertThrows(IOException.class, () -> SnapshotFile.read(file));
+    }
+
+    /**
+     * The changes appended to the journal are found again when it is replayed, after a restart.
+     */
+    @Test
+    public void journalReplay() throws IOException {
+        Personne renamed = DATASET.personne(7);
+        renamed.setNom("Lorrain");
+        Peripherique held = DATASET.peripherique(1);
+        try (SnapshotJournal journal = SnapshotJournal.open(journalFile, SnapshotFile.read(file))) {
+            journal.append(SnapshotJournal.PERSONNE_SAVED, SnapshotJournal.personneSaved(renamed));
+            journal.append(SnapshotJournal.PERIPHERIQUE_DELETED, SnapshotJournal.deleted(2));
+            journal.append(SnapshotJournal.PERIPHERIQUE_AFFECTED, SnapshotJournal.affected(1, new long[] {7, 9}));
+        }
+
+        Inventory inventory = SnapshotFile.read(file);
+        try (SnapshotJournal journal = SnapshotJournal.open(journalFile, inventory)) {
+            inventory = journal.replay(inventory);
+        }
+
+        assertEquals("Lorrain", inventory.personne(7).getNom());
+        assertNull(inventory.peripherique(2));
+        assertEquals(peripheriques.size() - 1, inventory.peripheriques().size());
+        List<Personne> holders = inventory.peripherique(held.getIdAppareil()).getAppareil().getProprietaires();
+        assertEquals(List.of(7L, 9L), holders.stream().map(Personne::getId).toList());
+        assertEquals("Lorrain", holders.get(0).getNom());
+    }
+
+    /**
+     * A change gives a new Inventory, and leaves the Peripherique of the previous one as they were:
+     * a page may still be rendering them.
+     */
+    @Test
+    public void changesDoNotModifyThePreviousInventory() throws IOException {
+        Inventory before = SnapshotFile.read(file);
+        Peripherique shared = before.peripheriques().get(0);
+        List<Personne> holders = shared.getAppareil().getProprietaires();
+        String identites = shared.getAppareil().getProprietairesIdentites();
+        Personne renamed = DATASET.personne(7);
+        renamed.setNom("Lorrain");
+
+        Inventory after = before.withAffectation(shared.getIdAppareil(), new long[] {7})
+                .withPersonne(renamed);
+        Peripherique changed = after.peripherique(shared.getIdAppareil());
+        assertEquals("Lorrain", changed.getAppareil().getProprietaires().get(0).getNom());
+        after = after.withoutPersonne(7);
+
+        assertSame(shared, before.peripheriques().get(0));
+        assertSame(holders, shared.getAppareil().getProprietaires());
+        assertEquals(identites, shared.getAppareil().getProprietairesIdentites());
+        assertTrue(after.peripherique(shared.getIdAppareil()).getAppareil().getProprietaires().isEmpty());
+    }
+
+    /**
+     * A record torn by a crash is cut off; the records before it are kept, and the journal goes on after them.
+     */
+    @Test
+    public void tornRecordIsCutOff() throws IOException {
+        try (SnapshotJournal journal = SnapshotJournal.open(journalFile, SnapshotFile.read(file))) {
+            journal.append(SnapshotJournal.PERSONNE_DELETED, SnapshotJournal.deleted(3));
+        }
+        long whole = Files.size(journalFile);
+        try (FileChannel channel = FileChannel.open(journalFile, StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+            channel.write(ByteBuffer.allocate(7).put(SnapshotJournal.PERSONNE_DELETED).putInt(8).flip());
+        }
+
+        Inventory inventory = SnapshotFile.read(file);
+        try (SnapshotJournal journal = SnapshotJournal.open(journalFile, inventory)) {
+            inventory = journal.replay(inventory);
+            assertEquals(whole, Files.size(journalFile));
+            journal.append(SnapshotJournal.PERSONNE_DELETED, SnapshotJournal.deleted(4));
+        }
+        assertNull(inventory.personne(3));
+        assertNotNull(inventory.personne(4));
+
+        inventory = SnapshotFile.read(file);
+        try (SnapshotJournal journal = SnapshotJournal.open(journalFile, inventory)) {
+            inventory = journal.replay(inventory);
+        }
+        assertNull(inventory.personne(3));
+        assertNull(inventory.personne(4));
+    }
+
+    /**
+     * A journal that follows another snapshot file is emptied rather than replayed.
+     */
+    @Test
+    public void journalOfAnotherGenerationIsIgnored() throws IOException {
+        try (SnapshotJournal journal = SnapshotJournal.open(journalFile, SnapshotFile.read(file))) {
+            journal.append(SnapshotJournal.PERSONNE_DELETED, SnapshotJournal.deleted(3));
+        }
+        SnapshotFile.write(file, 43, READ_AT, personnes, peripheriques);
+
+        Inventory inventory = SnapshotFile.read(file);
+        try (SnapshotJournal journal = SnapshotJournal.open(journalFile, inventory)) {
+            inventory = journal.replay(inventory);
+        }
+        assertNotNull(inventory.personne(3));
+        assertEquals(personnes.size(), inventory.personnes().size());
+    }
+}
@@ -0,0 +1,84 @@
+package fr.afpa.pompey.cda17.ParcInfo.startup;
+
+import config.CustomProperties;
+import fr.afpa.pompey.cda17.ParcInfo.stub.StubApiServer;
+import fr.afpa.pompey.cda17.ParcInfo.stub.StubDataset;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.availability.ApplicationAvailability;
+import org.springframework.boot.availability.ReadinessState;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Test class for WarmUp.
+ * The application is started with its server, in front of a stub of the API: it is ready once warmed up.
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+        properties = "fr.afpa.pompey.cda17.warm-up.iterations=2")
+public class WarmUpTest {
+
+    private static StubApiServer stub;
+
+    private static Path snapshot;
+
+    @LocalServerPort
+    private int port;
+
+    @Autowired
+    private WarmUp warmUp;
+
+    @Autowired
+    private CustomProperties props;
+
+    @Autowired
+    private ApplicationAvailability availability;
+
+    @BeforeAll
+    static void startStub() throws IOException {
+        stub = StubApiServer.start(new StubDataset(100, 200));
+        snapshot = Files.createTempDirectory("snapshot");
+    }
+
+    @AfterAll
+    static void stopStub() {
+        stub.close();
+    }
+
+    @DynamicPropertySource
+    static void properties(DynamicPropertyRegistry registry) {
+        registry.add("fr.afpa.pompey.cda17.apiUrl", () -> stub.getUrl());
+        registry.add("fr.afpa.pompey.cda17.snapshot.directory", () -> snapshot.toString());
+    }
+
+    /**
+     * Every page was requested twice without error before the application got ready.
+     */
+    @Test
+    public void readyOnceWarmedUp() throws Exception {
+        assertEquals(2 * props.getWarmUp().getPages().size(), warmUp.getRequests());
+        assertEquals(0, warmUp.getErrors());
+        assertTrue(stub.getRequestCount() > 0);
+        assertEquals(ReadinessState.ACCEPTING_TRAFFIC, availability.getReadinessState());
+
+        HttpResponse<String> readiness = HttpClient.newHttpClient().send(
+                HttpRequest.newBuilder(URI.create("http://localhost:" + port + "/actuator/health/readiness")).build(),
+                HttpResponse.BodyHandlers.ofString());
+        assertEquals(200, readiness.statusCode());
+        assertTrue(readiness.body().contains("UP"));
+    }
+}
@@ -0,0 +1,470 @@
+package fr.afpa.pompey.cda17.ParcInfo.stub;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import fr.afpa.pompey.cda17.ParcInfo.models.Changes;
+import fr.afpa.pompey.cda17.ParcInfo.models.Peripherique;
+import fr.afpa.pompey.cda17.ParcInfo.models.Personne;
+
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongFunction;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * In-process stub of the ParcInfo API, built on the JDK HTTP server.
+ * It serves the read endpoints of the API from a {@link StubDataset},
+ * streaming the JSON so that large datasets do not need to fit in memory.
+ * Responses carry an ETag and a Last-Modified date derived from the dataset
+ * version, and conditional requests are answered 304 while the data is unchanged.
+ * Assignments (PUT /peripherique/{id}/personnes) are accepted and counted, but not applied to the dataset.
+ * It also serves a change feed (GET /changes/cursor, GET /changes?since=&limit=), made of the changes
+ * a test records with {@link #changed(Personne)} and the like; they are not applied to the dataset either,
+ * and a cursor older than the changes kept, see {@link #expireChanges()}, is answered 410 Gone.
+ * A latency and a rate of errors can be injected, to load the application like a remote API would.
+ * It listens on a random local port: use {@link #getUrl()} as the API URL.
+ */
+public class StubApiServer implements AutoCloseable {
+
+    private static final Pattern ENTITY = Pattern.compile("^/(personne|peripherique)/(\\d+)$");
+
+    private static final Pattern ASSIGNMENT = Pattern.compile("^/peripherique/(\\d+)/personnes$");
+
+    private static final Pattern CHANGES_QUERY = Pattern.compile("since=(\\d+)(?:&limit=(\\d+))?");
+
+    private final StubDataset dataset;
+
+    private final HttpServer server;
+
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+
+    private final ObjectMapper mapper = new ObjectMapper()
+            .registerModule(new JavaTimeModule())
+            .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)
+            .disable(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+
+    private final LongAdder requests = new LongAdder();
+
+    private final LongAdder notModified = new LongAdder();
+
+    private final LongAdder bytesSent = new LongAdder();
+
+    private final LongAdder assignments = new LongAdder();
+
+    // Version of the data, changed by touch(); the ETags and Last-Modified dates derive from it
+    private final AtomicLong version = new AtomicLong(1);
+
+    private volatile Instant lastModified = Instant.now().truncatedTo(ChronoUnit.SECONDS);
+
+    // Time spent before answering each request, like a remote API would
+    private volatile Duration latency = Duration.ZERO;
+
+    // Share of the requests answered 503 Service Unavailable
+    private volatile double errorRate;
+
+    private final LongAdder injectedErrors = new LongAdder();
+
+    // One request out of every slowEvery waits slowLatency more: the tail of a remote API
+    private volatile int slowEvery;
+
+    private volatile Duration slowLatency = Duration.ZERO;
+
+    // Time spent before writing each element of a list: a body that trickles in
+    private volatile Duration elementDelay = Duration.ZERO;
+
+    private final AtomicLong arrivals = new AtomicLong();
+
+    // Changes recorded by the test, in order, each adding itself to the Changes read; guarded by itself
+    private final List<Consumer<Changes>> changeLog = new ArrayList<>();
+
+    // Cursor of the last change expired: the changes after it are in changeLog
+    private long expiredCursor;
+
+    private StubApiServer(StubDataset dataset) throws IOException {
+        this.dataset = dataset;
+        this.server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        this.server.createContext("/", this::handle);
+        this.server.setExecutor(executor);
+    }
+
+    /**
+     * Starts a stub serving the given dataset.
+     * @param dataset the data to serve.
+     * @return the started stub.
+     * @throws IOException if the server cannot be bound.
+     */
+    public static StubApiServer start(StubDataset dataset) throws IOException {
+        StubApiServer stub = new StubApiServer(dataset);
+        stub.server.start();
+        return stub;
+    }
+
+    /**
+     * @return the base URL of the stub, to be used as fr.afpa.pompey.cda17.apiUrl.
+     */
+    public String getUrl() {
+        return "http://localhost:" + server.getAddress().getPort();
+    }
+
+    public StubDataset getDataset() {
+        return dataset;
+    }
+
+    /**
+     * @return the number of requests received since the start.
+     */
+    public long getRequestCount() {
+        return requests.sum();
+    }
+
+    /**
+     * @return the number of requests answered 304 Not Modified.
+     */
+    public long getNotModifiedCount() {
+        return notModified.sum();
+    }
+
+    /**
+     * @return the number of body bytes sent since the start.
+     */
+    public long getBytesSent() {
+        return bytesSent.sum();
+    }
+
+    /**
+     * @return the number of assignments accepted since the start.
+     */
+    public long getAssignmentCount() {
+        return assignments.sum();
+    }
+
+    /**
+     * Delays every response, to simulate a remote API.
+     * @param latency the time to wait before answering.
+     * @return this stub.
+     */
+    public StubApiServer withLatency(Duration latency) {
+        this.latency = latency;
+        return this;
+    }
+
+    /**
+     * Answers some requests with an error, to simulate an unreliable API.
+     * @param errorRate the share of the requests answered 503, between 0 and 1.
+     * @return this stub.
+     */
+    public StubApiServer withErrorRate(double errorRate) {
+        this.errorRate = errorRate;
+        return this;
+    }
+
+    /**
+     * Delays some requests more than the others, to simulate the tail latency of an API.
+     * The slow requests are picked by their order of arrival, so that a test knows which ones they are.
+     * @param every one request out of every is slow; 0 for none.
+     * @param latency the time a slow request waits, on top of the latency.
+     * @return this stub.
+     */
+    public StubApiServer withSlowRequests(int every, Duration latency) {
+        this.slowLatency = latency;
+        this.arrivals.set(0);
+        this.slowEvery = every;
+        return this;
+    }
+
+    /**
+     * Writes the lists slowly, each element sent on its own, so that their body takes long to read
+     * while the socket is never idle for long.
+     * @param delay the time to wait before writing each element.
+     * @return this stub.
+     */
+    public StubApiServer withElementDelay(Duration delay) {
+        this.elementDelay = delay;
+        return this;
+    }
+
+    /**
+     * @return the number of requests answered with an injected error.
+     */
+    public long getInjectedErrorCount() {
+        return injectedErrors.sum();
+    }
+
+    /**
+     * Simulates a change of the data: the previous ETags no longer match.
+     */
+    public void touch() {
+        version.incrementAndGet();
+        lastModified = Instant.now().plusSeconds(1).truncatedTo(ChronoUnit.SECONDS);
+    }
+
+    /**
+     * Records a change of a Personne in the change feed.
+     * @param personne the Personne, as it is after the change.
+     */
+    public void changed(Personne personne) {
+        record(changes -> changes.getPersonnes().add(personne));
+    }
+
+    /**
+     * Records a change of a Peripherique, and of its Appareil, in the change feed.
+     * @param peripherique the Peripherique, as it is after the change.
+     */
+    public void changed(Peripherique peripherique) {
+        record(changes -> {
+            changes.getPeripheriques().add(peripherique);
+            changes.getAppareils().add(peripherique.getAppareil());
+        });
+    }
+
+    /**
+     * Records the deletion of a Personne in the change feed.
+     * @param id the ID of the Personne.
+     */
+    public void deletedPersonne(long id) {
+        record(changes -> changes.getDeletedPersonnes().add(id));
+    }
+
+    /**
+     * Records the deletion of a Peripherique, and of its Appareil, in the change feed.
+     * @param id the ID of the Peripherique.
+     */
+    public void deletedPeripherique(long id) {
+        record(changes -> {
+            changes.getDeletedPeripheriques().add(id);
+            changes.getDeletedAppareils().add(id);
+        });
+    }
+
+    /**
+     * Forgets the changes recorded so far: the cursors before them are answered 410 Gone.
+     */
+    public void expireChanges() {
+        synchronized (changeLog) {
+            expiredCursor += changeLog.size();
+            changeLog.clear();
+        }
+    }
+
+    /**
+     * @return the cursor of the last change recorded.
+     */
+    public long getChangeCursor() {
+        synchronized (changeLog) {
+            return expiredCursor + changeLog.size();
+        }
+    }
+
+    private void record(Consumer<Changes> change) {
+        synchronized (changeLog) {
+            changeLog.add(change);
+        }
+        touch();
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        requests.increment();
+        try (exchange) {
+            if (!latency.isZero()) {
+                sleep(latency);
+            }
+            int every = slowEvery;
+            if (every > 0 && arrivals.incrementAndGet() % every == 0) {
+                sleep(slowLatency);
+            }
+            if (errorRate > 0 && ThreadLocalRandom.current().nextDouble() < errorRate) {
+                injectedErrors.increment();
+                exchange.getRequestBody().readAllBytes();
+                exchange.sendResponseHeaders(503, -1);
+                return;
+            }
+            String path = exchange.getRequestURI().getPath();
+            Matcher assignment = ASSIGNMENT.matcher(path);
+            if ("PUT".equals(exchange.getRequestMethod()) && assignment.matches()) {
+                assign(exchange, Long.parseLong(assignment.group(1)));
+                return;
+            }
+            if (!"GET".equals(exchange.getRequestMethod())) {
+                exchange.sendResponseHeaders(405, -1);
+                return;
+            }
+            // Before the conditional GET: the feed is read again and again with the same URL
+            if (path.equals("/changes/cursor") || path.equals("/changes")) {
+                writeChanges(exchange, path.equals("/changes/cursor"));
+                return;
+            }
+
+            if (notModified(exchange)) {
+                return;
+            }
+
+            Matcher entity = ENTITY.matcher(path);
+            switch (path) {
+                case "/personnes" -> writeArray(exchange, dataset.getPersonneCount(), dataset::personne);
+                case "/peripheriques" -> writeArray(exchange, dataset.getPeripheriqueCount(), dataset::peripherique);
+                case "/appareils" -> writeArray(exchange, dataset.getPeripheriqueCount(),
+                        id -> dataset.peripherique(id).getAppareil());
+                default -> {
+                    if (entity.matches()) {
+                        writeEntity(exchange, entity.group(1), Long.parseLong(entity.group(2)));
+                    } else {
+                        exchange.sendResponseHeaders(404, -1);
+                    }
+                }
+            }
+        }
+    }
+
+    private static void sleep(Duration duration) throws IOException {
+        try {
+            Thread.sleep(duration);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted", e);
+        }
+    }
+
+    private boolean notModified(HttpExchange exchange) throws IOException {
+        String etag = "\"v" + version.get() + "\"";
+        exchange.getResponseHeaders().set("ETag", etag);
+        exchange.getResponseHeaders().set("Last-Modified",
+                DateTimeFormatter.RFC_1123_DATE_TIME.format(ZonedDateTime.ofInstant(lastModified, ZoneOffset.UTC)));
+
+        String ifNoneMatch = exchange.getRequestHeaders().getFirst("If-None-Match");
+        String ifModifiedSince = exchange.getRequestHeaders().getFirst("If-Modified-Since");
+        boolean unchanged = ifNoneMatch != null
+                ? ifNoneMatch.contains(etag)
+                : ifModifiedSince != null && !lastModified.isAfter(
+                        ZonedDateTime.parse(ifModifiedSince, DateTimeFormatter.RFC_1123_DATE_TIME).toInstant());
+        if (unchanged) {
+            notModified.increment();
+            exchange.sendResponseHeaders(304, -1);
+        }
+        return unchanged;
+    }
+
+    private void assign(HttpExchange exchange, long id) throws IOException {
+        exchange.getRequestBody().readAllBytes();
+        if (id < 1 || id > dataset.getPeripheriqueCount()) {
+            exchange.sendResponseHeaders(404, -1);
+            return;
+        }
+        assignments.increment();
+        touch();
+        exchange.sendResponseHeaders(204, -1);
+    }
+
+    private void writeChanges(HttpExchange exchange, boolean cursorOnly) throws IOException {
+        Changes changes = new Changes();
+        synchronized (changeLog) {
+            changes.setCursor(expiredCursor + changeLog.size());
+            if (!cursorOnly) {
+                Matcher query = CHANGES_QUERY.matcher(String.valueOf(exchange.getRequestURI().getQuery()));
+                if (!query.find()) {
+                    exchange.sendResponseHeaders(400, -1);
+                    return;
+                }
+                long since = Long.parseLong(query.group(1));
+                if (since < expiredCursor) {
+                    exchange.sendResponseHeaders(410, -1);
+                    return;
+                }
+                long limit = query.group(2) != null ? Long.parseLong(query.group(2)) : Long.MAX_VALUE;
+                long end = Math.min(changes.getCursor(), since + limit);
+                for (long cursor = since; cursor < end; cursor++) {
+                    changeLog.get((int) (cursor - expiredCursor)).accept(changes);
+                }
+                changes.setMore(end < changes.getCursor());
+                changes.setCursor(Math.max(end, since));
+            }
+        }
+        byte[] body = mapper.writeValueAsBytes(changes);
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.sendResponseHeaders(200, body.length);
+        exchange.getResponseBody().write(body);
+        bytesSent.add(body.length);
+    }
+
+    private void writeEntity(HttpExchange exchange, String type, long id) throws IOException {
+        boolean personne = "personne".equals(type);
+        long count = personne ? dataset.getPersonneCount() : dataset.getPeripheriqueCount();
+        if (id < 1 || id > count) {
+            exchange.sendResponseHeaders(404, -1);
+            return;
+        }
+        byte[] body = mapper.writeValueAsBytes(personne ? dataset.personne(id) : dataset.peripherique(id));
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.sendResponseHeaders(200, body.length);
+        exchange.getResponseBody().write(body);
+        bytesSent.add(body.length);
+    }
+
+    private void writeArray(HttpExchange exchange, long count, LongFunction<?> element) throws IOException {
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        // Length 0 means chunked transfer encoding: the array is written as it is generated
+        exchange.sendResponseHeaders(200, 0);
+        try (OutputStream out = new CountingOutputStream(exchange.getResponseBody());
+             JsonGenerator generator = mapper.getFactory().createGenerator(out)) {
+            generator.writeStartArray();
+            Duration delay = elementDelay;
+            for (long id = 1; id <= count; id++) {
+                if (!delay.isZero()) {
+                    generator.flush();
+                    sleep(delay);
+                }
+                mapper.writeValue(generator, element.apply(id));
+            }
+            generator.writeEndArray();
+        }
+    }
+
+    /**
+     * Counts the bytes written to the response body.
+     */
+    private class CountingOutputStream extends FilterOutputStream {
+
+        CountingOutputStream(OutputStream out) {
+            super(out);
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            out.write(b);
+            bytesSent.increment();
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            out.write(b, off, len);
+            bytesSent.add(len);
+        }
+    }
+}
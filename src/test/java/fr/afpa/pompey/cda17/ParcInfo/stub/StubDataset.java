@@ -0,0 +1,100 @@
+package fr.afpa.pompey.cda17.ParcInfo.stub;
+
+import fr.afpa.pompey.cda17.ParcInfo.models.Appareil;
+import fr.afpa.pompey.cda17.ParcInfo.models.Peripherique;
+import fr.afpa.pompey.cda17.ParcInfo.models.Personne;
+import fr.afpa.pompey.cda17.ParcInfo.models.TypePeripherique;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Synthetic inventory served by {@link StubApiServer}.
+ * Every entity is computed from its ID, so a dataset of any size costs no memory
+ * and two datasets of the same size always hold the same data.
+ * IDs start at 1, like in the real database.
+ */
+public class StubDataset {
+
+    private static final String[] NOMS = {
+            "Condé", "Kuntz", "Pierson", "Martin", "Bernard", "Dubois", "Thomas", "Robert", "Richard", "Petit"
+    };
+
+    private static final String[] PRENOMS = {
+            "Lucas", "Kenza", "Fabien", "Benjamin", "Léa", "Chloé", "Hugo", "Inès", "Jules", "Zoé"
+    };
+
+    private final int personneCount;
+
+    private final int peripheriqueCount;
+
+    /**
+     * @param personneCount number of people in the dataset.
+     * @param peripheriqueCount number of peripherals in the dataset.
+     */
+    public StubDataset(int personneCount, int peripheriqueCount) {
+        this.personneCount = personneCount;
+        this.peripheriqueCount = peripheriqueCount;
+    }
+
+    public int getPersonneCount() {
+        return personneCount;
+    }
+
+    public int getPeripheriqueCount() {
+        return peripheriqueCount;
+    }
+
+    /**
+     * Builds the person with the given ID.
+     * @param id an ID between 1 and the number of people.
+     * @return the person, without its devices (like the API does).
+     */
+    public Personne personne(long id) {
+        Personne personne = new Personne();
+        personne.setId(id);
+        personne.setNom(NOMS[(int) (id % NOMS.length)]);
+        personne.setPrenom(PRENOMS[(int) ((id / NOMS.length) % PRENOMS.length)]);
+        personne.setAdresse(id + " rue de la République, 54000 Nancy");
+        personne.setTelephone(String.format("06%08d", id));
+        personne.setDateNaissance(LocalDate.of(1960, 1, 1).plusDays(id * 37 % 15000));
+        return personne;
+    }
+
+    /**
+     * Builds the peripheral with the given ID, with its device and owners.
+     * One peripheral out of five is free, one out of three has two owners.
+     * @param id an ID between 1 and the number of peripherals.
+     * @return the peripheral.
+     */
+    public Peripherique peripherique(long id) {
+        TypePeripherique type = TypePeripherique.values()[(int) (id % TypePeripherique.values().length)];
+
+        Appareil appareil = new Appareil();
+        appareil.setId(id);
+        appareil.setLibelle(type + " #" + id);
+        appareil.setProprietaires(proprietaires(id));
+
+        Peripherique peripherique = new Peripherique();
+        peripherique.setIdAppareil(id);
+        peripherique.setType(type);
+        peripherique.setAppareil(appareil);
+        return peripherique;
+    }
+
+    private List<Personne> proprietaires(long id) {
+        List<Personne> proprietaires = new ArrayList<>();
+        if (personneCount == 0 || id % 5 == 0) {
+            return proprietaires;
+        }
+        proprietaires.add(personne(id * 7 % personneCount + 1));
+        if (id % 3 == 0) {
+            long second = id * 13 % personneCount + 1;
+            if (second != proprietaires.get(0).getId()) {
+                proprietaires.add(personne(second));
+            }
+        }
+        return proprietaires;
+    }
+}
@@ -0,0 +1,112 @@
+package fr.afpa.pompey.cda17.ParcInfo.sync;
+
+import fr.afpa.pompey.cda17.ParcInfo.models.Personne;
+import fr.afpa.pompey.cda17.ParcInfo.stub.StubApiServer;
+import fr.afpa.pompey.cda17.ParcInfo.stub.StubDataset;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.io.IOException;
+
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.not;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+/**
+ * Test class for InventoryReplica.
+ * The replica is synchronized from the change feed of a stub of the API, by calling sync() rather than
+ * waiting for the scheduler; the changes recorded in the feed are not applied to the data of the stub,
+ * so a page showing them has been read from the replica.
+ */
+@SpringBootTest(properties = {
+        "fr.afpa.pompey.cda17.sync.enabled=true",
+        "fr.afpa.pompey.cda17.sync.interval=PT1H",
+        "fr.afpa.pompey.cda17.snapshot.enabled=false"})
+@AutoConfigureMockMvc
+public class InventoryReplicaTest {
+
+    private static final StubDataset DATASET = new StubDataset(50, 100);
+
+    private static StubApiServer stub;
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private InventoryReplica replica;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @BeforeAll
+    static void startStub() throws IOException {
+        stub = StubApiServer.start(DATASET);
+    }
+
+    @AfterAll
+    static void stopStub() {
+        stub.close();
+    }
+
+    @DynamicPropertySource
+    static void properties(DynamicPropertyRegistry registry) {
+        registry.add("fr.afpa.pompey.cda17.apiUrl", () -> stub.getUrl());
+    }
+
+    /**
+     * A change read from the feed is shown by the pages, which no longer call the API.
+     */
+    @Test
+    public void appliesTheChangesOfTheFeed() throws Exception {
+        replica.sync();
+        Personne personne = DATASET.personne(3);
+        personne.setNom("Zorglub");
+        stub.changed(personne);
+        stub.deletedPersonne(4);
+
+        replica.sync();
+
+        long requests = stub.getRequestCount();
+        mockMvc.perform(get("/personnes").param("q", "Zorglub"))
+                .andExpect(status().isOk())
+                .andExpect(content().string(containsString("Zorglub")));
+        mockMvc.perform(get("/personnes").param("size", "200"))
+                .andExpect(status().isOk())
+                .andExpect(content().string(not(containsString(DATASET.personne(4).getTelephone()))));
+        mockMvc.perform(get("/peripheriques"))
+                .andExpect(status().isOk());
+        assertEquals(requests, stub.getRequestCount());
+        assertEquals("Zorglub", replica.personne(3).getNom());
+        assertNull(replica.personne(4));
+    }
+
+    /**
+     * When the API no longer keeps the changes after the cursor of the replica, the replica is read in full.
+     */
+    @Test
+    public void readsTheInventoryAgainWhenTheCursorIsTooOld() {
+        replica.sync();
+        Personne personne = DATASET.personne(8);
+        personne.setNom("Expiré");
+        stub.changed(personne);
+        stub.expireChanges();
+        double resyncs = meterRegistry.counter("parcinfo.sync.resyncs").count();
+
+        replica.sync();
+
+        assertEquals(resyncs + 1, meterRegistry.counter("parcinfo.sync.resyncs").count());
+        // Read from the data of the stub, where the expired change was never applied
+        assertEquals(DATASET.personne(8).getNom(), replica.personne(8).getNom());
+        assertEquals(DATASET.getPersonneCount(), replica.personnes().size());
+    }
+}
@@ -0,0 +1,146 @@
+package fr.afpa.pompey.cda17.ParcInfo.views;
+
+import fr.afpa.pompey.cda17.ParcInfo.cache.InventoryVersion;
+import fr.afpa.pompey.cda17.ParcInfo.services.PeripheriqueService;
+import fr.afpa.pompey.cda17.ParcInfo.stub.StubApiServer;
+import fr.afpa.pompey.cda17.ParcInfo.stub.StubDataset;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.web.servlet.ModelAndView;
+
+import java.io.IOException;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+/**
+ * Test class for ListPageCache.
+ * The list pages are read from a stub of the API; an assignment made through the application
+ * changes the version of the data, so their ETag.
+ */
+@SpringBootTest(properties = "fr.afpa.pompey.cda17.snapshot.enabled=false")
+@AutoConfigureMockMvc
+public class ListPageCacheTest {
+
+    private static StubApiServer stub;
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private PeripheriqueService peripheriqueService;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private ListPageCache listPageCache;
+
+    @Autowired
+    private InventoryVersion version;
+
+    @BeforeAll
+    static void startStub() throws IOException {
+        stub = StubApiServer.start(new StubDataset(50, 100));
+    }
+
+    @AfterAll
+    static void stopStub() {
+        stub.close();
+    }
+
+    @DynamicPropertySource
+    static void properties(DynamicPropertyRegistry registry) {
+        registry.add("fr.afpa.pompey.cda17.apiUrl", () -> stub.getUrl());
+    }
+
+    /**
+     * A browser sending back the ETag of the page gets a 304, until the data is changed.
+     */
+    @Test
+    public void notModifiedUntilTheDataChanges() throws Exception {
+        String etag = etag("/personnes");
+        mockMvc.perform(get("/personnes").header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isNotModified())
+                .andExpect(header().string(HttpHeaders.ETAG, etag));
+
+        peripheriqueService.affect(peripheriqueService.getPeripherique(1), new String[] {"3"});
+
+        mockMvc.perform(get("/personnes").header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isOk());
+        assertNotEquals(etag, etag("/personnes"));
+    }
+
+    /**
+     * The HTML rendered for a version is sent again as is to the next clients.
+     */
+    @Test
+    public void reusesTheRenderedPage() throws Exception {
+        // Reads the data: the first read of a list changes the version
+        mockMvc.perform(get("/peripheriques").param("page", "1"));
+        String first = mockMvc.perform(get("/peripheriques").param("page", "1"))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+        double hits = hits();
+
+        String second = mockMvc.perform(get("/peripheriques").param("page", "1"))
+                .andExpect(status().isOk())
+                .andExpect(content().contentTypeCompatibleWith("text/html"))
+                .andReturn().getResponse().getContentAsString();
+
+        assertEquals(first, second);
+        assertEquals(hits + 1, hits());
+    }
+
+    /**
+     * A page whose data changed while the controller read it gets no ETag, and is not kept:
+     * it may have been built from the data read before the change.
+     */
+    @Test
+    public void doesNotLabelAPageWhoseDataChangedWhileRead() throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/personnes");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        listPageCache.preHandle(request, response, null);
+        double misses = misses();
+
+        version.changed();
+        ModelAndView modelAndView = new ModelAndView("personnes/list");
+        listPageCache.postHandle(request, response, null, modelAndView);
+
+        assertNull(response.getHeader(HttpHeaders.ETAG));
+        assertEquals("personnes/list", modelAndView.getViewName());
+        assertEquals(misses, misses());
+    }
+
+    private String etag(String page) throws Exception {
+        // Reads the data first: a read giving other objects than the previous one changes the version
+        mockMvc.perform(get(page));
+        MvcResult result = mockMvc.perform(get(page))
+                .andExpect(status().isOk())
+                .andExpect(header().exists(HttpHeaders.ETAG))
+                .andExpect(header().string(HttpHeaders.CACHE_CONTROL, "no-cache, private"))
+                .andReturn();
+        return result.getResponse().getHeader(HttpHeaders.ETAG);
+    }
+
+    private double hits() {
+        return meterRegistry.counter("parcinfo.view.cache", "result", "hit").count();
+    }
+
+    private double misses() {
+        return meterRegistry.counter("parcinfo.view.cache", "result", "miss").count();
+    }
+}
@@ -0,0 +1,99 @@
+package fr.afpa.pompey.cda17.ParcInfo.views;
+
+import fr.afpa.pompey.cda17.ParcInfo.stub.StubApiServer;
+import fr.afpa.pompey.cda17.ParcInfo.stub.StubDataset;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.web.servlet.resource.ResourceUrlProvider;
+
+import java.io.IOException;
+
+import static org.hamcrest.Matchers.*;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+/**
+ * Test class for the serving of the static assets (WebConfig).
+ * The assets are the ones built by Maven in target/classes/static (process-resources).
+ */
+@SpringBootTest(properties = "fr.afpa.pompey.cda17.snapshot.enabled=false")
+@AutoConfigureMockMvc
+public class StaticAssetsTest {
+
+    private static StubApiServer stub;
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ResourceUrlProvider resourceUrlProvider;
+
+    @BeforeAll
+    static void startStub() throws IOException {
+        stub = StubApiServer.start(new StubDataset(10, 10));
+    }
+
+    @AfterAll
+    static void stopStub() {
+        stub.close();
+    }
+
+    @DynamicPropertySource
+    static void properties(DynamicPropertyRegistry registry) {
+        registry.add("fr.afpa.pompey.cda17.apiUrl", () -> stub.getUrl());
+    }
+
+    /**
+     * The pages link the assets by fingerprinted URLs, and nothing from another host.
+     */
+    @Test
+    public void pagesLinkFingerprintedAssets() throws Exception {
+        mockMvc.perform(get("/"))
+                .andExpect(status().isOk())
+                .andExpect(content().string(matchesRegex("(?s).*/css/parcinfo\\.min-[0-9a-f]{32}\\.css.*")))
+                .andExpect(content().string(matchesRegex("(?s).*/img/icons-[0-9a-f]{32}\\.svg#menu.*")))
+                .andExpect(content().string(not(containsString("https://"))));
+    }
+
+    /**
+     * A fingerprinted asset is cached for good, and sent compressed to the browsers accepting it.
+     */
+    @Test
+    public void servesImmutableCompressedAssets() throws Exception {
+        String url = resourceUrlProvider.getForLookupPath("/js/personnes-picker.js");
+        assertNotNull(url);
+        assertTrue(url.matches("/js/personnes-picker-[0-9a-f]{32}\\.js"), url);
+
+        mockMvc.perform(get(url))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.CACHE_CONTROL, "max-age=31536000, public, immutable"))
+                .andExpect(header().doesNotExist(HttpHeaders.CONTENT_ENCODING));
+        mockMvc.perform(get(url).header(HttpHeaders.ACCEPT_ENCODING, "gzip, deflate, br"))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.CONTENT_ENCODING, "br"))
+                .andExpect(header().string(HttpHeaders.VARY, containsString(HttpHeaders.ACCEPT_ENCODING)));
+        mockMvc.perform(get(url).header(HttpHeaders.ACCEPT_ENCODING, "gzip"))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.CONTENT_ENCODING, "gzip"))
+                .andExpect(header().string(HttpHeaders.CACHE_CONTROL, "max-age=31536000, public, immutable"));
+    }
+
+    /**
+     * An asset requested by its plain URL, whose content changes with each deploy, is revalidated.
+     */
+    @Test
+    public void revalidatesPlainAssetUrls() throws Exception {
+        mockMvc.perform(get("/js/personnes-picker.js"))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.CACHE_CONTROL, "no-cache"));
+    }
+}